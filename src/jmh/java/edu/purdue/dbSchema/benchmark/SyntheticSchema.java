@@ -0,0 +1,197 @@
+package edu.purdue.dbSchema.benchmark;
+
+import edu.purdue.dbSchema.erros.SqlParseException;
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnsupportedSqlException;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.Table;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Generates the schemas, roles and queries used by the benchmarks. A synthetic
+ * schema has a number of tables named <code>t0, t1, ...</code>, each one with
+ * the same number of columns named <code>c0, c1, ...</code>. The user
+ * {@link #USER} reaches the role holding all the grants through a chain of
+ * roles as long as the requested depth.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class SyntheticSchema {
+
+    /**
+     * The user who issues the queries.
+     */
+    public static final String USER = "bench_user";
+
+    /**
+     * The query shapes supported by {@link #query(java.lang.String, int)}.
+     */
+    public static final String SHAPES = "point,star,join,subquery";
+
+    private static final String TEST_DATA = "edu/purdue/dbSchema/testData/";
+
+    private SyntheticSchema() {
+    }
+
+    /**
+     * Returns the DDL creating the tables.
+     *
+     * @param tables the number of tables.
+     * @param width the number of columns of each table.
+     * @return the CREATE TABLE statements separated by semicolons.
+     */
+    public static String tables(int tables, int width) {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < tables; t++) {
+            sb.append("CREATE TABLE t").append(t).append(" (");
+            for (int c = 0; c < width; c++) {
+                sb.append(c == 0 ? "" : ", ").append('c').append(c).append(" integer");
+            }
+            sb.append(");\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the name of a role in the chain. Level 0 is the user itself.
+     *
+     * @param level the distance from the user.
+     * @return the role name.
+     */
+    public static String role(int level) {
+        return level == 0 ? USER : "r" + level;
+    }
+
+    /**
+     * Returns the GRANT statements building the role chain.
+     *
+     * @param depth the number of roles between the user and the role holding
+     * the grants.
+     * @return the statements separated by semicolons.
+     */
+    public static String roles(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int level = 1; level <= depth; level++) {
+            sb.append("GRANT ").append(role(level)).append(" TO ").append(role(level - 1)).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the GRANT statements giving read and write permissions on all the
+     * tables to a role.
+     *
+     * @param tableNames the tables.
+     * @param role the role.
+     * @return the statements separated by semicolons.
+     */
+    public static String grants(Iterable<String> tableNames, String role) {
+        StringBuilder sb = new StringBuilder();
+        for (String t : tableNames) {
+            sb.append("GRANT SELECT ON ").append(t).append(" TO ").append(role).append(";\n");
+            sb.append("GRANT INSERT ON ").append(t).append(" TO ").append(role).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a query over the synthetic schema.
+     *
+     * @param shape one of {@link #SHAPES}.
+     * @param width the number of columns of each table.
+     * @return the SQL string.
+     * @throws IllegalArgumentException if the shape is unknown.
+     */
+    public static String query(String shape, int width) throws IllegalArgumentException {
+        String last = "c" + (width - 1);
+        switch (shape) {
+            case "point":
+                return "SELECT c0, " + last + " FROM t0 WHERE c0 = 42";
+            case "star":
+                return "SELECT * FROM t0 WHERE " + last + " > 10";
+            case "join":
+                return "SELECT a.c0, b." + last + " FROM t0 a JOIN t1 b ON a.c0 = b.c0 WHERE a." + last + " = 7";
+            case "subquery":
+                return "SELECT c0 FROM t0 WHERE " + last + " IN (SELECT c0 FROM t1 WHERE " + last + " < 3)";
+            default:
+                throw new IllegalArgumentException("unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Creates a database with a synthetic schema, the role chain and the
+     * grants to the deepest role.
+     *
+     * @param tables the number of tables, at least 2 for the join shapes.
+     * @param width the number of columns of each table.
+     * @param depth the length of the role chain.
+     * @return the database.
+     * @throws SqlParseException never.
+     * @throws UnsupportedSqlException never.
+     * @throws SqlSemanticException never.
+     */
+    public static DatabaseEngine engine(int tables, int width, int depth) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse(tables(tables, width));
+        return grantAll(db, depth);
+    }
+
+    /**
+     * Creates a database with the SEATS schema used by the integration tests,
+     * the role chain and the grants to the deepest role.
+     *
+     * @param depth the length of the role chain.
+     * @return the database.
+     * @throws SqlParseException never.
+     * @throws UnsupportedSqlException never.
+     * @throws SqlSemanticException never.
+     */
+    public static DatabaseEngine seats(int depth) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        for (String ddl : statements("seats.sql")) {
+            db.parse(ddl);
+        }
+        return grantAll(db, depth);
+    }
+
+    /**
+     * Returns the queries run against the SEATS schema by the integration
+     * tests.
+     *
+     * @return the queries.
+     */
+    public static List<String> seatsQueries() {
+        return statements("queries.sql");
+    }
+
+    private static DatabaseEngine grantAll(DatabaseEngine db, int depth) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        List<String> names = new ArrayList<>();
+        for (Table t : db.getTables()) {
+            names.add(t.getName().getName());
+        }
+        db.parse(roles(depth) + grants(names, role(depth)));
+        return db;
+    }
+
+    private static List<String> statements(String resource) {
+        List<String> ret = new ArrayList<>();
+        InputStream in = SyntheticSchema.class.getClassLoader().getResourceAsStream(TEST_DATA + resource);
+        if (in == null) {
+            throw new IllegalStateException("missing test data " + resource);
+        }
+        try (Scanner scanner = new Scanner(in)) {
+            scanner.useDelimiter(";");
+            while (scanner.hasNext()) {
+                String sql = scanner.next().trim();
+                if (!sql.isEmpty()) {
+                    ret.add(sql);
+                }
+            }
+        }
+        return ret;
+    }
+}
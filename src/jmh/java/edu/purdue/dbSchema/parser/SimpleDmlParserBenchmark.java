@@ -0,0 +1,71 @@
+package edu.purdue.dbSchema.parser;
+
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link SqlParser} on simple single table
+ * statements, with the fast path and with the full parser.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SimpleDmlParserBenchmark {
+
+    private static final EDbVendor VENDOR = EDbVendor.dbvpostgresql;
+
+    @Param({"select", "insert", "update", "delete"})
+    public String shape;
+
+    private String _sql;
+
+    @Setup
+    public void setup() {
+        switch (shape) {
+            case "select":
+                _sql = "select F_ID, F_SEATS_LEFT, F_DEPART_TIME from \"FLIGHT\" where F_ID = '2815514276397566' and F_SEATS_LEFT > 0";
+                break;
+            case "insert":
+                _sql = "insert into \"RESERVATION\" (R_ID, R_C_ID, R_F_ID, R_SEAT, R_PRICE) values (1, 72057594037927949, 2815514276397566, 12, 350.5)";
+                break;
+            case "update":
+                _sql = "update \"FLIGHT\" set F_SEATS_LEFT = F_SEATS_LEFT - 1 where F_ID = '2815514276397566'";
+                break;
+            case "delete":
+                _sql = "delete from \"RESERVATION\" where R_C_ID = 72057594037927949 and R_F_ID = 2815514276397566";
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+
+    @Benchmark
+    public SqlParser fastPath() throws Exception {
+        SqlParser parser = new SqlParser(VENDOR, true);
+        parser.parse(_sql);
+        return parser;
+    }
+
+    @Benchmark
+    public SqlParser gsp() throws Exception {
+        SqlParser parser = new SqlParser(VENDOR, false);
+        parser.parse(_sql);
+        return parser;
+    }
+}
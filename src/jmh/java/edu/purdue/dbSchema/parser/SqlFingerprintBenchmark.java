@@ -0,0 +1,69 @@
+package edu.purdue.dbSchema.parser;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link SqlFingerprint} on the same queries as
+ * {@link SqlParserBenchmark}, to compare the lexer with the parser. The
+ * <code>fingerprint</code> benchmark reuses the same instance and does not
+ * allocate, the <code>template</code> one builds the string of the
+ * conservative template.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SqlFingerprintBenchmark {
+
+    @Param({"point", "star", "join", "subquery", "seats"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int width;
+
+    private List<String> _queries;
+    private SqlFingerprint _fingerprint;
+
+    @Setup
+    public void setup() {
+        _queries = shape.equals("seats")
+                ? SyntheticSchema.seatsQueries()
+                : Collections.singletonList(SyntheticSchema.query(shape, width));
+        _fingerprint = new SqlFingerprint(EDbVendor.dbvpostgresql);
+    }
+
+    @Benchmark
+    public void fingerprint(Blackhole bh) {
+        for (int i = 0; i < _queries.size(); i++) {
+            bh.consume(_fingerprint.scan(_queries.get(i)));
+            bh.consume(_fingerprint.getFingerprint());
+        }
+    }
+
+    @Benchmark
+    public void template(Blackhole bh) {
+        for (int i = 0; i < _queries.size(); i++) {
+            bh.consume(SqlFingerprint.template(_queries.get(i)));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.purdue.dbSchema.parser;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import gudusoft.gsqlparser.EDbVendor;
+import gudusoft.gsqlparser.TGSqlParser;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link SqlParser#parse(java.lang.String)} and the cost of creating a
+ * GSP parser for every statement compared to reusing it. The "seats" shape
+ * parses all the queries of the integration tests at every invocation.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SqlParserBenchmark {
+
+    private static final EDbVendor VENDOR = EDbVendor.dbvpostgresql;
+
+    @Param({"point", "star", "join", "subquery", "seats"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int width;
+
+    private List<String> _queries;
+
+    @Setup
+    public void setup() {
+        _queries = shape.equals("seats")
+                ? SyntheticSchema.seatsQueries()
+                : Collections.singletonList(SyntheticSchema.query(shape, width));
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) throws Exception {
+        for (String sql : _queries) {
+            SqlParser parser = new SqlParser(VENDOR);
+            bh.consume(parser.parse(sql));
+            bh.consume(parser.getDmlQueries());
+        }
+    }
+
+    @Benchmark
+    public void gspNewParser(Blackhole bh) {
+        for (String sql : _queries) {
+            TGSqlParser parser = new TGSqlParser(VENDOR);
+            parser.setSqltext(sql);
+            bh.consume(parser.parse());
+            bh.consume(parser.sqlstatements);
+        }
+    }
+
+    @Benchmark
+    public void gspPooledParser(Blackhole bh) {
+        for (String sql : _queries) {
+            TGSqlParser parser = ParserPool.acquire(VENDOR);
+            try {
+                parser.setSqltext(sql);
+                bh.consume(parser.parse());
+                bh.consume(parser.sqlstatements);
+            } finally {
+                ParserPool.release(VENDOR, parser, sql.length());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of scoring a query of {@link #columns} columns against
+ * a profile which learned {@link #history} random queries over a table of 100
+ * columns. In the <code>mixed</code> group three threads score while another
+ * one keeps updating the profile, to show that the reads do not wait for the
+ * updates.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AnomalyScorerBenchmark {
+
+    private static final int WIDTH = 100;
+
+    @Param({"10", "1000", "100000"})
+    public int history;
+
+    @Param({"4", "32"})
+    public int columns;
+
+    private ProfileBuilder _profiles;
+    private AnomalyScorer _scorer;
+    private List<QueryFeature> _learned;
+    private QueryFeature _feature;
+    private long _time;
+
+    @Setup
+    public void setup() throws Exception {
+        DatabaseEngine db = SyntheticSchema.engine(1, WIDTH, 1);
+        Random rnd = new Random(42);
+        _learned = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            _learned.addAll(db.parse(query(rnd), SyntheticSchema.USER));
+        }
+        _feature = db.parse(query(rnd), SyntheticSchema.USER).get(0);
+        _profiles = new ProfileBuilder();
+        for (_time = 0; _time < history; _time++) {
+            _profiles.add(SyntheticSchema.USER, _learned.get((int) _time % _learned.size()), _time);
+        }
+        _scorer = new AnomalyScorer(_profiles);
+    }
+
+    private String query(Random rnd) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int c = 0; c < columns; c++) {
+            sb.append(c == 0 ? "" : ", ").append('c').append(rnd.nextInt(WIDTH));
+        }
+        return sb.append(" FROM t0 WHERE c").append(rnd.nextInt(WIDTH)).append(" = 1").toString();
+    }
+
+    @Benchmark
+    public double score() {
+        return _scorer.score(SyntheticSchema.USER, _feature, _time);
+    }
+
+    @Benchmark
+    public double frequency() {
+        return new FrequencyModel().score(_profiles.getProfile(SyntheticSchema.USER), _feature, _time);
+    }
+
+    @Benchmark
+    public double similarity() {
+        return new SimilarityModel().score(_profiles.getProfile(SyntheticSchema.USER), _feature, _time);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public double mixedScore() {
+        return _scorer.score(SyntheticSchema.USER, _feature, _time);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedUpdate() {
+        _profiles.add(SyntheticSchema.USER, _feature, _time);
+    }
+}
@@ -0,0 +1,93 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.parser.StringPair;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resolution of unqualified column names in join-heavy queries.
+ * Every table has its own column names, so no reference is ambiguous, and the
+ * select list takes {@link #perTable} columns from each joined table. The
+ * <code>scan</code> benchmark is the per-table lookup used before the
+ * {@link ColumnNameIndex}, kept as a baseline.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ColumnResolutionBenchmark {
+
+    @Param({"2", "10", "32"})
+    public int tables;
+
+    @Param({"10", "100"})
+    public int width;
+
+    @Param({"1", "8"})
+    public int perTable;
+
+    private HashMap<Name, Table> _usedTables;
+    private List<StringPair> _selected;
+
+    @Setup
+    public void setup() throws Exception {
+        _usedTables = new HashMap<>();
+        _selected = new ArrayList<>();
+        for (int t = 0; t < tables; t++) {
+            Table tbl = new Table("t" + t);
+            for (int c = 0; c < width; c++) {
+                tbl.addColumn("t" + t + "_c" + c, "integer", false, false);
+            }
+            _usedTables.put(tbl.getName(), tbl);
+            for (int c = 0; c < Math.min(perTable, width); c++) {
+                _selected.add(new StringPair("", "t" + t + "_c" + (c * width / perTable)));
+            }
+        }
+    }
+
+    @Benchmark
+    public Object indexed() throws Exception {
+        ArrayList<AbstractColumn> cols = new ArrayList<>();
+        DatabaseEngine.addSelectedColumn(_usedTables, _selected, cols);
+        return cols;
+    }
+
+    @Benchmark
+    public Object scan() throws Exception {
+        ArrayList<AbstractColumn> cols = new ArrayList<>();
+        for (StringPair select : _selected) {
+            AbstractColumn selectedCol = null;
+            int counter = 0;
+            for (Table t : _usedTables.values()) {
+                AbstractColumn tmpCol = t.getColumn(select.getSecond());
+                if (tmpCol != null) {
+                    counter++;
+                    selectedCol = tmpCol;
+                }
+            }
+            if (counter != 1) {
+                throw new SqlSemanticException("column '%s' not resolved", select.getSecond());
+            }
+            cols.add(selectedCol);
+        }
+        return cols;
+    }
+}
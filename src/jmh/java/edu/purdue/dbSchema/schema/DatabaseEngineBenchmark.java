@@ -0,0 +1,79 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import edu.purdue.dbSchema.parser.ParsedQuery;
+import edu.purdue.dbSchema.parser.SqlParser;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the name resolution and the grant checks of
+ * {@link DatabaseEngine}, with and without the parsing, on a synthetic schema
+ * of two tables.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DatabaseEngineBenchmark {
+
+    @Param({"point", "star", "join", "subquery"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int width;
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    private DatabaseEngine _db;
+    private String _sql;
+    private ParsedQuery _parsed;
+    private HashMap<Name, Table> _usedTables;
+    private final Name _user = new Name(SyntheticSchema.USER);
+
+    @Setup
+    public void setup() throws Exception {
+        _db = SyntheticSchema.engine(2, width, depth);
+        _sql = SyntheticSchema.query(shape, width);
+        SqlParser parser = new SqlParser(EDbVendor.dbvpostgresql);
+        parser.parse(_sql);
+        _parsed = parser.getDmlQueries().get(0);
+        _usedTables = _db.filterTables(_parsed.from, Collections.<Name, Table>emptyMap());
+    }
+
+    @Benchmark
+    public Object evaluateDlmQuery() throws Exception {
+        return _db.evaluateDlmQuery(_parsed, _user, Collections.<Name, Table>emptyMap());
+    }
+
+    @Benchmark
+    public Object addSelectedColumn() throws Exception {
+        ArrayList<AbstractColumn> cols = new ArrayList<>();
+        DatabaseEngine.addSelectedColumn(_usedTables, _parsed.mainColumns, cols);
+        return cols;
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        return _db.parse(_sql, SyntheticSchema.USER);
+    }
+}
@@ -0,0 +1,83 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.utils.DbGrants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building and merging the features of a query with
+ * {@link #subQueries} nested queries, each one using {@link #columns}
+ * columns. The <code>ids</code> features store the ids of the columns and
+ * roles, the <code>objects</code> ones have no index and keep the objects in
+ * hash sets, as all the features did before the ids. Run with
+ * <code>-prof gc</code> to compare the memory allocated per query.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class QueryFeatureBenchmark {
+
+    @Param({"ids", "objects"})
+    public String representation;
+
+    @Param({"1", "8"})
+    public int subQueries;
+
+    @Param({"4", "32"})
+    public int columns;
+
+    private Schema _schema;
+    private DbGrants _grants;
+    private List<List<AbstractColumn>> _used;
+    private List<Name> _roles;
+
+    @Setup
+    public void setup() throws Exception {
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        _grants = new DbGrants();
+        _used = new ArrayList<>();
+        for (int q = 0; q <= subQueries; q++) {
+            Table tbl = new Table("t" + q);
+            for (int c = 0; c < columns; c++) {
+                tbl.addColumn("c" + c, "integer", false, false);
+            }
+            tables.put(tbl.getName(), tbl);
+            _used.add(new ArrayList<>(tbl.getColumns()));
+            for (AbstractColumn col : tbl.getColumns()) {
+                _grants.grantRead(col, new Name("role" + q));
+            }
+        }
+        _schema = new Schema(tables, _grants, 0);
+        _roles = Collections.singletonList(new Name("role0"));
+    }
+
+    @Benchmark
+    public Object merge() {
+        boolean ids = representation.equals("ids");
+        List<QueryFeature> features = new ArrayList<>(_used.size());
+        for (List<AbstractColumn> used : _used) {
+            features.add(new QueryFeature(DlmQueryType.SELECT, used, used.subList(0, 1), _roles, ids ? _schema : null, ids ? _grants : null));
+        }
+        return new QueryFeature(features);
+    }
+}
@@ -0,0 +1,84 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import edu.purdue.dbSchema.parser.Grant;
+import edu.purdue.dbSchema.parser.SqlScript;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating a database of {@link #tables} tables and granting read and
+ * write access to each one. The <code>perStatement</code> benchmark parses
+ * every statement with its own call, copying the schema every time, as the
+ * application did before the bulk loading; <code>load</code> and
+ * <code>parallelLoad</code> load the whole script with a single copy.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SchemaLoadBenchmark {
+
+    @Param({"1000", "5000"})
+    public int tables;
+
+    @Param({"10"})
+    public int width;
+
+    private String _script;
+    private List<String> _statements;
+    private List<Grant> _grants;
+
+    @Setup
+    public void setup() {
+        _script = SyntheticSchema.tables(tables, width);
+        _statements = SqlScript.split(_script);
+        _grants = new ArrayList<>();
+        for (int t = 0; t < tables; t++) {
+            _grants.add(new Grant(Grant.Type.READ, "user", "t" + t, ""));
+            _grants.add(new Grant(Grant.Type.WRITE, "user", "t" + t, ""));
+        }
+    }
+
+    @Benchmark
+    public Object perStatement() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        for (String statement : _statements) {
+            db.parse(statement);
+        }
+        db.load("", _grants);
+        return db;
+    }
+
+    @Benchmark
+    public Object load() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.load(_script, _grants);
+        return db;
+    }
+
+    @Benchmark
+    public Object parallelLoad() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.load(_script, _grants, ForkJoinPool.commonPool());
+        return db;
+    }
+}
@@ -0,0 +1,78 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.benchmark.SyntheticSchema;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.Table;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link IDbGrants#enforceRead(edu.purdue.dbSchema.schema.Name, java.util.Collection)}
+ * on a table whose columns are granted to the deepest role of a chain.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DbGrantsBenchmark {
+
+    @Param({"hash", "bitset"})
+    public String grants;
+
+    @Param({"10", "100", "1000"})
+    public int width;
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    private IDbGrants _grants;
+    private List<AbstractColumn> _allColumns;
+    private List<AbstractColumn> _oneColumn;
+    private final Name _user = new Name(SyntheticSchema.USER);
+
+    @Setup
+    public void setup() throws Exception {
+        _grants = grants.equals("bitset") ? new BitsetDbGrants() : new DbGrants();
+        for (int level = 1; level <= depth; level++) {
+            _grants.grantRole(new Name(SyntheticSchema.role(level)), new Name(SyntheticSchema.role(level - 1)));
+        }
+        Table table = new Table("t0");
+        for (int c = 0; c < width; c++) {
+            table.addColumn("c" + c, "integer", false, false);
+        }
+        _allColumns = new ArrayList<>(table.getColumns());
+        Name owner = new Name(SyntheticSchema.role(depth));
+        for (AbstractColumn col : _allColumns) {
+            _grants.grantRead(col, owner);
+        }
+        _oneColumn = Collections.singletonList(_allColumns.get(width - 1));
+    }
+
+    @Benchmark
+    public Object enforceReadAll() throws Exception {
+        return _grants.enforceRead(_user, _allColumns);
+    }
+
+    @Benchmark
+    public Object enforceReadOne() throws Exception {
+        return _grants.enforceRead(_user, _oneColumn);
+    }
+}
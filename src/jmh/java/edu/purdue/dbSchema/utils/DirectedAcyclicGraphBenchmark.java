@@ -0,0 +1,69 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the visit of a role hierarchy. Every level of the hierarchy has
+ * <code>fanout</code> roles, each one granted to all the roles of the previous
+ * level. <code>followNodeAndSelef</code> iterates the nodes, allocating a
+ * visited set and a queue for each visit; <code>visit</code> uses the array
+ * based traversal kept by the thread.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DirectedAcyclicGraphBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    @Param({"1", "4"})
+    public int fanout;
+
+    private DirectedAcyclicGraph<String> _graph;
+
+    @Setup
+    public void setup() {
+        _graph = new DirectedAcyclicGraph<>();
+        for (int level = 1; level <= depth; level++) {
+            for (int from = 0; from < (level == 1 ? 1 : fanout); from++) {
+                for (int to = 0; to < fanout; to++) {
+                    _graph.add(node(level - 1, from), node(level, to));
+                }
+            }
+        }
+    }
+
+    private static String node(int level, int i) {
+        return level + "_" + i;
+    }
+
+    @Benchmark
+    public void followNodeAndSelef(Blackhole bh) {
+        for (String role : _graph.followNodeAndSelef(node(0, 0))) {
+            bh.consume(role);
+        }
+    }
+
+    @Benchmark
+    public int visit(Blackhole bh) {
+        return _graph.visit(node(0, 0), true, bh::consume);
+    }
+}
@@ -0,0 +1,110 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.schema.Name;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading a role hierarchy of about {@link #edges} role grants into a
+ * {@link DirectedAcyclicGraph} and, through
+ * {@link IDbGrants#grantRole(edu.purdue.dbSchema.schema.Name, edu.purdue.dbSchema.schema.Name)},
+ * into the grants, which also keep the transitive closure of the roles. The
+ * hierarchy has {@link #depth} levels of the same width and every role is
+ * granted to {@value #FANOUT} random roles of the level below. The grants are added from the top level down, from the bottom
+ * level up or in random order. Only the random order moves nodes to keep the
+ * topological order, and it gets slower as the hierarchy gets deeper because
+ * every role reaches more roles.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RoleHierarchyLoadBenchmark {
+
+    private static final int FANOUT = 4;
+
+    @Param({"100000"})
+    public int edges;
+
+    @Param({"4", "8"})
+    public int depth;
+
+    @Param({"topDown", "bottomUp", "random"})
+    public String order;
+
+    private List<String[]> _grants;
+    private List<Name[]> _names;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        int width = edges / ((depth - 1) * FANOUT);
+        _grants = new ArrayList<>();
+        for (int level = 1; level < depth; level++) {
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < FANOUT; j++) {
+                    // the grantee comes first, as in DbGrants
+                    _grants.add(new String[]{role(level, i), role(level - 1, rnd.nextInt(width))});
+                }
+            }
+        }
+        if (order.equals("bottomUp")) {
+            Collections.reverse(_grants);
+        } else if (order.equals("random")) {
+            Collections.shuffle(_grants, rnd);
+        }
+        _names = new ArrayList<>(_grants.size());
+        for (String[] grant : _grants) {
+            _names.add(new Name[]{Name.valueOf(grant[0]), Name.valueOf(grant[1])});
+        }
+    }
+
+    private static String role(int level, int i) {
+        return "r" + level + "_" + i;
+    }
+
+    @Benchmark
+    public Object load() {
+        DirectedAcyclicGraph<String> graph = new DirectedAcyclicGraph<>();
+        for (String[] grant : _grants) {
+            graph.add(grant[0], grant[1]);
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public Object dbGrants() throws SqlSemanticException {
+        return grantRoles(new DbGrants());
+    }
+
+    @Benchmark
+    public Object bitsetDbGrants() throws SqlSemanticException {
+        return grantRoles(new BitsetDbGrants());
+    }
+
+    private IDbGrants grantRoles(IDbGrants grants) throws SqlSemanticException {
+        for (Name[] grant : _names) {
+            grants.grantRole(grant[1], grant[0]);
+        }
+        return grants;
+    }
+}
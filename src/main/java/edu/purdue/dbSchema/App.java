@@ -4,22 +4,42 @@ import edu.purdue.dbSchema.erros.SqlParseException;
 import edu.purdue.dbSchema.erros.SqlSemanticException;
 import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
 import edu.purdue.dbSchema.erros.UnsupportedSqlException;
+import edu.purdue.dbSchema.parser.Grant;
 import edu.purdue.dbSchema.schema.AbstractColumn;
 import edu.purdue.dbSchema.schema.DatabaseEngine;
 import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import edu.purdue.dbSchema.schema.QueryResult;
+import edu.purdue.dbSchema.schema.SchemaSnapshot;
 import edu.purdue.dbSchema.schema.Table;
+import edu.purdue.dbSchema.server.BinaryFeatureWriter;
+import edu.purdue.dbSchema.server.FeatureWriter;
+import edu.purdue.dbSchema.server.JsonFeatureWriter;
+import edu.purdue.dbSchema.server.QueryServer;
+import edu.purdue.dbSchema.server.TsvFeatureWriter;
 import gudusoft.gsqlparser.EDbVendor;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.LogManager;
 import java.util.stream.Collectors;
 
@@ -31,6 +51,8 @@ import java.util.stream.Collectors;
 public class App {
 
     private final static String username = "user";
+    private final static int BATCH_SIZE = 4096;
+    private final static int DEFAULT_PORT = 7878;
 
     public static void main(String[] args) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, IOException, ClassNotFoundException, UnauthorizedSqlException {
         tuneLog();
@@ -45,9 +67,25 @@ public class App {
                 System.out.println("Tables loaded: " + db.getTables().size());
                 break;
             case "--parse":
+                // App db --parse [input|- [text|tsv|json|binary]]
                 db = readDb(dbFileName);
-                in = (args.length < 3) ? System.in : new FileInputStream(args[2]);
-                parseLine(db, in);
+                in = (args.length < 3 || args[2].equals("-")) ? System.in : new FileInputStream(args[2]);
+                if (args.length < 4 || args[3].equals("text")) {
+                    parseLine(db, in);
+                } else {
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+                    parseLine(db, in, featureWriter(args[3], out));
+                }
+                break;
+            case "--serve":
+                // App db --serve [port [workers]]
+                db = readDb(dbFileName);
+                int port = (args.length < 3) ? DEFAULT_PORT : Integer.parseInt(args[2]);
+                int workers = (args.length < 4) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[3]);
+                serve(db, port, workers);
+                break;
+            case "--convert":
+                convert(dbFileName, Paths.get(args[2]));
                 break;
             case "-i":
             case "--info":
@@ -74,60 +112,144 @@ public class App {
 
     private static DatabaseEngine initDb(String dbStorage, InputStream in) throws IOException, SqlParseException, UnsupportedSqlException, SqlSemanticException {
         DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
-        try (Scanner scanner = new Scanner(in);
-                ObjectOutputStream o = new ObjectOutputStream(new FileOutputStream(dbStorage))) {
-            scanner.useDelimiter(";");
-            while (scanner.hasNext()) {
-                String createTable = scanner.next().trim();
-                try {
-                    db.parse(createTable);
-                } catch (SqlParseException | UnsupportedSqlException | SqlSemanticException ex) {
-                    System.err.println(" --- Error parsing ---");
-                    System.err.println(createTable);
-                    ex.printStackTrace(System.err);
-                    System.err.println(" --- end error ---");
-                    throw ex;
-                }
-            }
+        String script = readAll(in);
+        try {
+            db.load(script, Collections.<Grant>emptyList(), ForkJoinPool.commonPool());
+        } catch (SqlParseException | UnsupportedSqlException | SqlSemanticException ex) {
+            System.err.println(" --- Error parsing ---");
+            ex.printStackTrace(System.err);
+            System.err.println(" --- end error ---");
+            throw ex;
+        }
+
+        // the grants need the tables of the script, apply them with a second load
+        List<Grant> grants = new ArrayList<>(2 * db.getTables().size());
+        for (Table t : db.getTables()) {
+            String table = t.getName().getName();
+            grants.add(new Grant(Grant.Type.READ, username, table, ""));
+            grants.add(new Grant(Grant.Type.WRITE, username, table, ""));
+        }
+        db.load("", grants);
+        SchemaSnapshot.write(db, Paths.get(dbStorage));
+        return db;
+    }
 
-            for (Table t : db.getTables()) {
-                db.parse(String.format("GRANT SELECT ON %s TO %s", t.getName().getName(), username));
-                db.parse(String.format("GRANT INSERT ON %s TO %s", t.getName().getName(), username));
+    private static String readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
             }
-            o.writeObject(db);
-            return db;
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
         }
     }
 
+    /**
+     * Rewrites a database as a snapshot. The database can be saved with the
+     * Java serialization, also by the versions which did not write snapshots.
+     *
+     * @param dbStorage the file of the database.
+     * @param snapshot the file of the snapshot.
+     * @throws IOException if a file cannot be read or written.
+     * @throws ClassNotFoundException if the database is not valid.
+     */
+    static void convert(String dbStorage, Path snapshot) throws IOException, ClassNotFoundException {
+        SchemaSnapshot.write(readDb(dbStorage), snapshot);
+    }
+
     static DatabaseEngine readDb(String dbStorage) throws IOException, ClassNotFoundException {
+        if (SchemaSnapshot.isSnapshot(Paths.get(dbStorage))) {
+            return SchemaSnapshot.open(Paths.get(dbStorage));
+        }
         try (ObjectInputStream o = new ObjectInputStream(new FileInputStream(dbStorage))) {
             return (DatabaseEngine) o.readObject();
         }
     }
 
+    private static void serve(DatabaseEngine db, int port, int workers) throws IOException {
+        try (QueryServer server = new QueryServer(db, workers, QueryServer.DEFAULT_MAX_IN_FLIGHT)) {
+            server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            System.out.println("Listening on port " + server.getPort());
+            server.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a batch is evaluated when full or when no other line is ready, so the
+    // queries typed on a terminal or sent through a pipe are answered at once
     private static void parseLine(DatabaseEngine db, InputStream in) throws IOException {
         String line;
+        List<QueryRecord> batch = new ArrayList<>(BATCH_SIZE);
         try (BufferedReader bin = new BufferedReader(new InputStreamReader(in))) {
             while ((line = bin.readLine()) != null) {
-                try {
-                    List<QueryFeature> features = db.parse(line, username);
-                    System.out.println(" -- Query -- ");
-                    System.out.println(line);
-                    for (QueryFeature feature : features) {
-                        System.out.println(" type: " + feature.getType());
-                        String sCols;
-                        sCols = feature.getUsedCols().stream().map(i -> i.getName().getName()).collect(Collectors.joining(", ", "Used Cols: [", "]"));
-                        System.out.println(sCols);
-                        sCols = feature.getFilteredCols().stream().map(i -> i.getName().getName()).collect(Collectors.joining(", ", "Filtered Cols: [", "]"));
-                        System.out.println(sCols);
+                batch.add(new QueryRecord(line, username));
+                if (batch.size() == BATCH_SIZE || !bin.ready()) {
+                    printResults(db.parseAll(batch));
+                    System.out.flush();
+                    batch.clear();
+                }
+            }
+            printResults(db.parseAll(batch));
+        }
+    }
+
+    static void parseLine(DatabaseEngine db, InputStream in, FeatureWriter writer) throws IOException {
+        String line;
+        List<QueryRecord> batch = new ArrayList<>(BATCH_SIZE);
+        try (BufferedReader bin = new BufferedReader(new InputStreamReader(in))) {
+            while ((line = bin.readLine()) != null) {
+                batch.add(new QueryRecord(line, username));
+                if (batch.size() == BATCH_SIZE || !bin.ready()) {
+                    for (QueryResult result : db.parseAll(batch)) {
+                        writer.write(result);
                     }
-                } catch (SqlParseException | UnsupportedSqlException | UnauthorizedSqlException | SqlSemanticException ex) {
-                    System.err.println(" --- Error parsing ---");
-                    System.err.println(line);
-                    ex.printStackTrace(System.err);
-                    System.err.println(" --- end error ---");
+                    writer.flush();
+                    batch.clear();
                 }
             }
+            for (QueryResult result : db.parseAll(batch)) {
+                writer.write(result);
+            }
+        }
+        writer.flush();
+    }
+
+    private static FeatureWriter featureWriter(String format, OutputStream out) throws IOException {
+        switch (format) {
+            case "tsv":
+                return new TsvFeatureWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            case "json":
+                return new JsonFeatureWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            case "binary":
+                return new BinaryFeatureWriter(out);
+            default:
+                throw new IllegalArgumentException("Unknown output format " + format);
+        }
+    }
+
+    private static void printResults(List<QueryResult> results) {
+        for (QueryResult result : results) {
+            String line = result.getRecord().getSql();
+            if (!result.isSuccess()) {
+                System.err.println(" --- Error parsing ---");
+                System.err.println(line);
+                result.getError().printStackTrace(System.err);
+                System.err.println(" --- end error ---");
+                continue;
+            }
+            System.out.println(" -- Query -- ");
+            System.out.println(line);
+            for (QueryFeature feature : result.getFeatures()) {
+                System.out.println(" type: " + feature.getType());
+                String sCols;
+                sCols = feature.getUsedCols().stream().map(i -> i.getName().getName()).collect(Collectors.joining(", ", "Used Cols: [", "]"));
+                System.out.println(sCols);
+                sCols = feature.getFilteredCols().stream().map(i -> i.getName().getName()).collect(Collectors.joining(", ", "Filtered Cols: [", "]"));
+                System.out.println(sCols);
+            }
         }
     }
 
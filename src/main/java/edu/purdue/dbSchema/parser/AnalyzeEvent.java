@@ -0,0 +1,23 @@
+package edu.purdue.dbSchema.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the analysis of the syntax trees of a
+ * parsed string.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.Analyze")
+@Label("SQL Analyze")
+@Category({"dbSchema", "Pipeline"})
+@Description("The syntax trees are walked to extract tables, columns and grants")
+final class AnalyzeEvent extends Event {
+
+    @Label("Statements")
+    int statements;
+}
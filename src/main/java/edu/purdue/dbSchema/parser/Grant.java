@@ -44,8 +44,8 @@ public class Grant {
      * @throws IllegalArgumentException if role or to are empty.
      */
     public Grant(String role, String to) throws NullPointerException, IllegalArgumentException {
-        _to = new Name(to);
-        _role = new Name(role);
+        _to = Name.valueOf(to);
+        _role = Name.valueOf(role);
         _type = Type.ROLE;
         _table = null;
         _column = null;
@@ -66,14 +66,14 @@ public class Grant {
         if (type == null) {
             throw new NullPointerException("Null type");
         }
-        _to = new Name(to);
+        _to = Name.valueOf(to);
         _role = null;
         if (type == Type.ROLE || to.isEmpty() || table.isEmpty()) {
             throw new IllegalArgumentException("Cannot grant both to role and table");
         }
         _type = type;
-        _table = new Name(table);
-        _column = column.isEmpty() ? null : new Name(column);
+        _table = Name.valueOf(table);
+        _column = column.isEmpty() ? null : Name.valueOf(column);
     }
 
     /**
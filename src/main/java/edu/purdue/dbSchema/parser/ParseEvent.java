@@ -0,0 +1,26 @@
+package edu.purdue.dbSchema.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the parsing of a string by the underlying
+ * SQL parser, before the statements are analyzed.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.Parse")
+@Label("SQL Parse")
+@Category({"dbSchema", "Pipeline"})
+@Description("The underlying SQL parser builds the syntax tree")
+final class ParseEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Success")
+    boolean success;
+}
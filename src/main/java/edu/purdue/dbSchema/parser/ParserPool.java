@@ -0,0 +1,66 @@
+package edu.purdue.dbSchema.parser;
+
+import gudusoft.gsqlparser.EDbVendor;
+import gudusoft.gsqlparser.TGSqlParser;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link TGSqlParser} instances for reuse. Creating a TGSqlParser is
+ * expensive compared to parsing a short statement, therefore every thread keeps
+ * one idle parser per SQL dialect. A parser is removed from the pool while in
+ * use, so nested or concurrent uses never share the same instance.
+ * <p>
+ * A parser keeps the text and the syntax tree of the last statements it parsed
+ * until it parses other ones. To bound the memory retained by the idle
+ * parsers, only the parsers whose last text is at most
+ * {@value #MAX_RETAINED_LENGTH} characters long go back to the pool; the ones
+ * used for longer texts, like DDL scripts, are left to the garbage collector.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class ParserPool {
+
+    /**
+     * The maximum length of the last text of a pooled parser.
+     */
+    static final int MAX_RETAINED_LENGTH = 1 << 12;
+
+    private static final ThreadLocal<Map<EDbVendor, TGSqlParser>> IDLE_PARSERS = new ThreadLocal<Map<EDbVendor, TGSqlParser>>() {
+        @Override
+        protected Map<EDbVendor, TGSqlParser> initialValue() {
+            return new EnumMap<>(EDbVendor.class);
+        }
+    };
+
+    private ParserPool() {
+    }
+
+    /**
+     * Takes a parser for the given dialect. The parser must be returned with
+     * {@link #release(gudusoft.gsqlparser.EDbVendor, gudusoft.gsqlparser.TGSqlParser, int)}
+     * once the parsed statements are not needed anymore.
+     *
+     * @param dbVendor the SQL dialect.
+     * @return an idle parser of this thread or a new one.
+     */
+    static TGSqlParser acquire(EDbVendor dbVendor) {
+        TGSqlParser parser = IDLE_PARSERS.get().remove(dbVendor);
+        return parser == null ? new TGSqlParser(dbVendor) : parser;
+    }
+
+    /**
+     * Returns a parser to the pool of the current thread, unless it parsed a
+     * text longer than {@value #MAX_RETAINED_LENGTH} characters.
+     *
+     * @param dbVendor the SQL dialect the parser was acquired for.
+     * @param parser a parser obtained by {@link #acquire(gudusoft.gsqlparser.EDbVendor)
+     * }.
+     * @param sqlLength the length of the last text parsed, 0 if none.
+     */
+    static void release(EDbVendor dbVendor, TGSqlParser parser, int sqlLength) {
+        if (sqlLength <= MAX_RETAINED_LENGTH) {
+            IDLE_PARSERS.get().put(dbVendor, parser);
+        }
+    }
+}
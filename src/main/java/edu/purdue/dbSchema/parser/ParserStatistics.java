@@ -0,0 +1,98 @@
+package edu.purdue.dbSchema.parser;
+
+/**
+ * An immutable snapshot of the counters of {@link SqlParser}, shared by all
+ * the parsers of the JVM.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class ParserStatistics {
+
+    /**
+     * The events counted by the parser.
+     */
+    public static enum Counter {
+
+        /**
+         * A SELECT statement, including every query of a combined query and
+         * every sub query.
+         */
+        SELECT,
+        /**
+         * An INSERT statement.
+         */
+        INSERT,
+        /**
+         * An UPDATE statement.
+         */
+        UPDATE,
+        /**
+         * A DELETE statement.
+         */
+        DELETE,
+        /**
+         * A CREATE TABLE statement.
+         */
+        CREATE_TABLE,
+        /**
+         * A GRANT statement.
+         */
+        GRANT,
+        /**
+         * A statement of a type not supported.
+         */
+        UNSUPPORTED,
+        /**
+         * A string which cannot be parsed.
+         */
+        PARSE_ERROR,
+        /**
+         * A LIMIT clause, which is ignored.
+         */
+        IGNORED_LIMIT,
+        /**
+         * An expression of a type not known in a WHERE or ON clause, which is
+         * ignored.
+         */
+        UNKNOWN_EXPRESSION,
+        /**
+         * A statement analyzed without the SQL parser, see
+         * {@link SqlParser#parse(java.lang.String)}. It is also counted by its
+         * type.
+         */
+        FAST_PATH
+    }
+
+    private final long[] _counts;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param counts the value of each counter, indexed by ordinal.
+     */
+    ParserStatistics(long[] counts) {
+        _counts = counts;
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param counter the counter.
+     * @return the number of events counted since the JVM started.
+     */
+    public long get(Counter counter) {
+        return _counts[counter.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Counter c : Counter.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(c.name().toLowerCase()).append(": ").append(_counts[c.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
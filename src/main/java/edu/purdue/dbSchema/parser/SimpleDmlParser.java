@@ -0,0 +1,550 @@
+package edu.purdue.dbSchema.parser;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Recognizes the simple single table statements which make most of the
+ * traffic, and builds their {@link ParsedQuery} without the SQL parser:
+ * <ul>
+ * <li><code>SELECT [DISTINCT] cols FROM t [alias] [WHERE cond] [ORDER BY cols]
+ * [LIMIT n [OFFSET n]]</code>, where a column is <code>*</code>,
+ * <code>col</code>, <code>t.*</code> or <code>t.col</code> with an optional
+ * alias;</li>
+ * <li><code>INSERT INTO t (cols) VALUES (values) [, (values)]</code>;</li>
+ * <li><code>UPDATE t SET col = expr [, col = expr] [WHERE cond]</code>;</li>
+ * <li><code>DELETE FROM t [WHERE cond]</code>.</li>
+ * </ul>
+ * A condition combines with AND, OR and parentheses comparisons between
+ * arithmetic expressions of columns and literals, and IN lists of literals.
+ * The literals are numbers and strings without escapes.
+ * <p>
+ * The query is the one {@link SqlParser} builds from the syntax tree, with the
+ * names as written. The recognizer is conservative: anything else, including
+ * comments, parameters, function calls, reserved words used as names, quoted
+ * aliases and multiple statements, is not recognized and must be parsed by the
+ * SQL parser, which also reports the errors. The reserved words are the ones
+ * of PostgreSQL, the only dialect the recognizer is used for.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class SimpleDmlParser {
+
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "all", "analyse", "analyze", "and", "any", "array", "as", "asc", "asymmetric",
+            "authorization", "between", "bigint", "binary", "bit", "boolean", "both", "by",
+            "case", "cast", "char", "character", "check", "coalesce", "collate", "collation",
+            "column", "concurrently", "constraint", "create", "cross", "current_catalog",
+            "current_date", "current_role", "current_schema", "current_time",
+            "current_timestamp", "current_user", "date", "dec", "decimal", "default",
+            "deferrable", "delete", "desc", "distinct", "do", "else", "end", "escape",
+            "except", "exists", "extract", "false", "fetch", "filter", "first", "float",
+            "for", "foreign", "freeze", "from", "full", "grant", "greatest", "group",
+            "grouping", "having", "ilike", "in", "initially", "inner", "inout", "insert",
+            "int", "integer", "intersect", "interval", "into", "is", "isnull", "join",
+            "last", "lateral", "leading", "least", "left", "like", "limit", "localtime",
+            "localtimestamp", "national", "natural", "nchar", "none", "not", "notnull",
+            "null", "nullif", "nulls", "numeric", "offset", "on", "only", "or", "order",
+            "out", "outer", "over", "overlaps", "overlay", "partition", "placing",
+            "position", "precision", "primary", "real", "references", "returning", "right",
+            "row", "select", "session_user", "set", "setof", "similar", "smallint", "some",
+            "substring", "symmetric", "table", "tablesample", "then", "time", "timestamp",
+            "to", "top", "trailing", "treat", "trim", "true", "union", "unique", "update",
+            "user", "using", "values", "varchar", "variadic", "verbose", "when", "where",
+            "window", "with", "within"));
+
+    // the token types
+    private static final int ERROR = -1;
+    private static final int END = 0;
+    private static final int WORD = 1;
+    private static final int QUOTED = 2;
+    private static final int NUMBER = 3;
+    private static final int STRING = 4;
+    private static final int SYMBOL = 5;
+
+    private final String _sql;
+    private int _pos;
+    private int _type;
+    private int _start;
+    private int _end;
+    private String _limit;
+
+    /**
+     * Creates a recognizer for a statement.
+     *
+     * @param sql the statement.
+     * @throws NullPointerException if sql is null.
+     */
+    SimpleDmlParser(String sql) throws NullPointerException {
+        if (sql == null) {
+            throw new NullPointerException("sql");
+        }
+        _sql = sql;
+    }
+
+    /**
+     * Recognizes the statement and builds its query.
+     *
+     * @return the query or null if the statement is not recognized.
+     */
+    ParsedQuery parse() {
+        _pos = 0;
+        _limit = null;
+        if (!next()) {
+            return null;
+        }
+        ParsedQuery ret;
+        if (isKeyword("select")) {
+            ret = select();
+        } else if (isKeyword("insert")) {
+            ret = insert();
+        } else if (isKeyword("update")) {
+            ret = update();
+        } else if (isKeyword("delete")) {
+            ret = delete();
+        } else {
+            return null;
+        }
+        if (ret != null && isSymbol(';')) {
+            if (!next()) {
+                return null;
+            }
+        }
+        return ret != null && _type == END ? ret : null;
+    }
+
+    /**
+     * Returns the LIMIT clause of the last query recognized.
+     *
+     * @return the clause or null if the query has no limit.
+     */
+    String getLimit() {
+        return _limit;
+    }
+
+    private ParsedQuery select() {
+        ParsedQuery query = new ParsedQuery(DlmQueryType.SELECT);
+        if (!next()) {
+            return null;
+        }
+        if (isKeyword("distinct")) {
+            if (!next() || isKeyword("on")) {
+                return null;
+            }
+        }
+        do {
+            if (!selectColumn(query)) {
+                return null;
+            }
+        } while (acceptSymbol(','));
+
+        if (!acceptKeyword("from")) {
+            return null;
+        }
+        String table = identifier();
+        if (table == null) {
+            return null;
+        }
+        String alias = "";
+        if (acceptKeyword("as")) {
+            // the quotes of an alias may not be kept as they are
+            alias = _type == WORD ? identifier() : null;
+            if (alias == null) {
+                return null;
+            }
+        } else if (_type == WORD && isIdentifier()) {
+            alias = identifier();
+        }
+        query.addFrom(table, alias);
+
+        if (acceptKeyword("where") && !condition(query)) {
+            return null;
+        }
+        if (acceptKeyword("order")) {
+            if (!acceptKeyword("by")) {
+                return null;
+            }
+            do {
+                if (!columnReference(null)) {
+                    return null;
+                }
+                if (!acceptKeyword("asc")) {
+                    acceptKeyword("desc");
+                }
+            } while (acceptSymbol(','));
+        }
+        if (isKeyword("limit")) {
+            int start = _start;
+            if (!next() || _type != NUMBER || !next()) {
+                return null;
+            }
+            if (acceptKeyword("offset")) {
+                if (_type != NUMBER || !next()) {
+                    return null;
+                }
+            }
+            _limit = _sql.substring(start, _start).trim();
+        }
+        return query;
+    }
+
+    /**
+     * Adds a column of the select list, with its alias, as
+     * {@link SqlParser} does.
+     */
+    private boolean selectColumn(ParsedQuery query) {
+        String table = "";
+        String column;
+        if (isSymbol('*')) {
+            query.addMainColumn(table, "*");
+            return next();
+        } else {
+            column = identifier();
+            if (column == null) {
+                return false;
+            }
+            if (isSymbol('.')) {
+                table = column;
+                if (!next()) {
+                    return false;
+                }
+                if (isSymbol('*')) {
+                    query.addMainColumn(table, "*");
+                    return next();
+                } else {
+                    column = identifier();
+                    if (column == null) {
+                        return false;
+                    }
+                }
+            }
+        }
+        String alias = "";
+        if (acceptKeyword("as")) {
+            // the quotes of an alias may not be kept as they are
+            if (_type != WORD) {
+                return false;
+            }
+            alias = identifier();
+            if (alias == null) {
+                return false;
+            }
+        } else if (_type == WORD && isIdentifier()) {
+            alias = identifier();
+        }
+        if (!alias.isEmpty()) {
+            query.virtualColumns.put(alias);
+        }
+        StringPair col = query.addMainColumn(table, column);
+        if (!alias.isEmpty()) {
+            query.virtualColumns.put(alias, col);
+        }
+        return true;
+    }
+
+    private ParsedQuery insert() {
+        ParsedQuery query = new ParsedQuery(DlmQueryType.INSERT);
+        if (!next() || !acceptKeyword("into")) {
+            return null;
+        }
+        String table = identifier();
+        if (table == null || !acceptSymbol('(')) {
+            return null;
+        }
+        query.addFrom(table, "");
+        do {
+            String column = identifier();
+            if (column == null) {
+                return null;
+            }
+            query.addMainColumn("", column);
+        } while (acceptSymbol(','));
+        if (!acceptSymbol(')') || !acceptKeyword("values")) {
+            return null;
+        }
+        do {
+            if (!acceptSymbol('(')) {
+                return null;
+            }
+            do {
+                if (!acceptKeyword("null") && !acceptKeyword("default") && !literal()) {
+                    return null;
+                }
+            } while (acceptSymbol(','));
+            if (!acceptSymbol(')')) {
+                return null;
+            }
+        } while (acceptSymbol(','));
+        return query;
+    }
+
+    private ParsedQuery update() {
+        ParsedQuery query = new ParsedQuery(DlmQueryType.UPDATE);
+        if (!next()) {
+            return null;
+        }
+        String table = identifier();
+        if (table == null || !acceptKeyword("set")) {
+            return null;
+        }
+        query.addFrom(table, "");
+        do {
+            String column = identifier();
+            if (column == null || !acceptSymbol('=')) {
+                return null;
+            }
+            query.addMainColumn("", column);
+            // the columns of the new values are not recorded
+            if (!expression(null)) {
+                return null;
+            }
+        } while (acceptSymbol(','));
+        if (acceptKeyword("where") && !condition(query)) {
+            return null;
+        }
+        return query;
+    }
+
+    private ParsedQuery delete() {
+        ParsedQuery query = new ParsedQuery(DlmQueryType.DELETE);
+        if (!next() || !acceptKeyword("from")) {
+            return null;
+        }
+        String table = identifier();
+        if (table == null) {
+            return null;
+        }
+        query.addFrom(table, "");
+        if (acceptKeyword("where") && !condition(query)) {
+            return null;
+        }
+        return query;
+    }
+
+    /**
+     * Reads a condition, adding its columns to the where columns of the query
+     * in the order they appear, like a visit of the syntax tree does.
+     */
+    private boolean condition(ParsedQuery query) {
+        do {
+            if (acceptSymbol('(')) {
+                if (!condition(query) || !acceptSymbol(')')) {
+                    return false;
+                }
+            } else {
+                if (!expression(query)) {
+                    return false;
+                }
+                if (acceptKeyword("in")) {
+                    if (!acceptSymbol('(')) {
+                        return false;
+                    }
+                    do {
+                        if (!literal()) {
+                            return false;
+                        }
+                    } while (acceptSymbol(','));
+                    if (!acceptSymbol(')')) {
+                        return false;
+                    }
+                } else if (!comparison() || !expression(query)) {
+                    return false;
+                }
+            }
+        } while (acceptKeyword("and") || acceptKeyword("or"));
+        return true;
+    }
+
+    /**
+     * Reads an arithmetic expression of columns and literals, possibly in
+     * parentheses.
+     *
+     * @param query the query to add the columns to, null to ignore them.
+     */
+    private boolean expression(ParsedQuery query) {
+        do {
+            if (acceptSymbol('(')) {
+                if (!expression(query) || !acceptSymbol(')')) {
+                    return false;
+                }
+            } else if (!literal() && !columnReference(query)) {
+                return false;
+            }
+        } while (acceptSymbol('+') || acceptSymbol('-') || acceptSymbol('*') || acceptSymbol('/') || acceptSymbol('%'));
+        return true;
+    }
+
+    private boolean columnReference(ParsedQuery query) {
+        String table = "";
+        String column = identifier();
+        if (column == null) {
+            return false;
+        }
+        if (acceptSymbol('.')) {
+            table = column;
+            column = identifier();
+            if (column == null) {
+                return false;
+            }
+        }
+        if (query != null) {
+            query.addWhereColumn(table, column);
+        }
+        return true;
+    }
+
+    private boolean comparison() {
+        if (_type != SYMBOL) {
+            return false;
+        }
+        String op = _sql.substring(_start, _end);
+        switch (op) {
+            case "=":
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+            case "<>":
+            case "!=":
+                return next();
+            default:
+                return false;
+        }
+    }
+
+    private boolean literal() {
+        return (_type == NUMBER || _type == STRING) && next();
+    }
+
+    private boolean isIdentifier() {
+        return _type == QUOTED || (_type == WORD && !RESERVED.contains(_sql.substring(_start, _end).toLowerCase()));
+    }
+
+    /**
+     * Reads an identifier.
+     *
+     * @return the identifier as written, or null if the current token is not
+     * an identifier or is the last one.
+     */
+    private String identifier() {
+        if (!isIdentifier()) {
+            return null;
+        }
+        String ret = _sql.substring(_start, _end);
+        return next() ? ret : null;
+    }
+
+    private boolean isKeyword(String keyword) {
+        return _type == WORD && _end - _start == keyword.length() && _sql.regionMatches(true, _start, keyword, 0, keyword.length());
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        return isKeyword(keyword) && next();
+    }
+
+    private boolean isSymbol(char c) {
+        return _type == SYMBOL && _end - _start == 1 && _sql.charAt(_start) == c;
+    }
+
+    private boolean acceptSymbol(char c) {
+        return isSymbol(c) && next();
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return false if the token is not understood.
+     */
+    private boolean next() {
+        final String sql = _sql;
+        final int len = sql.length();
+        int i = _pos;
+        while (i < len && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        _start = i;
+        if (i >= len) {
+            _type = END;
+            _end = _pos = len;
+            return true;
+        }
+        char c = sql.charAt(i);
+        if (c == '_' || (c < 128 && Character.isLetter(c))) {
+            i++;
+            while (i < len && isWordPart(sql.charAt(i))) {
+                i++;
+            }
+            _type = WORD;
+        } else if (c >= '0' && c <= '9') {
+            i = skipDigits(sql, i);
+            if (i < len && sql.charAt(i) == '.') {
+                i = skipDigits(sql, i + 1);
+            }
+            if (i < len && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+                int exp = i + 1;
+                if (exp < len && (sql.charAt(exp) == '+' || sql.charAt(exp) == '-')) {
+                    exp++;
+                }
+                if (exp >= len || !isDigit(sql.charAt(exp))) {
+                    return fail();
+                }
+                i = skipDigits(sql, exp);
+            }
+            if (i < len && (isWordPart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                return fail();
+            }
+            _type = NUMBER;
+        } else if (c == '\'' || c == '"') {
+            // no escapes: the doubled quotes are left to the SQL parser
+            int close = sql.indexOf(c, i + 1);
+            if (close < 0 || (c == '"' && close == i + 1) || (close + 1 < len && sql.charAt(close + 1) == c)
+                    || (c == '\'' && sql.lastIndexOf('\\', close) > i)) {
+                return fail();
+            }
+            i = close + 1;
+            _type = c == '"' ? QUOTED : STRING;
+        } else if ("(),.;*=+-/%".indexOf(c) >= 0) {
+            if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                return fail();
+            }
+            if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                return fail();
+            }
+            i++;
+            _type = SYMBOL;
+        } else if (c == '<' || c == '>' || c == '!') {
+            i++;
+            if (i < len && (sql.charAt(i) == '=' || (c == '<' && sql.charAt(i) == '>'))) {
+                i++;
+            } else if (c == '!') {
+                return fail();
+            }
+            _type = SYMBOL;
+        } else {
+            return fail();
+        }
+        _end = _pos = i;
+        return true;
+    }
+
+    private boolean fail() {
+        _type = ERROR;
+        return false;
+    }
+
+    private static boolean isWordPart(char c) {
+        return c == '_' || c == '$' || (c < 128 && Character.isLetterOrDigit(c));
+    }
+
+    private static int skipDigits(String sql, int i) {
+        while (i < sql.length() && isDigit(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,657 @@
+package edu.purdue.dbSchema.parser;
+
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Computes the template and the fingerprint of a SQL string with a single
+ * pass lexer, without the SQL parser. The template is the string with the
+ * literals replaced by a placeholder, without comments, with the white spaces
+ * collapsed and the unquoted words in lowercase; the lists of literals after
+ * IN are collapsed to a single placeholder. The fingerprint is a 128 bit hash
+ * of the template, not cryptographic. Two strings with the same template
+ * differ only in their constants, therefore they reference the same tables and
+ * columns.
+ * <p>
+ * The lexer knows the quoting and comment rules of the dialect:
+ * <ul>
+ * <li>PostgreSQL, Greenplum and Redshift: nested comments, dollar quoted
+ * strings and E'' strings with backslash escapes;</li>
+ * <li>MySQL: # comments and backslash escapes in every string;</li>
+ * <li>SQL Server, Sybase and Access: nested comments and [quoted]
+ * identifiers;</li>
+ * <li>Oracle: q'[...]' strings.</li>
+ * </ul>
+ * Double quotes and backticks always quote identifiers. A fingerprint copies
+ * the string into a buffer and writes the template into another one, both
+ * reused, so once it has seen the longest string scanning does not allocate;
+ * it is not thread safe.
+ * <p>
+ * The static {@link #template(gudusoft.gsqlparser.EDbVendor, java.lang.String)}
+ * is conservative instead, as required by the query cache of the databases: a
+ * string literal is replaced only where it cannot be an identifier (i.e. after
+ * an operator or a keyword like IN or VALUES), the lists are not collapsed,
+ * and no template is computed for strings containing constructs whose meaning
+ * depends on the settings of the dialect, like escape sequences or dollar
+ * quoting. It still follows the rules which delimit the identifiers and the
+ * comments of the dialect, so the [quoted] identifiers are copied verbatim and
+ * the text of a # comment is never taken for a literal.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class SqlFingerprint {
+
+    /**
+     * The placeholder which replaces the literals.
+     */
+    public static final char PLACEHOLDER = '?';
+
+    private static final String LITERAL_OPERATORS = "=<>!+-*/%|,(";
+    private static final String[] LITERAL_KEYWORDS = {
+        "in", "like", "ilike", "similar", "between", "and", "or", "not", "is",
+        "values", "when", "then", "else", "escape", "any", "all", "some",
+        "date", "time", "timestamp", "interval"};
+    // the keywords by length, so a word is compared with a few of them
+    private static final char[][][] KEYWORDS_BY_LENGTH;
+    // the buffers of the conservative templates are dropped when larger
+    private static final int MAX_RETAINED = 1 << 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // the classes of the ASCII characters
+    private static final byte WHITESPACE = 1;
+    private static final byte IDENTIFIER_START = 2;
+    private static final byte IDENTIFIER_PART = 4;
+    private static final byte DIGIT = 8;
+    private static final byte LITERAL_OPERATOR = 16;
+    private static final byte[] ASCII = new byte[128];
+
+    private static final ThreadLocal<Map<EDbVendor, SqlFingerprint>> CONSERVATIVE = new ThreadLocal<Map<EDbVendor, SqlFingerprint>>() {
+        @Override
+        protected Map<EDbVendor, SqlFingerprint> initialValue() {
+            return new EnumMap<>(EDbVendor.class);
+        }
+    };
+
+    // the states of a list of literals after IN
+    private static final int NO_LIST = 0;
+    private static final int AFTER_IN = 1;
+    private static final int EXPECT_VALUE = 2;
+    private static final int EXPECT_SEPARATOR = 3;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    static {
+        int maxLength = 0;
+        for (String keyword : LITERAL_KEYWORDS) {
+            maxLength = Math.max(maxLength, keyword.length());
+        }
+        KEYWORDS_BY_LENGTH = new char[maxLength + 1][][];
+        for (int length = 0; length <= maxLength; length++) {
+            int count = 0;
+            for (String keyword : LITERAL_KEYWORDS) {
+                if (keyword.length() == length) {
+                    count++;
+                }
+            }
+            KEYWORDS_BY_LENGTH[length] = new char[count][];
+            for (String keyword : LITERAL_KEYWORDS) {
+                if (keyword.length() == length) {
+                    KEYWORDS_BY_LENGTH[length][--count] = keyword.toCharArray();
+                }
+            }
+        }
+
+        for (char c = 0; c < 128; c++) {
+            byte type = 0;
+            if (Character.isWhitespace(c)) {
+                type |= WHITESPACE;
+            }
+            if (c == '_' || Character.isLetter(c)) {
+                type |= IDENTIFIER_START | IDENTIFIER_PART;
+            }
+            if (c >= '0' && c <= '9') {
+                type |= DIGIT | IDENTIFIER_PART;
+            }
+            if (c == '$') {
+                type |= IDENTIFIER_PART;
+            }
+            if (LITERAL_OPERATORS.indexOf(c) >= 0) {
+                type |= LITERAL_OPERATOR;
+            }
+            ASCII[c] = type;
+        }
+    }
+
+    private final boolean _conservative;
+    private final boolean _nestedComments;
+    private final boolean _hashComments;
+    private final boolean _dollarQuotes;
+    private final boolean _backslashEscapes;
+    private final boolean _escapeStrings;
+    private final boolean _brackets;
+    private final boolean _alternativeQuotes;
+    private char[] _input;
+    private char[] _output;
+    private int _length;
+    private long _high;
+    private long _low;
+    private int _literals;
+
+    /**
+     * Creates a fingerprint for a dialect.
+     *
+     * @param dbVendor the SQL dialect.
+     * @throws NullPointerException if dbVendor is null.
+     */
+    public SqlFingerprint(EDbVendor dbVendor) throws NullPointerException {
+        this(dbVendor, false);
+    }
+
+    /**
+     * Creates a fingerprint for a dialect. The conservative fingerprint of
+     * {@link #template(EDbVendor, String)} keeps only the rules delimiting the
+     * identifiers and the comments, the others are refused by the scan.
+     */
+    private SqlFingerprint(EDbVendor dbVendor, boolean conservative) throws NullPointerException {
+        if (dbVendor == null) {
+            throw new NullPointerException("dbVendor");
+        }
+        boolean postgres = dbVendor == EDbVendor.dbvpostgresql || dbVendor == EDbVendor.dbvgreenplum || dbVendor == EDbVendor.dbvredshift;
+        boolean mssql = dbVendor == EDbVendor.dbvmssql || dbVendor == EDbVendor.dbvsybase || dbVendor == EDbVendor.dbvaccess;
+        _conservative = conservative;
+        _nestedComments = !conservative && (postgres || mssql);
+        _hashComments = dbVendor == EDbVendor.dbvmysql;
+        _dollarQuotes = !conservative && postgres;
+        _backslashEscapes = !conservative && dbVendor == EDbVendor.dbvmysql;
+        _escapeStrings = !conservative && postgres;
+        _brackets = mssql;
+        _alternativeQuotes = !conservative && dbVendor == EDbVendor.dbvoracle;
+        _input = new char[INITIAL_CAPACITY];
+        _output = new char[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the template of a SQL string in the ANSI dialect, normalized
+     * conservatively.
+     *
+     * @param sql the SQL string.
+     * @return the template or null if the string cannot be safely normalized.
+     * @throws NullPointerException if sql is null.
+     * @see #template(EDbVendor, String)
+     */
+    public static String template(String sql) throws NullPointerException {
+        return template(EDbVendor.dbvansi, sql);
+    }
+
+    /**
+     * Returns the template of a SQL string, normalized conservatively so it
+     * can key the query cache of a database of the dialect.
+     *
+     * @param dbVendor the SQL dialect.
+     * @param sql the SQL string.
+     * @return the template or null if the string cannot be safely normalized.
+     * @throws NullPointerException if dbVendor or sql is null.
+     */
+    public static String template(EDbVendor dbVendor, String sql) throws NullPointerException {
+        Map<EDbVendor, SqlFingerprint> fingerprints = CONSERVATIVE.get();
+        SqlFingerprint fingerprint = fingerprints.get(dbVendor);
+        if (fingerprint == null) {
+            fingerprint = new SqlFingerprint(dbVendor, true);
+            fingerprints.put(dbVendor, fingerprint);
+        }
+        String ret = fingerprint.scan(sql) ? fingerprint.getTemplate() : null;
+        if (fingerprint._input.length > MAX_RETAINED) {
+            fingerprint._input = new char[INITIAL_CAPACITY];
+            fingerprint._output = new char[INITIAL_CAPACITY];
+        }
+        return ret;
+    }
+
+    /**
+     * Scans a SQL string, computing its template and fingerprint.
+     *
+     * @param sql the SQL string.
+     * @return true if the string was normalized, false if it contains an
+     * unterminated quote or comment, in which case the template and the
+     * fingerprint are not valid.
+     * @throws NullPointerException if sql is null.
+     */
+    public boolean scan(String sql) throws NullPointerException {
+        final int len = sql.length();
+        if (_input.length < len) {
+            // the template is never longer than the string
+            int capacity = Math.max(len, 2 * _input.length);
+            _input = new char[capacity];
+            _output = new char[capacity];
+        }
+        final char[] in = _input;
+        final char[] out = _output;
+        sql.getChars(0, len, in, 0);
+        int o = 0;
+        _length = 0;
+        _literals = 0;
+        _high = 0;
+        _low = 0;
+        boolean pendingSpace = false;
+        boolean literalContext = false;
+        int list = NO_LIST;
+        int listStart = 0;
+        int i = 0;
+        while (i < len) {
+            char c = in[i];
+            if (is(c, WHITESPACE)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if ((c == '-' && i + 1 < len && in[i + 1] == '-') || (c == '#' && _hashComments)) {
+                while (i < len && in[i] != '\n') {
+                    i++;
+                }
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < len && in[i + 1] == '*') {
+                i = skipComment(in, len, i);
+                if (i < 0) {
+                    return false;
+                }
+                pendingSpace = true;
+                continue;
+            }
+
+            if (pendingSpace && o > 0) {
+                out[o++] = ' ';
+            }
+            pendingSpace = false;
+
+            int end;
+            boolean literal = false;
+            if (c == '\'') {
+                end = skipQuoted(in, len, i, '\'', _backslashEscapes);
+                if (end < 0 || (_conservative && contains(in, i, end, '\\'))) {
+                    return false;
+                }
+                literal = literalContext || !_conservative;
+            } else if (!_conservative && i + 1 < len && in[i + 1] == '\'' && isStringPrefix(c)) {
+                // E'', N'', B'', X'' and q'' strings, always literals
+                end = (c == 'q' || c == 'Q') ? skipAlternativeQuoted(in, len, i + 1)
+                        : skipQuoted(in, len, i + 1, '\'', _backslashEscapes || c == 'e' || c == 'E');
+                if (end < 0) {
+                    return false;
+                }
+                literal = true;
+            } else if (c == '"' || c == '`' || (c == '[' && _brackets)) {
+                end = skipQuoted(in, len, i, c == '[' ? ']' : c, false);
+                if (end < 0) {
+                    return false;
+                }
+            } else if (is(c, DIGIT) || (c == '.' && i + 1 < len && is(in[i + 1], DIGIT))) {
+                end = skipNumber(in, len, i, !_conservative);
+                if (_conservative && end < len && (is(in[end], IDENTIFIER_PART) || in[end] == '.')) {
+                    return false;
+                }
+                literal = true;
+            } else if (is(c, IDENTIFIER_START)) {
+                int start = o;
+                while (i < len && is(in[i], IDENTIFIER_PART)) {
+                    out[o++] = toLowerCase(in[i]);
+                    i++;
+                }
+                literalContext = isLiteralKeyword(out, start, o);
+                list = o - start == 2 && out[start] == 'i' && out[start + 1] == 'n' ? AFTER_IN : NO_LIST;
+                continue;
+            } else if (c == '$') {
+                // positional parameters are kept, dollar quoted strings are literals
+                end = i + 1;
+                while (end < len && is(in[end], DIGIT)) {
+                    end++;
+                }
+                if (end == i + 1) {
+                    end = _dollarQuotes ? skipDollarQuoted(in, len, i) : -1;
+                    if (end < 0 && (_conservative || _dollarQuotes)) {
+                        return false;
+                    }
+                    literal = end >= 0;
+                    end = Math.max(end, i + 1);
+                }
+            } else {
+                out[o++] = c;
+                i++;
+                literalContext = is(c, LITERAL_OPERATOR);
+                if (c == '(' && list == AFTER_IN) {
+                    list = EXPECT_VALUE;
+                    listStart = o;
+                } else if (c == ',' && list == EXPECT_SEPARATOR) {
+                    list = EXPECT_VALUE;
+                } else if (c == ')' && list == EXPECT_SEPARATOR && !_conservative) {
+                    o = listStart;
+                    out[o++] = PLACEHOLDER;
+                    out[o++] = ')';
+                    list = NO_LIST;
+                } else if (!((c == '-' || c == '+') && list == EXPECT_VALUE)) {
+                    list = NO_LIST;
+                }
+                continue;
+            }
+
+            if (literal) {
+                out[o++] = PLACEHOLDER;
+                _literals++;
+                list = list == EXPECT_VALUE ? EXPECT_SEPARATOR : NO_LIST;
+            } else {
+                System.arraycopy(in, i, out, o, end - i);
+                o += end - i;
+                list = NO_LIST;
+            }
+            i = end;
+            literalContext = false;
+        }
+        _length = o;
+        hash(out, o);
+        return true;
+    }
+
+    /**
+     * Returns the template of the last string scanned.
+     *
+     * @return the template.
+     */
+    public String getTemplate() {
+        return new String(_output, 0, _length);
+    }
+
+    /**
+     * Returns the low 64 bits of the fingerprint of the last string scanned.
+     *
+     * @return the fingerprint.
+     */
+    public long getFingerprint() {
+        return _low;
+    }
+
+    /**
+     * Returns the high 64 bits of the fingerprint of the last string scanned.
+     *
+     * @return the fingerprint.
+     */
+    public long getFingerprintHigh() {
+        return _high;
+    }
+
+    /**
+     * Returns the number of literals replaced in the last string scanned.
+     *
+     * @return the number of literals.
+     */
+    public int getLiteralCount() {
+        return _literals;
+    }
+
+    /**
+     * Hashes the template four characters at a time, mixing them as
+     * MurmurHash3 does.
+     */
+    private void hash(char[] template, int len) {
+        long h1 = 0;
+        long h2 = 0;
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            long k1 = chars(template, i);
+            long k2 = chars(template, i + 4);
+            h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        for (int shift = 0; i < len; i++, shift += 16) {
+            if (shift < 64) {
+                k1 |= (long) template[i] << shift;
+            } else {
+                k2 |= (long) template[i] << (shift - 64);
+            }
+        }
+        h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+        h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+        _low = h1;
+        _high = h2;
+    }
+
+    private static long chars(char[] template, int i) {
+        return template[i] | (long) template[i + 1] << 16 | (long) template[i + 2] << 32 | (long) template[i + 3] << 48;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static boolean isLiteralKeyword(char[] out, int start, int end) {
+        int length = end - start;
+        if (length >= KEYWORDS_BY_LENGTH.length) {
+            return false;
+        }
+        for (char[] keyword : KEYWORDS_BY_LENGTH[length]) {
+            if (regionMatches(out, start, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(char[] out, int start, char[] keyword) {
+        for (int i = 0; i < keyword.length; i++) {
+            if (out[start + i] != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStringPrefix(char c) {
+        switch (c) {
+            case 'n':
+            case 'N':
+            case 'b':
+            case 'B':
+            case 'x':
+            case 'X':
+                return true;
+            case 'e':
+            case 'E':
+                return _escapeStrings;
+            case 'q':
+            case 'Q':
+                return _alternativeQuotes;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the position after a comment, or -1 if the comment is not
+     * terminated or, in the conservative mode, nested.
+     */
+    private int skipComment(char[] in, int len, int start) {
+        int depth = 1;
+        int i = start + 2;
+        while (i + 1 < len) {
+            char c = in[i];
+            if (c == '*' && in[i + 1] == '/') {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else if (c == '/' && in[i + 1] == '*') {
+                if (_conservative) {
+                    return -1;
+                }
+                i += 2;
+                if (_nestedComments) {
+                    depth++;
+                }
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position after the closing quote, considering a doubled
+     * quote as an escaped one.
+     */
+    private static int skipQuoted(char[] in, int len, int start, char quote, boolean backslashEscapes) {
+        int i = start + 1;
+        while (i < len) {
+            char c = in[i];
+            if (c == '\\' && backslashEscapes) {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 < len && in[i + 1] == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position after an Oracle q'Xtext X' string, given the
+     * position of its first quote.
+     */
+    private static int skipAlternativeQuoted(char[] in, int len, int start) {
+        if (start + 1 >= len) {
+            return -1;
+        }
+        char open = in[start + 1];
+        int pair = "[{(<".indexOf(open);
+        char close = pair >= 0 ? "]})>".charAt(pair) : open;
+        for (int i = start + 2; i + 1 < len; i++) {
+            if (in[i] == close && in[i + 1] == '\'') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position after a $tag$text$tag$ string, or -1 if there is
+     * no such string at start.
+     */
+    private static int skipDollarQuoted(char[] in, int len, int start) {
+        int tagEnd = start + 1;
+        while (tagEnd < len && (in[tagEnd] == '_' || Character.isLetterOrDigit(in[tagEnd]))) {
+            tagEnd++;
+        }
+        if (tagEnd >= len || in[tagEnd] != '$') {
+            return -1;
+        }
+        int tagLength = tagEnd + 1 - start;
+        for (int i = tagEnd + 1; i + tagLength <= len; i++) {
+            if (in[i] == '$' && regionMatches(in, i, start, tagLength)) {
+                return i + tagLength;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(char[] in, int a, int b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (in[a + i] != in[b + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(char[] in, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (in[i] == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipNumber(char[] in, int len, int start, boolean hex) {
+        if (hex && in[start] == '0' && start + 2 < len && (in[start + 1] == 'x' || in[start + 1] == 'X') && isHexDigit(in[start + 2])) {
+            int i = start + 2;
+            while (i < len && isHexDigit(in[i])) {
+                i++;
+            }
+            return i;
+        }
+        int i = skipDigits(in, len, start);
+        if (i < len && in[i] == '.') {
+            i = skipDigits(in, len, i + 1);
+        }
+        if (i < len && (in[i] == 'e' || in[i] == 'E')) {
+            int exp = i + 1;
+            if (exp < len && (in[exp] == '+' || in[exp] == '-')) {
+                exp++;
+            }
+            if (exp < len && is(in[exp], DIGIT)) {
+                i = skipDigits(in, len, exp);
+            }
+        }
+        return i;
+    }
+
+    private static int skipDigits(char[] in, int len, int i) {
+        while (i < len && is(in[i], DIGIT)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return is(c, DIGIT) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * Checks the class of a character, with a table for the ASCII ones.
+     */
+    private static boolean is(char c, byte type) {
+        if (c < 128) {
+            return (ASCII[c] & type) != 0;
+        }
+        switch (type) {
+            case WHITESPACE:
+                return Character.isWhitespace(c);
+            case IDENTIFIER_START:
+                return Character.isLetter(c);
+            case IDENTIFIER_PART:
+                return Character.isLetterOrDigit(c);
+            default:
+                return false;
+        }
+    }
+
+    private static char toLowerCase(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
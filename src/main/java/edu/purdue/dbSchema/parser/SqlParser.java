@@ -3,7 +3,9 @@ package edu.purdue.dbSchema.parser;
 import edu.purdue.dbSchema.erros.SqlParseException;
 import edu.purdue.dbSchema.erros.SqlSemanticException;
 import edu.purdue.dbSchema.erros.UnsupportedSqlException;
+import edu.purdue.dbSchema.parser.ParserStatistics.Counter;
 import edu.purdue.dbSchema.schema.Table;
+import edu.purdue.dbSchema.utils.JfrSupport;
 import edu.purdue.dbSchema.utils.Pair;
 import gudusoft.gsqlparser.EDbVendor;
 import gudusoft.gsqlparser.EExpressionType;
@@ -30,7 +32,10 @@ import gudusoft.gsqlparser.stmt.TSelectSqlStatement;
 import gudusoft.gsqlparser.stmt.TUpdateSqlStatement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
+import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,7 +45,22 @@ import java.util.regex.Pattern;
  * higher level APIs which parse only a subset of SQL returning a summary of the
  * features required by this project. Note: this class is not thread safe and it
  * is not meant to be, even if it can be reused to parse multiple queries, a
- * better approach is to create a new instance for every query to parse.
+ * better approach is to create a new instance for every query to parse. Creating
+ * an instance is cheap, the underlying parsers are reused by every thread.
+ * <p>
+ * The parsers count the statements they analyze and the clauses they ignore,
+ * see {@link #getStatistics()}. They can also emit a {@link SqlTraceEvent} for
+ * one statement out of N, and for every ignored clause, to a Flight Recorder
+ * recording. The sampling N is read from the system property
+ * <code>edu.purdue.dbSchema.parser.traceSampling</code> or, if missing, from
+ * the same key in <code>logging.properties</code>; 0, the default, disables the
+ * events. The ignored clauses are also logged at level FINE.
+ * <p>
+ * The PostgreSQL parsers analyze the simple single table statements, which
+ * make most of the traffic, without building their syntax tree, see
+ * {@link SimpleDmlParser}; the other statements, and every statement when the
+ * property <code>edu.purdue.dbSchema.parser.fastPath</code> is false, are
+ * parsed by the SQL parser.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
@@ -52,10 +72,25 @@ public class SqlParser {
      */
 
     private final static Logger LOGGER = Logger.getLogger(SqlParser.class.getName());
+    private final static String TRACE_SAMPLING_PROPERTY = "edu.purdue.dbSchema.parser.traceSampling";
+    private final static int TRACE_SAMPLING = traceSampling();
+    private final static String FAST_PATH_PROPERTY = "edu.purdue.dbSchema.parser.fastPath";
+    private final static boolean FAST_PATH = fastPath();
+    private final static LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
     private final EDbVendor _dbVendor;
+    private final boolean _fastPath;
     private List<Table> _tables;
     private List<ParsedQuery> _queries;
     private List<Grant> _grants;
+    private long _parseNanos;
+    private long _analyzeNanos;
 
     /**
      * Gets the grants parsed by the last invocation of {@link #parse(java.lang.String)
@@ -87,6 +122,98 @@ public class SqlParser {
         return _queries;
     }
 
+    /**
+     * Gets the time spent by the last invocation of {@link #parse(java.lang.String)
+     * } in the underlying SQL parser.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getParseNanos() {
+        return _parseNanos;
+    }
+
+    /**
+     * Gets the time spent by the last invocation of {@link #parse(java.lang.String)
+     * } analyzing the syntax trees built by the underlying SQL parser.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getAnalyzeNanos() {
+        return _analyzeNanos;
+    }
+
+    /**
+     * Returns the counters of all the parsers.
+     *
+     * @return a snapshot of the counters.
+     */
+    public static ParserStatistics getStatistics() {
+        long[] counts = new long[COUNTERS.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = COUNTERS[i].sum();
+        }
+        return new ParserStatistics(counts);
+    }
+
+    private static void count(Counter counter) {
+        COUNTERS[counter.ordinal()].increment();
+    }
+
+    /**
+     * Records an ignored clause.
+     *
+     * @param counter the kind of clause.
+     * @param detail a description, converted to a string only if it is
+     * recorded.
+     */
+    private static void ignored(Counter counter, Object detail) {
+        count(counter);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "{0} ignored: {1}", new Object[]{counter, detail});
+        }
+        if (TRACE_SAMPLING > 0) {
+            trace(counter.name(), detail);
+        }
+    }
+
+    private static void trace(String kind, Object detail) {
+        SqlTraceEvent event = new SqlTraceEvent();
+        if (event.isEnabled()) {
+            event.kind = kind;
+            event.detail = String.valueOf(detail);
+            event.commit();
+        }
+    }
+
+    private static int traceSampling() {
+        String value = System.getProperty(TRACE_SAMPLING_PROPERTY);
+        if (value == null) {
+            value = LogManager.getLogManager().getProperty(TRACE_SAMPLING_PROPERTY);
+        }
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int sampling = Integer.parseInt(value.trim());
+            if (sampling > 0 && !JfrSupport.AVAILABLE) {
+                LOGGER.log(Level.WARNING, "SQL trace events disabled, Flight Recorder is not available");
+                return 0;
+            }
+            return Math.max(sampling, 0);
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "SQL trace events disabled", ex);
+            return 0;
+        }
+    }
+
+    private static boolean fastPath() {
+        String value = System.getProperty(FAST_PATH_PROPERTY);
+        if (value == null) {
+            value = LogManager.getLogManager().getProperty(FAST_PATH_PROPERTY);
+        }
+        return value == null || Boolean.parseBoolean(value.trim());
+    }
+
     /**
      * Creates a new parser instance.
      *
@@ -94,10 +221,22 @@ public class SqlParser {
      * @throws NullPointerException if dbVendor is null.
      */
     public SqlParser(EDbVendor dbVendor) {
+        this(dbVendor, FAST_PATH);
+    }
+
+    /**
+     * Creates a new parser instance.
+     *
+     * @param dbVendor the SQL dialect used by this parser.
+     * @param fastPath false to parse all the statements with the SQL parser.
+     * @throws NullPointerException if dbVendor is null.
+     */
+    SqlParser(EDbVendor dbVendor, boolean fastPath) {
         if (dbVendor == null) {
             throw new NullPointerException("dbVendor");
         }
         _dbVendor = dbVendor;
+        _fastPath = fastPath && dbVendor == EDbVendor.dbvpostgresql;
     }
 
     /**
@@ -118,26 +257,109 @@ public class SqlParser {
         _tables = new ArrayList<>();
         _queries = new ArrayList<>();
         _grants = new ArrayList<>();
+        _parseNanos = 0;
+        _analyzeNanos = 0;
 
         if (sql.isEmpty()) {
             return 0;
         }
-
-        TGSqlParser sqlparser = new TGSqlParser(_dbVendor);
-        sqlparser.setSqltext(sql);
-        if (sqlparser.parse() != 0) {
-            throw new SqlParseException("Errors: %s; Error message: %s", sqlparser.getErrorCount(), sqlparser.getErrormessage());
+        if (_fastPath && parseSimple(sql)) {
+            return 1;
         }
 
-        int stmNum = sqlparser.sqlstatements.size();
-        for (int i = 0; i < stmNum; i++) {
-            analyzeStmt(sqlparser.sqlstatements.get(i));
+        TGSqlParser sqlparser = ParserPool.acquire(_dbVendor);
+        try {
+            sqlparser.setSqltext(sql);
+            ParseEvent parseEvent = JfrSupport.AVAILABLE ? new ParseEvent() : null;
+            if (parseEvent != null) {
+                parseEvent.begin();
+            }
+            long start = System.nanoTime();
+            int errors = sqlparser.parse();
+            long end = System.nanoTime();
+            _parseNanos = end - start;
+            if (parseEvent != null) {
+                parseEvent.end();
+            }
+            if (parseEvent != null && parseEvent.shouldCommit()) {
+                parseEvent.sql = sql;
+                parseEvent.success = errors == 0;
+                parseEvent.commit();
+            }
+            if (errors != 0) {
+                count(Counter.PARSE_ERROR);
+                throw new SqlParseException("Errors: %s; Error message: %s", sqlparser.getErrorCount(), sqlparser.getErrormessage());
+            }
+
+            AnalyzeEvent analyzeEvent = JfrSupport.AVAILABLE ? new AnalyzeEvent() : null;
+            if (analyzeEvent != null) {
+                analyzeEvent.begin();
+            }
+            int stmNum = sqlparser.sqlstatements.size();
+            try {
+                for (int i = 0; i < stmNum; i++) {
+                    analyzeStmt(sqlparser.sqlstatements.get(i));
+                }
+            } finally {
+                _analyzeNanos = System.nanoTime() - end;
+                if (analyzeEvent != null) {
+                    analyzeEvent.end();
+                }
+                if (analyzeEvent != null && analyzeEvent.shouldCommit()) {
+                    analyzeEvent.statements = stmNum;
+                    analyzeEvent.commit();
+                }
+            }
+
+            return stmNum;
+        } finally {
+            ParserPool.release(_dbVendor, sqlparser, sql.length());
         }
+    }
 
-        return stmNum;
+    /**
+     * Analyzes a simple statement without the SQL parser.
+     *
+     * @param sql the statement.
+     * @return false if the statement is not simple and must be parsed.
+     */
+    private boolean parseSimple(String sql) {
+        long start = System.nanoTime();
+        SimpleDmlParser simple = new SimpleDmlParser(sql);
+        ParsedQuery q = simple.parse();
+        if (q == null) {
+            return false;
+        }
+        _parseNanos = System.nanoTime() - start;
+        if (TRACE_SAMPLING > 0 && ThreadLocalRandom.current().nextInt(TRACE_SAMPLING) == 0) {
+            trace(q.type.toString(), sql);
+        }
+        count(Counter.FAST_PATH);
+        switch (q.type) {
+            case SELECT:
+                count(Counter.SELECT);
+                break;
+            case INSERT:
+                count(Counter.INSERT);
+                break;
+            case UPDATE:
+                count(Counter.UPDATE);
+                break;
+            case DELETE:
+                count(Counter.DELETE);
+                break;
+        }
+        if (simple.getLimit() != null) {
+            ignored(Counter.IGNORED_LIMIT, simple.getLimit());
+        }
+        _queries.add(q);
+        return true;
     }
 
     protected void analyzeStmt(TCustomSqlStatement stmt) throws UnsupportedSqlException, SqlSemanticException, SqlParseException {
+        if (TRACE_SAMPLING > 0 && ThreadLocalRandom.current().nextInt(TRACE_SAMPLING) == 0) {
+            trace(stmt.sqlstatementtype.toString(), stmt);
+        }
         ParsedQuery q;
         switch (stmt.sqlstatementtype) {
             case sstselect:
@@ -145,28 +367,34 @@ public class SqlParser {
                 _queries.add(q);
                 break;
             case sstinsert:
+                count(Counter.INSERT);
                 q = analyzeInsertStmt((TInsertSqlStatement) stmt);
                 _queries.add(q);
                 break;
             case sstupdate:
+                count(Counter.UPDATE);
                 q = analyzeUpdateStmt((TUpdateSqlStatement) stmt);
                 _queries.add(q);
                 break;
             case sstdelete:
+                count(Counter.DELETE);
                 q = analyzeDeleteStmt((TDeleteSqlStatement) stmt);
                 _queries.add(q);
                 break;
             case sstcreatetable:
+                count(Counter.CREATE_TABLE);
                 Table t = analyzeCreateTableStmt((TCreateTableSqlStatement) stmt);
                 _tables.add(t);
                 break;
             case sstGrant:
             case sstoraclegrant:
             case sstpostgresqlGrant:
+                count(Counter.GRANT);
                 Grant grant = analyzeGrantStmt(stmt);
                 _grants.add(grant);
                 break;
             default:
+                count(Counter.UNSUPPORTED);
                 throw new UnsupportedSqlException(stmt.sqlstatementtype.toString());
         }
     }
@@ -258,7 +486,6 @@ public class SqlParser {
     }
 
     protected ParsedQuery analyzeSelectStmt(TSelectSqlStatement pStmt) throws UnsupportedSqlException {
-        LOGGER.log(Level.INFO, "select");
         if (pStmt.isCombinedQuery()) {
             // pStmt.getSetOperator() //to know type of combined query (i.e. union, intersect...)
             // here the problem is that, considering
@@ -273,6 +500,7 @@ public class SqlParser {
             last.nextCombinedQuery = analyzeSelectStmt(pStmt.getRightStmt());
             return q;
         } else {
+            count(Counter.SELECT);
             ParsedQuery query = new ParsedQuery(DlmQueryType.SELECT);
             //select list
             for (int i = 0; i < pStmt.getResultColumnList().size(); i++) {
@@ -336,7 +564,7 @@ public class SqlParser {
 
             // limit clause
             if (pStmt.getLimitClause() != null) {
-                LOGGER.log(Level.WARNING, "limit clause ignored");
+                ignored(Counter.IGNORED_LIMIT, pStmt.getLimitClause());
             }
             return query;
         }
@@ -417,7 +645,7 @@ public class SqlParser {
             case list_t: //nothing to do, it is a list
                 break;
             default:
-                LOGGER.log(Level.WARNING, "Unknown expression type: {0}, found in: {1}", new Object[]{expressionType.toString(), conds.toString()});
+                ignored(Counter.UNKNOWN_EXPRESSION, expressionType);
         }
     }
 
@@ -434,13 +662,13 @@ public class SqlParser {
             }
         }
     }
-    private final Pattern _grantRegex = Pattern.compile("GRANT +(?<what>\\w+)( +ON +(?<where>[\\w.]+))? +TO +(?<to>\\w+) *;?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern GRANT_REGEX = Pattern.compile("GRANT +(?<what>\\w+)( +ON +(?<where>[\\w.]+))? +TO +(?<to>\\w+) *;?", Pattern.CASE_INSENSITIVE);
 
     private Grant analyzeGrantStmt(TCustomSqlStatement stmt) throws UnsupportedSqlException, SqlParseException {
         String grantStr = stmt.toString();
         // GRANT what ON col TO role
         // GRANT role TO role
-        Matcher matcher = _grantRegex.matcher(grantStr);
+        Matcher matcher = GRANT_REGEX.matcher(grantStr);
         if (!matcher.matches()) {
             throw new UnsupportedSqlException("Cannot parse grant statement" + grantStr);
         }
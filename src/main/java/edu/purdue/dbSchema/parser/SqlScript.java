@@ -0,0 +1,148 @@
+package edu.purdue.dbSchema.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a SQL script in statements. A statement ends at a semicolon which is
+ * not inside a string, a quoted identifier, a comment or a dollar quoted
+ * string. Standard strings, strings with backslash escapes (<code>E'...'</code>),
+ * nested block comments and dollar quoting follow the PostgreSQL rules.
+ * <p>
+ * The split does not check the syntax: an unterminated string or comment is
+ * returned as part of the last statement, and the parser reports the error.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class SqlScript {
+
+    private SqlScript() {
+    }
+
+    /**
+     * Splits a script.
+     *
+     * @param script the script.
+     * @return the statements, without the final semicolon and the surrounding
+     * white spaces. Statements containing only comments are skipped.
+     * @throws NullPointerException if script is null.
+     */
+    public static List<String> split(String script) throws NullPointerException {
+        final int len = script.length();
+        List<String> ret = new ArrayList<>();
+        int start = 0;
+        boolean content = false;
+        int i = 0;
+        while (i < len) {
+            char c = script.charAt(i);
+            if (c == ';') {
+                if (content) {
+                    ret.add(script.substring(start, i).trim());
+                }
+                start = ++i;
+                content = false;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < len && script.charAt(i + 1) == '-') {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? len : end + 1;
+            } else if (c == '/' && i + 1 < len && script.charAt(i + 1) == '*') {
+                i = skipComment(script, i);
+            } else {
+                content = true;
+                if (c == '\'') {
+                    boolean escapes = i > 0 && (script.charAt(i - 1) == 'E' || script.charAt(i - 1) == 'e')
+                            && (i < 2 || !isIdentifierPart(script.charAt(i - 2)));
+                    i = skipQuoted(script, i, '\'', escapes);
+                } else if (c == '"') {
+                    i = skipQuoted(script, i, '"', false);
+                } else if (c == '$' && (i == 0 || !isIdentifierPart(script.charAt(i - 1)))) {
+                    i = skipDollarQuoted(script, i);
+                } else {
+                    i++;
+                }
+            }
+        }
+        if (content) {
+            ret.add(script.substring(start).trim());
+        }
+        return ret;
+    }
+
+    /**
+     * Skips a block comment, which may contain other block comments.
+     *
+     * @return the index after the comment.
+     */
+    private static int skipComment(String script, int i) {
+        int depth = 0;
+        final int len = script.length();
+        while (i < len) {
+            if (script.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else if (script.startsWith("*/", i)) {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Skips a string or a quoted identifier. A doubled quote is part of the
+     * string.
+     *
+     * @return the index after the closing quote.
+     */
+    private static int skipQuoted(String script, int i, char quote, boolean escapes) {
+        final int len = script.length();
+        i++;
+        while (i < len) {
+            char c = script.charAt(i);
+            if (escapes && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < len && script.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Skips a dollar quoted string, if the dollar starts one.
+     *
+     * @return the index after the closing tag, or after the dollar if it does
+     * not start a tag.
+     */
+    private static int skipDollarQuoted(String script, int i) {
+        final int len = script.length();
+        int end = i + 1;
+        if (end < len && Character.isDigit(script.charAt(end))) {
+            return end; // a positional parameter
+        }
+        while (end < len && (Character.isLetterOrDigit(script.charAt(end)) || script.charAt(end) == '_')) {
+            end++;
+        }
+        if (end >= len || script.charAt(end) != '$') {
+            return i + 1;
+        }
+        String tag = script.substring(i, end + 1);
+        int close = script.indexOf(tag, end + 1);
+        return close < 0 ? len : close + tag.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
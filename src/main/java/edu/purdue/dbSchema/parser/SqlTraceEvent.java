@@ -0,0 +1,29 @@
+package edu.purdue.dbSchema.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event emitted by {@link SqlParser} for a sampled statement
+ * or for a part of a statement which is ignored. It is recorded only while a
+ * recording enables it, see {@link SqlParser} for the sampling.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.SqlTrace")
+@Label("SQL Trace")
+@Category({"dbSchema", "Parser"})
+@Description("A statement analyzed by the parser or a clause ignored")
+@StackTrace(false)
+final class SqlTraceEvent extends Event {
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Detail")
+    String detail;
+}
@@ -0,0 +1,25 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.schema.QueryFeature;
+
+/**
+ * Scores how unusual a query is for a user, given the profile of the user.
+ * <p>
+ * The models are called concurrently by {@link AnomalyScorer}, for every query,
+ * so they must be thread safe and should neither lock nor allocate.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public interface AnomalyModel {
+
+    /**
+     * Scores a query.
+     *
+     * @param profile the profile of the user who issued the query.
+     * @param feature the feature of the query.
+     * @param nowMillis the time of the query.
+     * @return the score, between 0 for a usual query and 1 for a query unlike
+     * any in the profile.
+     */
+    double score(UserProfile profile, QueryFeature feature, long nowMillis);
+}
@@ -0,0 +1,112 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.schema.QueryFeature;
+import java.util.List;
+
+/**
+ * Scores the queries of the users against their profiles, to spot the ones
+ * which do not match the usual behavior of their user. The score of a query is
+ * the highest of the scores of the models, between 0 and 1.
+ * <p>
+ * Scoring reads the profiles optimistically, without locking or waiting for
+ * the updates (see {@link UserProfile}), and the default models do not
+ * allocate, so it can run on every query while the profiles are updated. The scorer does not update the profiles: the caller usually adds a
+ * query to the {@link ProfileBuilder} after scoring it.
+ * <p>
+ * This class is thread safe if the models are.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class AnomalyScorer {
+
+    private final ProfileBuilder _profiles;
+    private final AnomalyModel[] _models;
+
+    /**
+     * Creates a scorer with a {@link FrequencyModel} and a
+     * {@link SimilarityModel}.
+     *
+     * @param profiles the profiles of the users.
+     * @throws NullPointerException if profiles is null.
+     */
+    public AnomalyScorer(ProfileBuilder profiles) throws NullPointerException {
+        this(profiles, new FrequencyModel(), new SimilarityModel());
+    }
+
+    /**
+     * Creates a scorer.
+     *
+     * @param profiles the profiles of the users.
+     * @param models the models.
+     * @throws NullPointerException if a parameter or a model is null.
+     * @throws IllegalArgumentException if there are no models.
+     */
+    public AnomalyScorer(ProfileBuilder profiles, AnomalyModel... models) throws NullPointerException, IllegalArgumentException {
+        if (profiles == null) {
+            throw new NullPointerException("profiles");
+        }
+        if (models.length == 0) {
+            throw new IllegalArgumentException("no models");
+        }
+        for (AnomalyModel m : models) {
+            if (m == null) {
+                throw new NullPointerException("model");
+            }
+        }
+        _profiles = profiles;
+        _models = models.clone();
+    }
+
+    /**
+     * Scores the feature of a query.
+     *
+     * @param username the user who issued the query.
+     * @param feature the feature.
+     * @param nowMillis the time of the query.
+     * @return the score, 1 if the user has no profile.
+     * @throws NullPointerException if username or feature are null.
+     * @throws IllegalArgumentException if username is empty.
+     */
+    public double score(String username, QueryFeature feature, long nowMillis) throws NullPointerException, IllegalArgumentException {
+        if (feature == null) {
+            throw new NullPointerException("feature");
+        }
+        UserProfile profile = _profiles.getProfile(username);
+        return profile == null ? 1 : score(profile, feature, nowMillis);
+    }
+
+    /**
+     * Scores the features of a query.
+     *
+     * @param username the user who issued the query.
+     * @param features the features.
+     * @param nowMillis the time of the query.
+     * @return the highest score of the features, 0 if there are no features
+     * and 1 if the user has no profile.
+     * @throws NullPointerException if username or features or any of the
+     * features are null.
+     * @throws IllegalArgumentException if username is empty.
+     */
+    public double score(String username, List<QueryFeature> features, long nowMillis) throws NullPointerException, IllegalArgumentException {
+        UserProfile profile = _profiles.getProfile(username);
+        if (features.isEmpty()) {
+            return 0;
+        }
+        if (profile == null) {
+            return 1;
+        }
+        double ret = 0;
+        for (int i = 0; i < features.size(); i++) {
+            ret = Math.max(ret, score(profile, features.get(i), nowMillis));
+        }
+        return ret;
+    }
+
+    private double score(UserProfile profile, QueryFeature feature, long nowMillis) {
+        double ret = 0;
+        for (AnomalyModel m : _models) {
+            ret = Math.max(ret, m.score(profile, feature, nowMillis));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.schema.QueryFeature;
+
+/**
+ * Scores a query by the rarest of its parts in the profile of the user: its
+ * type, the columns it uses and filters and the roles it needs. The novelty of
+ * a part seen <code>n</code> times, after the decay, is
+ * <code>k / (k + n)</code>, where the smoothing <code>k</code> is the number
+ * of queries after which a part is half known; the score of a query is the
+ * highest novelty of its parts.
+ * <p>
+ * A query costs one sketch lookup per part. All the parts are read in a
+ * single optimistic read of the profile, which is tried again if the profile
+ * is updated meanwhile (see {@link UserProfile}).
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class FrequencyModel implements AnomalyModel {
+
+    /**
+     * The default smoothing.
+     */
+    public static final double DEFAULT_SMOOTHING = 1;
+
+    private final double _smoothing;
+
+    /**
+     * Creates a model with the default smoothing.
+     */
+    public FrequencyModel() {
+        this(DEFAULT_SMOOTHING);
+    }
+
+    /**
+     * Creates a model.
+     *
+     * @param smoothing the number of queries after which a part has a novelty
+     * of one half.
+     * @throws IllegalArgumentException if smoothing is not positive.
+     */
+    public FrequencyModel(double smoothing) throws IllegalArgumentException {
+        if (!(smoothing > 0)) {
+            throw new IllegalArgumentException("smoothing must be positive");
+        }
+        _smoothing = smoothing;
+    }
+
+    @Override
+    public double score(UserProfile profile, QueryFeature feature, long nowMillis) {
+        double ret = 0;
+        for (int i = 0; i < UserProfile.MAX_READ_ATTEMPTS; i++) {
+            long stamp = profile.startRead();
+            ret = read(profile, feature, nowMillis);
+            if (profile.validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    private double read(UserProfile profile, QueryFeature feature, long nowMillis) {
+        double ret = novelty(profile.count(feature.getType(), nowMillis));
+        for (int id = feature.nextUsedColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextUsedColId(id + 1) : -1) {
+            ret = Math.max(ret, novelty(profile.usedCount(id, nowMillis)));
+        }
+        for (int id = feature.nextFilteredColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextFilteredColId(id + 1) : -1) {
+            ret = Math.max(ret, novelty(profile.filteredCount(id, nowMillis)));
+        }
+        for (int id = feature.nextRoleId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextRoleId(id + 1) : -1) {
+            ret = Math.max(ret, novelty(profile.roleCount(id, nowMillis)));
+        }
+        return ret;
+    }
+
+    private double novelty(double count) {
+        return _smoothing / (_smoothing + count);
+    }
+}
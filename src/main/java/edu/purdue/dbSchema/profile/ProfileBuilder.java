@@ -0,0 +1,156 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryResult;
+import edu.purdue.dbSchema.utils.CountMinSketch;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the profiles of the users from the features of their queries, as
+ * they are evaluated. Adding the features of a known user costs a constant
+ * time per feature, and allocates only to keep a new set of columns; the
+ * updates of the same profile are serialized and the first query of a user
+ * creates its profile. See {@link UserProfile}.
+ * <p>
+ * The profiles count the columns and roles by id, therefore a builder must be
+ * fed with the features of a single database. The user names are compared as
+ * the database does, see {@link Name}.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class ProfileBuilder {
+
+    /**
+     * The default number of counters of each row of the sketches.
+     */
+    public static final int DEFAULT_WIDTH = 1024;
+    /**
+     * The default number of rows of the sketches.
+     */
+    public static final int DEFAULT_DEPTH = 4;
+    /**
+     * The default half life of the counts.
+     */
+    public static final long DEFAULT_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final int _width;
+    private final int _depth;
+    private final long _halfLifeMillis;
+    private final ConcurrentHashMap<Name, UserProfile> _profiles;
+
+    /**
+     * Creates a builder with the default sketch size and half life.
+     */
+    public ProfileBuilder() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * Creates a builder. Every profile uses about
+     * <code>16 * width * depth</code> bytes.
+     *
+     * @param width the number of counters of each row of the sketches.
+     * @param depth the number of rows of the sketches.
+     * @param halfLifeMillis the time after which the counts halve.
+     * @throws IllegalArgumentException if halfLifeMillis is not positive or the
+     * sketches cannot have that size (see
+     * {@link CountMinSketch#isValidSize(int, int)}).
+     */
+    public ProfileBuilder(int width, int depth, long halfLifeMillis) throws IllegalArgumentException {
+        // checked here, the sketches are created with the first query of a user
+        if (!CountMinSketch.isValidSize(width, depth) || halfLifeMillis <= 0) {
+            throw new IllegalArgumentException("invalid sketch size or half life");
+        }
+        _width = width;
+        _depth = depth;
+        _halfLifeMillis = halfLifeMillis;
+        _profiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds the feature of a query.
+     *
+     * @param username the user who issued the query.
+     * @param feature the feature.
+     * @param timeMillis the time of the query.
+     * @throws NullPointerException if username or feature are null.
+     * @throws IllegalArgumentException if username is empty.
+     */
+    public void add(String username, QueryFeature feature, long timeMillis) throws NullPointerException, IllegalArgumentException {
+        if (feature == null) {
+            throw new NullPointerException("feature");
+        }
+        profile(username).add(feature, timeMillis);
+    }
+
+    /**
+     * Adds the features of a query.
+     *
+     * @param username the user who issued the query.
+     * @param features the features.
+     * @param timeMillis the time of the query.
+     * @throws NullPointerException if username or features or any of the
+     * features are null.
+     * @throws IllegalArgumentException if username is empty.
+     */
+    public void add(String username, List<QueryFeature> features, long timeMillis) throws NullPointerException, IllegalArgumentException {
+        UserProfile profile = profile(username);
+        for (int i = 0; i < features.size(); i++) {
+            profile.add(features.get(i), timeMillis);
+        }
+    }
+
+    /**
+     * Adds the features of an evaluated query. Failed queries are ignored.
+     *
+     * @param result the result of the query.
+     * @param timeMillis the time of the query.
+     * @throws NullPointerException if result is null.
+     */
+    public void add(QueryResult result, long timeMillis) throws NullPointerException {
+        if (result.isSuccess()) {
+            add(result.getRecord().getUsername(), result.getFeatures(), timeMillis);
+        }
+    }
+
+    private UserProfile profile(String username) {
+        Name user = Name.valueOf(username);
+        UserProfile ret = _profiles.get(user);
+        if (ret == null) {
+            UserProfile created = new UserProfile(_width, _depth, _halfLifeMillis);
+            ret = _profiles.putIfAbsent(user, created);
+            if (ret == null) {
+                ret = created;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the profile of a user.
+     *
+     * @param username the user.
+     * @return the profile or null if the user issued no query.
+     * @throws NullPointerException if username is null.
+     * @throws IllegalArgumentException if username is empty.
+     */
+    public UserProfile getProfile(String username) throws NullPointerException, IllegalArgumentException {
+        return _profiles.get(Name.valueOf(username));
+    }
+
+    /**
+     * Returns the users with a profile.
+     *
+     * @return an unmodifiable view of the users.
+     */
+    public Set<Name> getUsers() {
+        return Collections.unmodifiableSet(_profiles.keySet());
+    }
+}
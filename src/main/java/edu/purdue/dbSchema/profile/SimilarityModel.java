@@ -0,0 +1,21 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.schema.QueryFeature;
+
+/**
+ * Scores a query by how far its columns are from the ones the user queried
+ * recently: the score is one minus the highest Jaccard similarity between the
+ * columns used by the query and the recent sets of columns of the profile,
+ * see {@link UserProfile#getMaxSimilarity(QueryFeature)}. Unlike
+ * {@link FrequencyModel}, this model catches a query which combines known
+ * columns in an unusual way.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class SimilarityModel implements AnomalyModel {
+
+    @Override
+    public double score(UserProfile profile, QueryFeature feature, long nowMillis) {
+        return 1 - profile.getMaxSimilarity(feature);
+    }
+}
@@ -0,0 +1,450 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.utils.CompactBitmap;
+import edu.purdue.dbSchema.utils.CountMinSketch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The behavior of a user: how often, recently, the user issued every type of
+ * query and used every column and role. The columns and the roles are counted
+ * by id (see {@link QueryFeature#nextUsedColId(int)}), in two count-min
+ * sketches, one for single columns and roles and one for the pairs of columns
+ * used by the same query, so the memory of a profile is fixed. The columns
+ * without an id, like the ones of the sub-queries in the from clause, are not
+ * counted.
+ * <p>
+ * The counts decay exponentially with the age of the queries, halving every
+ * half life, so a profile follows the changes of the user behavior. The decay
+ * is applied forward: a query is added with a weight which grows with its
+ * time, and the counts are divided by the weight of the current time when they
+ * are read. Therefore adding a query does not touch the other counts, except
+ * for a rescaling about every 46 half lives.
+ * <p>
+ * A profile also keeps the last {@value #RECENT_SETS} distinct sets of columns
+ * used by the queries, to compare the columns of a new query with them. Only a
+ * set which is not already kept is copied, so the updates of a user who
+ * repeats the same queries do not allocate.
+ * <p>
+ * This class is thread safe. The updates are serialized, while the reads
+ * neither lock nor wait: they read the values optimistically and read them
+ * again if an update ran meanwhile, up to {@value #MAX_READ_ATTEMPTS} times.
+ * If the updates keep running, the values of the last attempt are returned:
+ * they may mix two updates, but they are read from the fixed arrays of the
+ * profile, so a read never fails. Every getter is a read on its own, the
+ * models of this package read all the values of a score in one (see
+ * {@link FrequencyModel}).
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class UserProfile {
+
+    /**
+     * The maximum number of used columns of a query whose pairs are counted.
+     * A query with more columns adds the pairs of its first ones, so the cost
+     * of an update does not grow with the square of the columns.
+     */
+    public static final int MAX_PAIR_COLUMNS = 16;
+
+    /**
+     * The number of distinct sets of used columns kept.
+     */
+    public static final int RECENT_SETS = 16;
+
+    /**
+     * The number of times a read is tried before returning values which may
+     * mix two updates.
+     */
+    public static final int MAX_READ_ATTEMPTS = 4;
+
+    // rescale when the weights reach e^32
+    private static final double MAX_EXPONENT = 32;
+
+    private static final long USED = 0L << 32;
+    private static final long FILTERED = 1L << 32;
+    private static final long ROLE = 2L << 32;
+
+    private final double _lambda;
+    private final CountMinSketch _columns;
+    private final CountMinSketch _pairs;
+    private final double[] _types;
+    private final int[] _pairIds;
+    // the readers do not lock, the array publishes the sets safely to them
+    private final AtomicReferenceArray<CompactBitmap> _recentSets;
+    private final int[] _recentCardinality;
+    private final StampedLock _lock;
+    private int _nextSet;
+    private double _count;
+    private long _landmark;
+    private long _first;
+    private long _last;
+
+    /**
+     * Creates an empty profile.
+     *
+     * @param width the width of the sketches.
+     * @param depth the depth of the sketches.
+     * @param halfLifeMillis the time after which the counts halve.
+     * @throws IllegalArgumentException if a parameter is not positive.
+     */
+    UserProfile(int width, int depth, long halfLifeMillis) throws IllegalArgumentException {
+        if (halfLifeMillis <= 0) {
+            throw new IllegalArgumentException("halfLifeMillis must be positive");
+        }
+        _lambda = Math.log(2) / halfLifeMillis;
+        _columns = new CountMinSketch(width, depth);
+        _pairs = new CountMinSketch(width, depth);
+        _types = new double[DlmQueryType.values().length];
+        _pairIds = new int[MAX_PAIR_COLUMNS];
+        _recentSets = new AtomicReferenceArray<>(RECENT_SETS);
+        _recentCardinality = new int[RECENT_SETS];
+        _lock = new StampedLock();
+        _first = Long.MIN_VALUE;
+        _last = Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a query feature.
+     *
+     * @param feature the feature.
+     * @param timeMillis the time of the query.
+     * @throws NullPointerException if feature is null.
+     */
+    void add(QueryFeature feature, long timeMillis) throws NullPointerException {
+        DlmQueryType type = feature.getType();
+        long stamp = _lock.writeLock();
+        try {
+            update(feature, type, timeMillis);
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    private void update(QueryFeature feature, DlmQueryType type, long timeMillis) {
+        double weight = weight(timeMillis);
+        _count += weight;
+        _types[type.ordinal()] += weight;
+        int pairColumns = 0;
+        for (int id = feature.nextUsedColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextUsedColId(id + 1) : -1) {
+            _columns.add(USED | id, weight);
+            if (pairColumns < MAX_PAIR_COLUMNS) {
+                _pairIds[pairColumns++] = id;
+            }
+        }
+        for (int id = feature.nextFilteredColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextFilteredColId(id + 1) : -1) {
+            _columns.add(FILTERED | id, weight);
+        }
+        for (int id = feature.nextRoleId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextRoleId(id + 1) : -1) {
+            _columns.add(ROLE | id, weight);
+        }
+        for (int i = 0; i < pairColumns; i++) {
+            for (int j = i + 1; j < pairColumns; j++) {
+                _pairs.add(pair(_pairIds[i], _pairIds[j]), weight);
+            }
+        }
+        if (pairColumns > 0 && indexOf(feature) < 0) {
+            CompactBitmap set = feature.getUsedColIds();
+            _recentCardinality[_nextSet] = set.cardinality();
+            _recentSets.set(_nextSet, set);
+            _nextSet = (_nextSet + 1) % RECENT_SETS;
+        }
+        if (_first == Long.MIN_VALUE || timeMillis < _first) {
+            _first = timeMillis;
+        }
+        _last = Math.max(_last, timeMillis);
+    }
+
+    /**
+     * Looks for the used columns of a feature among the recent sets.
+     */
+    private int indexOf(QueryFeature feature) {
+        int cardinality = 0;
+        for (int id = feature.nextUsedColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextUsedColId(id + 1) : -1) {
+            cardinality++;
+        }
+        for (int i = 0; i < RECENT_SETS; i++) {
+            CompactBitmap set = _recentSets.get(i);
+            if (set != null && _recentCardinality[i] == cardinality && intersection(feature, set) == cardinality) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int intersection(QueryFeature feature, CompactBitmap set) {
+        int ret = 0;
+        for (int id = feature.nextUsedColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextUsedColId(id + 1) : -1) {
+            if (set.contains(id)) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    private double weight(long timeMillis) {
+        if (_first == Long.MIN_VALUE) {
+            _landmark = timeMillis;
+        }
+        double exponent = _lambda * (timeMillis - _landmark);
+        if (exponent > MAX_EXPONENT) {
+            double factor = Math.exp(-exponent);
+            _columns.scale(factor);
+            _pairs.scale(factor);
+            for (int i = 0; i < _types.length; i++) {
+                _types[i] *= factor;
+            }
+            _count *= factor;
+            _landmark = timeMillis;
+            exponent = 0;
+        }
+        return Math.exp(exponent);
+    }
+
+    private double decay(double value, long nowMillis) {
+        return value * Math.exp(-_lambda * (nowMillis - _landmark));
+    }
+
+    private static long pair(int a, int b) {
+        // the ids are sorted, so the same pair has always the same key
+        return ((long) a << 32) | b;
+    }
+
+    /**
+     * Starts an optimistic read of the profile. The values read by the
+     * unchecked accessors, like {@link #usedCount(int, long)}, after this
+     * call are consistent if {@link #validate(long)} then returns true.
+     *
+     * @return the stamp of the read, 0 if an update is running.
+     */
+    long startRead() {
+        return _lock.tryOptimisticRead();
+    }
+
+    /**
+     * Checks that no update ran since a read started.
+     *
+     * @param stamp the stamp returned by {@link #startRead()}.
+     * @return true if the values read are consistent.
+     */
+    boolean validate(long stamp) {
+        return stamp != 0 && _lock.validate(stamp);
+    }
+
+    /**
+     * Returns the decayed number of queries.
+     *
+     * @param nowMillis the current time.
+     * @return the number of queries.
+     */
+    public double getCount(long nowMillis) {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = count(nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double count(long nowMillis) {
+        return decay(_count, nowMillis);
+    }
+
+    /**
+     * Returns the decayed number of queries of a type.
+     *
+     * @param type the query type.
+     * @param nowMillis the current time.
+     * @return the number of queries.
+     * @throws NullPointerException if type is null.
+     */
+    public double getCount(DlmQueryType type, long nowMillis) throws NullPointerException {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = count(type, nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double count(DlmQueryType type, long nowMillis) {
+        return decay(_types[type.ordinal()], nowMillis);
+    }
+
+    /**
+     * Returns the estimated decayed number of queries which used a column.
+     *
+     * @param columnId the column id.
+     * @param nowMillis the current time.
+     * @return the number of queries, never lower than the actual one.
+     */
+    public double getUsedCount(int columnId, long nowMillis) {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = usedCount(columnId, nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double usedCount(int columnId, long nowMillis) {
+        return decay(_columns.estimate(USED | columnId), nowMillis);
+    }
+
+    /**
+     * Returns the estimated decayed number of queries filtered by a column.
+     *
+     * @param columnId the column id.
+     * @param nowMillis the current time.
+     * @return the number of queries, never lower than the actual one.
+     */
+    public double getFilteredCount(int columnId, long nowMillis) {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = filteredCount(columnId, nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double filteredCount(int columnId, long nowMillis) {
+        return decay(_columns.estimate(FILTERED | columnId), nowMillis);
+    }
+
+    /**
+     * Returns the estimated decayed number of queries executed with a role.
+     *
+     * @param roleId the role id.
+     * @param nowMillis the current time.
+     * @return the number of queries, never lower than the actual one.
+     */
+    public double getRoleCount(int roleId, long nowMillis) {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = roleCount(roleId, nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double roleCount(int roleId, long nowMillis) {
+        return decay(_columns.estimate(ROLE | roleId), nowMillis);
+    }
+
+    /**
+     * Returns the estimated decayed number of queries which used two columns
+     * together.
+     *
+     * @param columnId1 the id of a column.
+     * @param columnId2 the id of the other column.
+     * @param nowMillis the current time.
+     * @return the number of queries, never lower than the actual one.
+     */
+    public double getPairCount(int columnId1, int columnId2, long nowMillis) {
+        long key = columnId1 < columnId2 ? pair(columnId1, columnId2) : pair(columnId2, columnId1);
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = decay(_pairs.estimate(key), nowMillis);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Compares the columns used by a query with the recent sets of columns of
+     * the user, see {@link #RECENT_SETS}.
+     *
+     * @param feature the feature of the query.
+     * @return the highest Jaccard similarity between the ids of the columns
+     * used by the query and a recent set, 0 if there are no recent sets and 1
+     * if the query uses no column with an id.
+     * @throws NullPointerException if feature is null.
+     */
+    public double getMaxSimilarity(QueryFeature feature) throws NullPointerException {
+        double ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = maxSimilarity(feature);
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    double maxSimilarity(QueryFeature feature) {
+        int cardinality = 0;
+        for (int id = feature.nextUsedColId(0); id >= 0; id = id < Integer.MAX_VALUE ? feature.nextUsedColId(id + 1) : -1) {
+            cardinality++;
+        }
+        if (cardinality == 0) {
+            return 1;
+        }
+        double ret = 0;
+        for (int i = 0; i < RECENT_SETS; i++) {
+            CompactBitmap set = _recentSets.get(i);
+            if (set != null) {
+                int common = intersection(feature, set);
+                int union = cardinality + _recentCardinality[i] - common;
+                // a read mixing two updates may see the cardinality of another set
+                if (union >= common && union > 0) {
+                    ret = Math.max(ret, (double) common / union);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the time of the oldest query.
+     *
+     * @return the time or {@link Long#MIN_VALUE} if the profile is empty.
+     */
+    public long getFirstSeen() {
+        long ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = _first;
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the time of the most recent query.
+     *
+     * @return the time or {@link Long#MIN_VALUE} if the profile is empty.
+     */
+    public long getLastSeen() {
+        long ret = 0;
+        for (int i = 0; i < MAX_READ_ATTEMPTS; i++) {
+            long stamp = startRead();
+            ret = _last;
+            if (validate(stamp)) {
+                break;
+            }
+        }
+        return ret;
+    }
+}
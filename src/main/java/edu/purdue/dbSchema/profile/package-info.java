@@ -0,0 +1,5 @@
+/**
+ * Contains the behavioral profiles of the users, built from the features of
+ * the queries they issue, to detect anomalous queries.
+ */
+package edu.purdue.dbSchema.profile;
@@ -1,5 +1,7 @@
 package edu.purdue.dbSchema.schema;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -12,8 +14,11 @@ import java.io.Serializable;
  */
 public abstract class AbstractColumn implements Serializable {
 
+    private static final long serialVersionUID = -1928991141429432051L;
+
     protected final Table _table;
     protected final Name _name;
+    private transient int _id = -1;
 
     /**
      * Creates a column.
@@ -63,6 +68,28 @@ public abstract class AbstractColumn implements Serializable {
         return _name;
     }
 
+    /**
+     * Returns the id of this column. The ids are dense integers assigned when
+     * the table of the column is added to a database, starting from 0, and
+     * never change while the table is part of it. Columns of tables which are
+     * not in a database, like the ones of sub-queries, have no id.
+     *
+     * @return the id or -1 if the column has no id.
+     */
+    public int getId() {
+        return _id;
+    }
+
+    void setId(int id) {
+        _id = id;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // the ids are assigned again by the schema the table is added to
+        _id = -1;
+    }
+
     /**
      * Returns the table this column belongs. Note that this value can be null.
      *
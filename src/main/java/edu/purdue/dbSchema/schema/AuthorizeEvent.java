@@ -0,0 +1,26 @@
+package edu.purdue.dbSchema.schema;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the grant checks of the queries contained
+ * in an SQL string.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.Authorize")
+@Label("SQL Authorize")
+@Category({"dbSchema", "Pipeline"})
+@Description("The grants of the user are checked on the resolved queries")
+final class AuthorizeEvent extends Event {
+
+    @Label("User")
+    String user;
+
+    @Label("Success")
+    boolean success;
+}
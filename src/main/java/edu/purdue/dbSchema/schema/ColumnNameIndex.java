@@ -0,0 +1,77 @@
+package edu.purdue.dbSchema.schema;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the unqualified column names visible in a query to the columns they
+ * reference. A name is ambiguous when more than one table entry contains it,
+ * counting a table once for its name and once for each alias, exactly as a
+ * scan of every table would do.
+ * <p>
+ * The index is built on the first lookup, so queries which always qualify
+ * their columns do not pay for it. The tables must not change afterwards.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class ColumnNameIndex {
+
+    private final Map<Name, Table> _tables;
+    private Map<Name, AbstractColumn> _columns;
+    private Set<Name> _ambiguous;
+
+    /**
+     * Creates an index over the tables used by a query.
+     *
+     * @param tables the tables (with aliases) used by the query.
+     */
+    ColumnNameIndex(Map<Name, Table> tables) {
+        _tables = tables;
+    }
+
+    /**
+     * Gets the column with the given name.
+     *
+     * @param name the column name.
+     * @return the column or null if no table contains it.
+     * @throws IllegalStateException if the name is ambiguous, i.e.
+     * {@link #isAmbiguous(edu.purdue.dbSchema.schema.Name)} returns true.
+     */
+    AbstractColumn get(Name name) throws IllegalStateException {
+        if (isAmbiguous(name)) {
+            throw new IllegalStateException("ambiguous column " + name);
+        }
+        return _columns.get(name);
+    }
+
+    /**
+     * Returns if more than one table contains a column with the given name.
+     *
+     * @param name the column name.
+     * @return if the name is ambiguous.
+     */
+    boolean isAmbiguous(Name name) {
+        if (_columns == null) {
+            build();
+        }
+        return _ambiguous.contains(name);
+    }
+
+    private void build() {
+        int size = 0;
+        for (Table t : _tables.values()) {
+            size += t.getColumns().size();
+        }
+        _columns = new HashMap<>(size * 4 / 3 + 1);
+        _ambiguous = new HashSet<>();
+        for (Table t : _tables.values()) {
+            for (AbstractColumn col : t.getColumns()) {
+                if (_columns.put(col.getName(), col) != null) {
+                    _ambiguous.add(col.getName());
+                }
+            }
+        }
+    }
+}
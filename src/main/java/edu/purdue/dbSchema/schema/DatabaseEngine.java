@@ -7,14 +7,27 @@ import edu.purdue.dbSchema.erros.UnsupportedSqlException;
 import edu.purdue.dbSchema.parser.DlmQueryType;
 import edu.purdue.dbSchema.parser.Grant;
 import edu.purdue.dbSchema.parser.ParsedQuery;
+import edu.purdue.dbSchema.parser.SqlFingerprint;
 import edu.purdue.dbSchema.parser.SqlParser;
+import edu.purdue.dbSchema.parser.SqlScript;
 import edu.purdue.dbSchema.parser.StringPair;
+import edu.purdue.dbSchema.schema.EngineMetrics.Stage;
+import edu.purdue.dbSchema.utils.BitsetDbGrants;
+import edu.purdue.dbSchema.utils.CacheStatistics;
 import edu.purdue.dbSchema.utils.DbGrants;
 import edu.purdue.dbSchema.utils.IDbGrants;
+import edu.purdue.dbSchema.utils.JfrSupport;
+import edu.purdue.dbSchema.utils.LatencyHistogram;
 import edu.purdue.dbSchema.utils.Pair;
 import gudusoft.gsqlparser.EDbVendor;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -23,6 +36,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +48,14 @@ import java.util.logging.Logger;
 /**
  * Contains the database engine. This class implements the logic to handle
  * queries and to keep a representation of the database in memory.
+ * <p>
+ * This class is thread safe. The schema is kept in an immutable snapshot which
+ * is replaced as a whole by every schema change, so queries never lock and
+ * always see either all or nothing of a call to {@link #parse(java.lang.String)}.
+ * Schema changes are serialized and each one copies the current snapshot,
+ * therefore it is much cheaper to submit many DDL or GRANT statements with a
+ * single call, or to load a whole script with
+ * {@link #load(java.lang.String, java.util.Collection, java.util.concurrent.ForkJoinPool)}.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
@@ -37,9 +63,37 @@ public class DatabaseEngine implements Serializable {
 
     static final Logger LOGGER = Logger.getLogger(DatabaseEngine.class.getName());
 
-    private final Map<Name, Table> _tables;
-    private final IDbGrants _grants;
+    /**
+     * The default maximum number of query templates cached.
+     */
+    public static final int DEFAULT_QUERY_CACHE_SIZE = 10000;
+
+    /**
+     * The number of statements parsed together by
+     * {@link #load(java.lang.String, java.util.Collection, java.util.concurrent.ForkJoinPool)}.
+     */
+    static final int LOAD_CHUNK_SIZE = 256;
+
+    private static final long serialVersionUID = -8457223932122963120L;
+    /**
+     * The serialized form is the one of the first versions, which kept the
+     * tables and the grants directly in the engine, so that the databases they
+     * saved can still be read. The size of the query cache was added later and
+     * is ignored by them.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("_tables", Map.class),
+        new ObjectStreamField("_grants", IDbGrants.class),
+        new ObjectStreamField("_dbVendor", EDbVendor.class),
+        new ObjectStreamField("_queryCacheSize", int.class)
+    };
+
+    private volatile Schema _schema;
     private final EDbVendor _dbVendor;
+    private final transient LatencyHistogram[] _latencies = newLatencies();
+    private final transient LongAdder _queries = new LongAdder();
+    private final transient LongAdder _failures = new LongAdder();
+    private transient DatabaseEngine _deserialized;
 
     /**
      * Creates a DatabaseEngine specifying the database vendor. The database
@@ -48,12 +102,75 @@ public class DatabaseEngine implements Serializable {
      * @param dbVendor the SQL dialect.
      */
     public DatabaseEngine(EDbVendor dbVendor) {
+        this(dbVendor, DEFAULT_QUERY_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a DatabaseEngine specifying the database vendor and the size of
+     * the query cache.
+     *
+     * @param dbVendor the SQL dialect.
+     * @param queryCacheSize the maximum number of query templates cached, 0 to
+     * disable the cache.
+     * @throws IllegalArgumentException if queryCacheSize is negative.
+     */
+    public DatabaseEngine(EDbVendor dbVendor, int queryCacheSize) throws IllegalArgumentException {
+        this(dbVendor, queryCacheSize, new DbGrants());
+    }
+
+    /**
+     * Creates a DatabaseEngine specifying the database vendor, the size of the
+     * query cache and how the grants are stored. {@link BitsetDbGrants} is
+     * more compact than the default {@link DbGrants} for schemas with many
+     * roles and columns.
+     *
+     * @param dbVendor the SQL dialect.
+     * @param queryCacheSize the maximum number of query templates cached, 0 to
+     * disable the cache.
+     * @param grants an empty grants container.
+     * @throws IllegalArgumentException if queryCacheSize is negative.
+     */
+    public DatabaseEngine(EDbVendor dbVendor, int queryCacheSize, IDbGrants grants) throws IllegalArgumentException {
         if (dbVendor == null) {
             throw new NullPointerException("dbVendor");
         }
+        if (grants == null) {
+            throw new NullPointerException("grants");
+        }
+        if (queryCacheSize < 0) {
+            throw new IllegalArgumentException("queryCacheSize must not be negative");
+        }
         _dbVendor = dbVendor;
-        _tables = new TreeMap<>();
-        _grants = new DbGrants();
+        _schema = new Schema(new TreeMap<Name, Table>(), grants, queryCacheSize);
+    }
+
+    /**
+     * Creates a DatabaseEngine on an existing schema.
+     *
+     * @param dbVendor the SQL dialect.
+     * @param schema the schema, which must not be modified afterwards.
+     */
+    DatabaseEngine(EDbVendor dbVendor, Schema schema) {
+        _dbVendor = dbVendor;
+        _schema = schema;
+    }
+
+    /**
+     * Returns the SQL dialect of this database.
+     *
+     * @return the database vendor.
+     */
+    public EDbVendor getDbVendor() {
+        return _dbVendor;
+    }
+
+    /**
+     * Returns the current schema snapshot.
+     *
+     * @return the schema.
+     */
+    Schema schema() {
+        return _schema;
     }
 
     /**
@@ -63,6 +180,10 @@ public class DatabaseEngine implements Serializable {
      * Note that a single query like
      * <code>INSERT INTO tbl1(c) (SELECT -a FROM tbl2)</code> may return
      * multiple features (in this example, one insert and one select).
+     * <p>
+     * The name resolution is cached by query template, i.e. the query with its
+     * literals replaced by placeholders, so repeated queries which differ only
+     * in their literals are not parsed again. Grants are always checked.
      *
      * @param sql the SQL query or multiple queries separated by a semicolon.
      * @param username the user who issued the query.
@@ -76,27 +197,236 @@ public class DatabaseEngine implements Serializable {
      * such kind of queries.
      */
     public List<QueryFeature> parse(String sql, String username) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, UnauthorizedSqlException {
-        Name normalizedUsername = new Name(username);
-        SqlParser parser = new SqlParser(_dbVendor);
-        List<QueryFeature> features = new ArrayList<>();
+        return parse(_schema, sql, username);
+    }
+
+    private List<QueryFeature> parse(Schema schema, String sql, String username) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, UnauthorizedSqlException {
+        QueryEvent event = JfrSupport.AVAILABLE ? new QueryEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Name normalizedUsername = Name.valueOf(username);
+            List<ResolvedQuery> resolved = resolve(schema, sql);
+            List<QueryFeature> features = authorize(schema, normalizedUsername, resolved);
+            success = true;
+            return features;
+        } finally {
+            _queries.increment();
+            if (!success) {
+                _failures.increment();
+            }
+            latency(Stage.QUERY).recordSince(start);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.sql = sql;
+                    event.user = username;
+                    event.success = success;
+                    event.commit();
+                }
+            }
+        }
+    }
 
-        int parsedQueriesNum = parser.parse(sql);
+    private List<QueryFeature> authorize(Schema schema, Name username, List<ResolvedQuery> resolved) throws UnauthorizedSqlException {
+        AuthorizeEvent event = JfrSupport.AVAILABLE ? new AuthorizeEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<QueryFeature> features = new ArrayList<>(resolved.size());
+            for (ResolvedQuery q : resolved) {
+                features.add(enforce(schema, username, q));
+            }
+            success = true;
+            return features;
+        } finally {
+            latency(Stage.AUTHORIZE).recordSince(start);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.user = username.getOriginalName();
+                    event.success = success;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the features of a single query. The record is evaluated as by
+     * {@link #parse(java.lang.String, java.lang.String)}, but its exceptions
+     * are stored in the result instead of being thrown.
+     *
+     * @param record the query to evaluate.
+     * @return the result.
+     * @throws NullPointerException if record is null.
+     */
+    public QueryResult parse(QueryRecord record) throws NullPointerException {
+        if (record == null) {
+            throw new NullPointerException("record");
+        }
+        return evaluate(_schema, record);
+    }
+
+    /**
+     * Extracts the features of a batch of queries using the common fork-join
+     * pool. See {@link #parseAll(java.util.List, java.util.concurrent.ForkJoinPool)}.
+     *
+     * @param records the queries to evaluate.
+     * @return the results, in the same order of the records.
+     * @throws NullPointerException if records or any of its elements is null.
+     */
+    public List<QueryResult> parseAll(List<QueryRecord> records) throws NullPointerException {
+        return parseAll(records, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Extracts the features of a batch of queries in parallel. Every record is
+     * evaluated as by {@link #parse(java.lang.String, java.lang.String)}, and
+     * its exceptions, including the unchecked ones, are stored in its result
+     * instead of being thrown, so a bad query does not stop the batch. All the records are evaluated against
+     * the same schema, even if it changes meanwhile.
+     *
+     * @param records the queries to evaluate.
+     * @param pool the pool which runs the evaluation.
+     * @return the results, in the same order of the records.
+     * @throws NullPointerException if a parameter or any of the records is
+     * null.
+     */
+    public List<QueryResult> parseAll(List<QueryRecord> records, ForkJoinPool pool) throws NullPointerException {
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        QueryRecord[] input = records.toArray(new QueryRecord[records.size()]);
+        for (QueryRecord r : input) {
+            if (r == null) {
+                throw new NullPointerException("record");
+            }
+        }
+        QueryResult[] output = new QueryResult[input.length];
+        pool.invoke(new BatchTask(_schema, input, output, 0, input.length));
+        return Arrays.asList(output);
+    }
+
+    /**
+     * Evaluates a range of a batch, splitting it in halves until it is small
+     * enough.
+     */
+    private final class BatchTask extends RecursiveAction {
+
+        private static final int THRESHOLD = 16;
+
+        private final Schema _batchSchema;
+        private final QueryRecord[] _input;
+        private final QueryResult[] _output;
+        private final int _from;
+        private final int _to;
+
+        BatchTask(Schema schema, QueryRecord[] input, QueryResult[] output, int from, int to) {
+            _batchSchema = schema;
+            _input = input;
+            _output = output;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from > THRESHOLD) {
+                int mid = (_from + _to) >>> 1;
+                invokeAll(new BatchTask(_batchSchema, _input, _output, _from, mid),
+                        new BatchTask(_batchSchema, _input, _output, mid, _to));
+                return;
+            }
+            for (int i = _from; i < _to; i++) {
+                _output[i] = evaluate(_batchSchema, _input[i]);
+            }
+        }
+    }
+
+    private QueryResult evaluate(Schema schema, QueryRecord r) {
+        try {
+            return QueryResult.success(r, parse(schema, r.getSql(), r.getUsername()));
+        } catch (SqlParseException | UnsupportedSqlException | SqlSemanticException | UnauthorizedSqlException | RuntimeException ex) {
+            // RuntimeException: an empty username or a failure of the SQL parser
+            // on a single query, which must not abort the whole batch
+            return QueryResult.failure(r, ex);
+        }
+    }
+
+    /**
+     * Resolves the queries contained in an SQL string, using the query cache
+     * of the schema when possible.
+     *
+     * @param schema the schema to resolve the queries against.
+     * @param sql the SQL query or multiple queries separated by a semicolon.
+     * @return the resolved queries.
+     * @throws SqlParseException in case of parse errors.
+     * @throws UnsupportedSqlException in case a statement is not supported by
+     * this parser.
+     * @throws SqlSemanticException in case of semantic errors.
+     * @throws UnauthorizedSqlException if a statement is not a DML query.
+     */
+    private List<ResolvedQuery> resolve(Schema schema, String sql) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, UnauthorizedSqlException {
+        String template = schema.queries == null ? null : SqlFingerprint.template(_dbVendor, sql);
+        if (template != null) {
+            List<ResolvedQuery> cached = schema.queries.get(template);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        SqlParser parser = new SqlParser(_dbVendor);
+        int parsedQueriesNum;
+        try {
+            parsedQueriesNum = parser.parse(sql);
+        } finally {
+            recordParser(parser);
+        }
         List<ParsedQuery> parsedQueries = parser.getDmlQueries();
         if (parsedQueriesNum != parsedQueries.size()) {
             throw new UnauthorizedSqlException("the query is not a SELECT/UPDATE/DELETE/INSERT");
         }
 
-        for (ParsedQuery q : parsedQueries) {
-            QueryFeature qf = evaluateDlmQuery(q, normalizedUsername, Collections.<Name, Table>emptyMap());
-            features.add(qf);
+        ResolveEvent event = JfrSupport.AVAILABLE ? new ResolveEvent() : null;
+        if (event != null) {
+            event.begin();
         }
-        return features;
+        long start = System.nanoTime();
+        List<ResolvedQuery> resolved = new ArrayList<>(parsedQueries.size());
+        try {
+            for (ParsedQuery q : parsedQueries) {
+                resolved.add(resolve(schema, q, Collections.<Name, Table>emptyMap()));
+            }
+        } finally {
+            latency(Stage.RESOLVE).recordSince(start);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.sql = sql;
+                    event.commit();
+                }
+            }
+        }
+        resolved = Collections.unmodifiableList(resolved);
+        if (template != null) {
+            schema.queries.put(template, resolved);
+        }
+        return resolved;
     }
 
     /**
      * Parses an SQL statement. This method should be used only to create the
      * schema and to add the grants, because there is no way to retrieve the
      * query features. Queries are submitted as a database administrator.
+     * The changes are applied atomically: if an exception is thrown the schema
+     * is left untouched.
      *
      * @param sql the query or the queries separated by a semicolon.
      * @return the number of statements parsed.
@@ -105,29 +435,204 @@ public class DatabaseEngine implements Serializable {
      * this parser.
      * @throws SqlSemanticException in case of semantic errors.
      */
-    public int parse(String sql) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+    public synchronized int parse(String sql) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
         SqlParser parser = new SqlParser(_dbVendor);
         int ret = parser.parse(sql);
-        for (Table t : parser.getTables()) {
-            if (_tables.put(t.getName(), t) != null) {
+        apply(Collections.singletonList(parser), Collections.<Grant>emptyList());
+        return ret;
+    }
+
+    /**
+     * Loads a DDL script and a list of grants, parsing the script in the
+     * calling thread. See
+     * {@link #load(java.lang.String, java.util.Collection, java.util.concurrent.ForkJoinPool)}.
+     *
+     * @param script the statements separated by a semicolon.
+     * @param grants the grants to apply after the script.
+     * @return the number of statements parsed.
+     * @throws SqlParseException in case of parse errors.
+     * @throws UnsupportedSqlException in case a statement is not supported by
+     * this parser.
+     * @throws SqlSemanticException in case of semantic errors.
+     * @throws NullPointerException if script or grants are null.
+     */
+    public int load(String script, Collection<Grant> grants) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, NullPointerException {
+        return load(script, grants, null);
+    }
+
+    /**
+     * Loads a DDL script and a list of grants, e.g. to create a database. The
+     * script is split in statements, which are parsed in chunks of
+     * {@value #LOAD_CHUNK_SIZE}, in parallel if a pool is given. The tables of
+     * the whole script are then added, the grants of the script and the given
+     * ones are applied and the other statements are checked, in this order, on
+     * a single copy of the schema. Therefore a statement may refer to a table
+     * created later in the script, and the cost of loading a large schema
+     * does not grow with the number of statements as calling
+     * {@link #parse(java.lang.String)} for each one does.
+     * <p>
+     * The changes are applied atomically: if an exception is thrown the schema
+     * is left untouched. A parse error reports the first statement of the
+     * script which cannot be parsed.
+     *
+     * @param script the statements separated by a semicolon.
+     * @param grants the grants to apply after the script.
+     * @param pool the pool which parses the chunks, null to parse them in the
+     * calling thread.
+     * @return the number of statements parsed.
+     * @throws SqlParseException in case of parse errors.
+     * @throws UnsupportedSqlException in case a statement is not supported by
+     * this parser.
+     * @throws SqlSemanticException in case of semantic errors.
+     * @throws NullPointerException if script or grants are null.
+     */
+    public int load(String script, Collection<Grant> grants, ForkJoinPool pool) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, NullPointerException {
+        if (grants == null) {
+            throw new NullPointerException("grants");
+        }
+        List<String> statements = SqlScript.split(script);
+        apply(parseScript(_dbVendor, statements, pool), grants);
+        return statements.size();
+    }
+
+    /**
+     * Parses the statements of a script in chunks of
+     * {@value #LOAD_CHUNK_SIZE}.
+     *
+     * @param dbVendor the SQL dialect.
+     * @param statements the statements.
+     * @param pool the pool which parses the chunks, null to parse them in the
+     * calling thread.
+     * @return the parsers of the chunks, in the order of the statements.
+     * @throws SqlParseException in case of parse errors.
+     * @throws UnsupportedSqlException in case a statement is not supported by
+     * this parser.
+     * @throws SqlSemanticException in case of semantic errors.
+     */
+    static List<SqlParser> parseScript(EDbVendor dbVendor, List<String> statements, ForkJoinPool pool) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i += LOAD_CHUNK_SIZE) {
+            chunks.add(String.join(";\n", statements.subList(i, Math.min(i + LOAD_CHUNK_SIZE, statements.size()))));
+        }
+
+        List<SqlParser> parsers = new ArrayList<>(chunks.size());
+        if (pool == null) {
+            for (String chunk : chunks) {
+                parsers.add(parseChunk(dbVendor, chunk));
+            }
+            return parsers;
+        }
+        List<ForkJoinTask<SqlParser>> tasks = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            tasks.add(pool.submit(() -> parseChunk(dbVendor, chunk)));
+        }
+        // the tasks are joined in order, so the first error of the script is thrown
+        for (ForkJoinTask<SqlParser> task : tasks) {
+            try {
+                parsers.add(task.get());
+            } catch (InterruptedException ex) {
+                for (ForkJoinTask<SqlParser> t : tasks) {
+                    t.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                throw new SqlParseException("interrupted while loading the script");
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SqlParseException) {
+                    throw (SqlParseException) cause;
+                } else if (cause instanceof UnsupportedSqlException) {
+                    throw (UnsupportedSqlException) cause;
+                } else if (cause instanceof SqlSemanticException) {
+                    throw (SqlSemanticException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new AssertionError(cause);
+            }
+        }
+        return parsers;
+    }
+
+    /**
+     * Parses a chunk of a script. If the chunk cannot be parsed, its
+     * statements are parsed one by one to report the first wrong one.
+     */
+    private static SqlParser parseChunk(EDbVendor dbVendor, String chunk) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        SqlParser parser = new SqlParser(dbVendor);
+        try {
+            parser.parse(chunk);
+            return parser;
+        } catch (SqlParseException | UnsupportedSqlException | SqlSemanticException ex) {
+            List<String> statements = SqlScript.split(chunk);
+            if (statements.size() > 1) {
+                for (String statement : statements) {
+                    new SqlParser(dbVendor).parse(statement);
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Applies the result of some parsers to a copy of the schema and publishes
+     * it.
+     *
+     * @param parsers the parsers, in the order of the statements.
+     * @param grants additional grants, applied after the ones parsed.
+     */
+    private void apply(List<SqlParser> parsers, Collection<Grant> grants) throws UnsupportedSqlException, SqlSemanticException {
+        List<Table> tables = new ArrayList<>();
+        List<Grant> allGrants = new ArrayList<>();
+        List<ParsedQuery> queries = new ArrayList<>();
+        for (SqlParser parser : parsers) {
+            tables.addAll(parser.getTables());
+            allGrants.addAll(parser.getGrants());
+            queries.addAll(parser.getDmlQueries());
+        }
+        allGrants.addAll(grants);
+        apply(tables, allGrants, queries);
+    }
+
+    /**
+     * Applies a schema change to a copy of the schema and publishes it. The
+     * tables are added first, then the grants are applied and the DML queries
+     * checked.
+     *
+     * @param tables the tables to add, which must not be part of another
+     * schema.
+     * @param grants the grants to apply.
+     * @param queries the DML queries to check.
+     * @throws UnsupportedSqlException if a grant is not supported.
+     * @throws SqlSemanticException in case of semantic errors.
+     */
+    synchronized void apply(Collection<Table> tables, Collection<Grant> grants, Collection<ParsedQuery> queries) throws UnsupportedSqlException, SqlSemanticException {
+        if (tables.isEmpty() && grants.isEmpty() && queries.isEmpty()) {
+            return;
+        }
+        Schema next = _schema.copy();
+        for (Table t : tables) {
+            if (next.tables.containsKey(t.getName())) {
                 throw new SqlSemanticException("relation '%s' already exists", t.getName());
             }
+            next.add(t);
         }
-        for (Grant g : parser.getGrants()) {
-            evaluateGrant(g);
+        for (Grant g : grants) {
+            evaluateGrant(next, g);
         }
-        for (ParsedQuery parsed : parser.getDmlQueries()) {
+        for (ParsedQuery parsed : queries) {
             try {
-                evaluateDlmQuery(parsed, null, Collections.<Name, Table>emptyMap());
+                evaluateDlmQuery(next, parsed, null, Collections.<Name, Table>emptyMap());
             } catch (UnauthorizedSqlException ex) {
                 LOGGER.log(Level.SEVERE, "This exception should never been thrown in this context", ex);
                 throw new AssertionError(ex);
             }
         }
-        return ret;
+        _schema = next;
     }
 
     /**
+     * Convenience method for {@link #evaluateDlmQuery(edu.purdue.dbSchema.schema.Schema, edu.purdue.dbSchema.parser.ParsedQuery, edu.purdue.dbSchema.schema.Name, java.util.Map)
+     * } which uses the current schema.
      *
      * @param parsed the parsed query to evaluate.
      * @param userName the user name who issued the query.
@@ -140,19 +645,54 @@ public class DatabaseEngine implements Serializable {
      * grants.
      */
     protected QueryFeature evaluateDlmQuery(ParsedQuery parsed, Name userName, Map<Name, Table> additionalTables) throws SqlSemanticException, UnauthorizedSqlException {
-        HashMap<Name, Table> usedTables = filterTables(parsed.from, additionalTables);
+        return evaluateDlmQuery(_schema, parsed, userName, additionalTables);
+    }
+
+    /**
+     * Evaluates a query against a schema, checking the user grants.
+     *
+     * @param schema the schema to evaluate the query against.
+     * @param parsed the parsed query to evaluate.
+     * @param userName the user name who issued the query.
+     * @param additionalTables additional tables to use to resolve the name.
+     * I.e. tables used in the outer query.
+     * @return the query feature set.
+     * @throws SqlSemanticException if the sql contains semantic errors or
+     * cannot be evaluated against the given schema.
+     * @throws UnauthorizedSqlException if the user does not have the required
+     * grants.
+     */
+    private static QueryFeature evaluateDlmQuery(Schema schema, ParsedQuery parsed, Name userName, Map<Name, Table> additionalTables) throws SqlSemanticException, UnauthorizedSqlException {
+        return enforce(schema, userName, resolve(schema, parsed, additionalTables));
+    }
+
+    /**
+     * Resolves the table and column names of a query. The result does not
+     * depend on the user, so it can be cached as long as the schema does not
+     * change.
+     *
+     * @param schema the schema to resolve the query against.
+     * @param parsed the parsed query to resolve.
+     * @param additionalTables additional tables to use to resolve the name.
+     * I.e. tables used in the outer query.
+     * @return the resolved query.
+     * @throws SqlSemanticException if the sql contains semantic errors or
+     * cannot be evaluated against the given schema.
+     */
+    private static ResolvedQuery resolve(Schema schema, ParsedQuery parsed, Map<Name, Table> additionalTables) throws SqlSemanticException {
+        HashMap<Name, Table> usedTables = filterTables(schema, parsed.from, additionalTables);
         HashMap<Name, Table> virtualTables = new HashMap<>();
 
-        List<QueryFeature> features = new ArrayList<>();
+        List<ResolvedQuery> subQueries = new ArrayList<>();
 
         // sub queries
         for (Pair<String, ParsedQuery> set : parsed.subQueriesFrom) {
-            Name alias = new Name(set.getFirst());
+            Name alias = Name.valueOf(set.getFirst());
             ParsedQuery sub = set.getSecond();
-            QueryFeature qf = evaluateDlmQuery(sub, userName, usedTables);
-            features.add(qf);
+            ResolvedQuery rq = resolve(schema, sub, usedTables);
+            subQueries.add(rq);
 
-            Table virtualTable = new Table(alias, qf.getUsedCols());
+            Table virtualTable = new Table(alias, rq.getUsedCols());
             for (String virtualCol : sub.virtualColumns.keySet()) {
                 Set<AbstractColumn> mappedTo = new HashSet<>();
                 for (StringPair subCol : sub.virtualColumns.getSet(virtualCol)) { //TODO check here
@@ -172,23 +712,52 @@ public class DatabaseEngine implements Serializable {
         }
 
         for (ParsedQuery sub : parsed.subQueriesSelect) {
-            features.add(evaluateDlmQuery(sub, userName, usedTables));
+            subQueries.add(resolve(schema, sub, usedTables));
         }
         for (ParsedQuery sub : parsed.subQueriesWhere) {
-            features.add(evaluateDlmQuery(sub, userName, usedTables));
+            subQueries.add(resolve(schema, sub, usedTables));
         }
 
         // current query
+        ColumnNameIndex columnNames = new ColumnNameIndex(usedTables);
         ArrayList<AbstractColumn> select = new ArrayList<>();
-        addSelectedColumn(usedTables, parsed.mainColumns, select);
+        addSelectedColumn(usedTables, columnNames, parsed.mainColumns, select);
         ArrayList<AbstractColumn> where = new ArrayList<>();
-        addSelectedColumn(usedTables, parsed.whereColumns, where);
-        Set<Name> usedRoles = enforceRoles(userName, parsed.type, select, where);
-        features.add(new QueryFeature(parsed.type, select, where, usedRoles));
+        addSelectedColumn(usedTables, columnNames, parsed.whereColumns, where);
 
         // next query
+        ResolvedQuery next = null;
         if (parsed.nextCombinedQuery != null) {
-            features.add(evaluateDlmQuery(parsed.nextCombinedQuery, userName, Collections.<Name, Table>emptyMap()));
+            next = resolve(schema, parsed.nextCombinedQuery, Collections.<Name, Table>emptyMap());
+        }
+
+        return new ResolvedQuery(parsed.type, select, where, subQueries, next);
+    }
+
+    /**
+     * Checks the user grants on a resolved query and builds its features,
+     * which refer to the columns and the roles by their ids in the schema.
+     *
+     * @param schema the schema the query was resolved against.
+     * @param userName the user who sent the query, or null to skip the checks.
+     * @param resolved the resolved query.
+     * @return the query feature set.
+     * @throws UnauthorizedSqlException if the user does not have the required
+     * grants.
+     */
+    private static QueryFeature enforce(Schema schema, Name userName, ResolvedQuery resolved) throws UnauthorizedSqlException {
+        List<QueryFeature> features = new ArrayList<>();
+        for (ResolvedQuery sub : resolved.subQueries) {
+            features.add(enforce(schema, userName, sub));
+        }
+        Set<Name> usedRoles = enforceRoles(schema.grants, userName, resolved.type, resolved.mainCols, resolved.filteredCols);
+        QueryFeature feature = new QueryFeature(resolved.type, resolved.mainCols, resolved.filteredCols, usedRoles, schema, schema.grants);
+        if (features.isEmpty() && resolved.nextCombinedQuery == null) {
+            return feature;
+        }
+        features.add(feature);
+        if (resolved.nextCombinedQuery != null) {
+            features.add(enforce(schema, userName, resolved.nextCombinedQuery));
         }
 
         // combine the result
@@ -201,6 +770,7 @@ public class DatabaseEngine implements Serializable {
      * selected or the updated. Depending on the query type these columns are
      * checked for write or read permission.
      *
+     * @param grants the grants to check.
      * @param userName the user who sent the query.
      * @param type the query type.
      * @param mainCols the main columns used in the query.
@@ -209,15 +779,15 @@ public class DatabaseEngine implements Serializable {
      * @throws UnauthorizedSqlException if the user misses any required right.
      * @throws NullPointerException
      */
-    private Set<Name> enforceRoles(Name userName, DlmQueryType type, ArrayList<AbstractColumn> mainCols, ArrayList<AbstractColumn> filteredCols) throws UnauthorizedSqlException, NullPointerException {
+    private static Set<Name> enforceRoles(IDbGrants grants, Name userName, DlmQueryType type, List<AbstractColumn> mainCols, List<AbstractColumn> filteredCols) throws UnauthorizedSqlException, NullPointerException {
         Set<Name> usedRoles = new HashSet<>();
         if (userName != null) {
             if (type == DlmQueryType.SELECT) {
-                usedRoles.addAll(_grants.enforceRead(userName, mainCols));
+                usedRoles.addAll(grants.enforceRead(userName, mainCols));
             } else {
-                usedRoles.addAll(_grants.enforceWrite(userName, mainCols));
+                usedRoles.addAll(grants.enforceWrite(userName, mainCols));
             }
-            usedRoles.addAll(_grants.enforceRead(userName, filteredCols));
+            usedRoles.addAll(grants.enforceRead(userName, filteredCols));
         }
         return usedRoles;
     }
@@ -234,6 +804,23 @@ public class DatabaseEngine implements Serializable {
      * a column name is ambiguous or if a column reference a missing table
      */
     protected static int addSelectedColumn(final HashMap<Name, Table> usedTables, final List<StringPair> selectedCols, Collection<AbstractColumn> retVal) throws SqlSemanticException {
+        return addSelectedColumn(usedTables, new ColumnNameIndex(usedTables), selectedCols, retVal);
+    }
+
+    /**
+     * Adds the selected mainColumns to a provided list, resolving the
+     * unqualified names through an index of the used tables.
+     *
+     * @param usedTables the tables (with aliases) to search for mainColumns.
+     * @param columnNames the index of the column names in usedTables.
+     * @param selectedCols a pair of (table name, column name) where the table
+     * name may be empty.
+     * @param retVal the collection where the new columns are going to be added.
+     * @return the number of column added.
+     * @throws SqlSemanticException if a column is referenced more than once, if
+     * a column name is ambiguous or if a column reference a missing table
+     */
+    private static int addSelectedColumn(final Map<Name, Table> usedTables, final ColumnNameIndex columnNames, final List<StringPair> selectedCols, Collection<AbstractColumn> retVal) throws SqlSemanticException {
         int initialSize = retVal.size();
         for (StringPair select : selectedCols) {
             String tblName = select.getFirst(); //may be empty
@@ -248,21 +835,13 @@ public class DatabaseEngine implements Serializable {
                     }
                     continue;
                 }
-                int counter = 0;
-                // we search for a table which contains that column name
-                for (Table t : usedTables.values()) {
-                    AbstractColumn tmpCol = t.getColumn(colName);
-                    if (tmpCol != null) {
-                        selectedTable = t;
-                        counter++;
-                        selectedCol = tmpCol;
-                    }
-                }
-                if (counter > 1) {
+                Name name = Name.valueOf(colName);
+                if (columnNames.isAmbiguous(name)) {
                     throw new SqlSemanticException("column reference '%s' is ambiguous", colName);
                 }
+                selectedCol = columnNames.get(name);
             } else { // we know the table to search
-                selectedTable = usedTables.get(new Name(tblName));
+                selectedTable = usedTables.get(Name.valueOf(tblName));
                 if (selectedTable == null) {
                     throw new SqlSemanticException("missing FROM-clause entry for table '%s'", tblName);
                 }
@@ -281,7 +860,8 @@ public class DatabaseEngine implements Serializable {
     }
 
     /**
-     * Filters the tables used by the query.
+     * Convenience method for {@link #filterTables(edu.purdue.dbSchema.schema.Schema, java.util.List, java.util.Map)
+     * } which uses the current schema.
      *
      * @param tableNames a list of pairs (table name, table alias).
      * @param additionalTables additional tables to be used to resolve the
@@ -291,6 +871,21 @@ public class DatabaseEngine implements Serializable {
      * table is specified more than once.
      */
     protected HashMap<Name, Table> filterTables(List<StringPair> tableNames, Map<Name, Table> additionalTables) throws SqlSemanticException {
+        return filterTables(_schema, tableNames, additionalTables);
+    }
+
+    /**
+     * Filters the tables used by the query.
+     *
+     * @param schema the schema containing the tables.
+     * @param tableNames a list of pairs (table name, table alias).
+     * @param additionalTables additional tables to be used to resolve the
+     * names, i.e. the parent query tables.
+     * @return a Map that associates names to tables and aliases to tables.
+     * @throws SqlSemanticException if a table does not exists in the db or a
+     * table is specified more than once.
+     */
+    private static HashMap<Name, Table> filterTables(Schema schema, List<StringPair> tableNames, Map<Name, Table> additionalTables) throws SqlSemanticException {
         HashMap<Name, Table> usedTables = new HashMap<>(additionalTables); // we want to copy it to don't change the parent's mapping
         HashSet<Name> tablesWithAlias = new HashSet<>();
         for (StringPair from : tableNames) {
@@ -298,10 +893,10 @@ public class DatabaseEngine implements Serializable {
                 // this is a subquery
                 continue;
             }
-            final Name name = new Name(from.getFirst());
+            final Name name = Name.valueOf(from.getFirst());
             final String alias = from.getSecond();
 
-            Table t = _tables.get(name);
+            Table t = schema.tables.get(name);
             if (t == null) {
                 throw new SqlSemanticException("relation '%s' does not exist", name);
             }
@@ -316,7 +911,7 @@ public class DatabaseEngine implements Serializable {
                 }
             }
             if (!alias.isEmpty()) { // add the alias
-                if (usedTables.put(new Name(alias), t) != null) {
+                if (usedTables.put(Name.valueOf(alias), t) != null) {
                     throw new SqlSemanticException("table name '%s' specified more than once", alias);
                 }
                 tablesWithAlias.add(name);
@@ -325,20 +920,20 @@ public class DatabaseEngine implements Serializable {
         return usedTables;
     }
 
-    protected void evaluateGrantToTable(Grant grant) throws SqlSemanticException {
+    private static void evaluateGrantToTable(Schema schema, Grant grant) throws SqlSemanticException {
         BiConsumer<AbstractColumn, Name> addGrant;
         switch (grant.getType()) {
             case READ:
-                addGrant = (col, role) -> _grants.grantRead(col, role);
+                addGrant = (col, role) -> schema.grants.grantRead(col, role);
                 break;
             case WRITE:
-                addGrant = (col, role) -> _grants.grantWrite(col, role);
+                addGrant = (col, role) -> schema.grants.grantWrite(col, role);
                 break;
             default:
                 throw new IllegalArgumentException("not a grant to table");
         }
 
-        Table table = _tables.get(grant.getTable());
+        Table table = schema.tables.get(grant.getTable());
         if (table == null) {
             throw new SqlSemanticException("relation '%s' does not exist", grant.getTable());
         }
@@ -360,11 +955,25 @@ public class DatabaseEngine implements Serializable {
         }
     }
 
-    protected void evaluateGrant(Grant g) throws UnsupportedSqlException, SqlSemanticException {
+    /**
+     * Applies a grant to the current schema.
+     *
+     * @param g the grant to apply.
+     * @throws UnsupportedSqlException if the grant is not supported.
+     * @throws SqlSemanticException if the grant references missing objects or
+     * creates a role cycle.
+     */
+    protected synchronized void evaluateGrant(Grant g) throws UnsupportedSqlException, SqlSemanticException {
+        Schema next = _schema.copy();
+        evaluateGrant(next, g);
+        _schema = next;
+    }
+
+    private static void evaluateGrant(Schema schema, Grant g) throws UnsupportedSqlException, SqlSemanticException {
         if (g.getType() == Grant.Type.ROLE) {
-            _grants.grantRole(g.getRole(), g.getTo());
+            schema.grants.grantRole(g.getRole(), g.getTo());
         } else {
-            evaluateGrantToTable(g);
+            evaluateGrantToTable(schema, g);
         }
     }
 
@@ -375,7 +984,7 @@ public class DatabaseEngine implements Serializable {
      * @return a collection of tables.
      */
     public Collection<Table> getTables() {
-        return Collections.unmodifiableCollection(_tables.values());
+        return Collections.unmodifiableCollection(_schema.tables.values());
     }
 
     /**
@@ -387,6 +996,107 @@ public class DatabaseEngine implements Serializable {
      * @throws IllegalArgumentException if name is empty.
      */
     public Table getTable(String name) {
-        return _tables.get(new Name(name));
+        return _schema.tables.get(Name.valueOf(name));
+    }
+
+    /**
+     * Gets a column by its id. See {@link AbstractColumn#getId()}.
+     *
+     * @param id the column id.
+     * @return the column.
+     * @throws IndexOutOfBoundsException if there is no column with the given
+     * id.
+     */
+    public AbstractColumn getColumn(int id) throws IndexOutOfBoundsException {
+        return _schema.getColumn(id);
+    }
+
+    /**
+     * Gets the statistics of the query cache. Every schema change empties the
+     * cache, so the statistics refer to the queries issued since the last
+     * change.
+     *
+     * @return the statistics or null if the cache is disabled.
+     */
+    public CacheStatistics getQueryCacheStatistics() {
+        Schema schema = _schema;
+        return schema.queries == null ? null : schema.queries.getStatistics();
+    }
+
+    /**
+     * Returns the metrics of the queries evaluated by this database since it
+     * was created or loaded. Only the queries evaluated through
+     * {@link #parse(java.lang.String, java.lang.String)},
+     * {@link #parse(edu.purdue.dbSchema.schema.QueryRecord)} and
+     * {@link #parseAll(java.util.List)} are measured.
+     *
+     * @return a snapshot of the metrics.
+     */
+    public EngineMetrics getMetrics() {
+        LatencyHistogram[] latencies = new LatencyHistogram[_latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram(_latencies[i]);
+        }
+        return new EngineMetrics(_queries.sum(), _failures.sum(), latencies, getQueryCacheStatistics(), SqlParser.getStatistics());
+    }
+
+    private LatencyHistogram latency(Stage stage) {
+        return _latencies[stage.ordinal()];
+    }
+
+    private void recordParser(SqlParser parser) {
+        // a stage which did not run takes no time
+        if (parser.getParseNanos() > 0) {
+            latency(Stage.PARSE).record(parser.getParseNanos());
+        }
+        if (parser.getAnalyzeNanos() > 0) {
+            latency(Stage.ANALYZE).record(parser.getAnalyzeNanos());
+        }
+    }
+
+    private static LatencyHistogram[] newLatencies() {
+        LatencyHistogram[] ret = new LatencyHistogram[Stage.values().length];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new LatencyHistogram();
+        }
+        return ret;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Schema schema = _schema;
+        if (!(schema.tables instanceof Serializable)) {
+            // lazily loaded schemas are not serializable, store a loaded copy
+            schema = schema.copy();
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("_tables", schema.tables);
+        fields.put("_grants", schema.grants);
+        fields.put("_dbVendor", _dbVendor);
+        fields.put("_queryCacheSize", schema.getQueryCacheSize());
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Map<Name, Table> tables = (Map<Name, Table>) fields.get("_tables", null);
+        IDbGrants grants = (IDbGrants) fields.get("_grants", null);
+        EDbVendor dbVendor = (EDbVendor) fields.get("_dbVendor", null);
+        int queryCacheSize = fields.get("_queryCacheSize", DEFAULT_QUERY_CACHE_SIZE);
+        if (tables == null || grants == null || dbVendor == null || queryCacheSize < 0) {
+            throw new InvalidObjectException("incomplete database");
+        }
+        // the ids of the tables are not serialized, the schema numbers them
+        _deserialized = new DatabaseEngine(dbVendor, new Schema(new TreeMap<>(tables), grants, queryCacheSize));
+    }
+
+    /**
+     * Returns the database built by the deserialization, whose final fields
+     * and metrics, which are not serialized, are initialized.
+     *
+     * @return a database with the deserialized schema and empty metrics.
+     */
+    private Object readResolve() {
+        return _deserialized;
     }
 }
@@ -0,0 +1,311 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlParseException;
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnsupportedSqlException;
+import edu.purdue.dbSchema.parser.Grant;
+import edu.purdue.dbSchema.parser.ParsedQuery;
+import edu.purdue.dbSchema.parser.SqlParser;
+import edu.purdue.dbSchema.parser.SqlScript;
+import edu.purdue.dbSchema.utils.DbGrants;
+import gudusoft.gsqlparser.EDbVendor;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps the databases of many tenants in the same process. The tenants are
+ * usually created from a few DDL scripts, so the registry shares what does not
+ * depend on the tenant:
+ * <ul>
+ * <li>a script is parsed once, the tenants loaded from the same text reuse the
+ * parsed statements, which are released when the last of them is
+ * removed;</li>
+ * <li>the tenants whose scripts create the same tables, with the same names,
+ * types and constraints, share the {@link Table} and column objects;</li>
+ * <li>the names and the column types of all the tables are shared.</li>
+ * </ul>
+ * Therefore the memory used by the tables grows with the number of distinct
+ * schemas rather than with the number of tenants. Every tenant has its own
+ * grants and query cache, and a schema change of a tenant, like the creation of
+ * a table, copies only its own schema, as {@link DatabaseEngine} always does.
+ * The ids of a shared table are the same for all the tenants, so a table can
+ * only be shared by tenants with the same tables.
+ * <p>
+ * The statements are parsed with the parsers cached by every thread, which
+ * are shared by all the tenants. The parsed scripts are identified by the
+ * SHA-256 digest of their text, so the registry does not keep the text of the
+ * scripts. The shared tables are kept until the registry is discarded, even
+ * if all their tenants are removed.
+ * <p>
+ * This class is thread safe. Tenants are loaded and removed one at a time,
+ * while the tenant databases can be looked up and used concurrently.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class DatabaseRegistry {
+
+    private final EDbVendor _dbVendor;
+    private final int _queryCacheSize;
+    private final ForkJoinPool _pool;
+    private final Map<String, DatabaseEngine> _tenants;
+    private final Map<String, ParsedScript> _scripts;
+    private final Map<String, String> _tenantScripts;
+    private final Map<String, Map<Name, Table>> _schemas;
+    private final Map<String, Name> _names;
+    private final Map<String, String> _types;
+
+    /**
+     * The statements of a script and the tables they create.
+     */
+    private static final class ParsedScript {
+
+        final Map<Name, Table> tables;
+        final List<Grant> grants;
+        final List<ParsedQuery> queries;
+        int tenants;
+
+        ParsedScript(Map<Name, Table> tables, List<Grant> grants, List<ParsedQuery> queries) {
+            this.tables = tables;
+            this.grants = grants;
+            this.queries = queries;
+        }
+    }
+
+    /**
+     * Creates a registry whose databases have a default query cache and parse
+     * the scripts in the common fork-join pool.
+     *
+     * @param dbVendor the SQL dialect of all the databases.
+     * @throws NullPointerException if dbVendor is null.
+     */
+    public DatabaseRegistry(EDbVendor dbVendor) throws NullPointerException {
+        this(dbVendor, DatabaseEngine.DEFAULT_QUERY_CACHE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a registry.
+     *
+     * @param dbVendor the SQL dialect of all the databases.
+     * @param queryCacheSize the maximum number of query templates cached by
+     * every database, 0 to disable the cache.
+     * @param pool the pool which parses the scripts, null to parse them in the
+     * calling thread.
+     * @throws NullPointerException if dbVendor is null.
+     * @throws IllegalArgumentException if queryCacheSize is negative.
+     */
+    public DatabaseRegistry(EDbVendor dbVendor, int queryCacheSize, ForkJoinPool pool) throws NullPointerException, IllegalArgumentException {
+        if (dbVendor == null) {
+            throw new NullPointerException("dbVendor");
+        }
+        if (queryCacheSize < 0) {
+            throw new IllegalArgumentException("queryCacheSize must not be negative");
+        }
+        _dbVendor = dbVendor;
+        _queryCacheSize = queryCacheSize;
+        _pool = pool;
+        _tenants = new ConcurrentHashMap<>();
+        _scripts = new HashMap<>();
+        _tenantScripts = new HashMap<>();
+        _schemas = new HashMap<>();
+        _names = new HashMap<>();
+        _types = new HashMap<>();
+    }
+
+    /**
+     * Creates the database of a tenant from a DDL script and a list of grants,
+     * as {@link DatabaseEngine#load(java.lang.String, java.util.Collection)}
+     * does on an empty database.
+     *
+     * @param tenant the tenant.
+     * @param script the statements separated by a semicolon.
+     * @param grants the grants to apply after the script.
+     * @return the database of the tenant.
+     * @throws SqlParseException in case of parse errors.
+     * @throws UnsupportedSqlException in case a statement is not supported by
+     * the parser.
+     * @throws SqlSemanticException in case of semantic errors.
+     * @throws IllegalArgumentException if the tenant already exists.
+     * @throws NullPointerException if a parameter is null.
+     */
+    public synchronized DatabaseEngine load(String tenant, String script, Collection<Grant> grants) throws SqlParseException, UnsupportedSqlException, SqlSemanticException, IllegalArgumentException, NullPointerException {
+        if (tenant == null || script == null || grants == null) {
+            throw new NullPointerException();
+        }
+        if (_tenants.containsKey(tenant)) {
+            throw new IllegalArgumentException("tenant '" + tenant + "' already exists");
+        }
+        String digest = digest(script);
+        ParsedScript parsed = _scripts.get(digest);
+        if (parsed == null) {
+            parsed = parse(script);
+        }
+        DatabaseEngine db = new DatabaseEngine(_dbVendor, new Schema(new TreeMap<>(parsed.tables), new DbGrants(), _queryCacheSize));
+        List<Grant> allGrants = new ArrayList<>(parsed.grants.size() + grants.size());
+        allGrants.addAll(parsed.grants);
+        allGrants.addAll(grants);
+        db.apply(Collections.<Table>emptyList(), allGrants, parsed.queries);
+        // the script is cached only once a tenant has been loaded from it
+        parsed.tenants++;
+        _scripts.put(digest, parsed);
+        _tenantScripts.put(tenant, digest);
+        _tenants.put(tenant, db);
+        return db;
+    }
+
+    private static String digest(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex); // every Java platform implements SHA-256
+        }
+    }
+
+    private ParsedScript parse(String script) throws SqlParseException, UnsupportedSqlException, SqlSemanticException {
+        List<SqlParser> parsers = DatabaseEngine.parseScript(_dbVendor, SqlScript.split(script), _pool);
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        List<Grant> grants = new ArrayList<>();
+        List<ParsedQuery> queries = new ArrayList<>();
+        for (SqlParser parser : parsers) {
+            for (Table t : parser.getTables()) {
+                if (tables.containsKey(t.getName())) {
+                    throw new SqlSemanticException("relation '%s' already exists", t.getName());
+                }
+                tables.put(t.getName(), t);
+            }
+            grants.addAll(parser.getGrants());
+            queries.addAll(parser.getDmlQueries());
+        }
+
+        String key = structure(tables.values());
+        Map<Name, Table> shared = _schemas.get(key);
+        if (shared == null) {
+            TreeMap<Name, Table> interned = new TreeMap<>();
+            int tableId = 0;
+            int columnId = 0;
+            for (Table t : tables.values()) {
+                Table copy = intern(t);
+                // the ids are assigned once, they are the same for every tenant
+                columnId = copy.assignIds(tableId++, columnId);
+                interned.put(copy.getName(), copy);
+            }
+            shared = Collections.unmodifiableMap(interned);
+            _schemas.put(key, shared);
+        }
+        return new ParsedScript(shared, grants, queries);
+    }
+
+    /**
+     * Describes the tables, so two lists of tables have the same description
+     * if and only if they are equal in every detail but the order.
+     */
+    private static String structure(Collection<Table> tables) {
+        StringBuilder sb = new StringBuilder();
+        for (Table t : tables) {
+            sb.append(t.getName().getOriginalName()).append('(');
+            for (AbstractColumn col : t.getColumns()) {
+                RealColumn c = (RealColumn) col;
+                sb.append(c.getName().getOriginalName()).append(' ').append(c.getType())
+                        .append(c.isNotNull() ? " N" : "").append(c.isUnique() ? " U" : "").append(',');
+            }
+            sb.append(");");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Copies a table using the shared names and types.
+     */
+    private Table intern(Table table) throws SqlSemanticException {
+        Table ret = new Table(intern(table.getName()), Collections.<AbstractColumn>emptyList());
+        for (AbstractColumn col : table.getColumns()) {
+            RealColumn c = (RealColumn) col;
+            String type = _types.get(c.getType());
+            if (type == null) {
+                type = c.getType();
+                _types.put(type, type);
+            }
+            ret.addColumn(intern(c.getName()), type, c.isNotNull(), c.isUnique());
+        }
+        return ret;
+    }
+
+    private Name intern(Name name) {
+        Name ret = _names.get(name.getOriginalName());
+        if (ret == null) {
+            ret = name;
+            _names.put(name.getOriginalName(), name);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the database of a tenant.
+     *
+     * @param tenant the tenant.
+     * @return the database or null if the tenant does not exist.
+     * @throws NullPointerException if tenant is null.
+     */
+    public DatabaseEngine get(String tenant) throws NullPointerException {
+        return _tenants.get(tenant);
+    }
+
+    /**
+     * Removes a tenant.
+     *
+     * @param tenant the tenant.
+     * @return the database of the tenant or null if the tenant does not exist.
+     * @throws NullPointerException if tenant is null.
+     */
+    public synchronized DatabaseEngine remove(String tenant) throws NullPointerException {
+        DatabaseEngine ret = _tenants.remove(tenant);
+        if (ret != null) {
+            String digest = _tenantScripts.remove(tenant);
+            if (--_scripts.get(digest).tenants == 0) {
+                _scripts.remove(digest);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the tenants.
+     *
+     * @return an unmodifiable view of the tenants.
+     */
+    public Set<String> getTenants() {
+        return Collections.unmodifiableSet(_tenants.keySet());
+    }
+
+    /**
+     * Returns the number of distinct schemas, i.e. of distinct sets of tables,
+     * loaded by this registry.
+     *
+     * @return the number of schemas.
+     */
+    public synchronized int getSchemaCount() {
+        return _schemas.size();
+    }
+
+    /**
+     * Returns the number of distinct scripts whose statements are kept, i.e.
+     * of the scripts of the current tenants.
+     *
+     * @return the number of scripts.
+     */
+    public synchronized int getScriptCount() {
+        return _scripts.size();
+    }
+}
@@ -0,0 +1,128 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.parser.ParserStatistics;
+import edu.purdue.dbSchema.utils.CacheStatistics;
+import edu.purdue.dbSchema.utils.LatencyHistogram;
+
+/**
+ * An immutable snapshot of the metrics of a {@link DatabaseEngine}: the number
+ * of queries evaluated, the latency of each stage of the evaluation, the query
+ * cache statistics and the parser counters.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class EngineMetrics {
+
+    /**
+     * The stages of the evaluation of a query, each one with its latency
+     * histogram. The parsing, the analysis and the resolution are skipped when
+     * a query is found in the query cache, so their histograms count only the
+     * cache misses.
+     */
+    public static enum Stage {
+
+        /**
+         * The underlying SQL parser builds the syntax tree.
+         */
+        PARSE,
+        /**
+         * The syntax tree is walked to extract the tables and columns.
+         */
+        ANALYZE,
+        /**
+         * The names are resolved against the schema.
+         */
+        RESOLVE,
+        /**
+         * The grants of the user are checked.
+         */
+        AUTHORIZE,
+        /**
+         * The whole evaluation, including the query cache lookup.
+         */
+        QUERY
+    }
+
+    private final long _queries;
+    private final long _failures;
+    private final LatencyHistogram[] _latencies;
+    private final CacheStatistics _queryCache;
+    private final ParserStatistics _parser;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param queries the number of queries evaluated.
+     * @param failures the number of queries which raised an exception.
+     * @param latencies the copies of the histograms, indexed by stage ordinal.
+     * @param queryCache the statistics of the query cache.
+     * @param parser the parser counters.
+     */
+    EngineMetrics(long queries, long failures, LatencyHistogram[] latencies, CacheStatistics queryCache, ParserStatistics parser) {
+        _queries = queries;
+        _failures = failures;
+        _latencies = latencies;
+        _queryCache = queryCache;
+        _parser = parser;
+    }
+
+    /**
+     * Returns the number of queries evaluated, including the failed ones.
+     *
+     * @return the number of queries.
+     */
+    public long getQueries() {
+        return _queries;
+    }
+
+    /**
+     * Returns the number of queries which could not be evaluated or whose user
+     * misses a grant.
+     *
+     * @return the number of failures.
+     */
+    public long getFailures() {
+        return _failures;
+    }
+
+    /**
+     * Returns the latencies of a stage.
+     *
+     * @param stage the stage.
+     * @return a copy of the histogram, in nanoseconds.
+     */
+    public LatencyHistogram getLatency(Stage stage) {
+        return _latencies[stage.ordinal()];
+    }
+
+    /**
+     * Returns the statistics of the query cache of the current schema.
+     *
+     * @return the statistics, or null if the cache is disabled.
+     */
+    public CacheStatistics getQueryCacheStatistics() {
+        return _queryCache;
+    }
+
+    /**
+     * Returns the counters of the parsers, which are shared by all the
+     * databases of the JVM.
+     *
+     * @return the parser counters.
+     */
+    public ParserStatistics getParserStatistics() {
+        return _parser;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("queries: ").append(_queries).append(", failures: ").append(_failures).append('\n');
+        for (Stage stage : Stage.values()) {
+            sb.append(stage.name().toLowerCase()).append(": ").append(_latencies[stage.ordinal()]).append('\n');
+        }
+        sb.append("query cache: ").append(_queryCache).append('\n');
+        sb.append("parser: ").append(_parser);
+        return sb.toString();
+    }
+}
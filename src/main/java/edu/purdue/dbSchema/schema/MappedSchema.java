@@ -0,0 +1,340 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.utils.CompactBitmap;
+import edu.purdue.dbSchema.utils.IColumnIndex;
+import edu.purdue.dbSchema.utils.MappedDbGrants;
+import edu.purdue.dbSchema.utils.Pair;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.COLUMN_ENTRY_SIZE;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.FLAG_NOT_NULL;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.FLAG_UNIQUE;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.HEADER_SIZE;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.MAGIC;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.TABLE_ENTRY_SIZE;
+import static edu.purdue.dbSchema.schema.SchemaSnapshot.VERSION;
+
+/**
+ * A read only view of a {@link SchemaSnapshot} which creates the tables on
+ * demand. Only the header, the roles and the permissions are decoded when the
+ * snapshot is opened; a table and its columns are created the first time the
+ * table is looked up, by a binary search on the table directory, and then
+ * reused. The snapshot is usually a memory mapped file, so the memory used
+ * depends on the tables actually queried.
+ * <p>
+ * This class is thread safe: the buffer is only read with absolute gets and
+ * if two threads create the same table at the same time only one of the two
+ * instances is kept.
+ * <p>
+ * Errors in the tables of a corrupted snapshot are found only when the tables
+ * are created and are reported with an {@link IllegalStateException}.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class MappedSchema implements IColumnIndex {
+
+    final EDbVendor vendor;
+    final Map<Name, Table> tables;
+    final MappedDbGrants grants;
+
+    private final ByteBuffer _buf;
+    private final int _tableCount;
+    private final int _columnCount;
+    private final int _stringCount;
+    private final int _stringsOffset;
+    private final int _tablesOffset;
+    private final int _columnsOffset;
+    private final String[] _strings;
+    private final String[] _tableKeys;
+    private final AtomicReferenceArray<Table> _tables;
+
+    /**
+     * Opens a snapshot.
+     *
+     * @param buf the content of the snapshot.
+     * @throws IOException if the header or the permissions are not valid.
+     */
+    MappedSchema(ByteBuffer buf) throws IOException {
+        _buf = buf;
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("not a schema snapshot");
+        }
+        short version = buf.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        int vendorId = buf.getInt(8);
+        _stringCount = buf.getInt(12);
+        _tableCount = buf.getInt(16);
+        _columnCount = buf.getInt(20);
+        int roleCount = buf.getInt(24);
+        int edgeCount = buf.getInt(28);
+        if (_stringCount < 0 || _tableCount < 0 || _columnCount < 0 || roleCount < 0 || edgeCount < 0) {
+            throw new IOException("corrupted snapshot: negative count");
+        }
+        _stringsOffset = offset(32, 4L * (_stringCount + 1));
+        _tablesOffset = offset(40, (long) TABLE_ENTRY_SIZE * _tableCount);
+        _columnsOffset = offset(48, (long) COLUMN_ENTRY_SIZE * _columnCount);
+        int rolesOffset = offset(56, 4L * roleCount + 8L * edgeCount);
+        int grantsOffset = offset(64, 0);
+
+        _strings = new String[_stringCount];
+        _tableKeys = new String[_tableCount];
+        _tables = new AtomicReferenceArray<>(_tableCount);
+        try {
+            vendor = EDbVendor.valueOf(string(vendorId));
+
+            List<Name> roles = new ArrayList<>(roleCount);
+            for (int r = 0; r < roleCount; r++) {
+                roles.add(new Name(string(buf.getInt(rolesOffset + 4 * r))));
+            }
+            List<Pair<Name, Name>> roleGrants = new ArrayList<>(edgeCount);
+            int edges = rolesOffset + 4 * roleCount;
+            for (int e = 0; e < edgeCount; e++) {
+                roleGrants.add(new Pair<>(roles.get(buf.getInt(edges + 8 * e)), roles.get(buf.getInt(edges + 8 * e + 4))));
+            }
+            ByteBuffer grantsBuf = buf.duplicate();
+            grantsBuf.position(grantsOffset);
+            List<CompactBitmap> read = new ArrayList<>(roleCount);
+            List<CompactBitmap> write = new ArrayList<>(roleCount);
+            for (int r = 0; r < roleCount; r++) {
+                read.add(checkColumns(CompactBitmap.readFrom(grantsBuf)));
+                write.add(checkColumns(CompactBitmap.readFrom(grantsBuf)));
+            }
+            grants = new MappedDbGrants(this, roles, roleGrants, read, write);
+        } catch (SqlSemanticException | IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException | BufferUnderflowException ex) {
+            throw new IOException("corrupted snapshot", ex);
+        }
+        tables = new TableMap();
+    }
+
+    /**
+     * Reads the offset of a section and checks that the section is in the
+     * buffer.
+     */
+    private int offset(int headerPos, long size) throws IOException {
+        long offset = _buf.getLong(headerPos);
+        if (offset < HEADER_SIZE || offset + size > _buf.limit()) {
+            throw new IOException("corrupted snapshot: invalid section offset");
+        }
+        return (int) offset;
+    }
+
+    private CompactBitmap checkColumns(CompactBitmap columns) throws IOException {
+        if (!columns.isEmpty() && columns.nextSetBit(_columnCount) >= 0) {
+            throw new IOException("corrupted snapshot: grant on a missing column");
+        }
+        return columns;
+    }
+
+    private String string(int id) {
+        if (id < 0 || id >= _stringCount) {
+            throw new IllegalStateException("corrupted snapshot: invalid string " + id);
+        }
+        String s = _strings[id];
+        if (s == null) {
+            int start = _buf.getInt(_stringsOffset + 4 * id);
+            int end = _buf.getInt(_stringsOffset + 4 * (id + 1));
+            int blob = _stringsOffset + 4 * (_stringCount + 1);
+            if (start < 0 || end < start || blob + end > _buf.limit()) {
+                throw new IllegalStateException("corrupted snapshot: invalid string " + id);
+            }
+            byte[] bytes = new byte[end - start];
+            ByteBuffer src = _buf.duplicate();
+            src.position(blob + start);
+            src.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            _strings[id] = s; // strings are immutable, a race only decodes twice
+        }
+        return s;
+    }
+
+    private int tableEntry(int index) {
+        return _tablesOffset + TABLE_ENTRY_SIZE * index;
+    }
+
+    private String tableKey(int index) {
+        String key = _tableKeys[index];
+        if (key == null) {
+            key = new Name(string(_buf.getInt(tableEntry(index)))).getName();
+            _tableKeys[index] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Finds a table in the directory.
+     *
+     * @param name the table name.
+     * @return the index of the table or -1 if it does not exist.
+     */
+    int find(Name name) {
+        String key = name.getName();
+        int low = 0;
+        int high = _tableCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = tableKey(mid).compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a table, creating it the first time.
+     *
+     * @param index the index of the table in the directory.
+     * @return the table.
+     */
+    Table table(int index) {
+        Table table = _tables.get(index);
+        if (table != null) {
+            return table;
+        }
+        int entry = tableEntry(index);
+        int first = _buf.getInt(entry + 4);
+        int count = _buf.getInt(entry + 8);
+        if (first < 0 || count < 0 || first > _columnCount - count) {
+            throw new IllegalStateException("corrupted snapshot: invalid columns of table " + index);
+        }
+        String[] names = new String[count];
+        try {
+            table = new Table(string(_buf.getInt(entry)));
+            for (int i = 0; i < count; i++) {
+                int col = _columnsOffset + COLUMN_ENTRY_SIZE * (first + i);
+                int flags = _buf.getInt(col + 8);
+                names[i] = string(_buf.getInt(col));
+                table.addColumn(names[i], string(_buf.getInt(col + 4)), (flags & FLAG_NOT_NULL) != 0, (flags & FLAG_UNIQUE) != 0);
+            }
+        } catch (SqlSemanticException | IllegalArgumentException ex) {
+            throw new IllegalStateException("corrupted snapshot", ex);
+        }
+        // the snapshot stores the columns of a table in name order, as Table numbers them
+        table.assignIds(index, first);
+        for (int i = 0; i < count; i++) {
+            if (table.getColumn(names[i]).getId() != first + i) {
+                throw new IllegalStateException("corrupted snapshot: columns of table " + index + " not sorted");
+            }
+        }
+        if (_tables.compareAndSet(index, null, table)) {
+            return table;
+        }
+        return _tables.get(index);
+    }
+
+    /**
+     * Returns the id of a column. The column must have been created by this
+     * snapshot: the ids of a table are the ones of the snapshot, so they are
+     * checked only by looking up the table.
+     *
+     * @param column the column.
+     * @return the id or -1 if the column is not part of this snapshot.
+     * @throws NullPointerException if column is null.
+     */
+    @Override
+    public int getId(AbstractColumn column) throws NullPointerException {
+        Table table = column.getTable();
+        int id = column.getId();
+        if (table == null || id < 0) {
+            return -1;
+        }
+        int index = table.getId();
+        return index >= 0 && index < _tableCount && _tables.get(index) == table ? id : -1;
+    }
+
+    @Override
+    public AbstractColumn getColumn(int id) throws IndexOutOfBoundsException {
+        if (id < 0 || id >= _columnCount) {
+            throw new IndexOutOfBoundsException("no column " + id);
+        }
+        // the last table whose first column is not after id
+        int low = 0;
+        int high = _tableCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (_buf.getInt(tableEntry(mid) + 4) <= id) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Table table = table(low);
+        return table.getColumn(string(_buf.getInt(_columnsOffset + COLUMN_ENTRY_SIZE * id)));
+    }
+
+    /**
+     * The tables of the snapshot, indexed by name. Iterating the map creates
+     * all the tables.
+     */
+    private final class TableMap extends AbstractMap<Name, Table> {
+
+        @Override
+        public Table get(Object key) {
+            if (!(key instanceof Name)) {
+                return null;
+            }
+            int index = find((Name) key);
+            return index < 0 ? null : table(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Name && find((Name) key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return _tableCount;
+        }
+
+        @Override
+        public Set<Map.Entry<Name, Table>> entrySet() {
+            return new AbstractSet<Map.Entry<Name, Table>>() {
+                @Override
+                public Iterator<Map.Entry<Name, Table>> iterator() {
+                    return new Iterator<Map.Entry<Name, Table>>() {
+                        private int _next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return _next < _tableCount;
+                        }
+
+                        @Override
+                        public Map.Entry<Name, Table> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Table t = table(_next++);
+                            return new AbstractMap.SimpleImmutableEntry<>(t.getName(), t);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return _tableCount;
+                }
+            };
+        }
+    }
+}
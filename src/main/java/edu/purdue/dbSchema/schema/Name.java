@@ -1,16 +1,26 @@
 package edu.purdue.dbSchema.schema;
 
 import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Represents the name of an object in the database. Most of the databases are
  * case insensitive. This class contains the logic to normalize names (lowercase
  * and without quotes) and to compare normalized names.
+ * <p>
+ * The same identifiers appear in almost every query, so the names created by
+ * {@link #valueOf(java.lang.CharSequence)} are kept in a small bounded cache
+ * and reused: a lookup of a recently used identifier does not allocate.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
 public class Name implements Comparable<Name>, Serializable {
 
+    private static final long serialVersionUID = -5502391179660920257L;
+    private static final int CACHE_SIZE = 1 << 14;
+    private static final AtomicReferenceArray<Name> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
     private final String _name;
     private final String _normalizedName;
 
@@ -33,6 +43,36 @@ public class Name implements Comparable<Name>, Serializable {
         }
     }
 
+    /**
+     * Returns a name equal to <code>new Name(name.toString())</code>, reusing a
+     * cached instance if the same text has been seen recently. The cache is
+     * direct mapped on the original text, so a hit neither allocates nor
+     * normalizes the name; a miss creates the name and replaces the previous
+     * entry in its slot.
+     *
+     * @param name the name.
+     * @return the name.
+     * @throws NullPointerException if name is null.
+     * @throws IllegalArgumentException if the normalized name is empty.
+     */
+    public static Name valueOf(CharSequence name) throws NullPointerException, IllegalArgumentException {
+        if (name == null) {
+            throw new NullPointerException("Missing name");
+        }
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        int slot = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+        Name cached = CACHE.get(slot);
+        if (cached != null && cached._name.contentEquals(name)) {
+            return cached;
+        }
+        Name ret = new Name(name.toString());
+        CACHE.lazySet(slot, ret);
+        return ret;
+    }
+
     @Override
     public int compareTo(Name o) {
         return _normalizedName.compareTo(o._normalizedName);
@@ -51,11 +91,11 @@ public class Name implements Comparable<Name>, Serializable {
         return _normalizedName.equals(((Name) obj)._normalizedName);
     }
 
-    private String normalize(String name) {
-        name = name.toLowerCase();
-        if (name.startsWith("'") && name.endsWith("'")) {
+    private static String normalize(String name) {
+        name = name.toLowerCase(Locale.ROOT);
+        if (name.length() >= 2 && name.startsWith("'") && name.endsWith("'")) {
             name = name.substring(1, name.length() - 1);
-        } else if (name.startsWith("\"") && name.endsWith("\"")) {
+        } else if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
             name = name.substring(1, name.length() - 1);
         }
         return name;
@@ -0,0 +1,29 @@
+package edu.purdue.dbSchema.schema;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the whole evaluation of an SQL string sent
+ * by a user. Its threshold can be used to record only the outlier queries.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.Query")
+@Label("SQL Query")
+@Category({"dbSchema", "Pipeline"})
+@Description("The extraction of the features of a query, from the SQL string to the authorized features")
+final class QueryEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+
+    @Label("User")
+    String user;
+
+    @Label("Success")
+    boolean success;
+}
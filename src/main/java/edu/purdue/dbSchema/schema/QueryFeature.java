@@ -1,37 +1,99 @@
 package edu.purdue.dbSchema.schema;
 
 import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.utils.CompactBitmap;
+import edu.purdue.dbSchema.utils.IColumnIndex;
+import edu.purdue.dbSchema.utils.IDbGrants;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 
 /**
  * Represents a set of features extracted from a query.
+ * <p>
+ * The columns and the roles are stored as bitmaps of their ids in the database
+ * the query was evaluated on (see {@link AbstractColumn#getId()} and
+ * {@link IDbGrants#getRoleId(edu.purdue.dbSchema.schema.Name)}), so merging the
+ * features of the nested queries and comparing the features of the same
+ * database costs a few word operations. Only the columns and roles without an
+ * id, like the columns of the sub-queries in the from clause, are kept as
+ * objects. The collections returned by the getters are created from the ids
+ * the first time they are requested.
+ * <p>
+ * Two features are equal when they have the same type, columns and roles. The
+ * columns and the roles of features sharing the same indexes are compared by
+ * id, the ones of features of different databases are compared as
+ * collections. The hash code is computed once from the columns and the roles,
+ * not from their ids, so it does not depend on the indexes either.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
 public class QueryFeature {
 
     private final DlmQueryType _type;
-    private final Collection<AbstractColumn> _usedCols;
-    private final Collection<AbstractColumn> _filteredCols;
-    private final Collection<Name> _roles;
+    private final IColumnIndex _columnIndex;
+    private final IDbGrants _roleIndex;
+    private final CompactBitmap _usedIds;
+    private final CompactBitmap _filteredIds;
+    private final CompactBitmap _roleIds;
+    private final Set<AbstractColumn> _usedOthers;
+    private final Set<AbstractColumn> _filteredOthers;
+    private final Set<Name> _roleOthers;
+    private volatile Collection<AbstractColumn> _usedCols;
+    private volatile Collection<AbstractColumn> _filteredCols;
+    private volatile Collection<Name> _roles;
+    private int _hash;
 
-    public QueryFeature(DlmQueryType type, Collection<AbstractColumn> used, Collection<AbstractColumn> where, Collection<Name> roles) {
+    /**
+     * Creates a feature whose columns and roles have no id. Duplicated columns
+     * and roles are counted once.
+     *
+     * @param type the query type.
+     * @param used the columns used by the query.
+     * @param where the columns used to filter the query.
+     * @param roles the roles used to execute the query.
+     * @throws NullPointerException if a parameter is null.
+     */
+    public QueryFeature(DlmQueryType type, Collection<AbstractColumn> used, Collection<AbstractColumn> where, Collection<Name> roles) throws NullPointerException {
+        this(type, used, where, roles, null, null);
+    }
+
+    /**
+     * Creates a feature storing the ids of its columns and roles.
+     *
+     * @param type the query type.
+     * @param used the columns used by the query.
+     * @param where the columns used to filter the query.
+     * @param roles the roles used to execute the query.
+     * @param columnIndex the ids of the columns, null if the columns have no
+     * id.
+     * @param roleIndex the ids of the roles, null if the roles have no id.
+     * @throws NullPointerException if type, used, where or roles are null.
+     */
+    QueryFeature(DlmQueryType type, Collection<AbstractColumn> used, Collection<AbstractColumn> where, Collection<Name> roles, IColumnIndex columnIndex, IDbGrants roleIndex) throws NullPointerException {
         if (type == null || used == null || where == null || roles == null) {
             throw new NullPointerException();
         }
         _type = type;
-        _usedCols = Collections.unmodifiableCollection(used);
-        _filteredCols = Collections.unmodifiableCollection(where);
-        _roles = Collections.unmodifiableCollection(roles);
+        _columnIndex = columnIndex;
+        _roleIndex = roleIndex;
+        _usedIds = new CompactBitmap();
+        _filteredIds = new CompactBitmap();
+        _roleIds = new CompactBitmap();
+        _usedOthers = orEmpty(addColumns(used, _usedIds, null));
+        _filteredOthers = orEmpty(addColumns(where, _filteredIds, null));
+        _roleOthers = orEmpty(addRoles(roles, _roleIds, null));
     }
 
     /**
-     * Creates a QueryFeature merging all the features provided.
+     * Creates a QueryFeature merging all the features provided. The ids of the
+     * first feature are used; the columns and roles of a feature of another
+     * database are looked up by object.
      *
      * @param features the features to merge.
      * @throws UnsupportedOperationException if the type of the features does
@@ -43,24 +105,94 @@ public class QueryFeature {
         if (features.isEmpty()) {
             throw new NoSuchElementException("no features to merge");
         }
-        Set<AbstractColumn> usedCols = new HashSet<>();
-        Set<AbstractColumn> filteredCols = new HashSet<>();
-        Set<Name> roles = new TreeSet<>();
-        DlmQueryType type = null;
+        QueryFeature first = features.iterator().next();
+        CompactBitmap usedIds = new CompactBitmap();
+        CompactBitmap filteredIds = new CompactBitmap();
+        CompactBitmap roleIds = new CompactBitmap();
+        Set<AbstractColumn> usedOthers = null;
+        Set<AbstractColumn> filteredOthers = null;
+        Set<Name> roleOthers = null;
+        _columnIndex = first._columnIndex;
+        _roleIndex = first._roleIndex;
 
         for (QueryFeature other : features) {
-            if (type != null && type != other._type) {
+            if (other._type != first._type) {
                 throw new UnsupportedOperationException("Cannot merge different type of features yet");
             }
-            type = other._type;
-            usedCols.addAll(other._usedCols);
-            filteredCols.addAll(other._filteredCols);
-            roles.addAll(other._roles);
+            if (other._columnIndex == _columnIndex) {
+                usedIds = usedIds.or(other._usedIds);
+                filteredIds = filteredIds.or(other._filteredIds);
+                usedOthers = union(usedOthers, other._usedOthers);
+                filteredOthers = union(filteredOthers, other._filteredOthers);
+            } else {
+                usedOthers = addColumns(other.getUsedCols(), usedIds, usedOthers);
+                filteredOthers = addColumns(other.getFilteredCols(), filteredIds, filteredOthers);
+            }
+            if (other._roleIndex == _roleIndex) {
+                roleIds = roleIds.or(other._roleIds);
+                roleOthers = union(roleOthers, other._roleOthers);
+            } else {
+                roleOthers = addRoles(other.getRoles(), roleIds, roleOthers);
+            }
         }
-        _type = type;
-        _usedCols = Collections.unmodifiableCollection(usedCols);
-        _filteredCols = Collections.unmodifiableCollection(filteredCols);
-        _roles = Collections.unmodifiableCollection(roles);
+        _type = first._type;
+        _usedIds = usedIds;
+        _filteredIds = filteredIds;
+        _roleIds = roleIds;
+        _usedOthers = orEmpty(usedOthers);
+        _filteredOthers = orEmpty(filteredOthers);
+        _roleOthers = orEmpty(roleOthers);
+    }
+
+    /**
+     * Adds columns to the ids or, if they have none, to a set.
+     *
+     * @return the set of the columns without id, null if others is null and
+     * all the columns have an id.
+     */
+    private Set<AbstractColumn> addColumns(Collection<AbstractColumn> columns, CompactBitmap ids, Set<AbstractColumn> others) {
+        for (AbstractColumn col : columns) {
+            int id = _columnIndex == null ? -1 : _columnIndex.getId(col);
+            if (id >= 0) {
+                ids.add(id);
+            } else {
+                if (others == null) {
+                    others = new HashSet<>();
+                }
+                others.add(col);
+            }
+        }
+        return others;
+    }
+
+    private Set<Name> addRoles(Collection<Name> roles, CompactBitmap ids, Set<Name> others) {
+        for (Name role : roles) {
+            int id = _roleIndex == null ? -1 : _roleIndex.getRoleId(role);
+            if (id >= 0) {
+                ids.add(id);
+            } else {
+                if (others == null) {
+                    others = new HashSet<>();
+                }
+                others.add(role);
+            }
+        }
+        return others;
+    }
+
+    private static <T> Set<T> orEmpty(Set<T> set) {
+        return set == null ? Collections.<T>emptySet() : set;
+    }
+
+    private static <T> Set<T> union(Set<T> acc, Set<T> other) {
+        if (other.isEmpty()) {
+            return acc;
+        }
+        if (acc == null) {
+            acc = new HashSet<>();
+        }
+        acc.addAll(other);
+        return acc;
     }
 
     /**
@@ -74,29 +206,174 @@ public class QueryFeature {
 
     /**
      * Returns the column used by the query. Which can be either the one
-     * returned, updated or inserted.
+     * returned, updated or inserted. The columns are sorted by id, the ones
+     * without an id come last.
      *
      * @return the column used by the query.
      */
     public Collection<AbstractColumn> getUsedCols() {
-        return _usedCols;
+        Collection<AbstractColumn> ret = _usedCols;
+        if (ret == null) {
+            ret = columns(_usedIds, _usedOthers);
+            _usedCols = ret;
+        }
+        return ret;
     }
 
     /**
-     * Returns the column used to filter the query.
+     * Returns the column used to filter the query, in the same order of
+     * {@link #getUsedCols()}.
      *
      * @return the column used to filter the query.
      */
     public Collection<AbstractColumn> getFilteredCols() {
-        return _filteredCols;
+        Collection<AbstractColumn> ret = _filteredCols;
+        if (ret == null) {
+            ret = columns(_filteredIds, _filteredOthers);
+            _filteredCols = ret;
+        }
+        return ret;
     }
 
     /**
-     * Returns the roles used to execute the query.
+     * Returns the roles used to execute the query, sorted by name.
      *
      * @return the roles used to execute the query.
      */
     public Collection<Name> getRoles() {
-        return _roles;
+        Collection<Name> ret = _roles;
+        if (ret == null) {
+            Set<Name> roles = new TreeSet<>(_roleOthers);
+            for (int id = _roleIds.nextSetBit(0); id >= 0; id = id < Integer.MAX_VALUE ? _roleIds.nextSetBit(id + 1) : -1) {
+                roles.add(_roleIndex.getRole(id));
+            }
+            ret = Collections.unmodifiableCollection(roles);
+            _roles = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the ids of the columns used by the query. The columns without an
+     * id are only in {@link #getUsedCols()}.
+     *
+     * @return a new bitmap of column ids.
+     */
+    public CompactBitmap getUsedColIds() {
+        return new CompactBitmap(_usedIds);
+    }
+
+    /**
+     * Returns the ids of the columns used to filter the query. The columns
+     * without an id are only in {@link #getFilteredCols()}.
+     *
+     * @return a new bitmap of column ids.
+     */
+    public CompactBitmap getFilteredColIds() {
+        return new CompactBitmap(_filteredIds);
+    }
+
+    /**
+     * Returns the ids of the roles used to execute the query. The roles
+     * without an id are only in {@link #getRoles()}.
+     *
+     * @return a new bitmap of role ids.
+     */
+    public CompactBitmap getRoleIds() {
+        return new CompactBitmap(_roleIds);
+    }
+
+    /**
+     * Returns the smallest id of a column used by the query which is not lower
+     * than a given one. Iterating the ids with this method does not allocate.
+     *
+     * @param from the id to start from.
+     * @return the id or -1 if there is none.
+     */
+    public int nextUsedColId(int from) {
+        return _usedIds.nextSetBit(from);
+    }
+
+    /**
+     * Returns the smallest id of a column used to filter the query which is not
+     * lower than a given one. Iterating the ids with this method does not
+     * allocate.
+     *
+     * @param from the id to start from.
+     * @return the id or -1 if there is none.
+     */
+    public int nextFilteredColId(int from) {
+        return _filteredIds.nextSetBit(from);
+    }
+
+    /**
+     * Returns the smallest id of a role used to execute the query which is not
+     * lower than a given one. Iterating the ids with this method does not
+     * allocate.
+     *
+     * @param from the id to start from.
+     * @return the id or -1 if there is none.
+     */
+    public int nextRoleId(int from) {
+        return _roleIds.nextSetBit(from);
+    }
+
+    private Collection<AbstractColumn> columns(CompactBitmap ids, Set<AbstractColumn> others) {
+        List<AbstractColumn> ret = new ArrayList<>(ids.cardinality() + others.size());
+        for (int id = ids.nextSetBit(0); id >= 0; id = id < Integer.MAX_VALUE ? ids.nextSetBit(id + 1) : -1) {
+            ret.add(_columnIndex.getColumn(id));
+        }
+        ret.addAll(others);
+        return Collections.unmodifiableCollection(ret);
+    }
+
+    @Override
+    public int hashCode() {
+        // the hash of a set is the sum of the hashes of its elements
+        int hash = _hash;
+        if (hash == 0) {
+            hash = _type.hashCode();
+            hash = 31 * hash + columnsHash(_usedIds, _usedOthers);
+            hash = 31 * hash + columnsHash(_filteredIds, _filteredOthers);
+            int roles = _roleOthers.hashCode();
+            for (int id = _roleIds.nextSetBit(0); id >= 0; id = id < Integer.MAX_VALUE ? _roleIds.nextSetBit(id + 1) : -1) {
+                roles += _roleIndex.getRole(id).hashCode();
+            }
+            hash = 31 * hash + roles;
+            _hash = hash;
+        }
+        return hash;
+    }
+
+    private int columnsHash(CompactBitmap ids, Set<AbstractColumn> others) {
+        int hash = others.hashCode();
+        for (int id = ids.nextSetBit(0); id >= 0; id = id < Integer.MAX_VALUE ? ids.nextSetBit(id + 1) : -1) {
+            hash += _columnIndex.getColumn(id).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        QueryFeature other = (QueryFeature) obj;
+        if (_type != other._type || hashCode() != other.hashCode()) {
+            return false;
+        }
+        boolean sameColumns = _columnIndex == other._columnIndex
+                ? _usedIds.equals(other._usedIds)
+                && _filteredIds.equals(other._filteredIds)
+                && _usedOthers.equals(other._usedOthers)
+                && _filteredOthers.equals(other._filteredOthers)
+                : new HashSet<>(getUsedCols()).equals(new HashSet<>(other.getUsedCols()))
+                && new HashSet<>(getFilteredCols()).equals(new HashSet<>(other.getFilteredCols()));
+        return sameColumns && (_roleIndex == other._roleIndex
+                ? _roleIds.equals(other._roleIds) && _roleOthers.equals(other._roleOthers)
+                : new HashSet<>(getRoles()).equals(new HashSet<>(other.getRoles())));
     }
 }
@@ -0,0 +1,50 @@
+package edu.purdue.dbSchema.schema;
+
+/**
+ * A query together with the user who issued it, as found in an audit log.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class QueryRecord {
+
+    private final String _sql;
+    private final String _username;
+
+    /**
+     * Creates a record.
+     *
+     * @param sql the SQL query or multiple queries separated by a semicolon.
+     * @param username the user who issued the query.
+     * @throws NullPointerException if a parameter is null.
+     */
+    public QueryRecord(String sql, String username) throws NullPointerException {
+        if (sql == null || username == null) {
+            throw new NullPointerException();
+        }
+        _sql = sql;
+        _username = username;
+    }
+
+    /**
+     * Returns the SQL of the query.
+     *
+     * @return the SQL string.
+     */
+    public String getSql() {
+        return _sql;
+    }
+
+    /**
+     * Returns the user who issued the query.
+     *
+     * @return the user name.
+     */
+    public String getUsername() {
+        return _username;
+    }
+
+    @Override
+    public String toString() {
+        return _username + ": " + _sql;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.purdue.dbSchema.schema;
+
+import java.util.List;
+
+/**
+ * The outcome of the evaluation of a {@link QueryRecord}: either the features
+ * of the query or the exception which prevented their extraction.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class QueryResult {
+
+    private final QueryRecord _record;
+    private final List<QueryFeature> _features;
+    private final Exception _error;
+
+    private QueryResult(QueryRecord record, List<QueryFeature> features, Exception error) {
+        _record = record;
+        _features = features;
+        _error = error;
+    }
+
+    /**
+     * Creates the result of a successful evaluation.
+     *
+     * @param record the evaluated record.
+     * @param features the features extracted.
+     * @return a new result.
+     */
+    static QueryResult success(QueryRecord record, List<QueryFeature> features) {
+        return new QueryResult(record, features, null);
+    }
+
+    /**
+     * Creates the result of a failed evaluation.
+     *
+     * @param record the evaluated record.
+     * @param error the exception thrown by the evaluation.
+     * @return a new result.
+     */
+    static QueryResult failure(QueryRecord record, Exception error) {
+        return new QueryResult(record, null, error);
+    }
+
+    /**
+     * Returns the evaluated record.
+     *
+     * @return the record.
+     */
+    public QueryRecord getRecord() {
+        return _record;
+    }
+
+    /**
+     * Checks if the features were extracted.
+     *
+     * @return true if the evaluation succeeded.
+     */
+    public boolean isSuccess() {
+        return _error == null;
+    }
+
+    /**
+     * Returns the features of the query, as returned by
+     * {@link DatabaseEngine#parse(java.lang.String, java.lang.String)}.
+     *
+     * @return the features or null if the evaluation failed.
+     */
+    public List<QueryFeature> getFeatures() {
+        return _features;
+    }
+
+    /**
+     * Returns the reason of the failure. It is one of the checked exceptions
+     * thrown by {@link DatabaseEngine#parse(java.lang.String, java.lang.String)},
+     * or an IllegalArgumentException if the username is empty.
+     *
+     * @return the exception or null if the evaluation succeeded.
+     */
+    public Exception getError() {
+        return _error;
+    }
+}
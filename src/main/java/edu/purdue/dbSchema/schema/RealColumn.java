@@ -9,6 +9,8 @@ package edu.purdue.dbSchema.schema;
  */
 public class RealColumn extends AbstractColumn {
 
+    private static final long serialVersionUID = 3407890657672435786L;
+
     private final String _type;
     private final boolean _notNull;
     private final boolean _unique;
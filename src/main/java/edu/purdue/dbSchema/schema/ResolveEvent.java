@@ -0,0 +1,24 @@
+package edu.purdue.dbSchema.schema;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the name resolution of the queries
+ * contained in an SQL string. It is not emitted for the queries found in the
+ * query cache.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+@Name("edu.purdue.dbSchema.Resolve")
+@Label("SQL Resolve")
+@Category({"dbSchema", "Pipeline"})
+@Description("The parsed queries are resolved against the schema, on a query cache miss")
+final class ResolveEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+}
@@ -0,0 +1,66 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Contains a query whose names are resolved against a schema but whose grants
+ * are not checked yet. Since the resolution does not depend on the user, the
+ * same object can be used to check the grants of any user as long as the schema
+ * does not change. The nested queries are kept apart, in the order they have to
+ * be checked, because each one is authorized on its own.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class ResolvedQuery {
+
+    final DlmQueryType type;
+    final List<AbstractColumn> mainCols;
+    final List<AbstractColumn> filteredCols;
+    final List<ResolvedQuery> subQueries;
+    final ResolvedQuery nextCombinedQuery;
+
+    /**
+     * Creates a resolved query. The collections are not copied and must not be
+     * modified afterwards.
+     *
+     * @param type the query type.
+     * @param mainCols the main columns of the query.
+     * @param filteredCols the columns used to filter the query.
+     * @param subQueries the sub queries in evaluation order.
+     * @param nextCombinedQuery the next query in a combined query or null.
+     */
+    ResolvedQuery(DlmQueryType type, List<AbstractColumn> mainCols, List<AbstractColumn> filteredCols, List<ResolvedQuery> subQueries, ResolvedQuery nextCombinedQuery) {
+        this.type = type;
+        this.mainCols = mainCols;
+        this.filteredCols = filteredCols;
+        this.subQueries = subQueries;
+        this.nextCombinedQuery = nextCombinedQuery;
+    }
+
+    /**
+     * Returns the main columns of this query and all its nested queries. These
+     * are the same columns returned by {@link QueryFeature#getUsedCols()} once
+     * the grants are checked.
+     *
+     * @return the set of columns used by the query.
+     */
+    Set<AbstractColumn> getUsedCols() {
+        Set<AbstractColumn> used = new HashSet<>();
+        addUsedCols(used);
+        return used;
+    }
+
+    private void addUsedCols(Collection<AbstractColumn> used) {
+        for (ResolvedQuery sub : subQueries) {
+            sub.addUsedCols(used);
+        }
+        used.addAll(mainCols);
+        if (nextCombinedQuery != null) {
+            nextCombinedQuery.addUsedCols(used);
+        }
+    }
+}
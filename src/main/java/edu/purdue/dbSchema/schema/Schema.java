@@ -0,0 +1,170 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.utils.BoundedCache;
+import edu.purdue.dbSchema.utils.IColumnIndex;
+import edu.purdue.dbSchema.utils.IDbGrants;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Contains the tables and the grants the queries are resolved against. The
+ * instances published by {@link DatabaseEngine} are never modified after the
+ * publication, therefore they can be read by any number of threads without
+ * synchronization. A schema change is performed on a private copy, which
+ * replaces the published instance only once it is complete.
+ * <p>
+ * Every schema has its own cache of resolved queries, keyed by the template of
+ * the SQL string (see {@link edu.purdue.dbSchema.parser.SqlFingerprint}), so a
+ * schema change implicitly invalidates all the cached resolutions.
+ * <p>
+ * The schema assigns the ids of its tables and columns (see
+ * {@link Table#getId()}). Tables added by a schema change get the ids after the
+ * existing ones, so the ids of the shared tables are the same in every copy.
+ * A schema loaded from a {@link SchemaSnapshot} uses the ids of the snapshot,
+ * which numbers the tables and the columns again in name order.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class Schema implements IColumnIndex {
+
+    final Map<Name, Table> tables;
+    final IDbGrants grants;
+    final BoundedCache<String, List<ResolvedQuery>> queries;
+    private final int _queryCacheSize;
+    private final MappedSchema _mapped;
+    private final List<AbstractColumn> _columns;
+    private int _tableCount;
+
+    /**
+     * Creates a schema. The tables without an id are numbered after the
+     * others.
+     *
+     * @param tables the tables indexed by name.
+     * @param grants the grants on the tables.
+     * @param queryCacheSize the maximum number of resolved queries to cache, 0
+     * to disable the cache.
+     */
+    Schema(Map<Name, Table> tables, IDbGrants grants, int queryCacheSize) {
+        this(tables, grants, queryCacheSize, null, new ArrayList<AbstractColumn>());
+        List<Table> unnumbered = new ArrayList<>();
+        for (Table t : tables.values()) {
+            if (t.getId() < 0) {
+                unnumbered.add(t);
+            } else {
+                _tableCount = Math.max(_tableCount, t.getId() + 1);
+                index(t);
+            }
+        }
+        for (Table t : unnumbered) {
+            t.assignIds(_tableCount++, _columns.size());
+            index(t);
+        }
+    }
+
+    /**
+     * Creates a read only schema whose tables are created on demand.
+     *
+     * @param mapped the snapshot.
+     * @param queryCacheSize the maximum number of resolved queries to cache, 0
+     * to disable the cache.
+     */
+    Schema(MappedSchema mapped, int queryCacheSize) {
+        this(mapped.tables, mapped.grants, queryCacheSize, mapped, null);
+    }
+
+    private Schema(Map<Name, Table> tables, IDbGrants grants, int queryCacheSize, MappedSchema mapped, List<AbstractColumn> columns) {
+        this.tables = tables;
+        this.grants = grants;
+        _queryCacheSize = queryCacheSize;
+        _mapped = mapped;
+        _columns = columns;
+        queries = queryCacheSize > 0 ? new BoundedCache<String, List<ResolvedQuery>>(queryCacheSize) : null;
+    }
+
+    /**
+     * Adds a new table, assigning the ids of the table and of its columns.
+     * The caller checks that the name is not used.
+     *
+     * @param table the table, which must not be part of another schema.
+     * @throws IllegalStateException if the table has already an id.
+     * @throws UnsupportedOperationException if the schema is lazily loaded.
+     */
+    void add(Table table) throws IllegalStateException, UnsupportedOperationException {
+        if (_mapped != null) {
+            throw new UnsupportedOperationException("read only schema");
+        }
+        table.assignIds(_tableCount, _columns.size());
+        _tableCount++;
+        tables.put(table.getName(), table);
+        index(table);
+    }
+
+    private void index(Table table) {
+        for (AbstractColumn col : table.getColumns()) {
+            int id = col.getId();
+            if (id >= 0 && col.getTable() == table) {
+                while (_columns.size() <= id) {
+                    _columns.add(null);
+                }
+                _columns.set(id, col);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a column of this schema.
+     *
+     * @param column the column.
+     * @return the id or -1 if the column is not part of this schema.
+     * @throws NullPointerException if column is null.
+     */
+    @Override
+    public int getId(AbstractColumn column) throws NullPointerException {
+        if (_mapped != null) {
+            return _mapped.getId(column);
+        }
+        int id = column.getId();
+        return id >= 0 && id < _columns.size() && _columns.get(id) == column ? id : -1;
+    }
+
+    @Override
+    public AbstractColumn getColumn(int id) throws IndexOutOfBoundsException {
+        if (_mapped != null) {
+            return _mapped.getColumn(id);
+        }
+        AbstractColumn ret = _columns.get(id);
+        if (ret == null) {
+            throw new IndexOutOfBoundsException("no column " + id);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a copy of this schema which can be modified without affecting
+     * this instance. Tables are shared between the copies because they are
+     * never modified once added to a schema. Copying a lazily loaded schema
+     * creates all its tables.
+     *
+     * @return a new schema.
+     */
+    Schema copy() {
+        if (_mapped != null) {
+            return new Schema(new TreeMap<>(tables), grants.copy(), _queryCacheSize);
+        }
+        Schema ret = new Schema(new TreeMap<>(tables), grants.copy(), _queryCacheSize, null, new ArrayList<>(_columns));
+        ret._tableCount = _tableCount;
+        return ret;
+    }
+
+    /**
+     * Returns the size of the cache of resolved queries.
+     *
+     * @return the maximum number of resolved queries to cache, 0 if the cache
+     * is disabled.
+     */
+    int getQueryCacheSize() {
+        return _queryCacheSize;
+    }
+}
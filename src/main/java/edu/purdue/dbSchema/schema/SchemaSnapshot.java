@@ -0,0 +1,369 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.utils.CompactBitmap;
+import edu.purdue.dbSchema.utils.DbGrants;
+import edu.purdue.dbSchema.utils.IDbGrants;
+import edu.purdue.dbSchema.utils.IGrantVisitor;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes a {@link DatabaseEngine} in a compact binary format, much
+ * faster to load than the Java serialization and independent of the class
+ * layout. All the numbers are big endian. The file contains:
+ * <ul>
+ * <li>a header of {@value #HEADER_SIZE} bytes: the magic number
+ * {@value #MAGIC}, the format version, the index of the vendor name in the
+ * string table, the number of strings, tables, columns, roles and role grants,
+ * and the offset of every section;</li>
+ * <li>the string table: the offsets of every string followed by the UTF-8
+ * bytes of all the strings. Names are stored as written in the DDL, types as
+ * they are;</li>
+ * <li>the table directory: for every table the name, the id of its first
+ * column and the number of columns, sorted by normalized name. The columns of
+ * a table have consecutive ids;</li>
+ * <li>the columns: for every column the name, the type and the flags;</li>
+ * <li>the roles: the name of every role, then every role grant as a pair of
+ * role ids;</li>
+ * <li>the permissions: for every role the columns it can read and the ones it
+ * can write, as {@link CompactBitmap}s of column ids.</li>
+ * </ul>
+ * Names and types are indexes in the string table, each string is stored once.
+ * The table directory and the columns have fixed size entries, so a table can
+ * be found and decoded without reading the others (see
+ * {@link #open(java.nio.file.Path)}).
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class SchemaSnapshot {
+
+    /**
+     * The first four bytes of every snapshot ("DBSC").
+     */
+    public static final int MAGIC = 0x44425343;
+
+    /**
+     * The format version written by this class.
+     */
+    public static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 72;
+    static final int TABLE_ENTRY_SIZE = 12;
+    static final int COLUMN_ENTRY_SIZE = 12;
+    static final int FLAG_NOT_NULL = 1;
+    static final int FLAG_UNIQUE = 2;
+
+    private SchemaSnapshot() {
+    }
+
+    /**
+     * Checks if a file starts with the snapshot magic number.
+     *
+     * @param file the file to check.
+     * @return true if the file looks like a snapshot.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && ch.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the current schema of a database to a file.
+     *
+     * @param db the database.
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(DatabaseEngine db, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(db, out);
+        }
+    }
+
+    /**
+     * Writes the current schema of a database to a stream.
+     *
+     * @param db the database.
+     * @param out the stream, which is not closed.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static void write(DatabaseEngine db, OutputStream out) throws IOException {
+        new Writer(db.getDbVendor(), db.schema()).write(out);
+    }
+
+    /**
+     * Loads a database from a snapshot, using the default grants container and
+     * query cache.
+     *
+     * @param file the snapshot.
+     * @return the database.
+     * @throws IOException if the file cannot be read or is not a valid
+     * snapshot.
+     */
+    public static DatabaseEngine read(Path file) throws IOException {
+        return read(file, DatabaseEngine.DEFAULT_QUERY_CACHE_SIZE, new DbGrants());
+    }
+
+    /**
+     * Loads a database from a snapshot, creating all the tables.
+     *
+     * @param file the snapshot.
+     * @param queryCacheSize the maximum number of query templates cached, 0 to
+     * disable the cache.
+     * @param grants an empty grants container to fill.
+     * @return the database.
+     * @throws IOException if the file cannot be read or is not a valid
+     * snapshot.
+     * @throws IllegalArgumentException if queryCacheSize is negative.
+     */
+    public static DatabaseEngine read(Path file, int queryCacheSize, final IDbGrants grants) throws IOException, IllegalArgumentException {
+        if (queryCacheSize < 0) {
+            throw new IllegalArgumentException("queryCacheSize must not be negative");
+        }
+        MappedSchema mapped = new MappedSchema(map(file));
+        try {
+            TreeMap<Name, Table> tables = new TreeMap<>(mapped.tables);
+            mapped.grants.accept(new IGrantVisitor() {
+                @Override
+                public void visitRole(Name role, Name to) {
+                    try {
+                        grants.grantRole(role, to);
+                    } catch (SqlSemanticException ex) {
+                        throw new IllegalStateException("grants not empty", ex);
+                    }
+                }
+
+                @Override
+                public void visitRead(AbstractColumn column, Name to) {
+                    grants.grantRead(column, to);
+                }
+
+                @Override
+                public void visitWrite(AbstractColumn column, Name to) {
+                    grants.grantWrite(column, to);
+                }
+            });
+            return new DatabaseEngine(mapped.vendor, new Schema(tables, grants, queryCacheSize));
+        } catch (IllegalStateException | IndexOutOfBoundsException ex) {
+            throw new IOException("corrupted snapshot", ex);
+        }
+    }
+
+    /**
+     * Opens a snapshot without loading it: the file is memory mapped and the
+     * tables are created the first time they are used, so opening is fast
+     * even for huge schemas and the memory used follows the tables actually
+     * queried. The database is read only until its first schema change, which
+     * creates all the tables. Uses the default query cache.
+     *
+     * @param file the snapshot.
+     * @return the database.
+     * @throws IOException if the file cannot be read or is not a valid
+     * snapshot.
+     */
+    public static DatabaseEngine open(Path file) throws IOException {
+        return open(file, DatabaseEngine.DEFAULT_QUERY_CACHE_SIZE);
+    }
+
+    /**
+     * Opens a snapshot without loading it. See
+     * {@link #open(java.nio.file.Path)}.
+     *
+     * @param file the snapshot.
+     * @param queryCacheSize the maximum number of query templates cached, 0 to
+     * disable the cache.
+     * @return the database.
+     * @throws IOException if the file cannot be read or is not a valid
+     * snapshot.
+     * @throws IllegalArgumentException if queryCacheSize is negative.
+     */
+    public static DatabaseEngine open(Path file, int queryCacheSize) throws IOException, IllegalArgumentException {
+        if (queryCacheSize < 0) {
+            throw new IllegalArgumentException("queryCacheSize must not be negative");
+        }
+        MappedSchema mapped = new MappedSchema(map(file));
+        return new DatabaseEngine(mapped.vendor, new Schema(mapped, queryCacheSize));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    /**
+     * Assigns the ids and lays out the sections.
+     */
+    private static final class Writer implements IGrantVisitor {
+
+        private final EDbVendor _vendor;
+        private final Schema _schema;
+        private final Map<String, Integer> _stringIds = new HashMap<>();
+        private final List<String> _strings = new ArrayList<>();
+        private final Map<AbstractColumn, Integer> _columnIds = new HashMap<>();
+        private final Map<Name, Integer> _roleIds = new HashMap<>();
+        private final List<Name> _roles = new ArrayList<>();
+        private final List<CompactBitmap> _read = new ArrayList<>();
+        private final List<CompactBitmap> _write = new ArrayList<>();
+        private final ByteArrayOutputStream _edges = new ByteArrayOutputStream();
+        private int _edgeCount;
+
+        Writer(EDbVendor vendor, Schema schema) {
+            _vendor = vendor;
+            _schema = schema;
+        }
+
+        void write(OutputStream out) throws IOException {
+            int vendorId = string(_vendor.name());
+
+            ByteArrayOutputStream tables = new ByteArrayOutputStream();
+            ByteArrayOutputStream columns = new ByteArrayOutputStream();
+            DataOutputStream tablesOut = new DataOutputStream(tables);
+            DataOutputStream columnsOut = new DataOutputStream(columns);
+            for (Table t : _schema.tables.values()) { // sorted by normalized name
+                Collection<AbstractColumn> cols = t.getColumns();
+                tablesOut.writeInt(string(t.getName().getOriginalName()));
+                tablesOut.writeInt(_columnIds.size());
+                tablesOut.writeInt(cols.size());
+                for (AbstractColumn col : cols) {
+                    RealColumn real = (RealColumn) col;
+                    columnsOut.writeInt(string(real.getName().getOriginalName()));
+                    columnsOut.writeInt(string(real.getType()));
+                    columnsOut.writeInt((real.isNotNull() ? FLAG_NOT_NULL : 0) | (real.isUnique() ? FLAG_UNIQUE : 0));
+                    _columnIds.put(col, _columnIds.size());
+                }
+            }
+
+            _schema.grants.accept(this);
+            ByteArrayOutputStream roles = new ByteArrayOutputStream();
+            DataOutputStream rolesOut = new DataOutputStream(roles);
+            for (Name role : _roles) {
+                rolesOut.writeInt(string(role.getOriginalName()));
+            }
+            _edges.writeTo(rolesOut);
+            ByteArrayOutputStream grants = new ByteArrayOutputStream();
+            DataOutputStream grantsOut = new DataOutputStream(grants);
+            for (int i = 0; i < _roles.size(); i++) {
+                _read.get(i).writeTo(grantsOut);
+                _write.get(i).writeTo(grantsOut);
+            }
+
+            ByteArrayOutputStream strings = new ByteArrayOutputStream();
+            DataOutputStream stringsOut = new DataOutputStream(strings);
+            List<byte[]> encoded = new ArrayList<>(_strings.size());
+            int offset = 0;
+            for (String s : _strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                stringsOut.writeInt(offset);
+                offset += bytes.length;
+            }
+            stringsOut.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                stringsOut.write(bytes);
+            }
+
+            DataOutputStream dout = new DataOutputStream(out);
+            long stringsOffset = HEADER_SIZE;
+            long tablesOffset = stringsOffset + strings.size();
+            long columnsOffset = tablesOffset + tables.size();
+            long rolesOffset = columnsOffset + columns.size();
+            long grantsOffset = rolesOffset + roles.size();
+            dout.writeInt(MAGIC);
+            dout.writeShort(VERSION);
+            dout.writeShort(0);
+            dout.writeInt(vendorId);
+            dout.writeInt(_strings.size());
+            dout.writeInt(_schema.tables.size());
+            dout.writeInt(_columnIds.size());
+            dout.writeInt(_roles.size());
+            dout.writeInt(_edgeCount);
+            dout.writeLong(stringsOffset);
+            dout.writeLong(tablesOffset);
+            dout.writeLong(columnsOffset);
+            dout.writeLong(rolesOffset);
+            dout.writeLong(grantsOffset);
+            strings.writeTo(dout);
+            tables.writeTo(dout);
+            columns.writeTo(dout);
+            roles.writeTo(dout);
+            grants.writeTo(dout);
+            dout.flush();
+        }
+
+        private int string(String s) {
+            Integer id = _stringIds.get(s);
+            if (id == null) {
+                id = _strings.size();
+                _stringIds.put(s, id);
+                _strings.add(s);
+            }
+            return id;
+        }
+
+        private int role(Name role) {
+            Integer id = _roleIds.get(role);
+            if (id == null) {
+                id = _roles.size();
+                _roleIds.put(role, id);
+                _roles.add(role);
+                _read.add(new CompactBitmap());
+                _write.add(new CompactBitmap());
+            }
+            return id;
+        }
+
+        private int column(AbstractColumn col) {
+            Integer id = _columnIds.get(col);
+            if (id == null) {
+                throw new IllegalStateException("grant on a column outside the schema: " + col);
+            }
+            return id;
+        }
+
+        @Override
+        public void visitRole(Name role, Name to) {
+            int roleId = role(role);
+            int toId = role(to);
+            try {
+                DataOutputStream out = new DataOutputStream(_edges);
+                out.writeInt(roleId);
+                out.writeInt(toId);
+            } catch (IOException ex) {
+                throw new AssertionError(ex); // never thrown by a byte array
+            }
+            _edgeCount++;
+        }
+
+        @Override
+        public void visitRead(AbstractColumn column, Name to) {
+            _read.get(role(to)).add(column(column));
+        }
+
+        @Override
+        public void visitWrite(AbstractColumn column, Name to) {
+            _write.get(role(to)).add(column(column));
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package edu.purdue.dbSchema.schema;
 
 import edu.purdue.dbSchema.erros.SqlSemanticException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
@@ -15,8 +17,11 @@ import java.util.TreeMap;
  */
 public class Table implements Serializable {
 
+    private static final long serialVersionUID = 4351800591634898648L;
+
     private final Name _name;
     private final Map<Name, AbstractColumn> _cols;
+    private transient int _id = -1;
 
     /**
      * Creates a table with the specified name.
@@ -57,12 +62,28 @@ public class Table implements Serializable {
      * @throws IllegalArgumentException if name or type are empty.
      */
     public Table addColumn(String name, String type, boolean notNull, boolean unique) throws SqlSemanticException, NullPointerException, IllegalAccessError {
-        Name normalizedName = new Name(name);
-        if (_cols.containsKey(normalizedName)) {
+        return addColumn(new Name(name), type, notNull, unique);
+    }
+
+    /**
+     * Adds a column to the table.
+     *
+     * @param name the column name.
+     * @param type the colum type.
+     * @param notNull if the column is not not null.
+     * @param unique if the column is unique or primary key.
+     * @return the current table.
+     * @throws SqlSemanticException if the current table contains already a
+     * column with the specified name.
+     * @throws NullPointerException if name or type are null.
+     * @throws IllegalArgumentException if type is empty.
+     */
+    Table addColumn(Name name, String type, boolean notNull, boolean unique) throws SqlSemanticException, NullPointerException, IllegalArgumentException {
+        if (_cols.containsKey(name)) {
             throw new SqlSemanticException("column '%s' specified more than once", name);
         }
-        RealColumn col = new RealColumn(normalizedName, type, notNull, unique, this);
-        _cols.put(normalizedName, col);
+        RealColumn col = new RealColumn(name, type, notNull, unique, this);
+        _cols.put(name, col);
         return this;
     }
 
@@ -81,6 +102,47 @@ public class Table implements Serializable {
         return _name;
     }
 
+    /**
+     * Returns the id of this table. The ids are dense integers assigned when
+     * the table is added to a database, starting from 0. See
+     * {@link AbstractColumn#getId()}.
+     *
+     * @return the id or -1 if the table is not in a database.
+     */
+    public int getId() {
+        return _id;
+    }
+
+    /**
+     * Assigns the ids of this table and of its columns. The columns receive
+     * consecutive ids in name order; columns borrowed from other tables are
+     * not numbered.
+     *
+     * @param id the id of the table.
+     * @param firstColumnId the id of the first column.
+     * @return the id after the one of the last column.
+     * @throws IllegalStateException if the table has already an id.
+     */
+    int assignIds(int id, int firstColumnId) throws IllegalStateException {
+        if (_id >= 0) {
+            throw new IllegalStateException("table '" + _name + "' has already an id");
+        }
+        _id = id;
+        int next = firstColumnId;
+        for (AbstractColumn col : _cols.values()) {
+            if (col.getTable() == this) {
+                col.setId(next++);
+            }
+        }
+        return next;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // the ids are assigned again by the schema the table is added to
+        _id = -1;
+    }
+
     /**
      * Returns an unmodifiable collection containing all the columns in the
      * table.
@@ -149,7 +211,7 @@ public class Table implements Serializable {
      * @throws IllegalArgumentException if name is empty.
      */
     public AbstractColumn getColumn(String name) throws IllegalArgumentException, NullPointerException {
-        return getColumn(new Name(name));
+        return getColumn(Name.valueOf(name));
     }
 
 }
@@ -13,6 +13,8 @@ import java.util.Set;
  */
 public class VirtualColumn extends AbstractColumn {
 
+    private static final long serialVersionUID = -1646351716214038732L;
+
     Set<AbstractColumn> _mappedTo;
 
     public VirtualColumn(Table table, Name name) {
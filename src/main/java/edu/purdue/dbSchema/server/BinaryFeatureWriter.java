@@ -0,0 +1,178 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryResult;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the results as a stream of binary records, in the big-endian
+ * encoding of {@link DataOutputStream}. Columns and roles are written as ids:
+ * the first time a column or a role appears, a definition record binding its
+ * id to its name precedes the result, so the stream is self-contained and a
+ * reader only needs to keep two arrays of names. Ids are dense and start from
+ * 0, separately for columns and roles. Columns are identified by their
+ * normalized name, so the virtual columns of a sub-query repeated in many
+ * results are defined only once.
+ * <p>
+ * The stream starts with the int {@link #MAGIC} and the short
+ * {@link #VERSION}, followed by records, each one introduced by a tag byte:
+ * <ul>
+ * <li>{@link #COLUMN}: int id, UTF <code>table.column</code> normalized
+ * name;</li>
+ * <li>{@link #ROLE}: int id, UTF normalized name;</li>
+ * <li>{@link #FEATURES}: int n, then n features, each one made of a byte with
+ * the ordinal of the query type, and three lists of ids (used columns,
+ * filtered columns and roles), each one an int length followed by the
+ * ids;</li>
+ * <li>{@link #ERROR}: UTF simple name of the exception, UTF message (empty if
+ * missing).</li>
+ * </ul>
+ * Every result produces exactly one {@link #FEATURES} or {@link #ERROR}
+ * record, in the order they are written.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class BinaryFeatureWriter implements FeatureWriter {
+
+    /**
+     * The first int of the stream, "DBSF".
+     */
+    public static final int MAGIC = 0x44425346;
+    /**
+     * The format version.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Tag of a column definition.
+     */
+    public static final byte COLUMN = 'C';
+    /**
+     * Tag of a role definition.
+     */
+    public static final byte ROLE = 'R';
+    /**
+     * Tag of the features of a result.
+     */
+    public static final byte FEATURES = 'F';
+    /**
+     * Tag of a failed result.
+     */
+    public static final byte ERROR = 'E';
+
+    private final DataOutputStream _out;
+    private final Map<String, Integer> _columnIds = new HashMap<>();
+    private final Map<Name, Integer> _roleIds = new HashMap<>();
+    private final StringBuilder _name = new StringBuilder();
+    // the lists of column ids of the current result, each one preceded by its length
+    private int[] _ids = new int[16];
+    private int _idCount;
+
+    /**
+     * Creates a writer and writes the stream header. The output should be
+     * buffered.
+     *
+     * @param out where the records are written.
+     * @throws IOException if the header cannot be written.
+     * @throws NullPointerException if out is null.
+     */
+    public BinaryFeatureWriter(OutputStream out) throws IOException, NullPointerException {
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        _out = new DataOutputStream(out);
+        _out.writeInt(MAGIC);
+        _out.writeShort(VERSION);
+    }
+
+    @Override
+    public void write(QueryResult result) throws IOException {
+        if (!result.isSuccess()) {
+            writeFailure(result.getError());
+            return;
+        }
+        // the definitions must precede the record
+        _idCount = 0;
+        for (QueryFeature feature : result.getFeatures()) {
+            define(feature.getUsedCols());
+            define(feature.getFilteredCols());
+            for (Name role : feature.getRoles()) {
+                if (!_roleIds.containsKey(role)) {
+                    int id = _roleIds.size();
+                    _roleIds.put(role, id);
+                    _out.writeByte(ROLE);
+                    _out.writeInt(id);
+                    _out.writeUTF(role.getName());
+                }
+            }
+        }
+        _out.writeByte(FEATURES);
+        _out.writeInt(result.getFeatures().size());
+        int pos = 0;
+        for (QueryFeature feature : result.getFeatures()) {
+            _out.writeByte(feature.getType().ordinal());
+            pos = writeColumnIds(pos);
+            pos = writeColumnIds(pos);
+            _out.writeInt(feature.getRoles().size());
+            for (Name role : feature.getRoles()) {
+                _out.writeInt(_roleIds.get(role));
+            }
+        }
+    }
+
+    @Override
+    public void writeFailure(Throwable error) throws IOException {
+        _out.writeByte(ERROR);
+        _out.writeUTF(error.getClass().getSimpleName());
+        _out.writeUTF(error.getMessage() == null ? "" : error.getMessage());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    private void define(Collection<AbstractColumn> cols) throws IOException {
+        append(cols.size());
+        for (AbstractColumn col : cols) {
+            _name.setLength(0);
+            if (col.getTable() != null) {
+                _name.append(col.getTable().getName().getName()).append('.');
+            }
+            _name.append(col.getName().getName());
+            String name = _name.toString();
+            Integer id = _columnIds.get(name);
+            if (id == null) {
+                id = _columnIds.size();
+                _columnIds.put(name, id);
+                _out.writeByte(COLUMN);
+                _out.writeInt(id);
+                _out.writeUTF(name);
+            }
+            append(id);
+        }
+    }
+
+    private void append(int value) {
+        if (_idCount == _ids.length) {
+            _ids = Arrays.copyOf(_ids, 2 * _ids.length);
+        }
+        _ids[_idCount++] = value;
+    }
+
+    private int writeColumnIds(int pos) throws IOException {
+        int size = _ids[pos++];
+        _out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            _out.writeInt(_ids[pos++]);
+        }
+        return pos;
+    }
+}
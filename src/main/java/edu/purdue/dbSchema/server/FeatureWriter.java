@@ -0,0 +1,38 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.QueryResult;
+import java.io.IOException;
+
+/**
+ * Encodes the results of the feature extraction on an output stream. The
+ * writers buffer their output, so {@link #flush()} has to be called to make
+ * the records visible to the reader.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public interface FeatureWriter {
+
+    /**
+     * Writes the result of a query, either its features or its error.
+     *
+     * @param result the result to write.
+     * @throws IOException if the output cannot be written.
+     */
+    void write(QueryResult result) throws IOException;
+
+    /**
+     * Writes the answer to a request which could not be evaluated at all, e.g.
+     * because it is malformed.
+     *
+     * @param error the reason of the failure.
+     * @throws IOException if the output cannot be written.
+     */
+    void writeFailure(Throwable error) throws IOException;
+
+    /**
+     * Writes the buffered records to the underlying stream.
+     *
+     * @throws IOException if the output cannot be written.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,155 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import edu.purdue.dbSchema.schema.QueryResult;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * Writes the results as JSON Lines, one object per result:
+ * <pre>
+ * {"sql":"...","user":"...","features":[{"type":"SELECT","used":["t.a"],"filtered":["t.b"],"roles":["r"]}]}
+ * {"sql":"...","user":"...","error":{"type":"SqlParseException","message":"..."}}
+ * </pre> The columns are <code>table.column</code> normalized names and the
+ * roles are the ones used to authorize the query. A request which could not
+ * be evaluated at all has only the <code>error</code> member.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class JsonFeatureWriter implements FeatureWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer _out;
+    private final StringBuilder _line = new StringBuilder(256);
+
+    /**
+     * Creates a writer. The output should be buffered.
+     *
+     * @param out where the lines are written.
+     * @throws NullPointerException if out is null.
+     */
+    public JsonFeatureWriter(Writer out) throws NullPointerException {
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        _out = out;
+    }
+
+    @Override
+    public void write(QueryResult result) throws IOException {
+        QueryRecord record = result.getRecord();
+        _line.setLength(0);
+        _line.append("{\"sql\":");
+        string(record.getSql());
+        _line.append(",\"user\":");
+        string(record.getUsername());
+        if (result.isSuccess()) {
+            _line.append(",\"features\":[");
+            int n = 0;
+            for (QueryFeature feature : result.getFeatures()) {
+                if (n++ > 0) {
+                    _line.append(',');
+                }
+                _line.append("{\"type\":\"").append(feature.getType()).append("\",\"used\":");
+                columns(feature.getUsedCols());
+                _line.append(",\"filtered\":");
+                columns(feature.getFilteredCols());
+                _line.append(",\"roles\":[");
+                int r = 0;
+                for (Name role : feature.getRoles()) {
+                    if (r++ > 0) {
+                        _line.append(',');
+                    }
+                    string(role.getName());
+                }
+                _line.append("]}");
+            }
+            _line.append(']');
+        } else {
+            _line.append(',');
+            error(result.getError());
+        }
+        _out.append(_line.append("}\n"));
+    }
+
+    @Override
+    public void writeFailure(Throwable error) throws IOException {
+        _line.setLength(0);
+        _line.append('{');
+        error(error);
+        _out.append(_line.append("}\n"));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    private void error(Throwable error) {
+        _line.append("\"error\":{\"type\":\"").append(error.getClass().getSimpleName()).append("\",\"message\":");
+        if (error.getMessage() == null) {
+            _line.append("null");
+        } else {
+            string(error.getMessage());
+        }
+        _line.append('}');
+    }
+
+    private void columns(Collection<AbstractColumn> cols) {
+        _line.append('[');
+        int n = 0;
+        for (AbstractColumn col : cols) {
+            if (n++ > 0) {
+                _line.append(',');
+            }
+            _line.append('"');
+            if (col.getTable() != null) {
+                escape(col.getTable().getName().getName());
+                _line.append('.');
+            }
+            escape(col.getName().getName());
+            _line.append('"');
+        }
+        _line.append(']');
+    }
+
+    private void string(CharSequence s) {
+        _line.append('"');
+        escape(s);
+        _line.append('"');
+    }
+
+    private void escape(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    _line.append("\\\"");
+                    break;
+                case '\\':
+                    _line.append("\\\\");
+                    break;
+                case '\n':
+                    _line.append("\\n");
+                    break;
+                case '\r':
+                    _line.append("\\r");
+                    break;
+                case '\t':
+                    _line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        _line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    } else {
+                        _line.append(c);
+                    }
+            }
+        }
+    }
+}
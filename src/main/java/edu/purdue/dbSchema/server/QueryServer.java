@@ -0,0 +1,281 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import edu.purdue.dbSchema.schema.QueryResult;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the features of the queries received over TCP connections. The
+ * schema is loaded once, so the clients do not pay the start up of a new JVM
+ * for every batch of queries.
+ * <p>
+ * A request is a line <code>user&lt;TAB&gt;sql</code> where both fields are
+ * escaped as described in {@link Tsv}; empty lines are ignored. Every request
+ * gets exactly one answer, written by a {@link TsvFeatureWriter}, and the
+ * answers of a connection are in the same order of its requests. A client can
+ * send many requests before reading the answers: they are evaluated in
+ * parallel by a fixed number of workers shared by all the connections.
+ * <p>
+ * Each connection has at most a given number of requests in flight. When the
+ * limit is reached the server stops reading the connection until the client
+ * reads some answers, so a fast client is slowed down by TCP flow control
+ * instead of filling the memory of the server.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class QueryServer implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryServer.class.getName());
+
+    /**
+     * The default number of requests in flight for each connection.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private static final Future<QueryResult> END = new CompletableFuture<>();
+
+    private final DatabaseEngine _db;
+    private final int _maxInFlight;
+    private final ExecutorService _workers;
+    private final ExecutorService _connections;
+    private final Set<Socket> _sockets = ConcurrentHashMap.newKeySet();
+    private ServerSocket _server;
+    private Thread _acceptor;
+
+    /**
+     * Creates a server, which does not listen until
+     * {@link #start(java.net.InetSocketAddress)} is called.
+     *
+     * @param db the database used to evaluate the queries.
+     * @param workers the number of threads evaluating the queries.
+     * @param maxInFlight the maximum number of requests of a connection that
+     * are queued or evaluated but whose answer is not written yet.
+     * @throws NullPointerException if db is null.
+     * @throws IllegalArgumentException if workers or maxInFlight are not
+     * positive.
+     */
+    public QueryServer(DatabaseEngine db, int workers, int maxInFlight) throws NullPointerException, IllegalArgumentException {
+        if (db == null) {
+            throw new NullPointerException("db");
+        }
+        if (workers < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("workers and maxInFlight must be positive");
+        }
+        _db = db;
+        _maxInFlight = maxInFlight;
+        _workers = Executors.newFixedThreadPool(workers, daemonThreads("query-worker-"));
+        _connections = Executors.newCachedThreadPool(daemonThreads("query-connection-"));
+    }
+
+    /**
+     * Starts listening on an address. Use port 0 to pick a free port.
+     *
+     * @param address the address to bind.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalStateException if the server has been already started.
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException, IllegalStateException {
+        if (_server != null) {
+            throw new IllegalStateException("already started");
+        }
+        _server = new ServerSocket();
+        _server.bind(address);
+        _acceptor = daemonThreads("query-acceptor-").newThread(this::accept);
+        _acceptor.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port.
+     * @throws IllegalStateException if the server has not been started.
+     */
+    public synchronized int getPort() throws IllegalStateException {
+        if (_server == null) {
+            throw new IllegalStateException("not started");
+        }
+        return _server.getLocalPort();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException if the current thread is interrupted.
+     * @throws IllegalStateException if the server has not been started.
+     */
+    public void join() throws InterruptedException, IllegalStateException {
+        Thread acceptor;
+        synchronized (this) {
+            if (_acceptor == null) {
+                throw new IllegalStateException("not started");
+            }
+            acceptor = _acceptor;
+        }
+        acceptor.join();
+    }
+
+    /**
+     * Stops listening and closes all the connections. The answers not written
+     * yet are lost.
+     *
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        _workers.shutdownNow();
+        _connections.shutdownNow();
+        for (Socket s : _sockets) {
+            closeQuietly(s);
+        }
+        if (_server != null) {
+            _server.close();
+        }
+    }
+
+    private void accept() {
+        while (!_server.isClosed()) {
+            try {
+                Socket socket = _server.accept();
+                _sockets.add(socket);
+                _connections.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                if (!_server.isClosed()) {
+                    LOGGER.log(Level.WARNING, "cannot accept a connection", ex);
+                }
+            } catch (RuntimeException ex) {
+                // the pools are shut down
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the requests of a connection while another thread writes the
+     * answers.
+     */
+    private void serve(Socket socket) {
+        BlockingQueue<Future<QueryResult>> pending = new ArrayBlockingQueue<>(_maxInFlight);
+        try {
+            Future<?> answers = _connections.submit(() -> answer(socket, pending));
+            try {
+                // the reader is not closed, it would close the socket before the last answers
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        pending.put(submit(line));
+                    }
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "connection closed by the client", ex);
+            } finally {
+                pending.put(END);
+                answers.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "connection aborted", ex);
+        } finally {
+            closeQuietly(socket);
+            _sockets.remove(socket);
+        }
+    }
+
+    private Future<QueryResult> submit(String line) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            CompletableFuture<QueryResult> ret = new CompletableFuture<>();
+            ret.completeExceptionally(new IllegalArgumentException("expected user<TAB>sql"));
+            return ret;
+        }
+        QueryRecord record = new QueryRecord(Tsv.unescape(line, tab + 1, line.length()), Tsv.unescape(line, 0, tab));
+        return _workers.submit(() -> _db.parse(record));
+    }
+
+    /**
+     * Writes the answers in the order of the requests, flushing only when no
+     * other answer is pending. If the client goes away the remaining requests
+     * are cancelled until the reader queues {@link #END}.
+     */
+    private void answer(Socket socket, BlockingQueue<Future<QueryResult>> pending) {
+        FeatureWriter writer;
+        try {
+            writer = new TsvFeatureWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "connection closed by the client", ex);
+            writer = null;
+            closeQuietly(socket);
+        }
+        try {
+            Future<QueryResult> next;
+            while ((next = pending.take()) != END) {
+                if (writer == null) {
+                    next.cancel(false);
+                    continue;
+                }
+                try {
+                    try {
+                        writer.write(next.get());
+                    } catch (ExecutionException ex) {
+                        writer.writeFailure(ex.getCause());
+                    }
+                    if (pending.isEmpty()) {
+                        writer.flush();
+                    }
+                } catch (IOException ex) {
+                    LOGGER.log(Level.FINE, "connection closed by the client", ex);
+                    writer = null;
+                    closeQuietly(socket);
+                }
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "connection closed by the client", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "cannot close a connection", ex);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package edu.purdue.dbSchema.server;
+
+/**
+ * Escapes the fields of tab separated records. Backslashes, tabs and line
+ * breaks are written as <code>\\</code>, <code>\t</code>, <code>\n</code> and
+ * <code>\r</code>, so a record always fits in a single line.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+final class Tsv {
+
+    private Tsv() {
+    }
+
+    /**
+     * Appends an escaped field.
+     *
+     * @param field the field to escape.
+     * @param out where the field is appended.
+     * @return out.
+     */
+    static StringBuilder escape(CharSequence field, StringBuilder out) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Decodes an escaped field. Unknown escape sequences and a trailing
+     * backslash are kept as they are.
+     *
+     * @param line the line containing the field.
+     * @param from the index of the first character of the field.
+     * @param to the index after the last character of the field.
+     * @return the field.
+     */
+    static String unescape(String line, int from, int to) {
+        int i = line.indexOf('\\', from);
+        if (i < 0 || i >= to) {
+            return line.substring(from, to);
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        sb.append(line, from, i);
+        for (; i < to; i++) {
+            char c = line.charAt(i);
+            if (c != '\\' || i + 1 == to) {
+                sb.append(c);
+                continue;
+            }
+            char next = line.charAt(++i);
+            switch (next) {
+                case '\\':
+                    sb.append('\\');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    sb.append(c).append(next);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryResult;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * Writes the results as tab separated lines. A successful result is a line
+ * <code>OK&lt;TAB&gt;n</code> followed by n lines, one for each query
+ * contained in the request:
+ * <pre>
+ * type&lt;TAB&gt;used columns&lt;TAB&gt;filtered columns&lt;TAB&gt;roles
+ * </pre> where the columns are comma separated <code>table.column</code>
+ * normalized names and the roles are the ones used to authorize the query. A
+ * failure is a single line <code>ERR&lt;TAB&gt;exception&lt;TAB&gt;message</code>
+ * with the simple name of the exception class. The fields are escaped as
+ * described in {@link Tsv}.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class TsvFeatureWriter implements FeatureWriter {
+
+    private final Writer _out;
+    private final StringBuilder _line = new StringBuilder(256);
+
+    /**
+     * Creates a writer. The output should be buffered.
+     *
+     * @param out where the lines are written.
+     * @throws NullPointerException if out is null.
+     */
+    public TsvFeatureWriter(Writer out) throws NullPointerException {
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        _out = out;
+    }
+
+    @Override
+    public void write(QueryResult result) throws IOException {
+        if (!result.isSuccess()) {
+            writeFailure(result.getError());
+            return;
+        }
+        _line.setLength(0);
+        _line.append("OK\t").append(result.getFeatures().size()).append('\n');
+        for (QueryFeature feature : result.getFeatures()) {
+            _line.append(feature.getType()).append('\t');
+            appendColumns(feature.getUsedCols());
+            _line.append('\t');
+            appendColumns(feature.getFilteredCols());
+            _line.append('\t');
+            int n = 0;
+            for (Name role : feature.getRoles()) {
+                if (n++ > 0) {
+                    _line.append(',');
+                }
+                Tsv.escape(role.getName(), _line);
+            }
+            _line.append('\n');
+        }
+        _out.append(_line);
+    }
+
+    @Override
+    public void writeFailure(Throwable error) throws IOException {
+        _line.setLength(0);
+        _line.append("ERR\t").append(error.getClass().getSimpleName()).append('\t');
+        Tsv.escape(String.valueOf(error.getMessage()), _line).append('\n');
+        _out.append(_line);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    private void appendColumns(Collection<AbstractColumn> cols) {
+        int n = 0;
+        for (AbstractColumn col : cols) {
+            if (n++ > 0) {
+                _line.append(',');
+            }
+            if (col.getTable() != null) {
+                Tsv.escape(col.getTable().getName().getName(), _line).append('.');
+            }
+            Tsv.escape(col.getName().getName(), _line);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Contains a long-running server which loads a schema once and extracts the
+ * features of the queries received over a socket, and the writers which
+ * encode the features for the clients.
+ */
+package edu.purdue.dbSchema.server;
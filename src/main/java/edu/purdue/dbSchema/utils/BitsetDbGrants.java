@@ -0,0 +1,237 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implements the grants with a permission matrix. Columns and roles receive
+ * dense integer ids the first time they are granted, and the columns each role
+ * can read or write are kept in a {@link CompactBitmap}. A whole query is
+ * checked at once: its columns are collected in a bitmap which is intersected
+ * with the bitmaps of the roles of the user, from the closest to the farthest,
+ * until every column is covered.
+ * <p>
+ * This implementation uses much less memory than {@link DbGrants} when there
+ * are many roles and columns, and returns the same roles.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class BitsetDbGrants implements IDbGrants {
+
+    private static final long serialVersionUID = -1667511669332638815L;
+
+    private final RoleClosure<Name> _roleClosure;
+    private final Map<AbstractColumn, Integer> _columnIds;
+    private final List<AbstractColumn> _columns;
+    private final Map<Name, Integer> _roleIds;
+    private final List<Name> _roles;
+    private final List<CompactBitmap> _read;
+    private final List<CompactBitmap> _write;
+
+    private BitsetDbGrants(RoleClosure<Name> roleClosure, Map<AbstractColumn, Integer> columnIds, List<AbstractColumn> columns, Map<Name, Integer> roleIds, List<Name> roles, List<CompactBitmap> read, List<CompactBitmap> write) {
+        _roleClosure = roleClosure;
+        _columnIds = columnIds;
+        _columns = columns;
+        _roleIds = roleIds;
+        _roles = roles;
+        _read = read;
+        _write = write;
+    }
+
+    public BitsetDbGrants() {
+        this(new RoleClosure<Name>(), new HashMap<AbstractColumn, Integer>(), new ArrayList<AbstractColumn>(), new HashMap<Name, Integer>(), new ArrayList<Name>(), new ArrayList<CompactBitmap>(), new ArrayList<CompactBitmap>());
+    }
+
+    @Override
+    public IDbGrants copy() {
+        return new BitsetDbGrants(new RoleClosure<>(_roleClosure), new HashMap<>(_columnIds), new ArrayList<>(_columns), new HashMap<>(_roleIds), new ArrayList<>(_roles), copy(_read), copy(_write));
+    }
+
+    private static List<CompactBitmap> copy(List<CompactBitmap> bitmaps) {
+        List<CompactBitmap> ret = new ArrayList<>(bitmaps.size());
+        for (CompactBitmap b : bitmaps) {
+            ret.add(new CompactBitmap(b));
+        }
+        return ret;
+    }
+
+    @Override
+    public void grantRole(Name role, Name to) throws NullPointerException, SqlSemanticException {
+        if (_roleClosure.reaches(role, to)) {
+            throw new SqlSemanticException("role cycle detected");
+        }
+        _roleClosure.add(to, role);
+        addRole(role);
+        addRole(to);
+    }
+
+    @Override
+    public boolean grantRead(AbstractColumn column, Name to) throws NullPointerException {
+        return grant(_read, column, to);
+    }
+
+    @Override
+    public boolean grantWrite(AbstractColumn column, Name to) throws NullPointerException {
+        return grant(_write, column, to);
+    }
+
+    private boolean grant(List<CompactBitmap> grants, AbstractColumn column, Name to) throws NullPointerException {
+        if (column == null || to == null) {
+            throw new NullPointerException();
+        }
+        Integer columnId = _columnIds.get(column);
+        if (columnId == null) {
+            columnId = _columns.size();
+            _columnIds.put(column, columnId);
+            _columns.add(column);
+        }
+        return grants.get(addRole(to)).add(columnId);
+    }
+
+    /**
+     * Gives an id to a role, with no permissions, if it has none.
+     *
+     * @param role the role.
+     * @return the id of the role.
+     */
+    int addRole(Name role) {
+        Integer roleId = _roleIds.get(role);
+        if (roleId == null) {
+            roleId = _roles.size();
+            _roleIds.put(role, roleId);
+            _roles.add(role);
+            _read.add(new CompactBitmap());
+            _write.add(new CompactBitmap());
+        }
+        return roleId;
+    }
+
+    @Override
+    public int getRoleId(Name role) throws NullPointerException {
+        if (role == null) {
+            throw new NullPointerException();
+        }
+        Integer id = _roleIds.get(role);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public Name getRole(int id) throws IndexOutOfBoundsException {
+        return _roles.get(id);
+    }
+
+    @Override
+    public int getRoleCount() {
+        return _roles.size();
+    }
+
+    private int columnId(AbstractColumn column) {
+        Integer id = _columnIds.get(column);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Checks the permissions on a set of columns. The columns of the query are
+     * collected in a bitmap, then the grants of the roles of the user, from
+     * the closest, are removed from it until it is empty.
+     *
+     * @param roleClosure the roles reached by every user.
+     * @param roleIds the ids of the roles with at least a permission.
+     * @param grants the columns granted to every role, indexed by role id.
+     * @param columnIds returns the id of a column or -1 if the column was never
+     * granted.
+     * @param username the user.
+     * @param columns the columns to check.
+     * @param errorMsg the name of the permission, for the error message.
+     * @return the roles used.
+     * @throws NullPointerException if username is null.
+     * @throws UnauthorizedSqlException if a column is not granted.
+     */
+    static Set<Name> enforce(RoleClosure<Name> roleClosure, Map<Name, Integer> roleIds, List<CompactBitmap> grants, ToIntFunction<AbstractColumn> columnIds, Name username, Collection<AbstractColumn> columns, String errorMsg) throws NullPointerException, UnauthorizedSqlException {
+        if (username == null) {
+            throw new NullPointerException();
+        }
+        Set<Name> usedRoles = new HashSet<>();
+        CompactBitmap missing = new CompactBitmap();
+        boolean unknownColumn = false;
+        for (AbstractColumn col : columns) {
+            if (!col.isVirtual()) {
+                int id = columnIds.applyAsInt(col);
+                if (id < 0) { // never granted to anyone
+                    unknownColumn = true;
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+
+        List<Name> roles = roleClosure.get(username);
+        int rolesNum = roles == null ? 1 : roles.size();
+        for (int i = 0; i < rolesNum && !missing.isEmpty(); i++) {
+            Name role = roles == null ? username : roles.get(i);
+            Integer roleId = roleIds.get(role);
+            if (roleId != null && missing.intersects(grants.get(roleId))) {
+                usedRoles.add(role);
+                missing = missing.andNot(grants.get(roleId));
+            }
+        }
+        if (missing.isEmpty() && !unknownColumn) {
+            return usedRoles;
+        }
+
+        // report the first column in query order that is not granted
+        for (AbstractColumn col : columns) {
+            if (!col.isVirtual()) {
+                int id = columnIds.applyAsInt(col);
+                if (id < 0 || missing.contains(id)) {
+                    throw new UnauthorizedSqlException("the user '%s' has no right to %s '%s'", username, errorMsg, col.getName());
+                }
+            }
+        }
+        throw new AssertionError("missing column not found");
+    }
+
+    @Override
+    public void accept(IGrantVisitor visitor) throws NullPointerException {
+        if (visitor == null) {
+            throw new NullPointerException();
+        }
+        for (Name to : _roleClosure.nodes()) {
+            for (Name role : _roleClosure.successors(to)) {
+                visitor.visitRole(role, to);
+            }
+        }
+        for (int roleId = 0; roleId < _roles.size(); roleId++) {
+            CompactBitmap read = _read.get(roleId);
+            for (int col = read.nextSetBit(0); col >= 0; col = col < Integer.MAX_VALUE ? read.nextSetBit(col + 1) : -1) {
+                visitor.visitRead(_columns.get(col), _roles.get(roleId));
+            }
+        }
+        for (int roleId = 0; roleId < _roles.size(); roleId++) {
+            CompactBitmap write = _write.get(roleId);
+            for (int col = write.nextSetBit(0); col >= 0; col = col < Integer.MAX_VALUE ? write.nextSetBit(col + 1) : -1) {
+                visitor.visitWrite(_columns.get(col), _roles.get(roleId));
+            }
+        }
+    }
+
+    @Override
+    public Set<Name> enforceWrite(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException {
+        return enforce(_roleClosure, _roleIds, _write, this::columnId, username, columns, "write");
+    }
+
+    @Override
+    public Set<Name> enforceRead(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException {
+        return enforce(_roleClosure, _roleIds, _read, this::columnId, username, columns, "read");
+    }
+}
@@ -0,0 +1,141 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe cache which holds at most a fixed number of entries. The
+ * eviction policy is CLOCK, an approximation of LRU: every entry has a
+ * reference bit which is set on access and cleared by the eviction hand, which
+ * removes the first entry found not referenced since its last visit. Lookups
+ * never lock; only insertions exceeding the capacity synchronize, to move the
+ * eviction hand.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public class BoundedCache<K, V> {
+
+    private final int _capacity;
+    private final ConcurrentHashMap<K, Entry<V>> _entries;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private Iterator<Map.Entry<K, Entry<V>>> _hand;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the maximum number of entries.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public BoundedCache(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        _capacity = capacity;
+        _entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the value associated to a key.
+     *
+     * @param key the key.
+     * @return the value or null if the key is not cached.
+     * @throws NullPointerException if key is null.
+     */
+    public V get(K key) throws NullPointerException {
+        Entry<V> entry = _entries.get(key);
+        if (entry == null) {
+            _misses.increment();
+            return null;
+        }
+        if (!entry.referenced) { // avoids writing a shared cache line on every hit
+            entry.referenced = true;
+        }
+        _hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Associates a value to a key, evicting another entry if the cache is
+     * full.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @throws NullPointerException if key or value is null.
+     */
+    public void put(K key, V value) throws NullPointerException {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (_entries.put(key, new Entry<>(value)) == null && _entries.size() > _capacity) {
+            evict();
+        }
+    }
+
+    private synchronized void evict() {
+        while (_entries.size() > _capacity) {
+            if (_hand == null || !_hand.hasNext()) {
+                _hand = _entries.entrySet().iterator();
+                if (!_hand.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<K, Entry<V>> candidate = _hand.next();
+            Entry<V> entry = candidate.getValue();
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else if (_entries.remove(candidate.getKey(), entry)) {
+                _evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries. The statistics are not reset.
+     */
+    public void clear() {
+        _entries.clear();
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns a snapshot of the usage statistics of this cache.
+     *
+     * @return the statistics.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(_hits.sum(), _misses.sum(), _evictions.sum(), size(), _capacity);
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+        volatile boolean referenced;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+}
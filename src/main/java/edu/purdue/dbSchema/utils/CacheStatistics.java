@@ -0,0 +1,83 @@
+package edu.purdue.dbSchema.utils;
+
+/**
+ * An immutable snapshot of the usage statistics of a cache.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class CacheStatistics {
+
+    private final long _hits;
+    private final long _misses;
+    private final long _evictions;
+    private final int _size;
+    private final int _capacity;
+
+    public CacheStatistics(long hits, long misses, long evictions, int size, int capacity) {
+        _hits = hits;
+        _misses = misses;
+        _evictions = evictions;
+        _size = size;
+        _capacity = capacity;
+    }
+
+    /**
+     * Returns the number of lookups which found a value.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return _hits;
+    }
+
+    /**
+     * Returns the number of lookups which did not find a value.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return _misses;
+    }
+
+    /**
+     * Returns the number of entries removed to make room for new ones.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return _evictions;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Returns the maximum number of entries of the cache.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns the ratio between hits and lookups.
+     *
+     * @return the hit ratio, 0 if there were no lookups.
+     */
+    public double getHitRatio() {
+        long lookups = _hits + _misses;
+        return lookups == 0 ? 0 : (double) _hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits: %d, misses: %d, evictions: %d, size: %d/%d", _hits, _misses, _evictions, _size, _capacity);
+    }
+}
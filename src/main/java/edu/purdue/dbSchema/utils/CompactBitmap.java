@@ -0,0 +1,586 @@
+package edu.purdue.dbSchema.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compressed set of non negative integers. The values are split in chunks of
+ * 2^16 by their high bits and each chunk is stored either as a sorted array,
+ * when it is sparse, or as a plain bitmap, when it is dense. Set operations
+ * work chunk by chunk and, between dense chunks, word by word.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class CompactBitmap implements Serializable {
+
+    private static final Container[] NO_CONTAINERS = new Container[0];
+    private static final char[] NO_KEYS = new char[0];
+
+    private char[] _keys;
+    private Container[] _containers;
+    private int _size;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    public CompactBitmap() {
+        _keys = NO_KEYS;
+        _containers = NO_CONTAINERS;
+    }
+
+    /**
+     * Creates a copy of another bitmap.
+     *
+     * @param other the bitmap to copy.
+     * @throws NullPointerException if other is null.
+     */
+    public CompactBitmap(CompactBitmap other) throws NullPointerException {
+        _size = other._size;
+        _keys = Arrays.copyOf(other._keys, _size);
+        _containers = new Container[_size];
+        for (int i = 0; i < _size; i++) {
+            _containers[i] = other._containers[i].copy();
+        }
+    }
+
+    private CompactBitmap(char[] keys, Container[] containers, int size) {
+        _keys = keys;
+        _containers = containers;
+        _size = size;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value to add.
+     * @return true if the value was not already present.
+     * @throws IllegalArgumentException if value is negative.
+     */
+    public boolean add(int value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value");
+        }
+        char high = (char) (value >>> 16);
+        int pos = Arrays.binarySearch(_keys, 0, _size, high);
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (_size == _keys.length) {
+                int capacity = Math.max(4, _size * 2);
+                _keys = Arrays.copyOf(_keys, capacity);
+                _containers = Arrays.copyOf(_containers, capacity);
+            }
+            System.arraycopy(_keys, pos, _keys, pos + 1, _size - pos);
+            System.arraycopy(_containers, pos, _containers, pos + 1, _size - pos);
+            _keys[pos] = high;
+            _containers[pos] = new Container();
+            _size++;
+        }
+        return _containers[pos].add((char) value);
+    }
+
+    /**
+     * Checks if a value is in the set.
+     *
+     * @param value the value to check.
+     * @return true if the value is present.
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int pos = Arrays.binarySearch(_keys, 0, _size, (char) (value >>> 16));
+        return pos >= 0 && _containers[pos].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return the cardinality of the set.
+     */
+    public int cardinality() {
+        int card = 0;
+        for (int i = 0; i < _size; i++) {
+            card += _containers[i].cardinality;
+        }
+        return card;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return true if the set contains no values.
+     */
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Returns the smallest value in the set greater than or equal to a given
+     * one. A visit of the set must stop after {@link Integer#MAX_VALUE}, since
+     * the value following it overflows.
+     *
+     * @param from the value to start from.
+     * @return the next value or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        char high = (char) (from >>> 16);
+        int pos = Arrays.binarySearch(_keys, 0, _size, high);
+        if (pos >= 0) {
+            int low = _containers[pos].next((char) from);
+            if (low >= 0) {
+                return (high << 16) | low;
+            }
+            pos++;
+        } else {
+            pos = -pos - 1;
+        }
+        // containers are never empty
+        return pos < _size ? (_keys[pos] << 16) | _containers[pos].next((char) 0) : -1;
+    }
+
+    /**
+     * Returns the intersection of this set and another one.
+     *
+     * @param other the other set.
+     * @return a new set.
+     */
+    public CompactBitmap and(CompactBitmap other) {
+        char[] keys = new char[Math.min(_size, other._size)];
+        Container[] containers = new Container[keys.length];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < _size && j < other._size) {
+            if (_keys[i] < other._keys[j]) {
+                i++;
+            } else if (_keys[i] > other._keys[j]) {
+                j++;
+            } else {
+                Container c = Container.and(_containers[i], other._containers[j]);
+                if (c != null) {
+                    keys[size] = _keys[i];
+                    containers[size++] = c;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new CompactBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns the values of this set which are not in another one.
+     *
+     * @param other the other set.
+     * @return a new set.
+     */
+    public CompactBitmap andNot(CompactBitmap other) {
+        char[] keys = new char[_size];
+        Container[] containers = new Container[_size];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < _size; i++) {
+            while (j < other._size && other._keys[j] < _keys[i]) {
+                j++;
+            }
+            Container c = j < other._size && other._keys[j] == _keys[i]
+                    ? Container.andNot(_containers[i], other._containers[j])
+                    : _containers[i].copy();
+            if (c != null) {
+                keys[size] = _keys[i];
+                containers[size++] = c;
+            }
+        }
+        return new CompactBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns the union of this set and another one.
+     *
+     * @param other the other set.
+     * @return a new set.
+     */
+    public CompactBitmap or(CompactBitmap other) {
+        char[] keys = new char[_size + other._size];
+        Container[] containers = new Container[keys.length];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < _size || j < other._size) {
+            if (j == other._size || (i < _size && _keys[i] < other._keys[j])) {
+                keys[size] = _keys[i];
+                containers[size++] = _containers[i++].copy();
+            } else if (i == _size || _keys[i] > other._keys[j]) {
+                keys[size] = other._keys[j];
+                containers[size++] = other._containers[j++].copy();
+            } else {
+                keys[size] = _keys[i];
+                containers[size++] = Container.or(_containers[i++], other._containers[j++]);
+            }
+        }
+        return new CompactBitmap(keys, containers, size);
+    }
+
+    /**
+     * Checks if this set and another one have at least a common value.
+     *
+     * @param other the other set.
+     * @return true if the intersection is not empty.
+     */
+    public boolean intersects(CompactBitmap other) {
+        int i = 0, j = 0;
+        while (i < _size && j < other._size) {
+            if (_keys[i] < other._keys[j]) {
+                i++;
+            } else if (_keys[i] > other._keys[j]) {
+                j++;
+            } else {
+                if (Container.intersects(_containers[i++], other._containers[j++])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes this set in a portable binary format: the number of chunks,
+     * followed by every chunk as its high bits, its cardinality and either the
+     * sorted low bits or, if dense, the 1024 words of its bitmap.
+     *
+     * @param out the output.
+     * @throws IOException if the output cannot be written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(_size);
+        for (int i = 0; i < _size; i++) {
+            Container c = _containers[i];
+            out.writeChar(_keys[i]);
+            out.writeInt(c.cardinality);
+            if (c.words == null) {
+                for (int j = 0; j < c.cardinality; j++) {
+                    out.writeChar(c.array[j]);
+                }
+            } else {
+                for (long w : c.words) {
+                    out.writeLong(w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(java.io.DataOutput)}. The buffer
+     * position is moved after the set.
+     *
+     * @param in the buffer to read from.
+     * @return the set.
+     * @throws IOException if the data is not a valid set.
+     */
+    public static CompactBitmap readFrom(ByteBuffer in) throws IOException {
+        try {
+            int size = in.getInt();
+            if (size < 0 || size > 1 << 16) {
+                throw new IOException("invalid bitmap size " + size);
+            }
+            char[] keys = new char[size];
+            Container[] containers = new Container[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = in.getChar();
+                int cardinality = in.getInt();
+                if (cardinality <= 0 || cardinality > 1 << 16 || (i > 0 && keys[i] <= keys[i - 1])) {
+                    throw new IOException("invalid bitmap chunk");
+                }
+                if (cardinality <= Container.MAX_ARRAY) {
+                    char[] array = new char[cardinality];
+                    in.asCharBuffer().get(array);
+                    in.position(in.position() + 2 * cardinality);
+                    containers[i] = new Container(array, null, cardinality);
+                } else {
+                    long[] words = new long[Container.WORDS];
+                    in.asLongBuffer().get(words);
+                    in.position(in.position() + 8 * Container.WORDS);
+                    containers[i] = new Container(null, words, cardinality);
+                }
+            }
+            return new CompactBitmap(keys, containers, size);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("truncated bitmap", ex);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CompactBitmap)) {
+            return false;
+        }
+        CompactBitmap other = (CompactBitmap) obj;
+        if (_size != other._size) {
+            return false;
+        }
+        for (int i = 0; i < _size; i++) {
+            if (_keys[i] != other._keys[i] || !_containers[i].sameValues(other._containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int v = nextSetBit(0); v >= 0; v = v < Integer.MAX_VALUE ? nextSetBit(v + 1) : -1) {
+            hash = 31 * hash + v;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int v = nextSetBit(0); v >= 0; v = v < Integer.MAX_VALUE ? nextSetBit(v + 1) : -1) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(v);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Contains the low 16 bits of the values sharing the same high bits. The
+     * values are kept in a sorted array up to {@link #MAX_ARRAY} elements, in
+     * a bitmap of 2^16 bits otherwise.
+     */
+    private static final class Container implements Serializable {
+
+        static final int MAX_ARRAY = 4096;
+        static final int WORDS = 1 << 10;
+
+        char[] array;
+        long[] words;
+        int cardinality;
+
+        Container() {
+            array = new char[4];
+        }
+
+        private Container(char[] array, long[] words, int cardinality) {
+            this.array = array;
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        Container copy() {
+            return words == null
+                    ? new Container(Arrays.copyOf(array, cardinality), null, cardinality)
+                    : new Container(null, words.clone(), cardinality);
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long old = words[low >>> 6];
+                words[low >>> 6] = old | (1L << low);
+                if (old == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int pos = Arrays.binarySearch(array, 0, cardinality, low);
+            if (pos >= 0) {
+                return false;
+            }
+            if (cardinality == MAX_ARRAY) {
+                words = toWords();
+                array = null;
+                return add(low);
+            }
+            pos = -pos - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(MAX_ARRAY, cardinality * 2));
+            }
+            System.arraycopy(array, pos, array, pos + 1, cardinality - pos);
+            array[pos] = low;
+            cardinality++;
+            return true;
+        }
+
+        int next(char from) {
+            if (words == null) {
+                int pos = Arrays.binarySearch(array, 0, cardinality, from);
+                if (pos < 0) {
+                    pos = -pos - 1;
+                }
+                return pos < cardinality ? array[pos] : -1;
+            }
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == WORDS) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        boolean sameValues(Container other) {
+            if (cardinality != other.cardinality) {
+                return false;
+            }
+            for (int v = next((char) 0); v >= 0; v = v == 0xFFFF ? -1 : next((char) (v + 1))) {
+                if (!other.contains((char) v)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long[] toWords() {
+            if (words != null) {
+                return words.clone();
+            }
+            long[] ret = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                ret[array[i] >>> 6] |= 1L << array[i];
+            }
+            return ret;
+        }
+
+        /**
+         * Keeps only the values of an array container that are (or are not,
+         * if keep is false) in another container.
+         */
+        private static Container filter(Container a, Container b, boolean keep) {
+            char[] ret = new char[a.cardinality];
+            int size = 0;
+            for (int i = 0; i < a.cardinality; i++) {
+                if (b.contains(a.array[i]) == keep) {
+                    ret[size++] = a.array[i];
+                }
+            }
+            return size == 0 ? null : new Container(ret, null, size);
+        }
+
+        /**
+         * Creates a container from a bitmap, converting it to an array if it
+         * is sparse.
+         */
+        private static Container fromWords(long[] words) {
+            int card = 0;
+            for (long w : words) {
+                card += Long.bitCount(w);
+            }
+            if (card == 0) {
+                return null;
+            }
+            if (card > MAX_ARRAY) {
+                return new Container(null, words, card);
+            }
+            char[] ret = new char[card];
+            int size = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    ret[size++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new Container(ret, null, card);
+        }
+
+        static Container and(Container a, Container b) {
+            if (a.words == null) {
+                return filter(a, b, true);
+            }
+            if (b.words == null) {
+                return filter(b, a, true);
+            }
+            long[] ret = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                ret[i] = a.words[i] & b.words[i];
+            }
+            return fromWords(ret);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a.words == null) {
+                return filter(a, b, false);
+            }
+            long[] ret = a.words.clone();
+            if (b.words == null) {
+                for (int i = 0; i < b.cardinality; i++) {
+                    ret[b.array[i] >>> 6] &= ~(1L << b.array[i]);
+                }
+            } else {
+                for (int i = 0; i < WORDS; i++) {
+                    ret[i] &= ~b.words[i];
+                }
+            }
+            return fromWords(ret);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a.words == null && b.words == null && a.cardinality + b.cardinality <= MAX_ARRAY) {
+                char[] ret = new char[a.cardinality + b.cardinality];
+                int i = 0, j = 0, size = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j == b.cardinality || (i < a.cardinality && a.array[i] < b.array[j])) {
+                        ret[size++] = a.array[i++];
+                    } else if (i == a.cardinality || a.array[i] > b.array[j]) {
+                        ret[size++] = b.array[j++];
+                    } else {
+                        ret[size++] = a.array[i++];
+                        j++;
+                    }
+                }
+                return new Container(ret, null, size);
+            }
+            long[] ret = a.toWords();
+            if (b.words == null) {
+                for (int i = 0; i < b.cardinality; i++) {
+                    ret[b.array[i] >>> 6] |= 1L << b.array[i];
+                }
+            } else {
+                for (int i = 0; i < WORDS; i++) {
+                    ret[i] |= b.words[i];
+                }
+            }
+            return fromWords(ret);
+        }
+
+        static boolean intersects(Container a, Container b) {
+            if (a.words != null && b.words != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    if ((a.words[i] & b.words[i]) != 0) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            Container small = a.words == null ? a : b;
+            Container other = small == a ? b : a;
+            for (int i = 0; i < small.cardinality; i++) {
+                if (other.contains(small.array[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package edu.purdue.dbSchema.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A count-min sketch (Cormode and Muthukrishnan) of weighted long keys. The
+ * sketch has a fixed number of rows of counters, every row hashes a key to one
+ * of its counters, and the estimate of a key is the smallest of its counters.
+ * An estimate is never lower than the actual weight, and it exceeds it by at
+ * most <code>e / width</code> of the total weight with probability
+ * <code>1 - e^-depth</code>. The counters are updated conservatively: an
+ * addition raises only the counters which would otherwise end below the new
+ * estimate, which keeps the error lower.
+ * <p>
+ * The memory is fixed when the sketch is created and no method allocates.
+ * This class is not thread safe.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class CountMinSketch implements Serializable {
+
+    private static final long serialVersionUID = 8491344643886732045L;
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final int _depth;
+    private final int _mask;
+    private final double[] _counts;
+    private final int[] _indexes;
+    private double _total;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width the number of counters of each row, rounded up to a power
+     * of two.
+     * @param depth the number of rows.
+     * @throws IllegalArgumentException if the size is not valid (see
+     * {@link #isValidSize(int, int)}).
+     */
+    public CountMinSketch(int width, int depth) throws IllegalArgumentException {
+        if (!isValidSize(width, depth)) {
+            throw new IllegalArgumentException("invalid size " + width + "x" + depth);
+        }
+        int w = roundWidth(width);
+        _depth = depth;
+        _mask = w - 1;
+        _counts = new double[w * depth];
+        _indexes = new int[depth];
+    }
+
+    /**
+     * Checks the size of a sketch: width and depth must be positive and all
+     * the counters, with the width rounded up to a power of two, must fit in
+     * an array.
+     *
+     * @param width the number of counters of each row.
+     * @param depth the number of rows.
+     * @return true if a sketch of this size can be created.
+     */
+    public static boolean isValidSize(int width, int depth) {
+        return width > 0 && width <= 1 << 30 && depth > 0
+                && (long) roundWidth(width) * depth <= Integer.MAX_VALUE - 8;
+    }
+
+    private static int roundWidth(int width) {
+        int w = Integer.highestOneBit(width);
+        return w < width ? w << 1 : w;
+    }
+
+    /**
+     * Creates a copy of another sketch.
+     *
+     * @param other the sketch to copy.
+     * @throws NullPointerException if other is null.
+     */
+    public CountMinSketch(CountMinSketch other) throws NullPointerException {
+        _depth = other._depth;
+        _mask = other._mask;
+        _counts = other._counts.clone();
+        _indexes = new int[_depth];
+        _total = other._total;
+    }
+
+    /**
+     * Adds a weight to a key.
+     *
+     * @param key the key.
+     * @param weight the weight, which must not be negative.
+     * @throws IllegalArgumentException if weight is negative.
+     */
+    public void add(long key, double weight) throws IllegalArgumentException {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        // the key is hashed once for the estimate and the update
+        double target = Double.MAX_VALUE;
+        for (int row = 0; row < _depth; row++) {
+            _indexes[row] = index(key, row);
+            target = Math.min(target, _counts[_indexes[row]]);
+        }
+        target += weight;
+        for (int row = 0; row < _depth; row++) {
+            if (_counts[_indexes[row]] < target) {
+                _counts[_indexes[row]] = target;
+            }
+        }
+        _total += weight;
+    }
+
+    /**
+     * Returns the estimated weight of a key.
+     *
+     * @param key the key.
+     * @return the estimate, never lower than the weight added to the key.
+     */
+    public double estimate(long key) {
+        double ret = Double.MAX_VALUE;
+        for (int row = 0; row < _depth; row++) {
+            ret = Math.min(ret, _counts[index(key, row)]);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the weight added to all the keys.
+     *
+     * @return the total weight.
+     */
+    public double getTotal() {
+        return _total;
+    }
+
+    /**
+     * Multiplies all the weights by a factor, e.g. to decay them.
+     *
+     * @param factor the factor, between 0 and 1.
+     * @throws IllegalArgumentException if factor is out of range.
+     */
+    public void scale(double factor) throws IllegalArgumentException {
+        if (!(factor >= 0 && factor <= 1)) {
+            throw new IllegalArgumentException("factor out of range: " + factor);
+        }
+        for (int i = 0; i < _counts.length; i++) {
+            _counts[i] *= factor;
+        }
+        _total *= factor;
+    }
+
+    /**
+     * Removes all the weights.
+     */
+    public void clear() {
+        Arrays.fill(_counts, 0);
+        _total = 0;
+    }
+
+    /**
+     * Returns the number of counters of each row.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return _mask + 1;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the depth.
+     */
+    public int getDepth() {
+        return _depth;
+    }
+
+    private int index(long key, int row) {
+        // the finalizer of MurmurHash3, with a different seed for every row
+        long h = key + (row + 1) * SEED;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return row * (_mask + 1) + ((int) h & _mask);
+    }
+}
@@ -0,0 +1,89 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.Arrays;
+
+/**
+ * The state of a breadth first visit of a graph whose nodes have dense integer
+ * ids: an array based queue and the marks of the visited nodes. Every visit
+ * stamps its marks with a new epoch, so starting a visit does not clear the
+ * marks of the previous one and, once the arrays are large enough for the
+ * graph, a visit allocates nothing.
+ * <p>
+ * A traversal can be reused for any number of visits, also of different
+ * graphs, but it is not thread safe and it cannot be used by two nested
+ * visits.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class DagTraversal {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] _queue;
+    private int[] _marks;
+    private int _epoch;
+    private boolean _inUse;
+
+    /**
+     * Creates a traversal.
+     */
+    public DagTraversal() {
+        _queue = new int[INITIAL_CAPACITY];
+        _marks = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Starts a visit.
+     *
+     * @param nodes the number of nodes of the graph.
+     * @return the queue, with room for every node.
+     * @throws IllegalStateException if another visit is using this traversal.
+     */
+    int[] begin(int nodes) throws IllegalStateException {
+        if (_inUse) {
+            throw new IllegalStateException("the traversal is already in use");
+        }
+        if (_marks.length < nodes) {
+            int capacity = Math.max(nodes, 2 * _marks.length);
+            _queue = new int[capacity];
+            _marks = Arrays.copyOf(_marks, capacity);
+        }
+        if (++_epoch == 0) {
+            // the stamps wrapped around, the old marks could match again
+            Arrays.fill(_marks, 0);
+            _epoch = 1;
+        }
+        _inUse = true;
+        return _queue;
+    }
+
+    /**
+     * Ends a visit.
+     */
+    void end() {
+        _inUse = false;
+    }
+
+    /**
+     * Checks whether this traversal is used by a visit.
+     *
+     * @return true between the start and the end of a visit.
+     */
+    boolean isInUse() {
+        return _inUse;
+    }
+
+    /**
+     * Marks a node as visited.
+     *
+     * @param id the node id.
+     * @return true if the node was not visited yet.
+     */
+    boolean mark(int id) {
+        if (_marks[id] == _epoch) {
+            return false;
+        }
+        _marks[id] = _epoch;
+        return true;
+    }
+}
@@ -4,49 +4,140 @@ import edu.purdue.dbSchema.erros.SqlSemanticException;
 import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
 import edu.purdue.dbSchema.schema.AbstractColumn;
 import edu.purdue.dbSchema.schema.Name;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
+ * Implements the grants with hash tables. The roles reached by every user are
+ * kept materialized and updated when a role is granted, so checking a column
+ * costs a lookup per role of the user instead of a visit of the role graph.
+ * <p>
+ * Only the grants and the role graph are serialized, in the same form as the
+ * first versions of this class; the roles reached by the users are computed
+ * again when the grants are read.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
 public class DbGrants implements IDbGrants {
 
+    private static final long serialVersionUID = 630192087207162778L;
+
     private final IMapSet<AbstractColumn, Name> _grantRead;
     private final IMapSet<AbstractColumn, Name> _grantWrite;
     private final IDirectedAcyclicGraph<Name> _roleGraph;
+    private transient RoleClosure<Name> _roleClosure;
+    private transient Map<Name, Integer> _roleIds;
+    private transient List<Name> _roles;
 
-    DbGrants(IDirectedAcyclicGraph<Name> roleGraph, IMapSet<AbstractColumn, Name> read, IMapSet<AbstractColumn, Name> write) {
+    DbGrants(IDirectedAcyclicGraph<Name> roleGraph, RoleClosure<Name> roleClosure, IMapSet<AbstractColumn, Name> read, IMapSet<AbstractColumn, Name> write, Map<Name, Integer> roleIds, List<Name> roles) {
         _grantRead = read;
         _grantWrite = write;
         _roleGraph = roleGraph;
+        _roleClosure = roleClosure;
+        _roleIds = roleIds;
+        _roles = roles;
     }
 
     public DbGrants() {
-        this(new DirectedAcyclicGraph<Name>(), new HashMapSet<AbstractColumn, Name>(), new HashMapSet<AbstractColumn, Name>());
+        this(new DirectedAcyclicGraph<Name>(), new RoleClosure<Name>(), new HashMapSet<AbstractColumn, Name>(), new HashMapSet<AbstractColumn, Name>(), new HashMap<Name, Integer>(), new ArrayList<Name>());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (_grantRead == null || _grantWrite == null || _roleGraph == null) {
+            throw new InvalidObjectException("incomplete grants");
+        }
+        _roleClosure = new RoleClosure<>();
+        _roleIds = new HashMap<>();
+        _roles = new ArrayList<>();
+        // the edges go from the grantee to the granted role
+        _roleGraph.forEachEdge((to, role) -> {
+            _roleClosure.add(to, role);
+            addRole(role);
+            addRole(to);
+        });
+        for (AbstractColumn col : _grantRead.keySet()) {
+            for (Name to : _grantRead.getSet(col)) {
+                addRole(to);
+            }
+        }
+        for (AbstractColumn col : _grantWrite.keySet()) {
+            for (Name to : _grantWrite.getSet(col)) {
+                addRole(to);
+            }
+        }
+    }
+
+    @Override
+    public IDbGrants copy() {
+        return new DbGrants(_roleGraph.copy(), new RoleClosure<>(_roleClosure), new HashMapSet<>(_grantRead), new HashMapSet<>(_grantWrite), new HashMap<>(_roleIds), new ArrayList<>(_roles));
     }
 
     @Override
     public void grantRole(Name role, Name to) throws SqlSemanticException {
+        // the graph rejects the edges closing a cycle, the closure needs no check
         if (!_roleGraph.add(to, role)) {
             throw new SqlSemanticException("role cycle detected");
         }
+        _roleClosure.add(to, role);
+        addRole(role);
+        addRole(to);
     }
 
     @Override
     public boolean grantRead(AbstractColumn col, Name to) {
-        return _grantRead.put(col, to);
+        boolean ret = _grantRead.put(col, to);
+        addRole(to);
+        return ret;
     }
 
     @Override
     public boolean grantWrite(AbstractColumn col, Name to) {
-        return _grantWrite.put(col, to);
+        boolean ret = _grantWrite.put(col, to);
+        addRole(to);
+        return ret;
+    }
+
+    private void addRole(Name role) {
+        if (!_roleIds.containsKey(role)) {
+            _roleIds.put(role, _roles.size());
+            _roles.add(role);
+        }
+    }
+
+    @Override
+    public int getRoleId(Name role) throws NullPointerException {
+        if (role == null) {
+            throw new NullPointerException();
+        }
+        Integer id = _roleIds.get(role);
+        return id == null ? -1 : id;
     }
 
-    private Name hasGrant(final IMapSet<AbstractColumn, Name> grant, Name username, AbstractColumn c) throws NullPointerException {
-        for (Name role : _roleGraph.followNodeAndSelef(username)) {
+    @Override
+    public Name getRole(int id) throws IndexOutOfBoundsException {
+        return _roles.get(id);
+    }
+
+    @Override
+    public int getRoleCount() {
+        return _roles.size();
+    }
+
+    private static Name hasGrant(final IMapSet<AbstractColumn, Name> grant, List<Name> roles, Name username, AbstractColumn c) throws NullPointerException {
+        if (roles == null) { // the user has no roles
+            return grant.contains(c, username) ? username : null;
+        }
+        for (int i = 0; i < roles.size(); i++) {
+            Name role = roles.get(i);
             if (grant.contains(c, role)) {
                 return role;
             }
@@ -56,9 +147,10 @@ public class DbGrants implements IDbGrants {
 
     private Set<Name> enforce(IMapSet<AbstractColumn, Name> grant, Name username, Collection<AbstractColumn> columns, String errorMsg) throws NullPointerException, UnauthorizedSqlException {
         Set<Name> usedRoles = new HashSet<>();
+        List<Name> roles = _roleClosure.get(username);
         for (AbstractColumn col : columns) {
             if (!col.isVirtual()) {
-                Name role = hasGrant(grant, username, col);
+                Name role = hasGrant(grant, roles, username, col);
                 if (role == null) {
                     throw new UnauthorizedSqlException("the user '%s' has no right to %s '%s'", username, errorMsg, col.getName());
                 }
@@ -73,6 +165,28 @@ public class DbGrants implements IDbGrants {
         return enforce(_grantWrite, username, columns, "write");
     }
 
+    @Override
+    public void accept(IGrantVisitor visitor) throws NullPointerException {
+        if (visitor == null) {
+            throw new NullPointerException();
+        }
+        for (Name to : _roleClosure.nodes()) {
+            for (Name role : _roleClosure.successors(to)) {
+                visitor.visitRole(role, to);
+            }
+        }
+        for (AbstractColumn col : _grantRead.keySet()) {
+            for (Name to : _grantRead.getSet(col)) {
+                visitor.visitRead(col, to);
+            }
+        }
+        for (AbstractColumn col : _grantWrite.keySet()) {
+            for (Name to : _grantWrite.getSet(col)) {
+                visitor.visitWrite(col, to);
+            }
+        }
+    }
+
     @Override
     public Set<Name> enforceRead(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException {
         return enforce(_grantRead, username, columns, "read");
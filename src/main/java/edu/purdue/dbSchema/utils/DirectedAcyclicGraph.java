@@ -1,22 +1,81 @@
 package edu.purdue.dbSchema.utils;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
+ * Implements a direct acyclic graph which keeps its nodes in topological
+ * order, so cycles are detected without visiting the whole graph (Pearce and
+ * Kelly, "A dynamic topological sort algorithm for directed acyclic graphs").
+ * Every node has a position and every edge goes from a lower position to a
+ * higher one. An edge which respects the order is added at once; otherwise
+ * only the nodes whose position is between the two ends are visited, to look
+ * for a cycle and to move the nodes reached from the new edge after the ones
+ * reaching it.
+ * <p>
+ * A new node gets the lowest position if it is the start of the edge and the
+ * highest if it is the end, so an edge with a new node never moves anything
+ * and a hierarchy loaded top down or bottom up takes linear time.
+ * <p>
+ * Every node also has a dense integer id and the successors of a node are kept
+ * in an array of ids, so
+ * {@link #visit(java.lang.Object, boolean, java.util.function.Consumer, edu.purdue.dbSchema.utils.DagTraversal)}
+ * visits the graph without allocating.
+ * <p>
+ * Only the edges are serialized, in the same form as the first versions of
+ * this class, and the order and the ids are computed again when the graph is
+ * read.
  *
  * @author Lorenzo Bossi [lbossi@purdue.edu]
  */
 public class DirectedAcyclicGraph<T> implements IDirectedAcyclicGraph<T> {
 
-    private final IMapSet<T, T> _edges;
+    private static final long serialVersionUID = -1950585996643950822L;
+    private static final ThreadLocal<DagTraversal> TRAVERSAL = ThreadLocal.withInitial(DagTraversal::new);
 
-    DirectedAcyclicGraph(IMapSet<T, T> edges) {
+    private IMapSet<T, T> _edges;
+    private transient IMapSet<T, T> _reverseEdges;
+    private transient Map<T, Integer> _order;
+    private transient int _lowest;
+    private transient int _highest;
+    private transient Map<T, Integer> _ids;
+    private transient List<T> _nodes;
+    private transient int[][] _successors;
+    private transient int[] _successorCount;
+
+    private DirectedAcyclicGraph(IMapSet<T, T> edges, IMapSet<T, T> reverseEdges, Map<T, Integer> order, int lowest, int highest,
+            Map<T, Integer> ids, List<T> nodes, int[][] successors, int[] successorCount) {
         _edges = edges;
+        _reverseEdges = reverseEdges;
+        _order = order;
+        _lowest = lowest;
+        _highest = highest;
+        _ids = ids;
+        _nodes = nodes;
+        _successors = successors;
+        _successorCount = successorCount;
+    }
+
+    DirectedAcyclicGraph(IMapSet<T, T> edges) {
+        this(edges, new HashMapSet<T, T>(), new HashMap<T, Integer>(), 0, 0, new HashMap<T, Integer>(), new ArrayList<T>(), new int[8][], new int[8]);
     }
 
     public DirectedAcyclicGraph() {
@@ -28,15 +87,232 @@ public class DirectedAcyclicGraph<T> implements IDirectedAcyclicGraph<T> {
         if (from == null || to == null) {
             throw new NullPointerException();
         }
-        for (T ancestor : followNodeAndSelef(to)) {
-            if (ancestor.equals(from)) {
-                return false;
+        if (from.equals(to)) {
+            return false;
+        }
+        Integer fromPos = _order.get(from);
+        if (fromPos == null) {
+            fromPos = _lowest--;
+            _order.put(from, fromPos);
+        }
+        Integer toPos = _order.get(to);
+        if (toPos == null) {
+            toPos = ++_highest;
+            _order.put(to, toPos);
+        }
+        if (fromPos > toPos && !reorder(from, to, fromPos, toPos)) {
+            return false;
+        }
+        if (_edges.put(from, to)) {
+            addSuccessor(id(from), id(to));
+        }
+        _reverseEdges.put(to, from);
+        return true;
+    }
+
+    private int id(T node) {
+        Integer id = _ids.get(node);
+        if (id == null) {
+            id = _nodes.size();
+            _ids.put(node, id);
+            _nodes.add(node);
+            if (id == _successors.length) {
+                _successors = Arrays.copyOf(_successors, 2 * id);
+                _successorCount = Arrays.copyOf(_successorCount, 2 * id);
             }
         }
-        _edges.put(from, to);
+        return id;
+    }
+
+    private void addSuccessor(int from, int to) {
+        int[] successors = _successors[from];
+        int count = _successorCount[from];
+        if (successors == null) {
+            successors = new int[2];
+        } else if (count == successors.length) {
+            successors = Arrays.copyOf(successors, 2 * count);
+        }
+        successors[count] = to;
+        _successors[from] = successors;
+        _successorCount[from] = count + 1;
+    }
+
+    /**
+     * Moves the nodes between the ends of a new edge which violates the order.
+     *
+     * @return false if the edge would create a cycle.
+     */
+    private boolean reorder(T from, T to, int fromPos, int toPos) {
+        // the nodes reached from "to" which are before "from"; reaching "from" is a cycle
+        List<T> forward = new ArrayList<>();
+        Set<T> visited = new HashSet<>();
+        Deque<T> stack = new ArrayDeque<>();
+        visited.add(to);
+        stack.push(to);
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+            forward.add(node);
+            for (T next : _edges.getSet(node)) {
+                if (next.equals(from)) {
+                    return false;
+                }
+                if (_order.get(next) < fromPos && visited.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        // the nodes reaching "from" which are after "to"
+        List<T> backward = new ArrayList<>();
+        visited.clear();
+        visited.add(from);
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+            backward.add(node);
+            for (T prev : _reverseEdges.getSet(node)) {
+                if (_order.get(prev) > toPos && visited.add(prev)) {
+                    stack.push(prev);
+                }
+            }
+        }
+        // the same positions, first to the nodes reaching "from" then to the others
+        Comparator<T> byPosition = (a, b) -> Integer.compare(_order.get(a), _order.get(b));
+        Collections.sort(backward, byPosition);
+        Collections.sort(forward, byPosition);
+        List<Integer> positions = new ArrayList<>(backward.size() + forward.size());
+        for (T node : backward) {
+            positions.add(_order.get(node));
+        }
+        for (T node : forward) {
+            positions.add(_order.get(node));
+        }
+        Collections.sort(positions);
+        int i = 0;
+        for (T node : backward) {
+            _order.put(node, positions.get(i++));
+        }
+        for (T node : forward) {
+            _order.put(node, positions.get(i++));
+        }
         return true;
     }
 
+    /**
+     * Returns the position of a node in the topological order.
+     *
+     * @param node the node.
+     * @return the position or null if the node has no edges.
+     */
+    Integer position(T node) {
+        return _order.get(node);
+    }
+
+    @Override
+    public void forEachEdge(BiConsumer<? super T, ? super T> visitor) throws NullPointerException {
+        if (visitor == null) {
+            throw new NullPointerException();
+        }
+        for (T from : _edges.keySet()) {
+            for (T to : _edges.getSet(from)) {
+                visitor.accept(from, to);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        IMapSet<T, T> edges = _edges;
+        if (edges == null) {
+            throw new InvalidObjectException("missing edges");
+        }
+        _edges = new HashMapSet<>();
+        _reverseEdges = new HashMapSet<>();
+        _order = new HashMap<>();
+        _ids = new HashMap<>();
+        _nodes = new ArrayList<>();
+        _successors = new int[8][];
+        _successorCount = new int[8];
+        for (T from : edges.keySet()) {
+            for (T to : edges.getSet(from)) {
+                if (!add(from, to)) {
+                    throw new InvalidObjectException("the graph has a cycle");
+                }
+            }
+        }
+    }
+
+    @Override
+    public IDirectedAcyclicGraph<T> copy() {
+        int[][] successors = new int[_successors.length][];
+        for (int i = 0; i < _nodes.size(); i++) {
+            if (_successors[i] != null) {
+                successors[i] = Arrays.copyOf(_successors[i], _successorCount[i]);
+            }
+        }
+        return new DirectedAcyclicGraph<>(new HashMapSet<>(_edges), new HashMapSet<>(_reverseEdges), new HashMap<>(_order), _lowest, _highest,
+                new HashMap<>(_ids), new ArrayList<>(_nodes), successors, Arrays.copyOf(_successorCount, _successorCount.length));
+    }
+
+    /**
+     * {@inheritDoc} The nodes are visited breadth first with a traversal kept
+     * by the current thread, so the visit allocates nothing unless the
+     * visitor does or the visitor starts another visit.
+     */
+    @Override
+    public int visit(T start, boolean includeStart, Consumer<? super T> visitor) throws NullPointerException {
+        DagTraversal traversal = TRAVERSAL.get();
+        return visit(start, includeStart, visitor, traversal.isInUse() ? new DagTraversal() : traversal);
+    }
+
+    /**
+     * Passes to a visitor the nodes reached from a node, as
+     * {@link #visit(java.lang.Object, boolean, java.util.function.Consumer)}
+     * does, using the state of a given traversal.
+     *
+     * @param start the starting point.
+     * @param includeStart whether the starting point is visited.
+     * @param visitor receives the nodes.
+     * @param traversal the state of the visit.
+     * @return the number of nodes visited.
+     * @throws NullPointerException if a parameter is null.
+     * @throws IllegalStateException if the traversal is used by another visit.
+     */
+    public int visit(T start, boolean includeStart, Consumer<? super T> visitor, DagTraversal traversal) throws NullPointerException, IllegalStateException {
+        if (start == null || visitor == null || traversal == null) {
+            throw new NullPointerException();
+        }
+        Integer startId = _ids.get(start);
+        if (startId == null) {
+            if (!includeStart) {
+                return 0;
+            }
+            visitor.accept(start);
+            return 1;
+        }
+        int[] queue = traversal.begin(_nodes.size());
+        try {
+            int head = 0;
+            int tail = 0;
+            traversal.mark(startId);
+            queue[tail++] = startId;
+            while (head < tail) {
+                int id = queue[head++];
+                int[] successors = _successors[id];
+                for (int i = 0; i < _successorCount[id]; i++) {
+                    if (traversal.mark(successors[i])) {
+                        queue[tail++] = successors[i];
+                    }
+                }
+                if (includeStart || id != startId) {
+                    visitor.accept(_nodes.get(id));
+                }
+            }
+            return includeStart ? tail : tail - 1;
+        } finally {
+            traversal.end();
+        }
+    }
+
     @Override
     public Iterable<T> followNode(T start) throws NullPointerException {
         if (start == null) {
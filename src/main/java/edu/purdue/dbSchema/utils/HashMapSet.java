@@ -16,8 +16,28 @@ import java.util.Set;
  */
 public class HashMapSet<K, V> implements IMapSet<K, V> {
 
+    private static final long serialVersionUID = -1815949099017980230L;
+
     private final Map<K, Set<V>> _mem = new HashMap<>();
 
+    /**
+     * Creates an empty MapSet.
+     */
+    public HashMapSet() {
+    }
+
+    /**
+     * Creates a MapSet containing the same keys and values of another one.
+     *
+     * @param other the MapSet to copy.
+     * @throws NullPointerException if other is null.
+     */
+    public HashMapSet(IMapSet<K, V> other) throws NullPointerException {
+        for (K key : other.keySet()) {
+            _mem.put(key, new HashSet<>(other.getSet(key)));
+        }
+    }
+
     @Override
     public boolean put(K key) throws NullPointerException {
         if (key == null) {
@@ -0,0 +1,30 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.schema.AbstractColumn;
+
+/**
+ * Assigns dense integer ids to the columns of a schema.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public interface IColumnIndex {
+
+    /**
+     * Returns the id of a column.
+     *
+     * @param column the column.
+     * @return the id or -1 if the column is not indexed.
+     * @throws NullPointerException if column is null.
+     */
+    int getId(AbstractColumn column) throws NullPointerException;
+
+    /**
+     * Returns a column by id.
+     *
+     * @param id the id.
+     * @return the column.
+     * @throws IndexOutOfBoundsException if there is no column with the given
+     * id.
+     */
+    AbstractColumn getColumn(int id) throws IndexOutOfBoundsException;
+}
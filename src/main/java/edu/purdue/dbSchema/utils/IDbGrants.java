@@ -73,4 +73,51 @@ public interface IDbGrants extends Serializable {
      */
     public Set<Name> enforceWrite(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException;
 
+    /**
+     * Returns the id of a role. Every role or user mentioned by a grant
+     * receives a dense integer id, starting from 0, the first time it is
+     * granted something or granted to someone. The ids never change and are
+     * kept by {@link #copy()}.
+     *
+     * @param role the role or user.
+     * @return the id or -1 if the role was never granted.
+     * @throws NullPointerException if role is null.
+     */
+    public int getRoleId(Name role) throws NullPointerException;
+
+    /**
+     * Returns a role by id.
+     *
+     * @param id the id.
+     * @return the role.
+     * @throws IndexOutOfBoundsException if there is no role with the given
+     * id, i.e. id is negative or not less than {@link #getRoleCount()}.
+     */
+    public Name getRole(int id) throws IndexOutOfBoundsException;
+
+    /**
+     * Returns the number of roles with an id.
+     *
+     * @return the number of roles.
+     */
+    public int getRoleCount();
+
+    /**
+     * Returns a deep copy of these grants. Changes to the copy do not affect
+     * this object and vice versa.
+     *
+     * @return a new object containing the same grants.
+     */
+    public IDbGrants copy();
+
+    /**
+     * Reports all the grants to a visitor: first the roles granted to other
+     * roles, then the column permissions. Only the grants actually issued are
+     * reported, not the ones inherited through the roles.
+     *
+     * @param visitor the visitor.
+     * @throws NullPointerException if visitor is null.
+     */
+    public void accept(IGrantVisitor visitor) throws NullPointerException;
+
 }
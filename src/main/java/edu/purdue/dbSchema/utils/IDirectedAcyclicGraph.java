@@ -1,6 +1,8 @@
 package edu.purdue.dbSchema.utils;
 
 import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * An object to contain a direct acyclic graph.
@@ -48,4 +50,45 @@ public interface IDirectedAcyclicGraph<T> extends Serializable {
      */
     Iterable<T> followNodeAndSelef(T start) throws NullPointerException;
 
+    /**
+     * Passes to a visitor the nodes returned by
+     * {@link #followNode(java.lang.Object)} or, if includeStart is true, by
+     * {@link #followNodeAndSelef(java.lang.Object)}, in the same partial
+     * order. Unlike the iterables, an implementation can visit the graph
+     * without allocating; this one just iterates them.
+     *
+     * @param start the starting point.
+     * @param includeStart whether the starting point is visited.
+     * @param visitor receives the nodes.
+     * @return the number of nodes visited.
+     * @throws NullPointerException if start or visitor is null.
+     */
+    default int visit(T start, boolean includeStart, Consumer<? super T> visitor) throws NullPointerException {
+        if (visitor == null) {
+            throw new NullPointerException();
+        }
+        int ret = 0;
+        for (T node : includeStart ? followNodeAndSelef(start) : followNode(start)) {
+            visitor.accept(node);
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Passes every edge of the graph to a visitor, in no particular order.
+     *
+     * @param visitor receives the starting and the ending point of the edges.
+     * @throws NullPointerException if visitor is null.
+     */
+    void forEachEdge(BiConsumer<? super T, ? super T> visitor) throws NullPointerException;
+
+    /**
+     * Returns a copy of this graph. Edges added to the copy are not added to
+     * this graph and vice versa.
+     *
+     * @return a new graph with the same edges.
+     */
+    IDirectedAcyclicGraph<T> copy();
+
 }
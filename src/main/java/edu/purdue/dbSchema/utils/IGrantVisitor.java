@@ -0,0 +1,37 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+
+/**
+ * Receives the grants contained in an {@link IDbGrants}. Replaying the calls on
+ * an empty container creates a container with the same grants.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public interface IGrantVisitor {
+
+    /**
+     * Receives a role granted to another role or user.
+     *
+     * @param role the granted role.
+     * @param to the user or role the role is granted to.
+     */
+    void visitRole(Name role, Name to);
+
+    /**
+     * Receives a read permission.
+     *
+     * @param column the column.
+     * @param to the user or role the permission is granted to.
+     */
+    void visitRead(AbstractColumn column, Name to);
+
+    /**
+     * Receives a write permission.
+     *
+     * @param column the column.
+     * @param to the user or role the permission is granted to.
+     */
+    void visitWrite(AbstractColumn column, Name to);
+}
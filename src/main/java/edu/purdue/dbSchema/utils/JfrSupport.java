@@ -0,0 +1,28 @@
+package edu.purdue.dbSchema.utils;
+
+/**
+ * Tells if the JVM supports Flight Recorder events. The event classes of this
+ * project extend <code>jdk.jfr.Event</code>, which is missing in Java 8 before
+ * update 262, so they must be touched only if {@link #AVAILABLE} is true.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class JfrSupport {
+
+    /**
+     * True if <code>jdk.jfr.Event</code> can be loaded.
+     */
+    public static final boolean AVAILABLE = available();
+
+    private JfrSupport() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
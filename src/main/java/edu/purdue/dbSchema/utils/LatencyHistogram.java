@@ -0,0 +1,179 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe histogram of latencies in nanoseconds with a bounded relative
+ * error, in the style of HdrHistogram. Values below 32 have their own bucket,
+ * every larger power of two is split in 32 buckets of the same width, so a
+ * percentile is reported with an error below 1/32 (about 3%) of its value
+ * using a fixed amount of memory, whatever the range of the values.
+ * <p>
+ * Recording a value never allocates nor locks. A copy is not an atomic
+ * snapshot of a histogram which is being updated, but every value recorded
+ * before the copy starts is in the copy.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray _counts;
+    private final LongAdder _count;
+    private final LongAdder _sum;
+    private final LongAccumulator _max;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        _counts = new AtomicLongArray(BUCKETS);
+        _count = new LongAdder();
+        _sum = new LongAdder();
+        _max = new LongAccumulator(Long::max, 0);
+    }
+
+    /**
+     * Creates a copy of another histogram.
+     *
+     * @param other the histogram to copy.
+     * @throws NullPointerException if other is null.
+     */
+    public LatencyHistogram(LatencyHistogram other) throws NullPointerException {
+        this();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other._counts.get(i);
+            if (c != 0) {
+                _counts.set(i, c);
+                _count.add(c);
+            }
+        }
+        _sum.add(other._sum.sum());
+        _max.accumulate(other._max.get());
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as
+     * 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        _counts.incrementAndGet(bucket(nanos));
+        _count.increment();
+        _sum.add(nanos);
+        _max.accumulate(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param startNanos the start time, as returned by
+     * {@link System#nanoTime()}.
+     * @return the current time, to be used as the start of the next step.
+     */
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of values.
+     */
+    public long getCount() {
+        return _count.sum();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum in nanoseconds, 0 if the histogram is empty.
+     */
+    public long getMax() {
+        return _max.get();
+    }
+
+    /**
+     * Returns the average of the recorded values.
+     *
+     * @return the mean in nanoseconds, 0 if the histogram is empty.
+     */
+    public double getMean() {
+        long count = _count.sum();
+        return count == 0 ? 0 : (double) _sum.sum() / count;
+    }
+
+    /**
+     * Returns the value below which a given percentage of the recorded values
+     * fall. The value is the upper bound of its bucket, but never more than
+     * {@link #getMax()}.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value in nanoseconds, 0 if the histogram is empty.
+     * @throws IllegalArgumentException if percentile is out of range.
+     */
+    public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = _counts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count: %d, mean: %.1fus, p50: %.1fus, p99: %.1fus, p99.9: %.1fus, max: %.1fus",
+                getCount(), getMean() / 1000, micros(getValueAtPercentile(50)), micros(getValueAtPercentile(99)),
+                micros(getValueAtPercentile(99.9)), micros(getMax()));
+    }
+
+    private static double micros(long nanos) {
+        return (double) nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long highestEquivalentValue(int bucket) {
+        int block = bucket >>> SUB_BITS;
+        if (block == 0) {
+            return bucket;
+        }
+        long lowest = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (block - 1);
+        return lowest + (1L << (block - 1)) - 1;
+    }
+}
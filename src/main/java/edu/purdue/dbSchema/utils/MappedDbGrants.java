@@ -0,0 +1,170 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only grants whose permissions refer to columns by id. It is used with
+ * schemas whose columns are created on demand: the permissions are checked
+ * through the ids, so no column has to be created to load the grants. The
+ * checks are the ones of {@link BitsetDbGrants}.
+ * <p>
+ * This object cannot be modified, {@link #copy()} returns a modifiable
+ * {@link BitsetDbGrants} with the same grants.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public final class MappedDbGrants implements IDbGrants {
+
+    private final IColumnIndex _columns;
+    private final RoleClosure<Name> _roleClosure;
+    private final Map<Name, Integer> _roleIds;
+    private final List<Name> _roles;
+    private final List<CompactBitmap> _read;
+    private final List<CompactBitmap> _write;
+
+    /**
+     * Creates the grants.
+     *
+     * @param columns the index of the columns of the schema.
+     * @param roles the roles, indexed by role id.
+     * @param roleGrants the roles granted to other roles, as pairs (role,
+     * grantee).
+     * @param read the columns each role can read, indexed by role id.
+     * @param write the columns each role can write, indexed by role id.
+     * @throws SqlSemanticException if the role grants contain a cycle.
+     * @throws IllegalArgumentException if the sizes of roles, read and write do
+     * not match.
+     */
+    public MappedDbGrants(IColumnIndex columns, List<Name> roles, List<Pair<Name, Name>> roleGrants, List<CompactBitmap> read, List<CompactBitmap> write) throws SqlSemanticException, IllegalArgumentException {
+        if (roles.size() != read.size() || roles.size() != write.size()) {
+            throw new IllegalArgumentException("every role needs its permissions");
+        }
+        _columns = columns;
+        _roles = new ArrayList<>(roles);
+        _read = new ArrayList<>(read);
+        _write = new ArrayList<>(write);
+        _roleIds = new HashMap<>();
+        for (int i = 0; i < _roles.size(); i++) {
+            _roleIds.put(_roles.get(i), i);
+        }
+        _roleClosure = new RoleClosure<>();
+        for (Pair<Name, Name> g : roleGrants) {
+            if (_roleClosure.reaches(g.getFirst(), g.getSecond())) {
+                throw new SqlSemanticException("role cycle detected");
+            }
+            _roleClosure.add(g.getSecond(), g.getFirst());
+        }
+    }
+
+    @Override
+    public void grantRole(Name role, Name to) {
+        throw new UnsupportedOperationException("read only grants");
+    }
+
+    @Override
+    public boolean grantRead(AbstractColumn column, Name to) {
+        throw new UnsupportedOperationException("read only grants");
+    }
+
+    @Override
+    public boolean grantWrite(AbstractColumn column, Name to) {
+        throw new UnsupportedOperationException("read only grants");
+    }
+
+    @Override
+    public Set<Name> enforceRead(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException {
+        return BitsetDbGrants.enforce(_roleClosure, _roleIds, _read, _columns::getId, username, columns, "read");
+    }
+
+    @Override
+    public Set<Name> enforceWrite(Name username, Collection<AbstractColumn> columns) throws NullPointerException, UnauthorizedSqlException {
+        return BitsetDbGrants.enforce(_roleClosure, _roleIds, _write, _columns::getId, username, columns, "write");
+    }
+
+    @Override
+    public int getRoleId(Name role) throws NullPointerException {
+        if (role == null) {
+            throw new NullPointerException();
+        }
+        Integer id = _roleIds.get(role);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public Name getRole(int id) throws IndexOutOfBoundsException {
+        return _roles.get(id);
+    }
+
+    @Override
+    public int getRoleCount() {
+        return _roles.size();
+    }
+
+    /**
+     * Returns modifiable grants with the same content and the same role ids.
+     * All the granted columns are created.
+     *
+     * @return a new {@link BitsetDbGrants}.
+     */
+    @Override
+    public IDbGrants copy() {
+        final BitsetDbGrants ret = new BitsetDbGrants();
+        for (Name role : _roles) {
+            ret.addRole(role);
+        }
+        accept(new IGrantVisitor() {
+            @Override
+            public void visitRole(Name role, Name to) {
+                try {
+                    ret.grantRole(role, to);
+                } catch (SqlSemanticException ex) {
+                    throw new AssertionError(ex); // the roles are already acyclic
+                }
+            }
+
+            @Override
+            public void visitRead(AbstractColumn column, Name to) {
+                ret.grantRead(column, to);
+            }
+
+            @Override
+            public void visitWrite(AbstractColumn column, Name to) {
+                ret.grantWrite(column, to);
+            }
+        });
+        return ret;
+    }
+
+    @Override
+    public void accept(IGrantVisitor visitor) throws NullPointerException {
+        if (visitor == null) {
+            throw new NullPointerException();
+        }
+        for (Name to : _roleClosure.nodes()) {
+            for (Name role : _roleClosure.successors(to)) {
+                visitor.visitRole(role, to);
+            }
+        }
+        for (int roleId = 0; roleId < _roles.size(); roleId++) {
+            CompactBitmap read = _read.get(roleId);
+            for (int col = read.nextSetBit(0); col >= 0; col = col < Integer.MAX_VALUE ? read.nextSetBit(col + 1) : -1) {
+                visitor.visitRead(_columns.getColumn(col), _roles.get(roleId));
+            }
+        }
+        for (int roleId = 0; roleId < _roles.size(); roleId++) {
+            CompactBitmap write = _write.get(roleId);
+            for (int col = write.nextSetBit(0); col >= 0; col = col < Integer.MAX_VALUE ? write.nextSetBit(col + 1) : -1) {
+                visitor.visitWrite(_columns.getColumn(col), _roles.get(roleId));
+            }
+        }
+    }
+}
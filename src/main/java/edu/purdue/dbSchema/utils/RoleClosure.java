@@ -0,0 +1,389 @@
+package edu.purdue.dbSchema.utils;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the transitive closure of a direct acyclic graph, i.e. for every node
+ * the nodes it reaches together with their distance. The closure is updated
+ * incrementally every time an edge is added, so looking up the nodes reached by
+ * another one does not require a visit of the graph.
+ * <p>
+ * Every node has a dense integer id. The distances of the nodes reached by a
+ * node are kept in a table of primitive integers, and the nodes reaching it in
+ * a {@link CompactBitmap}: an edge changes only the nodes reaching its start,
+ * so {@link #add(java.lang.Comparable, java.lang.Comparable)} visits just them
+ * and costs about the number of pairs of nodes it connects, not the size of
+ * the graph. The nodes which become reachable are merged into the ordered
+ * lists returned by {@link #get(java.lang.Comparable)}, which are not sorted
+ * again.
+ * <p>
+ * Only the nodes and the edges are serialized, the closure is computed again
+ * when it is read.
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ * @param <T> the type of the nodes.
+ */
+final class RoleClosure<T extends Comparable<T>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Map<T, Integer> _ids;
+    private transient List<T> _nodes;
+    private transient Distances[] _reached;
+    private transient CompactBitmap[] _reachedBy;
+    private transient int[][] _orderedIds;
+    private transient List<List<T>> _ordered;
+
+    /**
+     * Creates the closure of an empty graph.
+     */
+    RoleClosure() {
+        init();
+    }
+
+    /**
+     * Creates a copy of another closure.
+     *
+     * @param other the closure to copy.
+     * @throws NullPointerException if other is null.
+     */
+    RoleClosure(RoleClosure<T> other) throws NullPointerException {
+        int size = other._nodes.size();
+        _ids = new HashMap<>(other._ids);
+        _nodes = new ArrayList<>(other._nodes);
+        _reached = new Distances[other._reached.length];
+        _reachedBy = new CompactBitmap[other._reached.length];
+        for (int i = 0; i < size; i++) {
+            _reached[i] = new Distances(other._reached[i]);
+            _reachedBy[i] = new CompactBitmap(other._reachedBy[i]);
+        }
+        // the ordered nodes are never modified, they are replaced
+        _orderedIds = Arrays.copyOf(other._orderedIds, other._orderedIds.length);
+        _ordered = new ArrayList<>(other._ordered);
+    }
+
+    private void init() {
+        _ids = new HashMap<>();
+        _nodes = new ArrayList<>();
+        _reached = new Distances[8];
+        _reachedBy = new CompactBitmap[8];
+        _orderedIds = new int[8][];
+        _ordered = new ArrayList<>();
+    }
+
+    /**
+     * Updates the closure after the addition of an edge. The edge must not
+     * create a cycle, use {@link #reaches(java.lang.Comparable, java.lang.Comparable)
+     * } to check it.
+     *
+     * @param from the starting point.
+     * @param to the ending point.
+     * @throws NullPointerException if from or to is null.
+     */
+    void add(T from, T to) throws NullPointerException {
+        if (from == null || to == null) {
+            throw new NullPointerException();
+        }
+        int fromId = node(from);
+        int toId = node(to);
+        if (_reached[fromId].get(toId) == 1) {
+            return; // the edge is already there
+        }
+        int[] reachedByTo = _orderedIds[toId];
+        Distances toDistances = _reached[toId];
+        int[] changed = new int[reachedByTo.length];
+        // the nodes reached by "to" gain ancestors, "from" does not
+        CompactBitmap ancestors = _reachedBy[fromId];
+        for (int ancestor = ancestors.nextSetBit(0); ancestor >= 0; ancestor = ancestor < Integer.MAX_VALUE ? ancestors.nextSetBit(ancestor + 1) : -1) {
+            Distances reached = _reached[ancestor];
+            int base = reached.get(fromId) + 1;
+            int changedNum = 0;
+            for (int node : reachedByTo) {
+                int distance = base + toDistances.get(node);
+                int old = reached.get(node);
+                if (old < 0 || distance < old) {
+                    reached.put(node, distance);
+                    _reachedBy[node].add(ancestor);
+                    changed[changedNum++] = node;
+                }
+            }
+            if (changedNum > 0) {
+                merge(ancestor, changed, changedNum);
+            }
+        }
+    }
+
+    /**
+     * Replaces the ordered nodes reached by a node, merging the ones whose
+     * distance changed, which are already in order, with the others.
+     */
+    private void merge(int id, int[] changed, int changedNum) {
+        Distances reached = _reached[id];
+        Distances isChanged = new Distances(changedNum);
+        for (int i = 0; i < changedNum; i++) {
+            isChanged.put(changed[i], 0);
+        }
+        int[] old = _orderedIds[id];
+        int[] ret = new int[reached.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (k < ret.length) {
+            while (i < old.length && isChanged.get(old[i]) >= 0) {
+                i++;
+            }
+            if (j == changedNum || (i < old.length && compare(reached, old[i], changed[j]) < 0)) {
+                ret[k++] = old[i++];
+            } else {
+                ret[k++] = changed[j++];
+            }
+        }
+        setOrdered(id, ret);
+    }
+
+    private int compare(Distances reached, int a, int b) {
+        int cmp = Integer.compare(reached.get(a), reached.get(b));
+        return cmp != 0 ? cmp : _nodes.get(a).compareTo(_nodes.get(b));
+    }
+
+    private void setOrdered(int id, int[] ordered) {
+        @SuppressWarnings("unchecked")
+        T[] nodes = (T[]) new Comparable[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            nodes[i] = _nodes.get(ordered[i]);
+        }
+        _orderedIds[id] = ordered;
+        _ordered.set(id, Collections.unmodifiableList(Arrays.asList(nodes)));
+    }
+
+    /**
+     * Checks if a node can be reached from another one. Every node reaches
+     * itself.
+     *
+     * @param from the starting point.
+     * @param to the ending point.
+     * @return true if there is a path between the two nodes.
+     * @throws NullPointerException if from or to is null.
+     */
+    boolean reaches(T from, T to) throws NullPointerException {
+        if (from == null || to == null) {
+            throw new NullPointerException();
+        }
+        if (from.equals(to)) {
+            return true;
+        }
+        Integer fromId = _ids.get(from);
+        Integer toId = _ids.get(to);
+        return fromId != null && toId != null && _reached[fromId].get(toId) >= 0;
+    }
+
+    /**
+     * Returns the nodes reached by a node, starting with the node itself and
+     * ordered by increasing distance. The list can be traversed by index
+     * without allocating an iterator.
+     *
+     * @param start the starting point.
+     * @return an unmodifiable list of the nodes reachable from start or null if
+     * start is not a node of the graph.
+     * @throws NullPointerException if start is null.
+     */
+    List<T> get(T start) throws NullPointerException {
+        if (start == null) {
+            throw new NullPointerException();
+        }
+        Integer id = _ids.get(start);
+        return id == null ? null : _ordered.get(id);
+    }
+
+    /**
+     * Returns all the nodes of the graph.
+     *
+     * @return an unmodifiable set of nodes.
+     */
+    Set<T> nodes() {
+        return Collections.unmodifiableSet(_ids.keySet());
+    }
+
+    /**
+     * Returns the nodes reached by a node through a single edge.
+     *
+     * @param start the starting point.
+     * @return the nodes at distance one from start.
+     * @throws NullPointerException if start is null.
+     */
+    List<T> successors(T start) throws NullPointerException {
+        if (start == null) {
+            throw new NullPointerException();
+        }
+        List<T> ret = new ArrayList<>();
+        Integer id = _ids.get(start);
+        if (id != null) {
+            // the nodes are ordered by distance and the first one is start
+            int[] ordered = _orderedIds[id];
+            for (int i = 1; i < ordered.length && _reached[id].get(ordered[i]) == 1; i++) {
+                ret.add(_nodes.get(ordered[i]));
+            }
+        }
+        return ret;
+    }
+
+    private int node(T node) {
+        Integer id = _ids.get(node);
+        if (id == null) {
+            id = _nodes.size();
+            _ids.put(node, id);
+            _nodes.add(node);
+            if (id == _reached.length) {
+                _reached = Arrays.copyOf(_reached, 2 * id);
+                _reachedBy = Arrays.copyOf(_reachedBy, 2 * id);
+                _orderedIds = Arrays.copyOf(_orderedIds, 2 * id);
+            }
+            _reached[id] = new Distances(1);
+            _reached[id].put(id, 0);
+            _reachedBy[id] = new CompactBitmap();
+            _reachedBy[id].add(id);
+            _orderedIds[id] = new int[]{id};
+            _ordered.add(Collections.singletonList(node));
+        }
+        return id;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(_nodes.size());
+        for (T node : _nodes) {
+            out.writeObject(node);
+        }
+        for (int id = 0; id < _nodes.size(); id++) {
+            int[] ordered = _orderedIds[id];
+            int successors = 1;
+            while (successors < ordered.length && _reached[id].get(ordered[successors]) == 1) {
+                successors++;
+            }
+            out.writeInt(successors - 1);
+            for (int i = 1; i < successors; i++) {
+                out.writeInt(ordered[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        int size = in.readInt();
+        if (size < 0) {
+            throw new InvalidObjectException("negative size");
+        }
+        for (int i = 0; i < size; i++) {
+            T node = (T) in.readObject();
+            if (node == null || node(node) != i) {
+                throw new InvalidObjectException("invalid node");
+            }
+        }
+        for (int from = 0; from < size; from++) {
+            int successors = in.readInt();
+            for (int i = 0; i < successors; i++) {
+                int to = in.readInt();
+                if (to < 0 || to >= size || reaches(_nodes.get(to), _nodes.get(from))) {
+                    throw new InvalidObjectException("invalid edge");
+                }
+                add(_nodes.get(from), _nodes.get(to));
+            }
+        }
+    }
+
+    /**
+     * A table from node ids to distances, with open addressing and linear
+     * probing. The keys are stored incremented by one, so that 0 marks a free
+     * slot.
+     */
+    private static final class Distances {
+
+        private int[] _keys;
+        private int[] _values;
+        private int _size;
+
+        Distances(int expected) {
+            int capacity = 2;
+            while (4 * expected > 3 * capacity) {
+                capacity <<= 1;
+            }
+            _keys = new int[capacity];
+            _values = new int[capacity];
+        }
+
+        Distances(Distances other) {
+            _keys = other._keys.clone();
+            _values = other._values.clone();
+            _size = other._size;
+        }
+
+        int size() {
+            return _size;
+        }
+
+        /**
+         * Returns the distance of a node or -1 if the node is not in the table.
+         */
+        int get(int key) {
+            int mask = _keys.length - 1;
+            for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+                int k = _keys[slot];
+                if (k == key + 1) {
+                    return _values[slot];
+                }
+                if (k == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(int key, int value) {
+            int mask = _keys.length - 1;
+            int slot = hash(key) & mask;
+            while (_keys[slot] != 0 && _keys[slot] != key + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (_keys[slot] != 0) {
+                _values[slot] = value;
+            } else if (4 * (_size + 1) > 3 * _keys.length) {
+                grow();
+                put(key, value);
+            } else {
+                _keys[slot] = key + 1;
+                _values[slot] = value;
+                _size++;
+            }
+        }
+
+        private void grow() {
+            int[] keys = _keys;
+            int[] values = _values;
+            _keys = new int[2 * keys.length];
+            _values = new int[2 * keys.length];
+            _size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    put(keys[i] - 1, values[i]);
+                }
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package edu.purdue.dbSchema;
+
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryResult;
+import edu.purdue.dbSchema.schema.SchemaSnapshot;
+import edu.purdue.dbSchema.schema.Table;
+import edu.purdue.dbSchema.server.FeatureWriter;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class AppTest {
+
+    Path _legacy;
+    Path _snapshot;
+
+    @Before
+    public void init() throws Exception {
+        _legacy = File.createTempFile("legacy", ".db").toPath();
+        _snapshot = File.createTempFile("snapshot", ".db").toPath();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("edu/purdue/dbSchema/testData/legacy.db")) {
+            Files.copy(in, _legacy, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(_legacy);
+        Files.deleteIfExists(_snapshot);
+    }
+
+    @Test
+    public void convert_legacyDatabase() throws Exception {
+        App.convert(_legacy.toString(), _snapshot);
+        assertThat(SchemaSnapshot.isSnapshot(_snapshot), is(true));
+
+        DatabaseEngine db = SchemaSnapshot.read(_snapshot);
+        assertThat(db.getDbVendor(), is(EDbVendor.dbvpostgresql));
+        assertThat(db.getTables(), hasSize(2));
+        Table flight = db.getTable("flight");
+        Table reservation = db.getTable("reservation");
+        assertThat(flight.getColumns(), hasSize(3));
+        assertThat(reservation.getName().getOriginalName(), is("\"RESERVATION\""));
+
+        assertThat(db.parse("select f_id, f_seats_left from flight", "alice").get(0).getRoles(), contains(new Name("clerk")));
+        assertThat(db.parse("update reservation set r_seat = 3 where r_id = 1", "alice").get(0).getRoles(), contains(new Name("agent")));
+        assertThat(db.parse("select f_id from flight", "bob").get(0).getRoles(), contains(new Name("bob")));
+        try {
+            db.parse("select f_seats_left from flight", "bob");
+            fail("missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void readDb_snapshotOrLegacy() throws Exception {
+        App.convert(_legacy.toString(), _snapshot);
+        assertThat(App.readDb(_snapshot.toString()).getTables(), hasSize(2));
+        assertThat(App.readDb(_legacy.toString()).getTables(), hasSize(2));
+    }
+
+    @Test(timeout = 10000)
+    public void parseLine_answersBeforeEndOfInput() throws Exception {
+        final DatabaseEngine db = App.readDb(_legacy.toString());
+        final BlockingQueue<QueryResult> results = new ArrayBlockingQueue<>(16);
+        final PipedOutputStream queries = new PipedOutputStream();
+        final PipedInputStream in = new PipedInputStream(queries);
+        Thread parser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    App.parseLine(db, in, new FeatureWriter() {
+                        @Override
+                        public void write(QueryResult result) {
+                            results.add(result);
+                        }
+
+                        @Override
+                        public void writeFailure(Throwable error) {
+                        }
+
+                        @Override
+                        public void flush() {
+                        }
+                    });
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        parser.start();
+
+        queries.write("select f_id from flight\n".getBytes(StandardCharsets.UTF_8));
+        queries.flush();
+        QueryResult first = results.poll(5, TimeUnit.SECONDS);
+        assertThat(first, is(notNullValue()));
+        assertThat(first.getRecord().getSql(), is("select f_id from flight"));
+
+        queries.write("select f_seats_left from flight\n".getBytes(StandardCharsets.UTF_8));
+        queries.close();
+        parser.join();
+        assertThat(results, hasSize(1));
+    }
+}
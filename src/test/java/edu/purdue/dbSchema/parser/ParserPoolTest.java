@@ -0,0 +1,60 @@
+package edu.purdue.dbSchema.parser;
+
+import gudusoft.gsqlparser.EDbVendor;
+import gudusoft.gsqlparser.TGSqlParser;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class ParserPoolTest {
+
+    @Test
+    public void acquire_reusesReleasedParser() {
+        TGSqlParser parser = ParserPool.acquire(EDbVendor.dbvpostgresql);
+        ParserPool.release(EDbVendor.dbvpostgresql, parser, 0);
+        assertThat(ParserPool.acquire(EDbVendor.dbvpostgresql), sameInstance(parser));
+    }
+
+    @Test
+    public void release_dropsParserOfLongText() {
+        TGSqlParser parser = ParserPool.acquire(EDbVendor.dbvpostgresql);
+        ParserPool.release(EDbVendor.dbvpostgresql, parser, ParserPool.MAX_RETAINED_LENGTH + 1);
+        assertThat(ParserPool.acquire(EDbVendor.dbvpostgresql), not(sameInstance(parser)));
+    }
+
+    @Test
+    public void acquire_neverSharesParserInUse() {
+        TGSqlParser first = ParserPool.acquire(EDbVendor.dbvoracle);
+        TGSqlParser second = ParserPool.acquire(EDbVendor.dbvoracle);
+        assertThat(second, not(sameInstance(first)));
+        ParserPool.release(EDbVendor.dbvoracle, first, 0);
+        ParserPool.release(EDbVendor.dbvoracle, second, 0);
+    }
+
+    @Test
+    public void acquire_isPerVendor() {
+        TGSqlParser oracle = ParserPool.acquire(EDbVendor.dbvoracle);
+        ParserPool.release(EDbVendor.dbvoracle, oracle, 0);
+        TGSqlParser postgres = ParserPool.acquire(EDbVendor.dbvpostgresql);
+        assertThat(postgres, not(sameInstance(oracle)));
+        ParserPool.release(EDbVendor.dbvpostgresql, postgres, 0);
+    }
+
+    @Test
+    public void acquire_isPerThread() throws Exception {
+        TGSqlParser parser = ParserPool.acquire(EDbVendor.dbvmysql);
+        ParserPool.release(EDbVendor.dbvmysql, parser, 0);
+
+        AtomicReference<TGSqlParser> other = new AtomicReference<>();
+        Thread t = new Thread(() -> other.set(ParserPool.acquire(EDbVendor.dbvmysql)));
+        t.start();
+        t.join();
+        assertThat(other.get(), not(sameInstance(parser)));
+    }
+}
@@ -0,0 +1,104 @@
+package edu.purdue.dbSchema.parser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class SimpleDmlParserTest {
+
+    private static ParsedQuery parse(String sql) {
+        return new SimpleDmlParser(sql).parse();
+    }
+
+    @Test
+    public void parse_select() {
+        SimpleDmlParser parser = new SimpleDmlParser("SELECT DISTINCT a, f.b AS x, \"C\" y, f.* FROM \"FLIGHT\" f "
+                + "WHERE (a = 1 OR f.b <> 'x') AND c + 2 >= d AND e IN (1, 'y') ORDER BY a DESC, b LIMIT 10 OFFSET 5;");
+        ParsedQuery q = parser.parse();
+        assertThat(q.type, is(DlmQueryType.SELECT));
+        assertThat(q.mainColumns, contains(new StringPair("", "a"), new StringPair("f", "b"), new StringPair("", "\"C\""), new StringPair("f", "*")));
+        assertThat(q.virtualColumns.keySet(), contains("x", "y"));
+        assertThat(q.virtualColumns.getSet("x"), contains(new StringPair("f", "b")));
+        assertThat(q.from, contains(new StringPair("\"FLIGHT\"", "f")));
+        assertThat(q.whereColumns, contains(new StringPair("", "a"), new StringPair("f", "b"),
+                new StringPair("", "c"), new StringPair("", "d"), new StringPair("", "e")));
+        assertThat(q.subQueriesWhere, empty());
+        assertThat(parser.getLimit(), is("LIMIT 10 OFFSET 5"));
+
+        q = parse("select * from t");
+        assertThat(q.mainColumns, contains(new StringPair("", "*")));
+        assertThat(q.from, contains(new StringPair("t", "")));
+        assertThat(q.whereColumns, empty());
+    }
+
+    @Test
+    public void parse_insertUpdateDelete() {
+        ParsedQuery q = parse("insert into t (a, \"B\") values (1, 'x'), (null, default)");
+        assertThat(q.type, is(DlmQueryType.INSERT));
+        assertThat(q.from, contains(new StringPair("t", "")));
+        assertThat(q.mainColumns, contains(new StringPair("", "a"), new StringPair("", "\"B\"")));
+
+        q = parse("update t set a = (a + 50) * 2, b = 'x' where c = '1' and d = 2");
+        assertThat(q.type, is(DlmQueryType.UPDATE));
+        assertThat(q.from, contains(new StringPair("t", "")));
+        assertThat(q.mainColumns, contains(new StringPair("", "a"), new StringPair("", "b")));
+        assertThat(q.whereColumns, contains(new StringPair("", "c"), new StringPair("", "d")));
+
+        q = parse("delete from t where a < 3");
+        assertThat(q.type, is(DlmQueryType.DELETE));
+        assertThat(q.from, contains(new StringPair("t", "")));
+        assertThat(q.mainColumns, empty());
+        assertThat(q.whereColumns, contains(new StringPair("", "a")));
+    }
+
+    @Test
+    public void parse_notRecognized() {
+        String[] sqls = {
+            "select a from t1, t2",
+            "select a from t1 join t2 on a = b",
+            "select count(*) from t",
+            "select a from t where b in (select c from u)",
+            "select a from t where b is null",
+            "select a from t where not a = 1",
+            "select a from t where b = -1",
+            "select a from t where b = $1",
+            "select a from t where b = ?",
+            "select a from t where b = 'it''s'",
+            "select a from t where b = 'x\\'",
+            "select a from t -- comment",
+            "select a from t; select b from t",
+            "select a as \"x\" from t",
+            "select * x from t",
+            "select user from t",
+            "select a from s.t",
+            "select a from t group by a",
+            "insert into t values (1)",
+            "insert into t (a) select b from u",
+            "update t x set a = 1",
+            "delete from t where a = 1 returning a",
+            "select a from t where",
+            "select a from",
+            "grant select on t to u",
+            ""};
+        for (String sql : sqls) {
+            assertThat(sql, parse(sql), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void ctor_exception() {
+        try {
+            new SimpleDmlParser(null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package edu.purdue.dbSchema.parser;
+
+import gudusoft.gsqlparser.EDbVendor;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class SqlFingerprintTest {
+
+    @Test
+    public void template_replacesLiterals() {
+        assertThat(SqlFingerprint.template("select a from t where id = 42 and name = 'bob'"),
+                is("select a from t where id = ? and name = ?"));
+        assertThat(SqlFingerprint.template("insert into t values (1, 'x', -2.5e3)"),
+                is("insert into t values (?, ?, -?)"));
+        assertThat(SqlFingerprint.template("select a from t where b in ('x','y')"),
+                is("select a from t where b in (?,?)"));
+    }
+
+    @Test
+    public void template_sameForDifferentConstants() {
+        assertThat(SqlFingerprint.template("SELECT a FROM t WHERE id=1"),
+                is(SqlFingerprint.template("select a\n from t  where id=2")));
+        assertThat(SqlFingerprint.template("select a from t where s like 'it''s'"),
+                is(SqlFingerprint.template("select a from t where s like 'x'")));
+    }
+
+    @Test
+    public void template_keepsIdentifiers() {
+        assertThat(SqlFingerprint.template("select \"Col 1\" from t1"), is("select \"Col 1\" from t1"));
+        assertThat(SqlFingerprint.template("select a from t1"), is(not(SqlFingerprint.template("select a from t2"))));
+        // not a literal context: the string may be an alias or an identifier
+        assertThat(SqlFingerprint.template("select a 'x' from t"), is("select a 'x' from t"));
+        assertThat(SqlFingerprint.template("select a from t where b = $1"), is("select a from t where b = $1"));
+    }
+
+    @Test
+    public void template_removesComments() {
+        assertThat(SqlFingerprint.template("select a -- comment\nfrom /* other */ t"), is("select a from t"));
+    }
+
+    @Test
+    public void template_unsafe() {
+        assertThat(SqlFingerprint.template("select a from t where b = 'x\\'"), is(nullValue()));
+        assertThat(SqlFingerprint.template("select a from t where b = 'x"), is(nullValue()));
+        assertThat(SqlFingerprint.template("select a /* /* */ */ from t"), is(nullValue()));
+        assertThat(SqlFingerprint.template("select $$x$$"), is(nullValue()));
+        assertThat(SqlFingerprint.template("select 1x from t"), is(nullValue()));
+    }
+
+    @Test
+    public void template_dialect() {
+        assertThat(SqlFingerprint.template(EDbVendor.dbvmssql, "select [Address 1] from t where id = 1"),
+                is("select [Address 1] from t where id = ?"));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvmssql, "select [Address 1] from t"),
+                is(not(SqlFingerprint.template(EDbVendor.dbvmssql, "select [Address 2] from t"))));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvmssql, "select a /* /* */ */ from t"), is(nullValue()));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvmysql, "select a # = '\n, b -- '\nfrom t"), is("select a , b from t"));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvmysql, "select a # = 'x\nfrom t"), is("select a from t"));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvpostgresql, "select $$x$$"), is(nullValue()));
+        assertThat(SqlFingerprint.template(EDbVendor.dbvpostgresql, "select a from t where b = E'x'"),
+                is("select a from t where b = e'x'"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void template_null() {
+        SqlFingerprint.template(null);
+    }
+
+    private static String scanTemplate(EDbVendor vendor, String sql) {
+        SqlFingerprint fingerprint = new SqlFingerprint(vendor);
+        return fingerprint.scan(sql) ? fingerprint.getTemplate() : null;
+    }
+
+    @Test
+    public void scan_replacesAllLiterals() {
+        SqlFingerprint fingerprint = new SqlFingerprint(EDbVendor.dbvansi);
+        assertThat(fingerprint.scan("SELECT 'x', a FROM t WHERE b = 1.5 AND c IN (1, -2, 'z')"), is(true));
+        assertThat(fingerprint.getTemplate(), is("select ?, a from t where b = ? and c in (?)"));
+        assertThat(fingerprint.getLiteralCount(), is(5));
+        assertThat(scanTemplate(EDbVendor.dbvansi, "select a from t where b in (1) and c not in (2,3)"),
+                is("select a from t where b in (?) and c not in (?)"));
+        // not a list of literals
+        assertThat(scanTemplate(EDbVendor.dbvansi, "select a from t where b in (c, 1)"), is("select a from t where b in (c, ?)"));
+        assertThat(scanTemplate(EDbVendor.dbvansi, "select a from t where b in (select c from u)"),
+                is("select a from t where b in (select c from u)"));
+    }
+
+    @Test
+    public void scan_fingerprint() {
+        SqlFingerprint fingerprint = new SqlFingerprint(EDbVendor.dbvpostgresql);
+        fingerprint.scan("select a from t where b in (1, 2, 3) -- first");
+        long low = fingerprint.getFingerprint();
+        long high = fingerprint.getFingerprintHigh();
+        fingerprint.scan("SELECT a\n  FROM t WHERE b IN (4)");
+        assertThat(fingerprint.getFingerprint(), is(low));
+        assertThat(fingerprint.getFingerprintHigh(), is(high));
+        fingerprint.scan("select b from t where b in (1, 2, 3)");
+        assertThat(fingerprint.getFingerprint(), is(not(low)));
+        assertThat(fingerprint.getFingerprintHigh(), is(not(high)));
+    }
+
+    @Test
+    public void scan_postgresql() {
+        assertThat(scanTemplate(EDbVendor.dbvpostgresql, "select $$a 'b'$$, $x$;$x$, E'it\\'s' /* a /* nested */ comment */ from t where a = $1"),
+                is("select ?, ?, ? from t where a = $1"));
+        assertThat(scanTemplate(EDbVendor.dbvpostgresql, "select $x$a"), is(nullValue()));
+        assertThat(scanTemplate(EDbVendor.dbvpostgresql, "select 'a\\' from t"), is("select ? from t"));
+    }
+
+    @Test
+    public void scan_mysql() {
+        assertThat(scanTemplate(EDbVendor.dbvmysql, "select `a b`, 'it\\'s', 0x1F # comment\nfrom t"),
+                is("select `a b`, ?, ? from t"));
+    }
+
+    @Test
+    public void scan_mssql() {
+        assertThat(scanTemplate(EDbVendor.dbvmssql, "select [a b], N'x' from [t]"), is("select [a b], ? from [t]"));
+        assertThat(scanTemplate(EDbVendor.dbvpostgresql, "select a[1] from t"), is("select a[?] from t"));
+    }
+
+    @Test
+    public void scan_oracle() {
+        assertThat(scanTemplate(EDbVendor.dbvoracle, "select q'[it's]', q'!x!' from dual"), is("select ?, ? from dual"));
+        assertThat(scanTemplate(EDbVendor.dbvoracle, "select q'[x' from dual"), is(nullValue()));
+    }
+
+    @Test
+    public void scan_unterminated() {
+        SqlFingerprint fingerprint = new SqlFingerprint(EDbVendor.dbvpostgresql);
+        assertThat(fingerprint.scan("select 'a"), is(false));
+        assertThat(fingerprint.scan("select \"a"), is(false));
+        assertThat(fingerprint.scan("select a /* /* */"), is(false));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_null() {
+        new SqlFingerprint(null);
+    }
+}
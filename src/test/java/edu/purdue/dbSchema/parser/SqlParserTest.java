@@ -8,7 +8,10 @@ import edu.purdue.dbSchema.testUtil.TuneLogger;
 import gudusoft.gsqlparser.EDbVendor;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Scanner;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -42,6 +45,32 @@ public class SqlParserTest {
         }
     }
 
+    @Test
+    public void statistics_countStatements() throws Exception {
+        ParserStatistics before = SqlParser.getStatistics();
+        SqlParser p = new SqlParser(EDbVendor.dbvpostgresql);
+        p.parse("select a from t1 where b in (select c from t2) limit 3; insert into t1 (a) values (1)");
+        try {
+            p.parse("select * froma table");
+            fail("missing SqlParseException");
+        } catch (SqlParseException ex) {
+        }
+        ParserStatistics after = SqlParser.getStatistics();
+        assertThat(after.get(ParserStatistics.Counter.SELECT) - before.get(ParserStatistics.Counter.SELECT), is(2L));
+        assertThat(after.get(ParserStatistics.Counter.INSERT) - before.get(ParserStatistics.Counter.INSERT), is(1L));
+        assertThat(after.get(ParserStatistics.Counter.IGNORED_LIMIT) - before.get(ParserStatistics.Counter.IGNORED_LIMIT), is(1L));
+        assertThat(after.get(ParserStatistics.Counter.PARSE_ERROR) - before.get(ParserStatistics.Counter.PARSE_ERROR), is(1L));
+    }
+
+    @Test
+    public void statistics_toString() {
+        long[] counts = new long[ParserStatistics.Counter.values().length];
+        counts[ParserStatistics.Counter.GRANT.ordinal()] = 3;
+        ParserStatistics stats = new ParserStatistics(counts);
+        assertThat(stats.get(ParserStatistics.Counter.GRANT), is(3L));
+        assertThat(stats.toString(), containsString("create_table: 0, grant: 3, unsupported: 0"));
+    }
+
     @Test
     public void parse_parseError() throws Exception {
         SqlParser p = new SqlParser(EDbVendor.dbvoracle);
@@ -53,6 +82,21 @@ public class SqlParserTest {
         }
     }
 
+    @Test
+    public void parse_reusedParserForgetsPreviousStatements() throws Exception {
+        SqlParser p = new SqlParser(EDbVendor.dbvoracle);
+        assertThat(p.parse("select a from t1; select b from t2"), is(2));
+        try {
+            p.parse("select * froma table");
+            fail("missing SqlParseException");
+        } catch (SqlParseException ex) {
+        }
+        SqlParser other = new SqlParser(EDbVendor.dbvoracle);
+        assertThat(other.parse("select c from t3"), is(1));
+        assertThat(other.getDmlQueries(), hasSize(1));
+        assertThat(other.getDmlQueries().get(0).mainColumns, contains(new StringPair("", "c")));
+    }
+
     @Test
     public void parse_emptyStringNoError() throws Exception {
         SqlParser p = new SqlParser(EDbVendor.dbvoracle);
@@ -419,6 +463,46 @@ public class SqlParserTest {
         //TODO, should we report it?
     }
 
+    @Test
+    public void parse_fastPathMatchesParser() throws Exception {
+        List<String> sqls = new ArrayList<>(Arrays.asList(
+                "select * from tbl LIMIT 10",
+                "select distinct a, t.b as x, c y from tbl t where a = 1 and (t.b < (2 + c) or c in (1, 2)) order by a desc",
+                "insert into \"FLIGHT\" (F_ID, F_SEATS_LEFT) values (1, 150), (2, default)",
+                "update \"FLIGHT\" set F_SEATS_LEFT = F_SEATS_LEFT - 1 where F_ID = 7",
+                "delete from \"RESERVATION\" where R_ID = 3 or R_C_ID = 5"));
+        try (Scanner scanner = new Scanner(getClass().getClassLoader().getResourceAsStream("edu/purdue/dbSchema/testData/queries.sql"))) {
+            scanner.useDelimiter(";");
+            while (scanner.hasNext()) {
+                sqls.add(scanner.next().trim());
+            }
+        }
+        int recognized = 0;
+        for (String sql : sqls) {
+            ParsedQuery fast = new SimpleDmlParser(sql).parse();
+            if (fast == null) {
+                continue;
+            }
+            recognized++;
+            SqlParser p = new SqlParser(EDbVendor.dbvpostgresql, false);
+            p.parse(sql);
+            assertThat(sql, p.getDmlQueries(), hasSize(1));
+            ParsedQuery expected = p.getDmlQueries().get(0);
+            assertThat(sql, fast.type, is(expected.type));
+            assertThat(sql, fast.mainColumns, is(expected.mainColumns));
+            assertThat(sql, fast.from, is(expected.from));
+            assertThat(sql, fast.whereColumns.size(), is(expected.whereColumns.size()));
+            assertThat(sql, new HashSet<>(fast.whereColumns), is(new HashSet<>(expected.whereColumns)));
+            assertThat(sql, fast.virtualColumns.keySet(), is(expected.virtualColumns.keySet()));
+            for (String alias : expected.virtualColumns.keySet()) {
+                assertThat(sql, fast.virtualColumns.getSet(alias), is(expected.virtualColumns.getSet(alias)));
+            }
+            assert_noSubQueries_noCombinedQueries(fast);
+            assert_noSubQueries_noCombinedQueries(expected);
+        }
+        assertThat(recognized > sqls.size() / 4, is(true));
+    }
+
     private void assert_noSubQueries_noCombinedQueries(ParsedQuery query) {
         assertThat(query.subQueriesFrom, empty());
         assertThat(query.subQueriesSelect, empty());
@@ -0,0 +1,55 @@
+package edu.purdue.dbSchema.parser;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class SqlScriptTest {
+
+    @Test
+    public void split_statements() {
+        assertThat(SqlScript.split("create table a(id int);\n create table b(id int) ;;\n"),
+                contains("create table a(id int)", "create table b(id int)"));
+        assertThat(SqlScript.split("select 1"), contains("select 1"));
+        assertThat(SqlScript.split(" ;\n; "), empty());
+    }
+
+    @Test
+    public void split_ignoresQuotedSemicolons() {
+        assertThat(SqlScript.split("insert into t values ('a;b', 'it''s;');select \"x;y\" from t"),
+                contains("insert into t values ('a;b', 'it''s;')", "select \"x;y\" from t"));
+        assertThat(SqlScript.split("select E'\\';' from t;select 2"),
+                contains("select E'\\';' from t", "select 2"));
+        assertThat(SqlScript.split("create function f() returns int as $body$ select 1; $body$ language sql;select $$;$$"),
+                contains("create function f() returns int as $body$ select 1; $body$ language sql", "select $$;$$"));
+        assertThat(SqlScript.split("select a from t where b = $1;select 2"),
+                contains("select a from t where b = $1", "select 2"));
+    }
+
+    @Test
+    public void split_ignoresComments() {
+        assertThat(SqlScript.split("-- a; comment\nselect 1 /* ; /* nested; */ ; */;\n-- only a comment;\n/* ; */"),
+                contains("-- a; comment\nselect 1 /* ; /* nested; */ ; */"));
+    }
+
+    @Test
+    public void split_unterminated() {
+        assertThat(SqlScript.split("select 1; select 'a;b"), contains("select 1", "select 'a;b"));
+        assertThat(SqlScript.split("select 1; /* a; b"), contains("select 1"));
+    }
+
+    @Test
+    public void split_null() {
+        try {
+            SqlScript.split(null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class AnomalyScorerTest {
+
+    private static QueryFeature feature(DlmQueryType type) {
+        return new QueryFeature(type, Collections.<AbstractColumn>emptyList(), Collections.<AbstractColumn>emptyList(), Collections.<Name>emptyList());
+    }
+
+    @Test
+    public void score_unknownUser() {
+        AnomalyScorer scorer = new AnomalyScorer(new ProfileBuilder());
+        assertThat(scorer.score("user1", feature(DlmQueryType.SELECT), 0), is(1.0));
+        assertThat(scorer.score("user1", Collections.singletonList(feature(DlmQueryType.SELECT)), 0), is(1.0));
+        assertThat(scorer.score("user1", Collections.<QueryFeature>emptyList(), 0), is(0.0));
+    }
+
+    @Test
+    public void score_frequencyOfTypes() {
+        ProfileBuilder builder = new ProfileBuilder();
+        AnomalyScorer scorer = new AnomalyScorer(builder, new FrequencyModel(2));
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        assertThat(scorer.score("user1", feature(DlmQueryType.SELECT), 0), closeTo(0.5, 1e-9));
+        assertThat(scorer.score("user1", feature(DlmQueryType.DELETE), 0), closeTo(1, 1e-9));
+    }
+
+    @Test
+    public void score_featuresWithoutIds() {
+        ProfileBuilder builder = new ProfileBuilder();
+        AnomalyScorer scorer = new AnomalyScorer(builder, new SimilarityModel());
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        assertThat(scorer.score("user1", feature(DlmQueryType.INSERT), 0), is(0.0));
+    }
+
+    @Test(timeout = 10000)
+    public void score_doesNotWaitForUpdates() throws Exception {
+        ProfileBuilder builder = new ProfileBuilder();
+        AnomalyScorer scorer = new AnomalyScorer(builder);
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        QueryFeature blocking = new QueryFeature(DlmQueryType.SELECT, Collections.<AbstractColumn>emptyList(), Collections.<AbstractColumn>emptyList(), Collections.<Name>emptyList()) {
+            @Override
+            public int nextUsedColId(int from) {
+                // called while the profile is updated
+                updating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+        };
+        Thread update = new Thread(() -> builder.add("user1", blocking, 0));
+        update.start();
+        updating.await();
+        // one or two selects, depending on the values read
+        assertThat(scorer.score("user1", feature(DlmQueryType.SELECT), 0), lessThanOrEqualTo(0.5));
+        release.countDown();
+        update.join();
+        assertThat(scorer.score("user1", feature(DlmQueryType.SELECT), 0), closeTo(1.0 / 3, 1e-9));
+    }
+
+    @Test
+    public void constructor_invalid() {
+        try {
+            new AnomalyScorer(new ProfileBuilder(), new AnomalyModel[0]);
+            fail("no models");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            new AnomalyScorer(null);
+            fail("no profiles");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            new FrequencyModel(0);
+            fail("zero smoothing");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void score_columns() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("create table t(a integer, b integer, c integer); grant select on t to user1");
+        ProfileBuilder builder = new ProfileBuilder();
+        AnomalyScorer frequency = new AnomalyScorer(builder, new FrequencyModel());
+        AnomalyScorer similarity = new AnomalyScorer(builder, new SimilarityModel());
+        for (int i = 0; i < 9; i++) {
+            builder.add("user1", db.parse("select a, b from t", "user1"), 0);
+            builder.add("user1", db.parse("select c from t", "user1"), 0);
+        }
+
+        List<QueryFeature> known = db.parse("select a, b from t", "user1");
+        assertThat(frequency.score("user1", known, 0), closeTo(0.1, 1e-9));
+        assertThat(similarity.score("user1", known, 0), closeTo(0, 1e-9));
+        // known columns in an unusual combination
+        List<QueryFeature> mixed = db.parse("select a, c from t", "user1");
+        assertThat(frequency.score("user1", mixed, 0), closeTo(0.1, 1e-9));
+        assertThat(similarity.score("user1", mixed, 0), closeTo(0.5, 1e-9));
+        List<QueryFeature> filtered = db.parse("select a from t where c = 1", "user1");
+        assertThat(frequency.score("user1", filtered, 0), closeTo(1, 1e-9));
+    }
+
+    @Test
+    public void getMaxSimilarity_keepsRecentSets() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        StringBuilder ddl = new StringBuilder("create table t(c0 integer");
+        for (int i = 1; i <= UserProfile.RECENT_SETS; i++) {
+            ddl.append(", c").append(i).append(" integer");
+        }
+        db.parse(ddl.append("); grant select on t to user1").toString());
+        ProfileBuilder builder = new ProfileBuilder();
+        builder.add("user1", db.parse("select c0 from t", "user1"), 0);
+        for (int i = 1; i < UserProfile.RECENT_SETS; i++) {
+            builder.add("user1", db.parse("select c" + i + " from t", "user1"), 0);
+            // a repeated set is not kept twice
+            builder.add("user1", db.parse("select c0 from t", "user1"), 0);
+        }
+        UserProfile profile = builder.getProfile("user1");
+        QueryFeature first = db.parse("select c0 from t", "user1").get(0);
+        assertThat(profile.getMaxSimilarity(first), is(1.0));
+
+        builder.add("user1", db.parse("select c" + UserProfile.RECENT_SETS + " from t", "user1"), 0);
+        assertThat(profile.getMaxSimilarity(first), is(0.0));
+    }
+}
@@ -0,0 +1,97 @@
+package edu.purdue.dbSchema.profile;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.QueryFeature;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class ProfileBuilderTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static QueryFeature feature(DlmQueryType type) {
+        return new QueryFeature(type, Collections.<AbstractColumn>emptyList(), Collections.<AbstractColumn>emptyList(), Collections.<Name>emptyList());
+    }
+
+    @Test
+    public void add_countsTypesWithDecay() {
+        ProfileBuilder builder = new ProfileBuilder(64, 2, HOUR);
+        builder.add("User1", feature(DlmQueryType.SELECT), 0);
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        builder.add("user1", feature(DlmQueryType.INSERT), HOUR);
+
+        UserProfile profile = builder.getProfile("USER1");
+        assertThat(builder.getUsers(), contains(new Name("user1")));
+        assertThat(profile.getCount(HOUR), closeTo(2, 1e-9));
+        assertThat(profile.getCount(DlmQueryType.SELECT, HOUR), closeTo(1, 1e-9));
+        assertThat(profile.getCount(DlmQueryType.INSERT, HOUR), closeTo(1, 1e-9));
+        assertThat(profile.getCount(DlmQueryType.INSERT, 3 * HOUR), closeTo(0.25, 1e-9));
+        assertThat(profile.getFirstSeen(), is(0L));
+        assertThat(profile.getLastSeen(), is(HOUR));
+        assertThat(builder.getProfile("user2"), is(nullValue()));
+    }
+
+    @Test
+    public void add_rescalesOldCounts() {
+        ProfileBuilder builder = new ProfileBuilder(64, 2, HOUR);
+        builder.add("user1", feature(DlmQueryType.SELECT), 0);
+        for (long t = 0; t <= 1000 * HOUR; t += 10 * HOUR) {
+            builder.add("user1", feature(DlmQueryType.DELETE), t);
+        }
+        UserProfile profile = builder.getProfile("user1");
+        // a geometric series of ratio 2^-10
+        assertThat(profile.getCount(DlmQueryType.DELETE, 1000 * HOUR), closeTo(1 / (1 - Math.pow(2, -10)), 1e-6));
+        assertThat(profile.getCount(DlmQueryType.SELECT, 1000 * HOUR), closeTo(0, 1e-9));
+    }
+
+    @Test
+    public void add_countsColumnsAndPairs() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("create table t(a integer, b integer, c integer); grant select on t to user1");
+        ProfileBuilder builder = new ProfileBuilder();
+        builder.add(db.parse(new QueryRecord("select a, b from t where c = 1", "user1")), 0);
+        builder.add(db.parse(new QueryRecord("select a from t", "user1")), 0);
+        builder.add(db.parse(new QueryRecord("select a from missing", "user1")), 0);
+
+        UserProfile profile = builder.getProfile("user1");
+        int a = db.getTable("t").getColumn("a").getId();
+        int b = db.getTable("t").getColumn("b").getId();
+        int c = db.getTable("t").getColumn("c").getId();
+        assertThat(profile.getCount(0), closeTo(2, 1e-9));
+        assertThat(profile.getUsedCount(a, 0), closeTo(2, 1e-9));
+        assertThat(profile.getUsedCount(b, 0), closeTo(1, 1e-9));
+        assertThat(profile.getFilteredCount(c, 0), closeTo(1, 1e-9));
+        assertThat(profile.getPairCount(b, a, 0), closeTo(1, 1e-9));
+        assertThat(profile.getPairCount(a, c, 0), closeTo(0, 1e-9));
+    }
+
+    @Test
+    public void ctor_invalid() {
+        try {
+            new ProfileBuilder(64, 2, 0);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            new ProfileBuilder(1 << 30, 4, 1000);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
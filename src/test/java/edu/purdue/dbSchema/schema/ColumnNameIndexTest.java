@@ -0,0 +1,88 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.parser.StringPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class ColumnNameIndexTest {
+
+    private Table _t1;
+    private Table _t2;
+    private HashMap<Name, Table> _tables;
+
+    @Before
+    public void setUp() throws Exception {
+        _t1 = new Table("t1").addColumn("id", "int", true, true).addColumn("a", "int", false, false);
+        _t2 = new Table("t2").addColumn("id", "int", true, true).addColumn("b", "int", false, false);
+        _tables = new HashMap<>();
+        _tables.put(_t1.getName(), _t1);
+        _tables.put(_t2.getName(), _t2);
+    }
+
+    @Test
+    public void get_findsUniqueColumns() {
+        ColumnNameIndex index = new ColumnNameIndex(_tables);
+        assertThat(index.get(new Name("A")), is(sameInstance(_t1.getColumn("a"))));
+        assertThat(index.get(new Name("b")), is(sameInstance(_t2.getColumn("b"))));
+        assertThat(index.get(new Name("c")), is(nullValue()));
+        assertThat(index.isAmbiguous(new Name("a")), is(false));
+    }
+
+    @Test
+    public void get_ambiguousColumn() {
+        ColumnNameIndex index = new ColumnNameIndex(_tables);
+        assertThat(index.isAmbiguous(new Name("id")), is(true));
+        try {
+            index.get(new Name("id"));
+            fail("Missing IllegalStateException");
+        } catch (IllegalStateException ex) {
+        }
+    }
+
+    @Test
+    public void aliasCountsAsAnotherTable() {
+        HashMap<Name, Table> tables = new HashMap<>();
+        tables.put(_t1.getName(), _t1);
+        tables.put(new Name("x"), _t1);
+        ColumnNameIndex index = new ColumnNameIndex(tables);
+        assertThat(index.isAmbiguous(new Name("a")), is(true));
+    }
+
+    @Test
+    public void addSelectedColumn_usesTheIndex() throws Exception {
+        ArrayList<AbstractColumn> cols = new ArrayList<>();
+        int added = DatabaseEngine.addSelectedColumn(_tables, Arrays.asList(
+                new StringPair("", "a"), new StringPair("", "b"), new StringPair("t2", "id")), cols);
+        assertThat(added, is(3));
+        assertThat(cols, is(Arrays.asList(_t1.getColumn("a"), _t2.getColumn("b"), _t2.getColumn("id"))));
+    }
+
+    @Test
+    public void addSelectedColumn_errors() throws Exception {
+        try {
+            DatabaseEngine.addSelectedColumn(_tables, Arrays.asList(new StringPair("", "id")), new ArrayList<>());
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+            assertThat(ex.getMessage(), is("column reference 'id' is ambiguous"));
+        }
+        try {
+            DatabaseEngine.addSelectedColumn(_tables, Arrays.asList(new StringPair("", "c")), new ArrayList<>());
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+            assertThat(ex.getMessage(), is("column 'c' does not exist"));
+        }
+    }
+}
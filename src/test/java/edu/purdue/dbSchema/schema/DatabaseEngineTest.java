@@ -1,5 +1,6 @@
 package edu.purdue.dbSchema.schema;
 
+import edu.purdue.dbSchema.erros.SqlParseException;
 import edu.purdue.dbSchema.erros.SqlSemanticException;
 import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
 import edu.purdue.dbSchema.parser.DlmQueryType;
@@ -7,6 +8,8 @@ import edu.purdue.dbSchema.parser.Grant;
 import edu.purdue.dbSchema.parser.ParsedQuery;
 import edu.purdue.dbSchema.parser.StringPair;
 import gudusoft.gsqlparser.EDbVendor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -16,6 +19,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
@@ -59,6 +64,50 @@ public class DatabaseEngineTest {
         }
     }
 
+    @Test
+    public void load_appliesWholeScript() throws Exception {
+        StringBuilder script = new StringBuilder("grant select on t0 to user1;\n");
+        int tables = DatabaseEngine.LOAD_CHUNK_SIZE + 10;
+        for (int i = 0; i < tables; i++) {
+            script.append("create table t").append(i).append("(id integer, v varchar);\n");
+        }
+        List<Grant> grants = Collections.singletonList(new Grant(Grant.Type.READ, "user1", "t" + (tables - 1), ""));
+
+        assertThat(_testDb.load(script.toString(), grants, ForkJoinPool.commonPool()), is(tables + 1));
+        assertThat(_testDb.getTables(), hasSize(tables + 2));
+        _testDb.parse("select id from t0", "user1");
+        _testDb.parse("select v from t" + (tables - 1), "user1");
+        try {
+            _testDb.parse("select id from t1", "user1");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void load_isAtomic() throws Exception {
+        try {
+            _testDb.load("create table t1(id integer); create table t2(id integer); create table tbl1(id integer)",
+                    Collections.<Grant>emptyList());
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+            assertThat(ex.getMessage(), is("relation 'tbl1' already exists"));
+        }
+        try {
+            _testDb.load("create table t1(id integer)",
+                    Collections.singletonList(new Grant(Grant.Type.READ, "user1", "missing", "")));
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+        }
+        try {
+            _testDb.load("create table t1(id integer); create table t2(id integer) garbage",
+                    Collections.<Grant>emptyList(), ForkJoinPool.commonPool());
+            fail("Missing SqlParseException");
+        } catch (SqlParseException ex) {
+        }
+        assertThat(_testDb.getTables(), hasSize(2));
+    }
+
     @Test
     public void filterTablesMissingTable() throws Exception {
         try {
@@ -374,7 +423,7 @@ public class DatabaseEngineTest {
 
         QueryFeature feature = _testDb.parse("select id from tbl1 where f1 in (select f1 from tbl1 where id > 5)", "user").get(0);
         assertThat(feature.getRoles(), contains(new Name("user")));
-        assertThat(feature.getFilteredCols(), contains(tbl1id, tbl1f));
+        assertThat(feature.getFilteredCols(), containsInAnyOrder(tbl1id, tbl1f));
         assertThat(feature.getUsedCols(), containsInAnyOrder(tbl1id, tbl1f));
     }
 
@@ -429,4 +478,265 @@ public class DatabaseEngineTest {
             assertThat(ex.getMessage(), is("column 'nocol' does not exist in table 'tbl1'"));
         }
     }
+
+    @Test
+    public void parse_failedChangeIsNotApplied() throws Exception {
+        try {
+            _testDb.parse("create table tbl3(id integer); create table tbl1(id integer)");
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+            assertThat(ex.getMessage(), is("relation 'tbl1' already exists"));
+        }
+        assertThat(_testDb.getTable("tbl3"), is(nullValue()));
+
+        try {
+            _testDb.parse("grant select on tbl1 to user1; grant select on tbl1.nocol to user1");
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+        }
+        try {
+            _testDb.parse("select id from tbl1", "user1");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void parse_concurrentReadersSeeCompleteChanges() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        final int tables = 50;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                try {
+                    while (_testDb.getTable("t" + (tables - 1)) == null) {
+                        assertThat(_testDb.parse("select id, f1 from tbl1", "user1"), hasSize(1));
+                        for (Table t : _testDb.getTables()) {
+                            if (t.getName().getName().startsWith("t") && !t.getName().getName().startsWith("tbl")) {
+                                // a table is visible only together with its grant
+                                _testDb.parse("select * from " + t.getName(), "user1");
+                            }
+                        }
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                }
+            });
+            readers[i].setDaemon(true);
+            readers[i].start();
+        }
+        for (int i = 0; i < tables; i++) {
+            _testDb.parse(String.format("create table t%d(id integer); grant select on t%d to user1", i, i));
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    @Test
+    public void ctor_negativeCacheSize() {
+        try {
+            new DatabaseEngine(EDbVendor.dbvoracle, -1);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        assertThat(new DatabaseEngine(EDbVendor.dbvoracle, 0).getQueryCacheStatistics(), is(nullValue()));
+    }
+
+    @Test
+    public void parse_cachesQueryTemplates() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        List<QueryFeature> first = _testDb.parse("select f1 from tbl1 where id = 1", "user1");
+        List<QueryFeature> second = _testDb.parse("SELECT f1 FROM tbl1 WHERE id = 2", "user1");
+        assertThat(_testDb.getQueryCacheStatistics().getHits(), is(1L));
+        assertThat(_testDb.getQueryCacheStatistics().getMisses(), is(1L));
+        assertThat(second.get(0).getUsedCols(), containsInAnyOrder(first.get(0).getUsedCols().toArray()));
+        assertThat(second.get(0).getFilteredCols(), containsInAnyOrder(first.get(0).getFilteredCols().toArray()));
+
+        // grants are checked on cached queries too
+        try {
+            _testDb.parse("select f1 from tbl1 where id = 3", "user2");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        assertThat(_testDb.getQueryCacheStatistics().getHits(), is(2L));
+    }
+
+    @Test
+    public void parse_cacheKeepsBracketedColumns() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvmssql);
+        List<Grant> grants = new ArrayList<>();
+        grants.add(new Grant(Grant.Type.READ, "user1", "t", "[Address 1]"));
+        grants.add(new Grant(Grant.Type.READ, "user2", "t", "[Address 2]"));
+        db.load("create table t(id integer, [Address 1] varchar(10), [Address 2] varchar(10))", grants);
+
+        assertThat(db.parse("select [Address 1] from t", "user1").get(0).getUsedCols(), contains(db.getTable("t").getColumn("[Address 1]")));
+        assertThat(db.parse("select [Address 2] from t", "user2").get(0).getUsedCols(), contains(db.getTable("t").getColumn("[Address 2]")));
+        assertThat(db.getQueryCacheStatistics().getMisses(), is(2L));
+        // the cached query of user1 does not authorize the other column
+        try {
+            db.parse("select [Address 2] from t", "user1");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        try {
+            db.parse("select [Address 1] from t", "user2");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        assertThat(db.getQueryCacheStatistics().getHits(), is(2L));
+    }
+
+    @Test
+    public void getMetrics_measuresEveryStage() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        _testDb.parse("select f1 from tbl1 where id = 1", "user1");
+        _testDb.parse("select f1 from tbl1 where id = 2", "user1");
+        try {
+            _testDb.parse("select f2 from tbl2", "user1");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        EngineMetrics metrics = _testDb.getMetrics();
+        assertThat(metrics.getQueries(), is(3L));
+        assertThat(metrics.getFailures(), is(1L));
+        assertThat(metrics.getLatency(EngineMetrics.Stage.QUERY).getCount(), is(3L));
+        assertThat(metrics.getLatency(EngineMetrics.Stage.AUTHORIZE).getCount(), is(3L));
+        // the second query is cached
+        assertThat(metrics.getLatency(EngineMetrics.Stage.PARSE).getCount(), is(2L));
+        assertThat(metrics.getLatency(EngineMetrics.Stage.ANALYZE).getCount(), is(2L));
+        assertThat(metrics.getLatency(EngineMetrics.Stage.RESOLVE).getCount(), is(2L));
+        assertThat(metrics.getQueryCacheStatistics().getHits(), is(1L));
+
+        // the snapshot does not change
+        _testDb.parse("select f1 from tbl1", "user1");
+        assertThat(metrics.getQueries(), is(3L));
+        assertThat(metrics.getLatency(EngineMetrics.Stage.QUERY).getCount(), is(3L));
+    }
+
+    /**
+     * Reads a database saved by the first version, with the tables FLIGHT (f_id,
+     * f_seats_left, f_depart_time) and "RESERVATION" (r_id, r_f_id, r_seat),
+     * the roles alice -&gt; agent -&gt; clerk, SELECT on flight to clerk, SELECT
+     * on reservation and UPDATE on reservation.r_seat to agent and SELECT on
+     * flight.f_id to bob.
+     */
+    @Test
+    public void readObject_legacy() throws Exception {
+        DatabaseEngine db;
+        try (ObjectInputStream ois = new ObjectInputStream(getClass().getClassLoader().getResourceAsStream("edu/purdue/dbSchema/testData/legacy.db"))) {
+            db = (DatabaseEngine) ois.readObject();
+        }
+        assertThat(db.getDbVendor(), is(EDbVendor.dbvpostgresql));
+        assertThat(db.getTables(), hasSize(2));
+        Table flight = db.getTable("flight");
+        Table reservation = db.getTable("reservation");
+        assertThat(flight.getColumns(), hasSize(3));
+        assertThat(reservation.getColumns(), hasSize(3));
+        assertThat(flight.getId(), is(0));
+        assertThat(reservation.getId(), is(1));
+        assertThat(flight.getColumn("f_id").getId(), is(1));
+        assertThat(reservation.getColumn("r_seat").getId(), is(5));
+
+        List<QueryFeature> features = db.parse("select f_id, f_seats_left from flight where f_depart_time > '2015-11-20'", "alice");
+        assertThat(features.get(0).getRoles(), contains(new Name("clerk")));
+        features = db.parse("update reservation set r_seat = 3 where r_id = 1", "alice");
+        assertThat(features.get(0).getRoles(), contains(new Name("agent")));
+        features = db.parse("select f_id from flight", "bob");
+        assertThat(features.get(0).getRoles(), contains(new Name("bob")));
+        try {
+            db.parse("select f_seats_left from flight", "bob");
+            fail("missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        try {
+            db.evaluateGrant(new Grant("alice", "clerk"));
+            fail("missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+        }
+
+        // the same form is written again
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(db);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            DatabaseEngine copy = (DatabaseEngine) ois.readObject();
+            assertThat(copy.getTables(), hasSize(2));
+            assertThat(copy.parse("select f_id from flight", "alice").get(0).getRoles(), contains(new Name("clerk")));
+        }
+    }
+
+    @Test
+    public void getMetrics_notSerialized() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        _testDb.parse("select f1 from tbl1", "user1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(_testDb);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            DatabaseEngine db = (DatabaseEngine) ois.readObject();
+            assertThat(db.getMetrics().getQueries(), is(0L));
+            db.parse("select f1 from tbl1", "user1");
+            assertThat(db.getMetrics().getLatency(EngineMetrics.Stage.QUERY).getCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void parse_schemaChangeInvalidatesCache() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        _testDb.parse("select id from tbl1", "user1");
+        assertThat(_testDb.getQueryCacheStatistics().getSize(), is(1));
+
+        _testDb.parse("create table tbl3(id integer)");
+        assertThat(_testDb.getQueryCacheStatistics().getSize(), is(0));
+        assertThat(_testDb.getQueryCacheStatistics().getHits(), is(0L));
+    }
+
+    @Test
+    public void parseAll_keepsOrderAndCapturesErrors() throws Exception {
+        _testDb.parse("grant select on tbl1 to user1");
+        List<QueryRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new QueryRecord(i % 3 == 0 ? "select f2 from tbl2 where id = " + i : "select f1 from tbl1 where id = " + i, "user1"));
+        }
+        records.add(new QueryRecord("select nocol from tbl1", "user1"));
+
+        List<QueryResult> results = _testDb.parseAll(records, new ForkJoinPool(4));
+        assertThat(results, hasSize(records.size()));
+        for (int i = 0; i < 100; i++) {
+            QueryResult r = results.get(i);
+            assertThat(r.getRecord(), is(sameInstance(records.get(i))));
+            if (i % 3 == 0) {
+                assertThat(r.isSuccess(), is(false));
+                assertThat(r.getError() instanceof UnauthorizedSqlException, is(true));
+                assertThat(r.getFeatures(), is(nullValue()));
+            } else {
+                assertThat(r.isSuccess(), is(true));
+                assertThat(r.getFeatures(), hasSize(1));
+                assertThat(r.getFeatures().get(0).getUsedCols(), contains(_testDb.getTable("tbl1").getColumn("f1")));
+            }
+        }
+        assertThat(results.get(100).getError() instanceof SqlSemanticException, is(true));
+        assertThat(_testDb.parseAll(Collections.<QueryRecord>emptyList()), empty());
+    }
+
+    @Test
+    public void parseAll_nullRecord() {
+        try {
+            _testDb.parseAll(Collections.<QueryRecord>singletonList(null));
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            new QueryRecord(null, "user1");
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.parser.Grant;
+import gudusoft.gsqlparser.EDbVendor;
+import java.util.Collections;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class DatabaseRegistryTest {
+
+    private static final String SCRIPT = "create table t1(id integer, v varchar(10)); create table t2(id integer); grant select on t2 to reader";
+
+    DatabaseRegistry _registry;
+
+    @Before
+    public void initRegistry() {
+        _registry = new DatabaseRegistry(EDbVendor.dbvpostgresql, 16, null);
+    }
+
+    @Test
+    public void load_sharesTables() throws Exception {
+        DatabaseEngine a = _registry.load("a", SCRIPT, Collections.singletonList(new Grant(Grant.Type.READ, "user1", "t1", "")));
+        DatabaseEngine b = _registry.load("b", SCRIPT.replace("; ", ";\n  "), Collections.<Grant>emptyList());
+
+        assertThat(_registry.getSchemaCount(), is(1));
+        assertThat(_registry.getTenants(), containsInAnyOrder("a", "b"));
+        assertThat(_registry.get("a"), sameInstance(a));
+        assertThat(b.getTable("t1"), sameInstance(a.getTable("t1")));
+        assertThat(b.getColumn(0), sameInstance(a.getColumn(0)));
+
+        // the grants are not shared
+        a.parse("select v from t1", "user1");
+        b.parse("select id from t2", "reader");
+        try {
+            b.parse("select v from t1", "user1");
+            fail("Missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void load_tenantsChangeIndependently() throws Exception {
+        DatabaseEngine a = _registry.load("a", SCRIPT, Collections.<Grant>emptyList());
+        DatabaseEngine b = _registry.load("b", SCRIPT, Collections.<Grant>emptyList());
+        a.parse("create table t3(id integer)");
+
+        assertThat(a.getTable("t3"), is(not(nullValue())));
+        assertThat(b.getTable("t3"), is(nullValue()));
+        assertThat(a.getTable("t1"), sameInstance(b.getTable("t1")));
+    }
+
+    @Test
+    public void load_sharesNamesOfDistinctSchemas() throws Exception {
+        DatabaseEngine a = _registry.load("a", SCRIPT, Collections.<Grant>emptyList());
+        DatabaseEngine b = _registry.load("b", "create table t1(id integer, v varchar(10)); create table t4(id integer)", Collections.<Grant>emptyList());
+
+        assertThat(_registry.getSchemaCount(), is(2));
+        assertThat(b.getTable("t1"), is(not(sameInstance(a.getTable("t1")))));
+        assertThat(b.getTable("t1").getName(), sameInstance(a.getTable("t1").getName()));
+        assertThat(b.getTable("t4").getColumn("id").getName(), sameInstance(a.getTable("t2").getColumn("id").getName()));
+    }
+
+    @Test
+    public void remove_releasesScripts() throws Exception {
+        DatabaseEngine a = _registry.load("a", SCRIPT, Collections.<Grant>emptyList());
+        _registry.load("b", SCRIPT, Collections.<Grant>emptyList());
+        _registry.load("c", "create table t5(id integer)", Collections.<Grant>emptyList());
+        assertThat(_registry.getScriptCount(), is(2));
+
+        assertThat(_registry.remove("c"), is(not(nullValue())));
+        assertThat(_registry.getScriptCount(), is(1));
+        assertThat(_registry.remove("a"), sameInstance(a));
+        assertThat(_registry.remove("a"), is(nullValue()));
+        assertThat(_registry.getScriptCount(), is(1));
+        assertThat(_registry.remove("b"), is(not(nullValue())));
+        assertThat(_registry.getScriptCount(), is(0));
+
+        // the tables are still shared
+        DatabaseEngine d = _registry.load("d", SCRIPT, Collections.<Grant>emptyList());
+        assertThat(d.getTable("t1"), sameInstance(a.getTable("t1")));
+        assertThat(_registry.getSchemaCount(), is(2));
+    }
+
+    @Test
+    public void load_errors() throws Exception {
+        _registry.load("a", SCRIPT, Collections.<Grant>emptyList());
+        try {
+            _registry.load("a", SCRIPT, Collections.<Grant>emptyList());
+            fail("Missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            _registry.load("b", SCRIPT, Collections.singletonList(new Grant(Grant.Type.READ, "user1", "missing", "")));
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+        }
+        try {
+            _registry.load("c", "create table t1(id integer); create table t1(v integer)", Collections.<Grant>emptyList());
+            fail("Missing SqlSemanticException");
+        } catch (SqlSemanticException ex) {
+            assertThat(ex.getMessage(), is("relation 't1' already exists"));
+        }
+        assertThat(_registry.getTenants(), containsInAnyOrder("a"));
+        assertThat(_registry.remove("a"), is(not(nullValue())));
+        assertThat(_registry.get("a"), is(nullValue()));
+    }
+}
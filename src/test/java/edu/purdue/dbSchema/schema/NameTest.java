@@ -104,4 +104,44 @@ public class NameTest {
         assertThat(name.getName(), is("\"name2"));
     }
 
+
+    @Test
+    public void valueOf_equalsNewName() {
+        Name n = Name.valueOf("\"NaMe\"");
+        assertThat(n, is(new Name("\"NaMe\"")));
+        assertThat(n.getName(), is("name"));
+        assertThat(n.getOriginalName(), is("\"NaMe\""));
+        assertThat(Name.valueOf(new StringBuilder("NAME")), is(n));
+    }
+
+    @Test
+    public void valueOf_reusesInstances() {
+        Name n = Name.valueOf("cached_name");
+        assertThat(Name.valueOf(new StringBuilder("cached_name")), is(sameInstance(n)));
+        Name upper = Name.valueOf("CACHED_NAME");
+        assertThat(upper.getOriginalName(), is("CACHED_NAME"));
+        assertThat(upper, is(n));
+    }
+
+    @Test
+    public void valueOf_exception() {
+        try {
+            Name.valueOf(null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+            assertThat(ex.getMessage(), is("Missing name"));
+        }
+        try {
+            Name.valueOf("\"\"");
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertThat(ex.getMessage(), is("Empty name"));
+        }
+    }
+
+    @Test
+    public void singleQuoteIsAName() {
+        assertThat(new Name("'").getName(), is("'"));
+        assertThat(new Name("I").getName(), is("i"));
+    }
 }
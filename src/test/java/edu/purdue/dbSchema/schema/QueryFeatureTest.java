@@ -1,13 +1,17 @@
 package edu.purdue.dbSchema.schema;
 
 import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.utils.DbGrants;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -117,4 +121,86 @@ public class QueryFeatureTest {
         assertThat(merged.getFilteredCols(), containsInAnyOrder(col3));
         assertThat(merged.getRoles(), containsInAnyOrder(user1, user2));
     }
+
+    @Test
+    public void ids_mergeAndViews() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("b", "type", true, true);
+        tbl.addColumn("a", "type", true, true);
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        tables.put(tbl.getName(), tbl);
+        DbGrants grants = new DbGrants();
+        grants.grantRead(tbl.getColumn("a"), new Name("roleB"));
+        grants.grantRead(tbl.getColumn("b"), new Name("roleA"));
+        Schema schema = new Schema(tables, grants, 0);
+        AbstractColumn a = tbl.getColumn("a");
+        AbstractColumn b = tbl.getColumn("b");
+        VirtualColumn v = new VirtualColumn(null, new Name("v"));
+
+        QueryFeature f1 = new QueryFeature(DlmQueryType.SELECT, Arrays.asList(b, v), Collections.<AbstractColumn>emptyList(), Arrays.asList(new Name("roleB")), schema, grants);
+        QueryFeature f2 = new QueryFeature(DlmQueryType.SELECT, Arrays.asList(a, b), Arrays.asList(a), Arrays.asList(new Name("roleA"), new Name("other")), schema, grants);
+        QueryFeature merged = new QueryFeature(Arrays.asList(f1, f2));
+
+        assertThat(merged.getUsedCols(), contains(a, b, v));
+        assertThat(merged.getFilteredCols(), contains(a));
+        assertThat(merged.getRoles(), contains(new Name("other"), new Name("roleA"), new Name("roleB")));
+        assertThat(merged.getUsedColIds().toString(), is("{0, 1}"));
+        assertThat(merged.getRoleIds().cardinality(), is(2));
+        assertThat(merged.getUsedCols() == merged.getUsedCols(), is(true));
+    }
+
+    @Test
+    public void equals_comparesIds() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("a", "type", true, true);
+        tbl.addColumn("b", "type", true, true);
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        tables.put(tbl.getName(), tbl);
+        DbGrants grants = new DbGrants();
+        grants.grantRead(tbl.getColumn("a"), new Name("role"));
+        Schema schema = new Schema(tables, grants, 0);
+        List<AbstractColumn> ab = Arrays.asList(tbl.getColumn("a"), tbl.getColumn("b"));
+        List<AbstractColumn> ba = Arrays.asList(tbl.getColumn("b"), tbl.getColumn("a"), tbl.getColumn("b"));
+        List<Name> role = Arrays.asList(new Name("role"));
+
+        QueryFeature f1 = new QueryFeature(DlmQueryType.SELECT, ab, ab, role, schema, grants);
+        QueryFeature f2 = new QueryFeature(DlmQueryType.SELECT, ba, ab, role, schema, grants);
+        assertThat(f1.equals(f2), is(true));
+        assertThat(f1.hashCode(), is(f2.hashCode()));
+        assertThat(f1.equals(new QueryFeature(DlmQueryType.UPDATE, ab, ab, role, schema, grants)), is(false));
+        assertThat(f1.equals(new QueryFeature(DlmQueryType.SELECT, ab, ab, Collections.<Name>emptyList(), schema, grants)), is(false));
+        assertThat(f1.equals(new QueryFeature(DlmQueryType.SELECT, ab, Collections.<AbstractColumn>emptyList(), role, schema, grants)), is(false));
+    }
+
+    @Test
+    public void equals_otherIndexes() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("a", "type", true, true);
+        Table other = new Table("other");
+        other.addColumn("a", "type", true, true);
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        tables.put(tbl.getName(), tbl);
+        TreeMap<Name, Table> otherTables = new TreeMap<>();
+        otherTables.put(other.getName(), other);
+        DbGrants grants = new DbGrants();
+        grants.grantRead(tbl.getColumn("a"), new Name("role"));
+        DbGrants otherGrants = new DbGrants();
+        otherGrants.grantRead(other.getColumn("a"), new Name("role"));
+        Schema schema = new Schema(tables, grants, 0);
+        Schema otherSchema = new Schema(otherTables, otherGrants, 0);
+        List<AbstractColumn> a = Arrays.asList(tbl.getColumn("a"));
+        List<Name> role = Arrays.asList(new Name("role"));
+
+        QueryFeature f1 = new QueryFeature(DlmQueryType.SELECT, a, a, role, schema, grants);
+        QueryFeature f2 = new QueryFeature(DlmQueryType.SELECT, a, a, role);
+        assertThat(f1.equals(f2), is(true));
+        assertThat(f2.equals(f1), is(true));
+        assertThat(f1.hashCode(), is(f2.hashCode()));
+        // the same ids of another database are other columns
+        List<AbstractColumn> otherA = Arrays.asList(other.getColumn("a"));
+        QueryFeature f3 = new QueryFeature(DlmQueryType.SELECT, otherA, otherA, role, otherSchema, otherGrants);
+        assertThat(f3.getUsedColIds(), is(f1.getUsedColIds()));
+        assertThat(f1.equals(f3), is(false));
+        assertThat(f3.equals(f1), is(false));
+    }
 }
@@ -0,0 +1,261 @@
+package edu.purdue.dbSchema.schema;
+
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.utils.BitsetDbGrants;
+import edu.purdue.dbSchema.utils.DbGrants;
+import edu.purdue.dbSchema.utils.IDbGrants;
+import edu.purdue.dbSchema.utils.IGrantVisitor;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class SchemaSnapshotTest {
+
+    DatabaseEngine _db;
+    Path _file;
+
+    @Before
+    public void init() throws Exception {
+        TreeMap<Name, Table> tables = new TreeMap<>();
+        Table t1 = new Table("\"Tbl1\"");
+        t1.addColumn("id", "integer", true, true);
+        t1.addColumn("f1", "varchar(10)", false, false);
+        Table t2 = new Table("tbl2");
+        t2.addColumn("id", "integer", true, false);
+        t2.addColumn("\"F2\"", "text", false, true);
+        tables.put(t1.getName(), t1);
+        tables.put(t2.getName(), t2);
+
+        IDbGrants grants = new DbGrants();
+        grants.grantRole(new Name("roleA"), new Name("user1"));
+        grants.grantRole(new Name("roleB"), new Name("roleA"));
+        grants.grantRole(new Name("roleB"), new Name("user2"));
+        grants.grantRead(t1.getColumn("id"), new Name("roleB"));
+        grants.grantRead(t1.getColumn("f1"), new Name("roleA"));
+        grants.grantWrite(t2.getColumn("F2"), new Name("user2"));
+
+        _db = new DatabaseEngine(EDbVendor.dbvoracle, new Schema(tables, grants, 10));
+        _file = File.createTempFile("snapshot", ".db").toPath();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(_file);
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        assertThat(SchemaSnapshot.isSnapshot(_file), is(true));
+
+        DatabaseEngine loaded = SchemaSnapshot.read(_file);
+        assertSameSchema(loaded, _db);
+        assertThat(loaded.getDbVendor(), is(EDbVendor.dbvoracle));
+        assertThat(loaded.getTable("tbl1").getName().getOriginalName(), is("\"Tbl1\""));
+        assertThat(new TreeSet<>(loaded.schema().grants.enforceRead(new Name("user1"), loaded.getTable("tbl1").getColumns())).toString(), is("[roleA, roleB]"));
+    }
+
+    @Test
+    public void read_otherGrantsContainer() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine loaded = SchemaSnapshot.read(_file, 0, new BitsetDbGrants());
+        assertSameSchema(loaded, _db);
+        assertThat(loaded.getQueryCacheStatistics() == null, is(true));
+    }
+
+    @Test
+    public void read_emptySchema() throws Exception {
+        DatabaseEngine empty = new DatabaseEngine(EDbVendor.dbvmysql);
+        SchemaSnapshot.write(empty, _file);
+        assertSameSchema(SchemaSnapshot.read(_file), empty);
+    }
+
+    @Test
+    public void read_notASnapshot() throws Exception {
+        try (ObjectOutputStream o = new ObjectOutputStream(new FileOutputStream(_file.toFile()))) {
+            o.writeObject(_db);
+        }
+        assertThat(SchemaSnapshot.isSnapshot(_file), is(false));
+        try {
+            SchemaSnapshot.read(_file);
+            fail("missing IOException");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("not a schema snapshot"));
+        }
+    }
+
+    @Test
+    public void read_truncated() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        byte[] content = Files.readAllBytes(_file);
+        for (int len : new int[]{0, 10, 80, content.length - 1}) {
+            byte[] truncated = new byte[len];
+            System.arraycopy(content, 0, truncated, 0, len);
+            Files.write(_file, truncated);
+            try {
+                SchemaSnapshot.read(_file);
+                fail("missing IOException");
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    @Test
+    public void open_createsTablesOnDemand() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine opened = SchemaSnapshot.open(_file);
+        assertThat(opened.getDbVendor(), is(EDbVendor.dbvoracle));
+        assertThat(opened.getTable("nothing") == null, is(true));
+
+        Table t = opened.getTable("TBL2");
+        assertThat(t.toString(), is(_db.getTable("tbl2").toString()));
+        assertThat(opened.getTable("tbl2") == t, is(true));
+        assertThat(opened.schema().tables.containsKey(new Name("\"tbl1\"")), is(true));
+        assertThat(opened.schema().tables.size(), is(2));
+        assertSameSchema(opened, _db);
+    }
+
+    @Test
+    public void open_enforcesGrants() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine opened = SchemaSnapshot.open(_file);
+        IDbGrants grants = opened.schema().grants;
+        Table t1 = opened.getTable("tbl1");
+        assertThat(new TreeSet<>(grants.enforceRead(new Name("user1"), t1.getColumns())).toString(), is("[roleA, roleB]"));
+        try {
+            grants.enforceWrite(new Name("user2"), opened.getTable("tbl2").getColumns());
+            fail("missing UnauthorizedSqlException");
+        } catch (UnauthorizedSqlException ex) {
+            assertThat(ex.getMessage(), is("the user 'user2' has no right to write 'id'"));
+        }
+        assertThat(grants.enforceWrite(new Name("user2"), Collections.singletonList(opened.getTable("tbl2").getColumn("f2"))).toString(), is("[user2]"));
+    }
+
+    @Test
+    public void open_copyIsModifiable() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine opened = SchemaSnapshot.open(_file);
+        try {
+            opened.schema().grants.grantRole(new Name("roleC"), new Name("user1"));
+            fail("missing UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+        }
+        Schema copy = opened.schema().copy();
+        copy.grants.grantRole(new Name("roleC"), new Name("user1"));
+        copy.grants.grantWrite(copy.tables.get(new Name("tbl1")).getColumn("f1"), new Name("roleC"));
+        assertThat(copy.grants.enforceWrite(new Name("user1"), Collections.singletonList(copy.tables.get(new Name("tbl1")).getColumn("f1"))).toString(), is("[roleC]"));
+        assertThat(copy.tables.get(new Name("tbl1")) == opened.getTable("tbl1"), is(true));
+    }
+
+    @Test
+    public void ids_assignedByTheSchema() throws Exception {
+        assertThat(_db.getTable("tbl1").getId(), is(0));
+        assertThat(_db.getTable("tbl2").getId(), is(1));
+        assertThat(_db.getTable("tbl1").getColumn("f1").getId(), is(0));
+        assertThat(_db.getTable("tbl2").getColumn("id").getId(), is(3));
+        assertThat(_db.getColumn(2) == _db.getTable("tbl2").getColumn("f2"), is(true));
+
+        Table other = new Table("tbl1");
+        other.addColumn("f1", "text", false, false);
+        other.assignIds(0, 0);
+        assertThat(_db.schema().getId(other.getColumn("f1")), is(-1));
+    }
+
+    @Test
+    public void open_usesSnapshotIds() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine opened = SchemaSnapshot.open(_file);
+        Table t2 = opened.getTable("tbl2");
+        assertThat(t2.getId(), is(1));
+        assertThat(t2.getColumn("f2").getId(), is(2));
+        assertThat(opened.getColumn(3) == t2.getColumn("id"), is(true));
+        assertThat(opened.schema().getId(_db.getTable("tbl2").getColumn("f2")), is(-1));
+
+        Schema copy = opened.schema().copy();
+        assertThat(copy.getId(t2.getColumn("f2")), is(2));
+        IDbGrants grants = opened.schema().grants;
+        for (int i = 0; i < grants.getRoleCount(); i++) {
+            assertThat(copy.grants.getRole(i), is(grants.getRole(i)));
+        }
+    }
+
+    @Test
+    public void open_concurrentLookupsShareTables() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        final DatabaseEngine opened = SchemaSnapshot.open(_file);
+        final Table[] seen = new Table[8];
+        Thread[] threads = new Thread[seen.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread(() -> seen[n] = opened.getTable("tbl1"));
+            threads[i].start();
+        }
+        for (Thread th : threads) {
+            th.join();
+        }
+        for (Table t : seen) {
+            assertThat(t == seen[0], is(true));
+        }
+        assertThat(opened.schema().grants.enforceRead(new Name("user1"), seen[0].getColumns()).size(), is(2));
+    }
+
+    @Test
+    public void open_isSerializable() throws Exception {
+        SchemaSnapshot.write(_db, _file);
+        DatabaseEngine opened = SchemaSnapshot.open(_file);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream o = new ObjectOutputStream(bytes)) {
+            o.writeObject(opened);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSameSchema((DatabaseEngine) in.readObject(), _db);
+        }
+    }
+
+    private static void assertSameSchema(DatabaseEngine actual, DatabaseEngine expected) {
+        assertThat(actual.getTables().toString(), is(expected.getTables().toString()));
+        assertThat(grants(actual), is(grants(expected)));
+    }
+
+    private static Set<String> grants(DatabaseEngine db) {
+        final Set<String> ret = new TreeSet<>();
+        db.schema().grants.accept(new IGrantVisitor() {
+            @Override
+            public void visitRole(Name role, Name to) {
+                ret.add("role " + role + " to " + to);
+            }
+
+            @Override
+            public void visitRead(AbstractColumn column, Name to) {
+                ret.add("read " + column.getTable().getName() + "." + column + " to " + to);
+            }
+
+            @Override
+            public void visitWrite(AbstractColumn column, Name to) {
+                ret.add("write " + column.getTable().getName() + "." + column + " to " + to);
+            }
+        });
+        return ret;
+    }
+}
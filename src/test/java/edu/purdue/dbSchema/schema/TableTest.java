@@ -165,4 +165,43 @@ public class TableTest {
         assertThat(col2, is(not(nullValue())));
         assertThat(tbl.toString(), is("CREATE TABLE t (\n" + col1.toString() + ",\n" + col2.toString() + "\n);"));
     }
+
+    @Test
+    public void assignIds_numbersColumnsInNameOrder() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("b", "type", true, true);
+        tbl.addColumn("a", "type", true, true);
+        assertThat(tbl.getId(), is(-1));
+        assertThat(tbl.getColumn("a").getId(), is(-1));
+
+        assertThat(tbl.assignIds(3, 10), is(12));
+        assertThat(tbl.getId(), is(3));
+        assertThat(tbl.getColumn("a").getId(), is(10));
+        assertThat(tbl.getColumn("b").getId(), is(11));
+    }
+
+    @Test
+    public void assignIds_onlyOnce() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("a", "type", true, true);
+        tbl.assignIds(0, 0);
+        try {
+            tbl.assignIds(1, 1);
+            fail("Missing IllegalStateException");
+        } catch (IllegalStateException ex) {
+        }
+        assertThat(tbl.getColumn("a").getId(), is(0));
+    }
+
+    @Test
+    public void assignIds_skipsBorrowedColumns() throws Exception {
+        Table tbl = new Table("tbl");
+        tbl.addColumn("a", "type", true, true);
+        tbl.assignIds(0, 0);
+        List<AbstractColumn> cols = new ArrayList<>(tbl.getColumns());
+        Table alias = new Table(new Name("alias"), cols);
+
+        assertThat(alias.assignIds(1, 1), is(1));
+        assertThat(tbl.getColumn("a").getId(), is(0));
+    }
 }
@@ -0,0 +1,130 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.parser.DlmQueryType;
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class BinaryFeatureWriterTest {
+
+    @Test
+    public void header_andFailures() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter(bytes);
+        writer.writeFailure(new IllegalArgumentException("bad"));
+        writer.write(new DatabaseEngine(EDbVendor.dbvpostgresql).parse(new QueryRecord("select 1", "")));
+        writer.writeFailure(new NullPointerException());
+        writer.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(in.readInt(), is(BinaryFeatureWriter.MAGIC));
+        assertThat(in.readShort(), is(BinaryFeatureWriter.VERSION));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.ERROR));
+        assertThat(in.readUTF(), is("IllegalArgumentException"));
+        assertThat(in.readUTF(), is("bad"));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.ERROR));
+        assertThat(in.readUTF(), is("IllegalArgumentException"));
+        assertThat(in.readUTF(), is("Empty name"));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.ERROR));
+        assertThat(in.readUTF(), is("NullPointerException"));
+        assertThat(in.readUTF(), is(""));
+        assertThat(in.read(), is(-1));
+    }
+
+    @Test
+    public void write_definesIdsOnce() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("CREATE TABLE t1 (id integer, name varchar(10)); GRANT SELECT ON t1 TO u1;");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter(bytes);
+        writer.write(db.parse(new QueryRecord("select name from t1 where id = 1", "u1")));
+        writer.write(db.parse(new QueryRecord("select id from t1", "u1")));
+        writer.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.readInt();
+        in.readShort();
+        assertThat(in.readByte(), is(BinaryFeatureWriter.COLUMN));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readUTF(), is("t1.name"));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.COLUMN));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readUTF(), is("t1.id"));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.ROLE));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readUTF(), is("u1"));
+        assertThat(in.readByte(), is(BinaryFeatureWriter.FEATURES));
+        assertThat(in.readInt(), is(1));
+        assertThat((int) in.readByte(), is(DlmQueryType.SELECT.ordinal()));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(0));
+        // the second query reuses the definitions
+        assertThat(in.readByte(), is(BinaryFeatureWriter.FEATURES));
+        assertThat(in.readInt(), is(1));
+        assertThat((int) in.readByte(), is(DlmQueryType.SELECT.ordinal()));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readInt(), is(1));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.read(), is(-1));
+    }
+
+    @Test
+    public void write_definesSubQueryColumnsOnce() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("CREATE TABLE t1 (id integer, name varchar(10)); GRANT SELECT ON t1 TO u1;");
+        String sql = "select sub.name from (select name as name from t1) as sub";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter(bytes);
+        writer.write(db.parse(new QueryRecord(sql, "u1")));
+        writer.write(db.parse(new QueryRecord(sql, "u1")));
+        writer.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.readInt();
+        in.readShort();
+        List<String> columns = new ArrayList<>();
+        int results = 0;
+        for (int tag = in.read(); tag >= 0; tag = in.read()) {
+            if (tag == BinaryFeatureWriter.COLUMN) {
+                assertThat(in.readInt(), is(columns.size()));
+                columns.add(in.readUTF());
+            } else if (tag == BinaryFeatureWriter.ROLE) {
+                in.readInt();
+                in.readUTF();
+            } else {
+                assertThat((byte) tag, is(BinaryFeatureWriter.FEATURES));
+                results++;
+                for (int n = in.readInt(); n > 0; n--) {
+                    in.readByte();
+                    for (int list = 0; list < 3; list++) {
+                        for (int size = in.readInt(); size > 0; size--) {
+                            in.readInt();
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(results, is(2));
+        // every parse creates a new virtual column, with the same name
+        assertThat(columns, containsInAnyOrder("t1.name", "sub.name"));
+    }
+}
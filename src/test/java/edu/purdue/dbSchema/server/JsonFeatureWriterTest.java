@@ -0,0 +1,44 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import edu.purdue.dbSchema.schema.QueryRecord;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.StringWriter;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class JsonFeatureWriterTest {
+
+    @Test
+    public void writeFailure_escapesStrings() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonFeatureWriter writer = new JsonFeatureWriter(out);
+        writer.writeFailure(new IllegalArgumentException("a \"b\"\n\\c\u0001"));
+        writer.writeFailure(new NullPointerException());
+        assertThat(out.toString(), is("{\"error\":{\"type\":\"IllegalArgumentException\",\"message\":\"a \\\"b\\\"\\n\\\\c\\u0001\"}}\n"
+                + "{\"error\":{\"type\":\"NullPointerException\",\"message\":null}}\n"));
+    }
+
+    @Test
+    public void write_error() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        StringWriter out = new StringWriter();
+        new JsonFeatureWriter(out).write(db.parse(new QueryRecord("select\t1", "")));
+        assertThat(out.toString(), is("{\"sql\":\"select\\t1\",\"user\":\"\",\"error\":{\"type\":\"IllegalArgumentException\",\"message\":\"Empty name\"}}\n"));
+    }
+
+    @Test
+    public void write_features() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("CREATE TABLE t1 (id integer, name varchar(10)); GRANT SELECT ON t1 TO u1;");
+        StringWriter out = new StringWriter();
+        new JsonFeatureWriter(out).write(db.parse(new QueryRecord("select name from t1 where id = 1", "u1")));
+        assertThat(out.toString(), is("{\"sql\":\"select name from t1 where id = 1\",\"user\":\"u1\",\"features\":["
+                + "{\"type\":\"SELECT\",\"used\":[\"t1.name\"],\"filtered\":[\"t1.id\"],\"roles\":[\"u1\"]}]}\n"));
+    }
+}
@@ -0,0 +1,108 @@
+package edu.purdue.dbSchema.server;
+
+import edu.purdue.dbSchema.schema.DatabaseEngine;
+import gudusoft.gsqlparser.EDbVendor;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class QueryServerTest {
+
+    private QueryServer _server;
+
+    @After
+    public void tearDown() throws Exception {
+        if (_server != null) {
+            _server.close();
+        }
+    }
+
+    private Socket connect(DatabaseEngine db, int workers, int maxInFlight) throws Exception {
+        _server = new QueryServer(db, workers, maxInFlight);
+        _server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return new Socket(InetAddress.getLoopbackAddress(), _server.getPort());
+    }
+
+    @Test
+    public void ctor_exception() {
+        try {
+            new QueryServer(null, 1, 1);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            new QueryServer(new DatabaseEngine(EDbVendor.dbvpostgresql), 0, 1);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void malformedRequests() throws Exception {
+        try (Socket s = connect(new DatabaseEngine(EDbVendor.dbvpostgresql), 2, 4)) {
+            Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+            out.write("select 1\n\n\tselect 1\n");
+            out.flush();
+            s.shutdownOutput();
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            assertThat(in.readLine(), is("ERR\tIllegalArgumentException\texpected user<TAB>sql"));
+            assertThat(in.readLine(), is("ERR\tIllegalArgumentException\tEmpty name"));
+            assertThat(in.readLine(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void answersKeepTheRequestOrder() throws Exception {
+        // a single request in flight: the server reads while the client writes
+        try (Socket s = connect(new DatabaseEngine(EDbVendor.dbvpostgresql), 4, 1)) {
+            Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+            for (int i = 0; i < 500; i++) {
+                out.write(i % 2 == 0 ? "no tab\n" : "\tselect 1\n");
+            }
+            out.flush();
+            s.shutdownOutput();
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            for (int i = 0; i < 500; i++) {
+                assertThat(in.readLine().endsWith(i % 2 == 0 ? "sql" : "Empty name"), is(true));
+            }
+            assertThat(in.readLine(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void extractsFeatures() throws Exception {
+        DatabaseEngine db = new DatabaseEngine(EDbVendor.dbvpostgresql);
+        db.parse("CREATE TABLE t1 (id integer, name varchar(10)); GRANT SELECT ON t1 TO u1;");
+        try (Socket s = connect(db, 2, 16)) {
+            Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+            out.write("u1\tselect name from t1 where id = 1\n");
+            out.write("u1\tselect name\\nfrom t1; select id from t1\n");
+            out.write("u2\tselect name from t1\n");
+            out.flush();
+            s.shutdownOutput();
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            assertThat(in.readLine(), is("OK\t1"));
+            assertThat(in.readLine(), is("SELECT\tt1.name\tt1.id\tu1"));
+            assertThat(in.readLine(), is("OK\t2"));
+            assertThat(in.readLine(), is("SELECT\tt1.name\t\tu1"));
+            assertThat(in.readLine(), is("SELECT\tt1.id\t\tu1"));
+            assertThat(in.readLine(), is("ERR\tUnauthorizedSqlException\tthe user 'u2' has no right to read 'name'"));
+            assertThat(in.readLine(), is(nullValue()));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package edu.purdue.dbSchema.server;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class TsvTest {
+
+    @Test
+    public void escape_specialCharacters() {
+        assertThat(Tsv.escape("a\tb\nc\rd\\e", new StringBuilder()).toString(), is("a\\tb\\nc\\rd\\\\e"));
+        assertThat(Tsv.escape("plain", new StringBuilder("x")).toString(), is("xplain"));
+    }
+
+    @Test
+    public void unescape_roundTrip() {
+        String field = "select *\n\tfrom t where s = 'a\\b'\r";
+        String line = "user\t" + Tsv.escape(field, new StringBuilder());
+        assertThat(Tsv.unescape(line, 5, line.length()), is(field));
+        assertThat(Tsv.unescape(line, 0, 4), is("user"));
+    }
+
+    @Test
+    public void unescape_keepsUnknownSequences() {
+        assertThat(Tsv.unescape("a\\xb\\", 0, 5), is("a\\xb\\"));
+        assertThat(Tsv.unescape("a\\nb", 0, 2), is("a\\"));
+    }
+}
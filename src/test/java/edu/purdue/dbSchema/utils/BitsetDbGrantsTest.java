@@ -0,0 +1,286 @@
+package edu.purdue.dbSchema.utils;
+
+import edu.purdue.dbSchema.erros.SqlSemanticException;
+import edu.purdue.dbSchema.erros.UnauthorizedSqlException;
+import edu.purdue.dbSchema.schema.AbstractColumn;
+import edu.purdue.dbSchema.schema.Name;
+import edu.purdue.dbSchema.schema.Table;
+import edu.purdue.dbSchema.schema.VirtualColumn;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class BitsetDbGrantsTest {
+
+    BitsetDbGrants _grants = new BitsetDbGrants();
+    Table _table1, _table2;
+    private AbstractColumn _col1;
+    private AbstractColumn _col2;
+
+    @Before
+    public void init() throws Exception {
+        _grants.grantRole(new Name("roleA"), new Name("user1"));
+        _grants.grantRole(new Name("roleB"), new Name("user2"));
+        _grants.grantRole(new Name("roleC"), new Name("roleA"));
+
+        _table1 = new Table("tbl1");
+        _table1.addColumn("id", "type", true, true);
+        _col1 = _table1.getColumn("id");
+
+        _table2 = new Table("tbl2");
+        _table2.addColumn("id", "type", true, true);
+        _col2 = _table2.getColumn("id");
+
+        _grants.grantRead(_col1, new Name("roleA"));
+        _grants.grantWrite(_col2, new Name("roleB"));
+    }
+
+    @Test
+    public void enforceWrite() throws Exception {
+        Set<Name> roles = _grants.enforceWrite(new Name("user2"), collection(_col2));
+        assertThat(roles, containsInAnyOrder(new Name("roleB")));
+    }
+
+    @Test
+    public void enforceRead_doesNotConsiderVirtualColumns() throws Exception {
+        Set<Name> roles = _grants.enforceRead(new Name("user1"), collection(_col1, new VirtualColumn(_table1, new Name("vt"))));
+        assertThat(roles, containsInAnyOrder(new Name("roleA")));
+    }
+
+    @Test
+    public void enforceRead_MultiplePermission() throws Exception {
+        _grants.grantRead(_col2, new Name("roleC"));
+
+        Set<Name> roles = _grants.enforceRead(new Name("user1"), collection(_col1, _col2));
+        assertThat(roles, containsInAnyOrder(new Name("roleA"), new Name("roleC")));
+    }
+
+    @Test
+    public void enforceRead_EmptyColumns() throws Exception {
+        Set<Name> roles = _grants.enforceRead(new Name("nouser"), Collections.emptyList());
+        assertThat(roles, empty());
+    }
+
+    @Test
+    public void grantRole_Throw() throws Exception {
+        try {
+            _grants.grantRole(new Name("user1"), new Name("roleC"));
+            fail("missing exception");
+        } catch (SqlSemanticException ex) {
+        }
+    }
+
+    @Test
+    public void enforceWrite_Throw() throws Exception {
+        try {
+            _grants.enforceWrite(new Name("user1"), collection(_col1));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+            assertThat(ex.getMessage(), is("the user 'user1' has no right to write 'id'"));
+        }
+    }
+
+    @Test
+    public void enforceRead_Throw() throws Exception {
+        try {
+            _grants.enforceRead(new Name("user2"), collection(_col2));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+            assertThat(ex.getMessage(), is("the user 'user2' has no right to read 'id'"));
+        }
+    }
+
+    @Test
+    public void roleIds_areDenseAndKeptByCopy() throws Exception {
+        assertThat(_grants.getRoleCount(), is(5));
+        assertThat(_grants.getRoleId(new Name("roleA")), is(0));
+        assertThat(_grants.getRoleId(new Name("user1")), is(1));
+        assertThat(_grants.getRoleId(new Name("unknown")), is(-1));
+        for (int i = 0; i < _grants.getRoleCount(); i++) {
+            assertThat(_grants.getRoleId(_grants.getRole(i)), is(i));
+        }
+
+        IDbGrants copy = _grants.copy();
+        copy.grantRead(_col1, new Name("user3"));
+        assertThat(copy.getRoleId(new Name("roleC")), is(_grants.getRoleId(new Name("roleC"))));
+        assertThat(copy.getRoleId(new Name("user3")), is(5));
+        assertThat(_grants.getRoleId(new Name("user3")), is(-1));
+        try {
+            _grants.getRole(5);
+            fail("missing IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void copy_isIndependent() throws Exception {
+        IDbGrants copy = _grants.copy();
+        copy.grantRead(_col2, new Name("roleA"));
+        copy.grantRole(new Name("roleB"), new Name("user1"));
+
+        assertThat(copy.enforceRead(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("roleA")));
+        assertThat(copy.enforceWrite(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("roleB")));
+        try {
+            _grants.enforceRead(new Name("user1"), collection(_col2));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        try {
+            _grants.enforceWrite(new Name("user1"), collection(_col2));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void enforceRead_prefersClosestRole() throws Exception {
+        _grants.grantRead(_col1, new Name("roleC"));
+        _grants.grantRead(_col2, new Name("roleC"));
+        _grants.grantRead(_col2, new Name("user1"));
+
+        assertThat(_grants.enforceRead(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleA")));
+        assertThat(_grants.enforceRead(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("user1")));
+        assertThat(_grants.enforceRead(new Name("roleA"), collection(_col2)), containsInAnyOrder(new Name("roleC")));
+    }
+
+    @Test
+    public void enforceRead_directGrantWithoutRoles() throws Exception {
+        _grants.grantRead(_col2, new Name("user3"));
+        assertThat(_grants.enforceRead(new Name("user3"), collection(_col2)), containsInAnyOrder(new Name("user3")));
+    }
+
+    @Test
+    public void grantRole_updatesExistingUsers() throws Exception {
+        _grants.grantRole(new Name("roleD"), new Name("roleC"));
+        _grants.grantWrite(_col1, new Name("roleD"));
+        assertThat(_grants.enforceWrite(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleD")));
+        try {
+            _grants.grantRole(new Name("user1"), new Name("roleD"));
+            fail("missing exception");
+        } catch (SqlSemanticException ex) {
+        }
+    }
+
+    @Test
+    public void enforceRead_neverGrantedColumn() throws Exception {
+        AbstractColumn col = _table2.addColumn("f2", "type", false, false).getColumn("f2");
+        try {
+            _grants.enforceRead(new Name("user1"), collection(_col1, col));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+            assertThat(ex.getMessage(), is("the user 'user1' has no right to read 'f2'"));
+        }
+    }
+
+    @Test
+    public void enforce_sameResultsAsDbGrants() throws Exception {
+        Random rnd = new Random(42);
+        DbGrants expected = new DbGrants();
+        BitsetDbGrants actual = new BitsetDbGrants();
+        List<AbstractColumn> cols = new ArrayList<>();
+        Table table = new Table("wide");
+        for (int i = 0; i < 300; i++) {
+            table.addColumn("c" + i, "type", false, false);
+            cols.add(table.getColumn("c" + i));
+        }
+        for (int i = 0; i < 60; i++) {
+            Name role = new Name("r" + rnd.nextInt(30));
+            Name to = new Name("r" + rnd.nextInt(30));
+            try {
+                expected.grantRole(role, to);
+            } catch (SqlSemanticException ex) {
+                try {
+                    actual.grantRole(role, to);
+                    fail("missing exception");
+                } catch (SqlSemanticException ex2) {
+                }
+                continue;
+            }
+            actual.grantRole(role, to);
+        }
+        for (int i = 0; i < 2000; i++) {
+            AbstractColumn col = cols.get(rnd.nextInt(cols.size()));
+            Name to = new Name("r" + rnd.nextInt(30));
+            assertThat(actual.grantRead(col, to), is(expected.grantRead(col, to)));
+        }
+        for (int i = 0; i < 500; i++) {
+            Name user = new Name("r" + rnd.nextInt(30));
+            List<AbstractColumn> query = new ArrayList<>();
+            for (int j = rnd.nextInt(5); j >= 0; j--) {
+                query.add(cols.get(rnd.nextInt(cols.size())));
+            }
+            String expectedResult, actualResult;
+            try {
+                expectedResult = new TreeSet<>(expected.enforceRead(user, query)).toString();
+            } catch (UnauthorizedSqlException ex) {
+                expectedResult = ex.getMessage();
+            }
+            try {
+                actualResult = new TreeSet<>(actual.enforceRead(user, query)).toString();
+            } catch (UnauthorizedSqlException ex) {
+                actualResult = ex.getMessage();
+            }
+            assertThat(actualResult, is(expectedResult));
+        }
+    }
+
+    @Test
+    public void accept_replaysGrants() throws Exception {
+        final IDbGrants replayed = new BitsetDbGrants();
+        _grants.accept(new IGrantVisitor() {
+            @Override
+            public void visitRole(Name role, Name to) {
+                try {
+                    replayed.grantRole(role, to);
+                } catch (SqlSemanticException ex) {
+                    throw new AssertionError(ex);
+                }
+            }
+
+            @Override
+            public void visitRead(AbstractColumn column, Name to) {
+                replayed.grantRead(column, to);
+            }
+
+            @Override
+            public void visitWrite(AbstractColumn column, Name to) {
+                replayed.grantWrite(column, to);
+            }
+        });
+        assertThat(replayed.enforceRead(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleA")));
+        assertThat(replayed.enforceWrite(new Name("user2"), collection(_col2)), containsInAnyOrder(new Name("roleB")));
+        try {
+            replayed.grantRole(new Name("user1"), new Name("roleC"));
+            fail("missing exception");
+        } catch (SqlSemanticException ex) {
+        }
+    }
+
+    private Collection<AbstractColumn> collection(AbstractColumn el) {
+        ArrayList<AbstractColumn> ret = new ArrayList<>();
+        ret.add(el);
+        return ret;
+    }
+
+    private Collection<AbstractColumn> collection(AbstractColumn el1, AbstractColumn el2) {
+        ArrayList<AbstractColumn> ret = new ArrayList<>();
+        ret.add(el1);
+        ret.add(el2);
+        return ret;
+    }
+}
@@ -0,0 +1,96 @@
+package edu.purdue.dbSchema.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void ctor() {
+        try {
+            new BoundedCache<String, String>(0);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void getAndPut() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        assertThat(cache.get("a"), is(nullValue()));
+        cache.put("a", 1);
+        assertThat(cache.get("a"), is(1));
+        cache.put("a", 2);
+        assertThat(cache.get("a"), is(2));
+        assertThat(cache.size(), is(1));
+
+        CacheStatistics stats = cache.getStatistics();
+        assertThat(stats.getHits(), is(2L));
+        assertThat(stats.getMisses(), is(1L));
+        assertThat(stats.getEvictions(), is(0L));
+        assertThat(stats.getCapacity(), is(2));
+    }
+
+    @Test
+    public void put_evictsNotReferenced() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.get(1);
+        cache.get(3);
+        cache.put(4, 4);
+        assertThat(cache.size(), is(3));
+        assertThat(cache.get(2), is(nullValue()));
+        assertThat(cache.get(1), is(1));
+        assertThat(cache.get(3), is(3));
+        assertThat(cache.get(4), is(4));
+        assertThat(cache.getStatistics().getEvictions(), is(1L));
+    }
+
+    @Test
+    public void put_neverExceedsCapacity() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+            cache.get(i);
+        }
+        assertThat(cache.size(), is(10));
+        assertThat(cache.getStatistics().getEvictions(), is(990L));
+    }
+
+    @Test
+    public void put_nullValue() {
+        try {
+            new BoundedCache<String, String>(1).put("a", null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
+
+    @Test
+    public void clear() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get("a"), is(nullValue()));
+    }
+
+    @Test
+    public void getHitRatio() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        assertThat(cache.getStatistics().getHitRatio(), is(0.0));
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+        assertThat(cache.getStatistics().getHitRatio(), is(0.5));
+    }
+}
@@ -0,0 +1,161 @@
+package edu.purdue.dbSchema.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class CompactBitmapTest {
+
+    @Test
+    public void addAndContains() {
+        CompactBitmap b = new CompactBitmap();
+        assertThat(b.isEmpty(), is(true));
+        assertThat(b.add(3), is(true));
+        assertThat(b.add(3), is(false));
+        assertThat(b.add(70000), is(true));
+        assertThat(b.contains(3), is(true));
+        assertThat(b.contains(70000), is(true));
+        assertThat(b.contains(4), is(false));
+        assertThat(b.contains(-1), is(false));
+        assertThat(b.cardinality(), is(2));
+        assertThat(b.toString(), is("{3, 70000}"));
+    }
+
+    @Test
+    public void add_negative() {
+        try {
+            new CompactBitmap().add(-1);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void nextSetBit() {
+        CompactBitmap b = new CompactBitmap();
+        b.add(5);
+        b.add(65535);
+        b.add(200000);
+        assertThat(b.nextSetBit(0), is(5));
+        assertThat(b.nextSetBit(6), is(65535));
+        assertThat(b.nextSetBit(65536), is(200000));
+        assertThat(b.nextSetBit(200001), is(-1));
+    }
+
+    @Test(timeout = 10000)
+    public void hashCode_maxValue() {
+        CompactBitmap b = new CompactBitmap();
+        b.add(7);
+        b.add(Integer.MAX_VALUE);
+        assertThat(b.toString(), is("{7, " + Integer.MAX_VALUE + "}"));
+        assertThat(b.hashCode(), is(31 * (31 + 7) + Integer.MAX_VALUE));
+        assertThat(b.nextSetBit(8), is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void copyCtor() {
+        CompactBitmap b = new CompactBitmap();
+        b.add(1);
+        CompactBitmap copy = new CompactBitmap(b);
+        copy.add(2);
+        assertThat(b.contains(2), is(false));
+        assertThat(copy.contains(1), is(true));
+    }
+
+    @Test
+    public void equals_ignoresRepresentation() {
+        CompactBitmap dense = new CompactBitmap();
+        CompactBitmap sparse = new CompactBitmap();
+        for (int i = 0; i < 5000; i++) {
+            dense.add(i);
+        }
+        for (int i = 10; i < 5000; i++) {
+            sparse.add(i);
+        }
+        assertThat(dense, is(not(sparse)));
+        CompactBitmap remaining = new CompactBitmap();
+        for (int i = 0; i < 10; i++) {
+            remaining.add(i);
+        }
+        assertThat(dense.andNot(sparse), is(remaining));
+        assertThat(dense.andNot(sparse).hashCode(), is(remaining.hashCode()));
+    }
+
+    @Test
+    public void setOperations_sameAsBitSet() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            // alternate sparse and dense chunks
+            int range = round % 2 == 0 ? 300000 : 20000;
+            int count = rnd.nextInt(15000);
+            CompactBitmap a = new CompactBitmap(), b = new CompactBitmap();
+            BitSet ea = new BitSet(), eb = new BitSet();
+            for (int i = 0; i < count; i++) {
+                int va = rnd.nextInt(range), vb = rnd.nextInt(range);
+                assertThat(a.add(va), is(!ea.get(va)));
+                ea.set(va);
+                b.add(vb);
+                eb.set(vb);
+            }
+            BitSet and = (BitSet) ea.clone();
+            and.and(eb);
+            BitSet or = (BitSet) ea.clone();
+            or.or(eb);
+            BitSet andNot = (BitSet) ea.clone();
+            andNot.andNot(eb);
+
+            assertSame(a, ea);
+            assertSame(a.and(b), and);
+            assertSame(a.or(b), or);
+            assertSame(a.andNot(b), andNot);
+            assertThat(a.intersects(b), is(ea.intersects(eb)));
+        }
+    }
+
+    @Test
+    public void writeToAndReadFrom() throws Exception {
+        CompactBitmap b = new CompactBitmap();
+        for (int i = 0; i < 10000; i += 2) {
+            b.add(i);
+        }
+        b.add(100000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        b.writeTo(out);
+        new CompactBitmap().writeTo(out);
+        out.writeInt(42);
+
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        assertThat(CompactBitmap.readFrom(in), is(b));
+        assertThat(CompactBitmap.readFrom(in).isEmpty(), is(true));
+        assertThat(in.getInt(), is(42));
+
+        try {
+            CompactBitmap.readFrom(ByteBuffer.wrap(bytes.toByteArray(), 0, 20));
+            fail("missing IOException");
+        } catch (IOException ex) {
+        }
+    }
+
+    private static void assertSame(CompactBitmap actual, BitSet expected) {
+        assertThat(actual.cardinality(), is(expected.cardinality()));
+        int v = actual.nextSetBit(0);
+        for (int e = expected.nextSetBit(0); e >= 0; e = expected.nextSetBit(e + 1)) {
+            assertThat(v, is(e));
+            v = actual.nextSetBit(v + 1);
+        }
+        assertThat(v, is(-1));
+    }
+}
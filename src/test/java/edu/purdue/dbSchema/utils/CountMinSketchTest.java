@@ -0,0 +1,94 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void ctor_roundsWidth() {
+        CountMinSketch sketch = new CountMinSketch(1000, 3);
+        assertThat(sketch.getWidth(), is(1024));
+        assertThat(sketch.getDepth(), is(3));
+        try {
+            new CountMinSketch(0, 3);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            new CountMinSketch(16, 0);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        // 2^30 * 4 counters overflow an int
+        try {
+            new CountMinSketch(1 << 30, 4);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        assertThat(CountMinSketch.isValidSize((1 << 29) + 1, 2), is(false));
+        assertThat(CountMinSketch.isValidSize(1 << 29, 3), is(true));
+    }
+
+    @Test
+    public void estimate_exactWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        sketch.add(1, 2);
+        sketch.add(1, 0.5);
+        sketch.add(1L << 40, 1);
+        assertThat(sketch.estimate(1), is(2.5));
+        assertThat(sketch.estimate(1L << 40), is(1.0));
+        assertThat(sketch.estimate(2), is(0.0));
+        assertThat(sketch.getTotal(), is(3.5));
+    }
+
+    @Test
+    public void estimate_boundedError() {
+        Random rnd = new Random(42);
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+        int[] counts = new int[2000];
+        for (int i = 0; i < 20000; i++) {
+            // a skewed distribution, as the columns used by a user
+            int key = (int) Math.min(counts.length - 1, Math.abs(rnd.nextGaussian() * 200));
+            counts[key]++;
+            sketch.add(key, 1);
+        }
+        int wrong = 0;
+        for (int key = 0; key < counts.length; key++) {
+            double estimate = sketch.estimate(key);
+            assertThat(estimate, greaterThanOrEqualTo((double) counts[key]));
+            if (estimate > counts[key] + Math.E * 20000 / 256) {
+                wrong++;
+            }
+        }
+        assertThat(wrong, lessThanOrEqualTo(counts.length / 50));
+    }
+
+    @Test
+    public void scale_andCopy() {
+        CountMinSketch sketch = new CountMinSketch(64, 2);
+        sketch.add(7, 4);
+        CountMinSketch copy = new CountMinSketch(sketch);
+        sketch.scale(0.25);
+        assertThat(sketch.estimate(7), closeTo(1, 1e-9));
+        assertThat(sketch.getTotal(), closeTo(1, 1e-9));
+        assertThat(copy.estimate(7), is(4.0));
+        sketch.clear();
+        assertThat(sketch.estimate(7), is(0.0));
+        try {
+            sketch.add(7, -1);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class DagTraversalTest {
+
+    @Test
+    public void visit_breadthFirst() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("A", "B");
+        dag.add("B", "C");
+        dag.add("A", "D");
+        dag.add("D", "C");
+        dag.add("A", "B");
+        List<String> visited = new ArrayList<>();
+
+        assertThat(dag.visit("A", true, visited::add), is(4));
+        assertThat(visited, contains("A", "B", "D", "C"));
+        visited.clear();
+        assertThat(dag.visit("B", false, visited::add), is(1));
+        assertThat(visited, contains("C"));
+    }
+
+    @Test
+    public void visit_missingStart() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("A", "B");
+        List<String> visited = new ArrayList<>();
+
+        assertThat(dag.visit("none", false, visited::add), is(0));
+        assertThat(visited, empty());
+        assertThat(dag.visit("none", true, visited::add), is(1));
+        assertThat(visited, contains("none"));
+    }
+
+    @Test
+    public void visit_sameNodesAsFollowNode() {
+        Random rnd = new Random(42);
+        DirectedAcyclicGraph<Integer> dag = new DirectedAcyclicGraph<>();
+        DagTraversal traversal = new DagTraversal();
+        for (int i = 0; i < 500; i++) {
+            dag.add(rnd.nextInt(80), rnd.nextInt(80));
+            if (i % 50 == 0) {
+                dag = (DirectedAcyclicGraph<Integer>) dag.copy();
+            }
+        }
+        for (int node = 0; node < 80; node++) {
+            List<Integer> expected = new ArrayList<>();
+            for (Integer reached : dag.followNodeAndSelef(node)) {
+                expected.add(reached);
+            }
+            List<Integer> visited = new ArrayList<>();
+            assertThat(dag.visit(node, true, visited::add, traversal), is(expected.size()));
+            assertThat(visited, containsInAnyOrder(expected.toArray()));
+        }
+    }
+
+    @Test
+    public void visit_nested() {
+        final DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("A", "B");
+        dag.add("B", "C");
+        final List<String> visited = new ArrayList<>();
+
+        // the thread traversal is busy, the inner visits use their own
+        dag.visit("A", true, node -> dag.visit(node, false, visited::add));
+        assertThat(visited, contains("B", "C", "C"));
+
+        final DagTraversal traversal = new DagTraversal();
+        try {
+            dag.visit("A", true, node -> dag.visit(node, false, visited::add, traversal), traversal);
+            fail("missing IllegalStateException");
+        } catch (IllegalStateException ex) {
+        }
+        assertThat(traversal.isInUse(), is(false));
+    }
+
+    @Test
+    public void visit_nullPointer() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        try {
+            dag.visit(null, true, node -> {
+            });
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            dag.visit("A", true, null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
+}
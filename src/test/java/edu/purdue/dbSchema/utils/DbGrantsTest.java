@@ -102,6 +102,109 @@ public class DbGrantsTest {
         }
     }
 
+    @Test
+    public void roleIds_areDenseAndKeptByCopy() throws Exception {
+        assertThat(_grants.getRoleCount(), is(5));
+        assertThat(_grants.getRoleId(new Name("roleA")), is(0));
+        assertThat(_grants.getRoleId(new Name("user1")), is(1));
+        assertThat(_grants.getRoleId(new Name("unknown")), is(-1));
+        for (int i = 0; i < _grants.getRoleCount(); i++) {
+            assertThat(_grants.getRoleId(_grants.getRole(i)), is(i));
+        }
+
+        IDbGrants copy = _grants.copy();
+        copy.grantRead(_col1, new Name("user3"));
+        assertThat(copy.getRoleId(new Name("roleC")), is(_grants.getRoleId(new Name("roleC"))));
+        assertThat(copy.getRoleId(new Name("user3")), is(5));
+        assertThat(_grants.getRoleId(new Name("user3")), is(-1));
+        try {
+            _grants.getRole(5);
+            fail("missing IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void copy_isIndependent() throws Exception {
+        IDbGrants copy = _grants.copy();
+        copy.grantRead(_col2, new Name("roleA"));
+        copy.grantRole(new Name("roleB"), new Name("user1"));
+
+        assertThat(copy.enforceRead(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("roleA")));
+        assertThat(copy.enforceWrite(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("roleB")));
+        try {
+            _grants.enforceRead(new Name("user1"), collection(_col2));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+        }
+        try {
+            _grants.enforceWrite(new Name("user1"), collection(_col2));
+            fail("missing exception");
+        } catch (UnauthorizedSqlException ex) {
+        }
+    }
+
+    @Test
+    public void enforceRead_prefersClosestRole() throws Exception {
+        _grants.grantRead(_col1, new Name("roleC"));
+        _grants.grantRead(_col2, new Name("roleC"));
+        _grants.grantRead(_col2, new Name("user1"));
+
+        assertThat(_grants.enforceRead(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleA")));
+        assertThat(_grants.enforceRead(new Name("user1"), collection(_col2)), containsInAnyOrder(new Name("user1")));
+        assertThat(_grants.enforceRead(new Name("roleA"), collection(_col2)), containsInAnyOrder(new Name("roleC")));
+    }
+
+    @Test
+    public void enforceRead_directGrantWithoutRoles() throws Exception {
+        _grants.grantRead(_col2, new Name("user3"));
+        assertThat(_grants.enforceRead(new Name("user3"), collection(_col2)), containsInAnyOrder(new Name("user3")));
+    }
+
+    @Test
+    public void grantRole_updatesExistingUsers() throws Exception {
+        _grants.grantRole(new Name("roleD"), new Name("roleC"));
+        _grants.grantWrite(_col1, new Name("roleD"));
+        assertThat(_grants.enforceWrite(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleD")));
+        try {
+            _grants.grantRole(new Name("user1"), new Name("roleD"));
+            fail("missing exception");
+        } catch (SqlSemanticException ex) {
+        }
+    }
+
+    @Test
+    public void accept_replaysGrants() throws Exception {
+        final IDbGrants replayed = new DbGrants();
+        _grants.accept(new IGrantVisitor() {
+            @Override
+            public void visitRole(Name role, Name to) {
+                try {
+                    replayed.grantRole(role, to);
+                } catch (SqlSemanticException ex) {
+                    throw new AssertionError(ex);
+                }
+            }
+
+            @Override
+            public void visitRead(AbstractColumn column, Name to) {
+                replayed.grantRead(column, to);
+            }
+
+            @Override
+            public void visitWrite(AbstractColumn column, Name to) {
+                replayed.grantWrite(column, to);
+            }
+        });
+        assertThat(replayed.enforceRead(new Name("user1"), collection(_col1)), containsInAnyOrder(new Name("roleA")));
+        assertThat(replayed.enforceWrite(new Name("user2"), collection(_col2)), containsInAnyOrder(new Name("roleB")));
+        try {
+            replayed.grantRole(new Name("user1"), new Name("roleC"));
+            fail("missing exception");
+        } catch (SqlSemanticException ex) {
+        }
+    }
+
     private Collection<AbstractColumn> collection(AbstractColumn el) {
         ArrayList<AbstractColumn> ret = new ArrayList<>();
         ret.add(el);
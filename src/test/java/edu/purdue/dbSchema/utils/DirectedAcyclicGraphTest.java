@@ -1,8 +1,16 @@
 package edu.purdue.dbSchema.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -135,6 +143,84 @@ public class DirectedAcyclicGraphTest {
         assertThat(dag.followNode("A"), contains("B", "C"));
     }
 
+    @Test
+    public void copy() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("A", "B");
+        IDirectedAcyclicGraph<String> copy = dag.copy();
+        assertThat(copy.add("B", "C"), is(true));
+        assertThat(copy.followNode("A"), contains("B", "C"));
+        assertThat(dag.followNode("A"), contains("B"));
+    }
+
+    @Test
+    public void forEachEdge() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("A", "B");
+        dag.add("B", "C");
+        dag.add("A", "C");
+        List<String> edges = new ArrayList<>();
+        dag.forEachEdge((from, to) -> edges.add(from + to));
+        assertThat(edges, containsInAnyOrder("AB", "BC", "AC"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void isSerializable() throws Exception {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        dag.add("C", "D");
+        dag.add("A", "B");
+        dag.add("B", "C");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(dag);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            DirectedAcyclicGraph<String> copy = (DirectedAcyclicGraph<String>) ois.readObject();
+            assertThat(copy.followNode("A"), contains("B", "C", "D"));
+            assertThat(copy.add("D", "A"), is(false));
+            assertThat(copy.position("A"), lessThan(copy.position("D")));
+        }
+    }
+
+    @Test
+    public void add_keepsTopologicalOrder() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<>();
+        // both ends exist and the edge goes backward: the nodes are moved
+        dag.add("C", "D");
+        dag.add("A", "B");
+        assertThat(dag.position("C"), lessThan(dag.position("B")));
+        assertThat(dag.add("B", "C"), is(true));
+        assertThat(dag.position("A"), lessThan(dag.position("B")));
+        assertThat(dag.position("B"), lessThan(dag.position("C")));
+        assertThat(dag.position("C"), lessThan(dag.position("D")));
+        assertThat(dag.add("D", "A"), is(false));
+        assertThat(dag.followNode("A"), contains("B", "C", "D"));
+    }
+
+    @Test
+    public void add_sameResultsAsFullVisit() {
+        Random rnd = new Random(42);
+        DirectedAcyclicGraph<Integer> dag = new DirectedAcyclicGraph<>();
+        Set<String> edges = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            int from = rnd.nextInt(60);
+            int to = rnd.nextInt(60);
+            boolean cycle = false;
+            for (Integer reached : dag.followNodeAndSelef(to)) {
+                cycle |= reached == from;
+            }
+            assertThat(dag.add(from, to), is(!cycle));
+            if (!cycle) {
+                edges.add(from + ">" + to);
+            }
+        }
+        for (String edge : edges) {
+            String[] ends = edge.split(">");
+            assertThat(dag.position(Integer.valueOf(ends[0])), lessThan(dag.position(Integer.valueOf(ends[1]))));
+        }
+    }
+
     private ArrayList<String> toList(Iterable<String> iterable) {
         ArrayList<String> list = new ArrayList<>();
         for (String item : iterable) {
@@ -152,4 +152,20 @@ public class HashMapSetTest {
         ms.put("key");
         assertThat(ms.isEmpty(), is(false));
     }
+
+    @Test
+    public void copyCtor() {
+        HashMapSet<String, Integer> ms = new HashMapSet<>();
+        ms.put("a", 1);
+        ms.put("b");
+
+        HashMapSet<String, Integer> copy = new HashMapSet<>(ms);
+        assertThat(copy.keySet(), containsInAnyOrder("a", "b"));
+        assertThat(copy.getSet("a"), containsInAnyOrder(1));
+
+        copy.put("a", 2);
+        copy.put("c", 3);
+        assertThat(ms.getSet("a"), containsInAnyOrder(1));
+        assertThat(ms.keySet(), containsInAnyOrder("a", "b"));
+    }
 }
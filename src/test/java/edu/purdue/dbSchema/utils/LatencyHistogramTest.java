@@ -0,0 +1,109 @@
+package edu.purdue.dbSchema.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertThat(h.getCount(), is(0L));
+        assertThat(h.getMax(), is(0L));
+        assertThat(h.getMean(), is(0.0));
+        assertThat(h.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            h.record(i);
+        }
+        h.record(-5);
+        assertThat(h.getCount(), is(11L));
+        assertThat(h.getMax(), is(10L));
+        assertThat(h.getValueAtPercentile(0), is(0L));
+        assertThat(h.getValueAtPercentile(50), is(5L));
+        assertThat(h.getValueAtPercentile(100), is(10L));
+        assertThat(h.getMean(), is(5.0));
+    }
+
+    @Test
+    public void buckets_boundValues() {
+        long[] values = {0, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE};
+        for (long v : values) {
+            int b = LatencyHistogram.bucket(v);
+            assertThat(LatencyHistogram.highestEquivalentValue(b), is(greaterThanOrEqualTo(v)));
+            if (b > 0) {
+                assertThat(LatencyHistogram.highestEquivalentValue(b - 1), is(lessThanOrEqualTo(v - 1)));
+            }
+        }
+        assertThat(LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucket(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_boundedRelativeError() {
+        Random rnd = new Random(42);
+        LatencyHistogram h = new LatencyHistogram();
+        long[] sorted = new long[10000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (long) Math.exp(rnd.nextDouble() * 20);
+            h.record(sorted[i]);
+        }
+        Arrays.sort(sorted);
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = sorted[(int) Math.ceil(p / 100 * sorted.length) - 1];
+            long reported = h.getValueAtPercentile(p);
+            assertThat(reported, is(greaterThanOrEqualTo(exact)));
+            assertThat((double) reported, is(lessThanOrEqualTo(exact * (1 + 1.0 / 32))));
+        }
+        assertThat(h.getValueAtPercentile(100), is(sorted[sorted.length - 1]));
+    }
+
+    @Test
+    public void copy_isIndependent() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(100);
+        h.record(5000);
+        LatencyHistogram copy = new LatencyHistogram(h);
+        h.record(1000000);
+        assertThat(copy.getCount(), is(2L));
+        assertThat(copy.getMax(), is(5000L));
+        assertThat(copy.getMean(), is(2550.0));
+        assertThat(h.getCount(), is(3L));
+    }
+
+    @Test
+    public void percentile_outOfRange() {
+        try {
+            new LatencyHistogram().getValueAtPercentile(101);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            new LatencyHistogram().getValueAtPercentile(Double.NaN);
+            fail("missing IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void recordSince() {
+        LatencyHistogram h = new LatencyHistogram();
+        long start = System.nanoTime();
+        long end = h.recordSince(start);
+        assertThat(end, is(greaterThanOrEqualTo(start)));
+        assertThat(h.getMax(), is(end - start));
+    }
+}
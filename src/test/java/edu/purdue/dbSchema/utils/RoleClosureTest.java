@@ -0,0 +1,160 @@
+package edu.purdue.dbSchema.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi [lbossi@purdue.edu]
+ */
+public class RoleClosureTest {
+
+    @Test
+    public void get_orderedByDistance() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "c");
+        closure.add("c", "d");
+        closure.add("a", "b");
+        closure.add("b", "d");
+        closure.add("d", "e");
+        assertThat(closure.get("a"), contains("a", "b", "c", "d", "e"));
+        assertThat(closure.get("c"), contains("c", "d", "e"));
+        assertThat(closure.get("e"), contains("e"));
+        assertThat(closure.get("x"), is(nullValue()));
+    }
+
+    @Test
+    public void add_shortensDistances() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "b");
+        closure.add("b", "c");
+        closure.add("c", "d");
+        closure.add("x", "y");
+        closure.add("y", "a");
+        assertThat(closure.get("x"), contains("x", "y", "a", "b", "c", "d"));
+        closure.add("x", "d");
+        assertThat(closure.get("x"), contains("x", "d", "y", "a", "b", "c"));
+    }
+
+    @Test
+    public void successors() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "b");
+        closure.add("b", "c");
+        closure.add("a", "c");
+        closure.add("a", "d");
+        assertThat(closure.successors("a"), contains("b", "c", "d"));
+        assertThat(closure.successors("c"), is(empty()));
+        assertThat(closure.successors("x"), is(empty()));
+        assertThat(closure.nodes(), containsInAnyOrder("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void reaches() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "b");
+        closure.add("b", "c");
+        assertThat(closure.reaches("a", "c"), is(true));
+        assertThat(closure.reaches("c", "a"), is(false));
+        assertThat(closure.reaches("x", "x"), is(true));
+        assertThat(closure.reaches("x", "a"), is(false));
+    }
+
+    @Test
+    public void copyCtor() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "b");
+        RoleClosure<String> copy = new RoleClosure<>(closure);
+        copy.add("b", "c");
+        assertThat(copy.get("a"), contains("a", "b", "c"));
+        assertThat(closure.get("a"), contains("a", "b"));
+        assertThat(closure.reaches("a", "c"), is(false));
+    }
+
+    @Test
+    public void add_matchesVisit() {
+        Random rnd = new Random(42);
+        RoleClosure<Integer> closure = new RoleClosure<>();
+        List<List<Integer>> edges = new ArrayList<>();
+        int size = 60;
+        for (int i = 0; i < size; i++) {
+            edges.add(new ArrayList<>());
+        }
+        for (int i = 0; i < 300; i++) {
+            // edges go from lower to higher numbers, so there are no cycles
+            int from = rnd.nextInt(size - 1);
+            int to = from + 1 + rnd.nextInt(size - from - 1);
+            closure.add(from, to);
+            edges.get(from).add(to);
+        }
+        for (Integer node : closure.nodes()) {
+            Map<Integer, Integer> distances = new HashMap<>();
+            Deque<Integer> queue = new ArrayDeque<>();
+            distances.put(node, 0);
+            queue.add(node);
+            while (!queue.isEmpty()) {
+                Integer current = queue.poll();
+                for (Integer next : edges.get(current)) {
+                    if (!distances.containsKey(next)) {
+                        distances.put(next, distances.get(current) + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+            List<Integer> expected = new ArrayList<>(distances.keySet());
+            expected.sort((a, b) -> distances.get(a).equals(distances.get(b)) ? a.compareTo(b) : distances.get(a) - distances.get(b));
+            assertThat(closure.get(node), is(expected));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void isSerializable() throws Exception {
+        RoleClosure<String> closure = new RoleClosure<>();
+        closure.add("a", "b");
+        closure.add("b", "c");
+        closure.add("a", "c");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(closure);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            RoleClosure<String> copy = (RoleClosure<String>) ois.readObject();
+            assertThat(copy.get("a"), contains("a", "b", "c"));
+            assertThat(copy.successors("a"), contains("b", "c"));
+            assertThat(copy.reaches("c", "a"), is(false));
+        }
+    }
+
+    @Test
+    public void nullArgs() {
+        RoleClosure<String> closure = new RoleClosure<>();
+        try {
+            closure.add(null, "a");
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            closure.get(null);
+            fail("missing NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
+}